@@ -0,0 +1,408 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package com.github.stephengold.joltjni;
+
+import com.github.stephengold.joltjni.readonly.ConstBodyId;
+import com.github.stephengold.joltjni.readonly.RVec3Arg;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Cap the number of active dynamic bodies in a physics system, entirely in
+ * native code.
+ * <p>
+ * When {@link #enforce()} finds more active dynamic bodies than the budget
+ * allows, the least important ones are deactivated early and queued. Queued
+ * bodies that lie within the wake radius of an observer are re-activated,
+ * most important first, as the budget permits. Queued bodies that are
+ * re-activated by other means (such as collisions) leave the queue.
+ * <p>
+ * The importance of a body is its priority (default=0) minus the distance
+ * weight times its distance to the nearest observer. Without observers,
+ * only priorities matter.
+ * <p>
+ * Bodies can't be deactivated during an update, so {@code enforce()} should
+ * be invoked between updates. Since contacts with active bodies can wake
+ * deactivated bodies during a step, the budget bounds the active count only
+ * at the start of each step, not throughout it. To keep the bound, enforce
+ * the budget before every update, for instance by using
+ * {@link #update(float, int, TempAllocator, JobSystem)}.
+ * <p>
+ * Priorities are keyed by body ID, including its sequence number, so they
+ * aren't inherited by recycled IDs. The priorities of destroyed bodies are
+ * discarded during enforcement.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final public class ActivationBudget extends JoltPhysicsObject {
+    // *************************************************************************
+    // fields
+
+    /**
+     * system whose bodies are budgeted
+     */
+    final private PhysicsSystem system;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a budget for the specified system.
+     *
+     * @param system the system to control (not null, alias created)
+     * @param maxActive the maximum number of active dynamic bodies (&ge;0)
+     */
+    public ActivationBudget(PhysicsSystem system, int maxActive) {
+        checkCount(maxActive);
+        this.system = system;
+        long systemVa = system.va();
+        long budgetVa = create(systemVa, maxActive);
+        setVirtualAddress(budgetVa, () -> free(budgetVa));
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Add an observer at the specified location.
+     *
+     * @param location the location of the observer (in system coordinates,
+     * not null, unaffected)
+     * @return the index of the new observer (&ge;0)
+     */
+    public int addObserver(RVec3Arg location) {
+        long budgetVa = va();
+        int result = addObserver(
+                budgetVa, location.xx(), location.yy(), location.zz());
+
+        return result;
+    }
+
+    /**
+     * Remove all observers.
+     */
+    public void clearObservers() {
+        long budgetVa = va();
+        clearObservers(budgetVa);
+    }
+
+    /**
+     * Return the number of active dynamic bodies found by the most recent
+     * enforcement, before any bodies were deactivated.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countActive() {
+        long budgetVa = va();
+        int result = countActive(budgetVa);
+
+        return result;
+    }
+
+    /**
+     * Return the total number of bodies deactivated early since the metrics
+     * were last reset.
+     *
+     * @return the count (&ge;0)
+     */
+    public long countDeactivated() {
+        long budgetVa = va();
+        long result = countDeactivated(budgetVa);
+
+        return result;
+    }
+
+    /**
+     * Count the observers.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countObservers() {
+        long budgetVa = va();
+        int result = countObservers(budgetVa);
+
+        return result;
+    }
+
+    /**
+     * Count the bodies with assigned priorities, including destroyed bodies
+     * whose priorities haven't yet been discarded.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countPriorities() {
+        long budgetVa = va();
+        int result = countPriorities(budgetVa);
+
+        return result;
+    }
+
+    /**
+     * Count the bodies in the queue, which were deactivated early and are
+     * awaiting re-activation.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countQueued() {
+        long budgetVa = va();
+        int result = countQueued(budgetVa);
+
+        return result;
+    }
+
+    /**
+     * Return the total number of queued bodies re-activated by the budget
+     * since the metrics were last reset.
+     *
+     * @return the count (&ge;0)
+     */
+    public long countReactivated() {
+        long budgetVa = va();
+        long result = countReactivated(budgetVa);
+
+        return result;
+    }
+
+    /**
+     * Deactivate the least important bodies in excess of the budget, then
+     * re-activate queued bodies near observers while the budget permits.
+     * Invoke only between updates.
+     *
+     * @return the number of bodies deactivated (&ge;0)
+     */
+    public int enforce() {
+        long budgetVa = va();
+        int result = enforce(budgetVa);
+
+        return result;
+    }
+
+    /**
+     * Return the maximum number of active dynamic bodies.
+     *
+     * @return the count (&ge;0)
+     */
+    public int getMaxActive() {
+        long budgetVa = va();
+        int result = getMaxActive(budgetVa);
+
+        return result;
+    }
+
+    /**
+     * Return the highest number of active dynamic bodies found since the
+     * metrics were last reset.
+     *
+     * @return the count (&ge;0)
+     */
+    public int getPeakActive() {
+        long budgetVa = va();
+        int result = getPeakActive(budgetVa);
+
+        return result;
+    }
+
+    /**
+     * Access the system whose bodies are budgeted.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    public PhysicsSystem getSystem() {
+        return system;
+    }
+
+    /**
+     * Reset the deactivation, re-activation, and peak counts to zero.
+     */
+    public void resetMetrics() {
+        long budgetVa = va();
+        resetMetrics(budgetVa);
+    }
+
+    /**
+     * Alter the weight of observer distance in body importance.
+     *
+     * @param weight the desired weight (in priority units per meter, &ge;0,
+     * default=1)
+     */
+    public void setDistanceWeight(float weight) {
+        if (!(weight >= 0f)) {
+            throw new IllegalArgumentException("weight = " + weight);
+        }
+        long budgetVa = va();
+        setDistanceWeight(budgetVa, weight);
+    }
+
+    /**
+     * Alter the maximum number of active dynamic bodies.
+     *
+     * @param maxActive the desired count (&ge;0)
+     */
+    public void setMaxActive(int maxActive) {
+        checkCount(maxActive);
+        long budgetVa = va();
+        setMaxActive(budgetVa, maxActive);
+    }
+
+    /**
+     * Relocate the specified observer.
+     *
+     * @param observerIndex the index of the observer to move (&ge;0)
+     * @param location the desired location (in system coordinates, not null,
+     * unaffected)
+     */
+    public void setObserver(int observerIndex, RVec3Arg location) {
+        long budgetVa = va();
+        if (observerIndex < 0 || observerIndex >= countObservers(budgetVa)) {
+            throw new IndexOutOfBoundsException(
+                    "observerIndex = " + observerIndex);
+        }
+        setObserver(budgetVa, observerIndex, location.xx(), location.yy(),
+                location.zz());
+    }
+
+    /**
+     * Alter the priorities of the specified bodies.
+     *
+     * @param bodyIds the IDs of the bodies to modify (not null, direct,
+     * unaffected)
+     * @param priorities the desired priority of each body (not null, direct,
+     * unaffected)
+     */
+    public void setPriorities(IntBuffer bodyIds, FloatBuffer priorities) {
+        Jolt.checkDirect(bodyIds);
+        Jolt.checkDirect(priorities);
+        int numBodies = bodyIds.remaining();
+        if (priorities.remaining() < numBodies) {
+            throw new IllegalArgumentException(
+                    "remaining = " + priorities.remaining());
+        }
+        long budgetVa = va();
+        setPriorities(budgetVa, bodyIds, bodyIds.position(), priorities,
+                priorities.position(), numBodies);
+    }
+
+    /**
+     * Alter the priority of the specified body.
+     *
+     * @param bodyId the ID of the body to modify (not null, unaffected)
+     * @param priority the desired priority (higher is more important,
+     * default=0)
+     */
+    public void setPriority(ConstBodyId bodyId, float priority) {
+        long budgetVa = va();
+        int id = bodyId.getIndexAndSequenceNumber();
+        setPriority(budgetVa, id, priority);
+    }
+
+    /**
+     * Alter the radius around observers within which queued bodies are
+     * re-activated.
+     *
+     * @param radius the desired radius (in meters, &ge;0, default=0)
+     */
+    public void setWakeRadius(float radius) {
+        if (!(radius >= 0f)) {
+            throw new IllegalArgumentException("radius = " + radius);
+        }
+        long budgetVa = va();
+        setWakeRadius(budgetVa, radius);
+    }
+
+    /**
+     * Enforce the budget, then advance the simulation.
+     *
+     * @param deltaTime the total time to advance (in seconds)
+     * @param collisionSteps the number of simulation steps to perform
+     * @param tempAllocator the allocator to use (not null)
+     * @param jobSystem the job system to use (not null)
+     * @return a bitmask of error conditions, or-ed together
+     *
+     * @see com.github.stephengold.joltjni.enumerate.EPhysicsUpdateError
+     */
+    public int update(float deltaTime, int collisionSteps,
+            TempAllocator tempAllocator, JobSystem jobSystem) {
+        enforce();
+        int result = system.update(
+                deltaTime, collisionSteps, tempAllocator, jobSystem);
+
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Verify that the specified body count is valid.
+     *
+     * @param maxActive the count to test
+     */
+    private static void checkCount(int maxActive) {
+        if (maxActive < 0) {
+            throw new IllegalArgumentException("maxActive = " + maxActive);
+        }
+    }
+    // *************************************************************************
+    // native private methods
+
+    native private static int addObserver(
+            long budgetVa, double xx, double yy, double zz);
+
+    native private static void clearObservers(long budgetVa);
+
+    native private static int countActive(long budgetVa);
+
+    native private static long countDeactivated(long budgetVa);
+
+    native private static int countObservers(long budgetVa);
+
+    native private static int countPriorities(long budgetVa);
+
+    native private static int countQueued(long budgetVa);
+
+    native private static long countReactivated(long budgetVa);
+
+    native private static long create(long systemVa, int maxActive);
+
+    native private static int enforce(long budgetVa);
+
+    native private static void free(long budgetVa);
+
+    native private static int getMaxActive(long budgetVa);
+
+    native private static int getPeakActive(long budgetVa);
+
+    native private static void resetMetrics(long budgetVa);
+
+    native private static void setDistanceWeight(long budgetVa, float weight);
+
+    native private static void setMaxActive(long budgetVa, int maxActive);
+
+    native private static void setObserver(long budgetVa, int observerIndex,
+            double xx, double yy, double zz);
+
+    native private static void setPriorities(long budgetVa, IntBuffer bodyIds,
+            int idPosition, FloatBuffer priorities, int priorityPosition,
+            int numBodies);
+
+    native private static void setPriority(
+            long budgetVa, int bodyId, float priority);
+
+    native private static void setWakeRadius(long budgetVa, float radius);
+}
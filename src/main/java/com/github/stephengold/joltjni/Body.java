@@ -187,9 +187,9 @@ public class Body extends NonCopyable implements ConstBody {
         float vx = fluidVelocity.getX();
         float vy = fluidVelocity.getY();
         float vz = fluidVelocity.getZ();
-        float gravityX = fluidVelocity.getX();
-        float gravityY = fluidVelocity.getY();
-        float gravityZ = fluidVelocity.getZ();
+        float gravityX = gravity.getX();
+        float gravityY = gravity.getY();
+        float gravityZ = gravity.getZ();
         boolean result = applyBuoyancyImpulse(bodyVa, surfaceX, surfaceY,
                 surfaceZ, nx, ny, nz, buoyancy, linearDrag, angularDrag,
                 vx, vy, vz, gravityX, gravityY, gravityZ, deltaTime);
@@ -209,14 +209,18 @@ public class Body extends NonCopyable implements ConstBody {
     /**
      * Access the body's motion properties.
      *
-     * @return a new JVM object with the pre-existing native object assigned, or
-     * {@code null} if none
+     * @return a new JVM object with the pre-existing native object assigned
+     * (a {@code SoftBodyMotionProperties} for a soft body), or {@code null} if
+     * none
      */
     public MotionProperties getMotionProperties() {
         MotionProperties result;
         long bodyVa = va();
         if (isStatic(bodyVa)) {
             result = null;
+        } else if (isSoftBody(bodyVa)) {
+            long propertiesVa = getMotionProperties(bodyVa);
+            result = new SoftBodyMotionProperties(propertiesVa);
         } else {
             long propertiesVa = getMotionProperties(bodyVa);
             result = new MotionProperties(propertiesVa);
@@ -886,6 +890,19 @@ public class Body extends NonCopyable implements ConstBody {
         return result;
     }
 
+    /**
+     * Test whether the body is a soft body. It is unaffected.
+     *
+     * @return {@code true} if soft body, otherwise {@code false}
+     */
+    @Override
+    public boolean isSoftBody() {
+        long bodyVa = va();
+        boolean result = isSoftBody(bodyVa);
+
+        return result;
+    }
+
     /**
      * Test whether the body is static (non-moving). It is unaffected.
      *
@@ -1017,6 +1034,8 @@ public class Body extends NonCopyable implements ConstBody {
 
     native private static boolean isSensor(long bodyVa);
 
+    native private static boolean isSoftBody(long bodyVa);
+
     native private static boolean isStatic(long bodyVa);
 
     native private static void moveKinematic(long bodyVa, double xx, double yy,
@@ -30,6 +30,13 @@ import com.github.stephengold.joltjni.readonly.ConstBodyId;
  * @author Stephen Gold sgold@sonic.net
  */
 public class BodyId extends JoltPhysicsObject implements ConstBodyId {
+    // *************************************************************************
+    // constants
+
+    /**
+     * index and sequence number of an invalid ID
+     */
+    final public static int cInvalidBodyId = -1;
     // *************************************************************************
     // constructors
 
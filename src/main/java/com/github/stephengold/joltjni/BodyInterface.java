@@ -36,11 +36,11 @@ import com.github.stephengold.joltjni.readonly.Vec3Arg;
 
 /**
  * An interface to a {@code PhysicsSystem} that's used to create, add, modify,
- * query, remove, and delete bodies.
+ * query, remove, and delete bodies, either one at a time or in bulk.
  *
  * @author Stephen Gold sgold@sonic.net
  */
-public class BodyInterface extends NonCopyable {
+public class BodyInterface extends BulkBodyInterface {
     // *************************************************************************
     // constructors
 
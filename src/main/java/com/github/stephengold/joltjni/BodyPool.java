@@ -0,0 +1,330 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package com.github.stephengold.joltjni;
+
+import com.github.stephengold.joltjni.enumerate.EActivation;
+import com.github.stephengold.joltjni.readonly.ConstBodyId;
+import com.github.stephengold.joltjni.readonly.QuatArg;
+import com.github.stephengold.joltjni.readonly.RVec3Arg;
+import com.github.stephengold.joltjni.readonly.Vec3Arg;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * A pool of rigid bodies created from a single template, for recycling
+ * short-lived bodies such as projectiles and debris.
+ * <p>
+ * Free bodies are parked outside the system's broad phase, so they cost
+ * nothing during simulation. Acquiring a body resets its pose, velocities,
+ * accumulated force and torque, and sleep timer, restores its user data,
+ * friction, restitution, collision group, sensor flag, object layer, motion
+ * quality, gravity factor, and damping from the template, then adds it to the
+ * system. Releasing a body removes it from the system and returns it to the
+ * pool. When the pool is empty, new bodies are created from the template.
+ * Motion type and shape are not reset. If other code destroys a pooled body,
+ * whether free or in use, the pool forgets it.
+ * <p>
+ * Freeing the pool destroys its free bodies but not those in use. The pool
+ * keeps its system from being freed automatically. If the system is closed
+ * first, its bodies are already gone, and freeing the pool destroys nothing.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final public class BodyPool extends JoltPhysicsObject {
+    // *************************************************************************
+    // fields
+
+    /**
+     * system to which the bodies belong
+     */
+    final private PhysicsSystem system;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a pool for the specified system and template.
+     *
+     * @param system the system to use (not null, alias created)
+     * @param template the template for new bodies (not null, unaffected)
+     * @param numBodies the number of free bodies to pre-create (&ge;0)
+     */
+    public BodyPool(
+            PhysicsSystem system, BodyTemplate template, int numBodies) {
+        this.system = system;
+        long systemVa = system.va();
+        long templateVa = template.va();
+        long poolVa = create(systemVa, templateVa);
+        setVirtualAddress(poolVa,
+                () -> free(poolVa, system.hasAssignedNativeObject()));
+        reserve(numBodies);
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Acquire a body from the pool and add it to the system.
+     *
+     * @param location the desired location (in system coordinates, not null,
+     * unaffected)
+     * @param orientation the desired orientation (in system coordinates, not
+     * null, normalized, unaffected)
+     * @param linearVelocity the desired linear velocity (in meters per second
+     * in system coordinates, not null, unaffected)
+     * @param angularVelocity the desired angular velocity (in radians per
+     * second in system coordinates, not null, unaffected)
+     * @param activation whether to activate the body (not null)
+     * @return the ID of the body, or an invalid ID when out of bodies
+     */
+    public BodyId acquire(RVec3Arg location, QuatArg orientation,
+            Vec3Arg linearVelocity, Vec3Arg angularVelocity,
+            EActivation activation) {
+        long poolVa = va();
+        long idVa = acquire(poolVa, location.xx(), location.yy(),
+                location.zz(), orientation.getX(), orientation.getY(),
+                orientation.getZ(), orientation.getW(), linearVelocity.getX(),
+                linearVelocity.getY(), linearVelocity.getZ(),
+                angularVelocity.getX(), angularVelocity.getY(),
+                angularVelocity.getZ(), activation.ordinal());
+        BodyId result = new BodyId(idVa, true);
+
+        return result;
+    }
+
+    /**
+     * Acquire one body for each pose in the buffer and add them to the system
+     * in a single batch. The IDs are written starting at the ID buffer's
+     * position, and that position is advanced past the IDs written. If the
+     * system runs out of bodies, {@code BodyId.cInvalidBodyId} is written for
+     * each body that couldn't be acquired.
+     *
+     * @param poses the location (x,y,z) followed by the orientation
+     * (qx,qy,qz,qw) of each body (in system coordinates, not null, direct, 7
+     * doubles per body, remaining a multiple of 7, unaffected)
+     * @param velocities the linear velocity (x,y,z) followed by the angular
+     * velocity (x,y,z) of each body (in system coordinates, direct, 6 floats
+     * per body, unaffected) or null for zero velocities
+     * @param storeIds storage for the IDs (not null, direct, modified)
+     * @param activation whether to activate the bodies (not null)
+     * @return the number of bodies successfully acquired (&ge;0)
+     */
+    public int acquire(DoubleBuffer poses, FloatBuffer velocities,
+            IntBuffer storeIds, EActivation activation) {
+        Jolt.checkDirect(poses);
+        Jolt.checkDirect(storeIds);
+        if (poses.remaining() % 7 != 0) {
+            throw new IllegalArgumentException(
+                    "remaining = " + poses.remaining());
+        }
+        int numBodies = poses.remaining() / 7;
+        if (storeIds.remaining() < numBodies) {
+            throw new IllegalArgumentException(
+                    "remaining = " + storeIds.remaining());
+        }
+        int velocityPosition = 0;
+        if (velocities != null) {
+            Jolt.checkDirect(velocities);
+            if (velocities.remaining() < 6 * numBodies) {
+                throw new IllegalArgumentException(
+                        "remaining = " + velocities.remaining());
+            }
+            velocityPosition = velocities.position();
+        }
+        long poolVa = va();
+        int idPosition = storeIds.position();
+        int result = acquireBodies(poolVa, poses, poses.position(),
+                velocities, velocityPosition, storeIds, idPosition,
+                numBodies, activation.ordinal());
+        storeIds.position(idPosition + numBodies);
+
+        return result;
+    }
+
+    /**
+     * Count the free bodies in the pool. The pool is unaffected.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countFree() {
+        long poolVa = va();
+        int result = countFree(poolVa);
+
+        return result;
+    }
+
+    /**
+     * Count the acquisitions satisfied by a free body since the metrics were
+     * last reset. The pool is unaffected.
+     *
+     * @return the count (&ge;0)
+     */
+    public long countHits() {
+        long poolVa = va();
+        long result = countHits(poolVa);
+
+        return result;
+    }
+
+    /**
+     * Count the bodies acquired but not yet released. The pool is unaffected.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countInUse() {
+        long poolVa = va();
+        int result = countInUse(poolVa);
+
+        return result;
+    }
+
+    /**
+     * Count the acquisitions that required a new body since the metrics were
+     * last reset. The pool is unaffected.
+     *
+     * @return the count (&ge;0)
+     */
+    public long countMisses() {
+        long poolVa = va();
+        long result = countMisses(poolVa);
+
+        return result;
+    }
+
+    /**
+     * Access the system to which the bodies belong.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    public PhysicsSystem getSystem() {
+        return system;
+    }
+
+    /**
+     * Remove the specified body from the system and return it to the pool.
+     * Bodies that weren't acquired from this pool are ignored.
+     *
+     * @param bodyId the ID of the body to release (not null, unaffected)
+     * @return {@code true} if the body was released, otherwise {@code false}
+     */
+    public boolean release(ConstBodyId bodyId) {
+        long poolVa = va();
+        int id = bodyId.getIndexAndSequenceNumber();
+        boolean result = release(poolVa, id);
+
+        return result;
+    }
+
+    /**
+     * Remove the specified bodies from the system in a single batch and
+     * return them to the pool. Bodies that weren't acquired from this pool
+     * are ignored.
+     *
+     * @param bodyIds the IDs of the bodies to release (not null, direct,
+     * unaffected)
+     * @return the number of bodies released (&ge;0)
+     */
+    public int release(IntBuffer bodyIds) {
+        Jolt.checkDirect(bodyIds);
+        long poolVa = va();
+        int result = releaseBodies(poolVa, bodyIds, bodyIds.position(),
+                bodyIds.remaining());
+
+        return result;
+    }
+
+    /**
+     * Create free bodies until the pool contains at least the specified
+     * number. Bodies created this way don't count as misses.
+     *
+     * @param minFree the desired minimum number of free bodies (&ge;0)
+     * @return the number of bodies created (&ge;0)
+     */
+    public int reserve(int minFree) {
+        if (minFree < 0) {
+            throw new IllegalArgumentException("minFree = " + minFree);
+        }
+        long poolVa = va();
+        int result = reserve(poolVa, minFree);
+
+        return result;
+    }
+
+    /**
+     * Reset the hit and miss counts to zero.
+     */
+    public void resetMetrics() {
+        long poolVa = va();
+        resetMetrics(poolVa);
+    }
+
+    /**
+     * Destroy free bodies until the pool contains at most the specified
+     * number.
+     *
+     * @param maxFree the desired maximum number of free bodies (&ge;0)
+     * @return the number of bodies destroyed (&ge;0)
+     */
+    public int trim(int maxFree) {
+        if (maxFree < 0) {
+            throw new IllegalArgumentException("maxFree = " + maxFree);
+        }
+        long poolVa = va();
+        int result = trim(poolVa, maxFree);
+
+        return result;
+    }
+    // *************************************************************************
+    // native private methods
+
+    native private static long acquire(long poolVa, double xx, double yy,
+            double zz, float qx, float qy, float qz, float qw, float vx,
+            float vy, float vz, float wx, float wy, float wz,
+            int activationOrdinal);
+
+    native private static int acquireBodies(long poolVa, DoubleBuffer poses,
+            int posePosition, FloatBuffer velocities, int velocityPosition,
+            IntBuffer storeIds, int idPosition, int numBodies,
+            int activationOrdinal);
+
+    native private static int countFree(long poolVa);
+
+    native private static long countHits(long poolVa);
+
+    native private static int countInUse(long poolVa);
+
+    native private static long countMisses(long poolVa);
+
+    native private static long create(long systemVa, long templateVa);
+
+    native private static void free(long poolVa, boolean systemExists);
+
+    native private static boolean release(long poolVa, int bodyId);
+
+    native private static int releaseBodies(
+            long poolVa, IntBuffer bodyIds, int position, int numBodies);
+
+    native private static int reserve(long poolVa, int minFree);
+
+    native private static void resetMetrics(long poolVa);
+
+    native private static int trim(long poolVa, int maxFree);
+}
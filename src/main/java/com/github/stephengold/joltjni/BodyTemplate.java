@@ -0,0 +1,76 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package com.github.stephengold.joltjni;
+
+import com.github.stephengold.joltjni.readonly.ConstBodyCreationSettings;
+import com.github.stephengold.joltjni.readonly.ConstShape;
+
+/**
+ * An immutable prototype for creating many similar rigid bodies. The creation
+ * settings are copied and the shape is resolved once, when the template is
+ * instantiated. Bodies created from a template differ only in their initial
+ * location, orientation, and velocities.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ * @see BodyInterface#createFromTemplate(BodyTemplate,
+ * com.github.stephengold.joltjni.readonly.RVec3Arg,
+ * com.github.stephengold.joltjni.readonly.QuatArg,
+ * com.github.stephengold.joltjni.readonly.Vec3Arg)
+ */
+final public class BodyTemplate extends JoltPhysicsObject {
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a template from the specified settings. If the settings
+     * specify shape settings instead of a shape, the shape is created now.
+     *
+     * @param settings the settings to copy (not null, unaffected)
+     */
+    public BodyTemplate(ConstBodyCreationSettings settings) {
+        this(settings, null);
+    }
+
+    /**
+     * Instantiate a template from the specified settings and shape.
+     *
+     * @param settings the settings to copy (not null, unaffected)
+     * @param shape the shape to use instead of the one in the settings, or
+     * null to use the one in the settings
+     */
+    public BodyTemplate(ConstBodyCreationSettings settings, ConstShape shape) {
+        long settingsVa = settings.targetVa();
+        long shapeVa = (shape == null) ? 0L : shape.targetVa();
+        long templateVa = create(settingsVa, shapeVa);
+        if (templateVa == 0L) {
+            throw new IllegalArgumentException(
+                    "The shape settings couldn't be converted to a shape.");
+        }
+        setVirtualAddress(templateVa, () -> free(templateVa));
+    }
+    // *************************************************************************
+    // native private methods
+
+    native private static long create(long settingsVa, long shapeVa);
+
+    native private static void free(long templateVa);
+}
@@ -0,0 +1,240 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package com.github.stephengold.joltjni;
+
+import java.nio.IntBuffer;
+
+/**
+ * A step listener that breaks constraints whose accumulated impulses exceed
+ * per-constraint thresholds, entirely in native code.
+ * <p>
+ * At the start of each simulation step, the listener examines the impulses
+ * that each registered constraint applied during the preceding step. If the
+ * linear impulse exceeds {@code maxForce * deltaTime} or the angular impulse
+ * exceeds {@code maxTorque * deltaTime}, the constraint is disabled and its
+ * index is queued for {@link #drainBroken(java.nio.IntBuffer,
+ * com.github.stephengold.joltjni.PhysicsSystem)}.
+ * <p>
+ * Fixed, point, hinge, slider, distance, cone, swing-twist, and six-DOF
+ * constraints are supported. Motor and limit impulses count toward the
+ * totals.
+ * <p>
+ * The listener runs during {@code PhysicsSystem.update()} on a job-system
+ * thread, concurrently with the system's other step listeners. Constraints
+ * should not be registered, nor broken constraints drained, during an update.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final public class BreakableConstraintListener
+        extends JoltPhysicsObject
+        implements PhysicsStepListener {
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a listener with no constraints.
+     */
+    public BreakableConstraintListener() {
+        long listenerVa = createDefault();
+        setVirtualAddress(listenerVa, () -> free(listenerVa));
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Register the specified constraint. The listener holds a counted
+     * reference to it until the listener is freed.
+     *
+     * @param constraint the constraint to register (not null, supported
+     * subtype)
+     * @param maxForce the linear force that breaks the constraint (in Newtons,
+     * &gt;0)
+     * @param maxTorque the torque that breaks the constraint (in
+     * Newton.meters, &gt;0)
+     * @return the index of the registered constraint (&ge;0)
+     */
+    public int add(TwoBodyConstraint constraint, float maxForce,
+            float maxTorque) {
+        checkThresholds(maxForce, maxTorque);
+        long listenerVa = va();
+        long constraintVa = constraint.va();
+        int result = add(listenerVa, constraintVa, maxForce, maxTorque);
+        if (result < 0) {
+            throw new IllegalArgumentException(
+                    "subtype = " + constraint.getSubType());
+        }
+
+        return result;
+    }
+
+    /**
+     * Count the constraints that have broken but not yet been drained. The
+     * listener is unaffected.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countBroken() {
+        long listenerVa = va();
+        int result = countBroken(listenerVa);
+
+        return result;
+    }
+
+    /**
+     * Count the registered constraints, including broken ones. The listener
+     * is unaffected.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countConstraints() {
+        long listenerVa = va();
+        int result = countConstraints(listenerVa);
+
+        return result;
+    }
+
+    /**
+     * Transfer the indices of broken constraints to the specified buffer,
+     * starting at its position, and optionally remove the corresponding
+     * constraints from a physics system in a single batch. Indices that don't
+     * fit remain queued. The buffer's position is advanced.
+     *
+     * @param storeIndices the buffer to write to (not null, direct, modified)
+     * @param removeFrom the system to remove the broken constraints from (all
+     * of which must have been added to it), or {@code null} to leave them
+     * (disabled) in their system
+     * @return the number of indices written (&ge;0)
+     */
+    public int drainBroken(IntBuffer storeIndices, PhysicsSystem removeFrom) {
+        Jolt.checkDirect(storeIndices);
+        long listenerVa = va();
+        long systemVa = (removeFrom == null) ? 0L : removeFrom.va();
+        int position = storeIndices.position();
+        int result = drainBroken(listenerVa, storeIndices, position,
+                storeIndices.remaining(), systemVa);
+        storeIndices.position(position + result);
+
+        return result;
+    }
+
+    /**
+     * Test whether the specified constraint has broken. The listener is
+     * unaffected.
+     *
+     * @param constraintIndex the index of the constraint to test (&ge;0)
+     * @return {@code true} if broken, otherwise {@code false}
+     */
+    public boolean isBroken(int constraintIndex) {
+        long listenerVa = va();
+        checkIndex(listenerVa, constraintIndex);
+        boolean result = isBroken(listenerVa, constraintIndex);
+
+        return result;
+    }
+
+    /**
+     * Alter the breaking thresholds of the specified constraint.
+     *
+     * @param constraintIndex the index of the constraint to modify (&ge;0)
+     * @param maxForce the linear force that breaks the constraint (in Newtons,
+     * &gt;0)
+     * @param maxTorque the torque that breaks the constraint (in
+     * Newton.meters, &gt;0)
+     */
+    public void setThresholds(
+            int constraintIndex, float maxForce, float maxTorque) {
+        checkThresholds(maxForce, maxTorque);
+        long listenerVa = va();
+        checkIndex(listenerVa, constraintIndex);
+        setThresholds(listenerVa, constraintIndex, maxForce, maxTorque);
+    }
+    // *************************************************************************
+    // PhysicsStepListener methods
+
+    /**
+     * Callback invoked (by native code) each time the system is stepped.
+     *
+     * @param contextVa the virtual address of the
+     * {@code PhysicsStepListenerContext} (not zero)
+     */
+    @Override
+    public void onStep(long contextVa) {
+        long listenerVa = va();
+        onStep(listenerVa, contextVa);
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Verify that the specified constraint index is valid.
+     *
+     * @param listenerVa the virtual address of the native listener
+     * @param constraintIndex the index to test
+     */
+    private static void checkIndex(long listenerVa, int constraintIndex) {
+        if (constraintIndex < 0
+                || constraintIndex >= countConstraints(listenerVa)) {
+            throw new IndexOutOfBoundsException(
+                    "constraintIndex = " + constraintIndex);
+        }
+    }
+
+    /**
+     * Verify that the specified breaking thresholds are valid.
+     *
+     * @param maxForce the force threshold to test
+     * @param maxTorque the torque threshold to test
+     */
+    private static void checkThresholds(float maxForce, float maxTorque) {
+        if (!(maxForce > 0f)) {
+            throw new IllegalArgumentException("maxForce = " + maxForce);
+        }
+        if (!(maxTorque > 0f)) {
+            throw new IllegalArgumentException("maxTorque = " + maxTorque);
+        }
+    }
+    // *************************************************************************
+    // native private methods
+
+    native private static int add(long listenerVa, long constraintVa,
+            float maxForce, float maxTorque);
+
+    native private static int countBroken(long listenerVa);
+
+    native private static int countConstraints(long listenerVa);
+
+    native private static long createDefault();
+
+    native private static int drainBroken(long listenerVa,
+            IntBuffer storeIndices, int position, int maxIndices,
+            long systemVa);
+
+    native private static void free(long listenerVa);
+
+    native private static boolean isBroken(
+            long listenerVa, int constraintIndex);
+
+    native private static void onStep(long listenerVa, long contextVa);
+
+    native private static void setThresholds(long listenerVa,
+            int constraintIndex, float maxForce, float maxTorque);
+}
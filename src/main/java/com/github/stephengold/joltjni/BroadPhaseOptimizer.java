@@ -0,0 +1,459 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package com.github.stephengold.joltjni;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Keep the broad phase of a physics system well-balanced between updates.
+ * <p>
+ * During each {@code PhysicsSystem.update()}, Jolt Physics rebuilds one
+ * modified layer tree and swaps it in when the step completes. Trees grown by
+ * many insertions between updates remain suboptimal until they are rebuilt.
+ * This class helps in one of 2 ways:
+ * <ul>
+ * <li>By default, {@link #update(float, int, TempAllocator, JobSystem)}
+ * invokes {@code PhysicsSystem.optimizeBroadPhase()} on the calling thread,
+ * but only once the estimated churn exceeds a fraction of the body count.
+ * This merely throttles full rebuilds: each one still blocks the caller.
+ * Changes in the system's body count are detected automatically. Insertions
+ * balanced by removals (for instance, bodies recycled by a
+ * {@code BodyPool}) must be reported using {@link #recordChurn(int)}.</li>
+ * <li>If an executor is set, each update is followed by a background update:
+ * the broad phase is locked against modification, and Jolt's
+ * {@code BroadPhase::UpdatePrepare()} rebuilds the next modified layer tree
+ * on the executor. Jolt tracks the modifications itself, so all churn is
+ * seen. The new tree is swapped in, using {@code UpdateFinalize()}, when the
+ * next update begins or when {@link #finishBackgroundUpdate()} is
+ * invoked.</li>
+ * </ul>
+ * <p>
+ * While a background update is pending, bodies must not be added, removed,
+ * or moved, and {@code PhysicsSystem.update()} must not be invoked directly:
+ * on the thread that started the update, any of these would deadlock or
+ * race with the rebuild. Invoke {@code finishBackgroundUpdate()} first.
+ * Queries and other work may proceed while the tree is rebuilt.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final public class BroadPhaseOptimizer {
+    // *************************************************************************
+    // fields
+
+    /**
+     * fraction of the body count that triggers a rebuild
+     */
+    private float threshold = 0.25f;
+    /**
+     * minimum churn that triggers a rebuild
+     */
+    private int minChurn = 64;
+    /**
+     * number of bodies in the system when last sampled
+     */
+    private int lastNumBodies;
+    /**
+     * number of background updates finished
+     */
+    private int numBackgroundUpdates;
+    /**
+     * number of rebuilds performed
+     */
+    private int numRebuilds;
+    /**
+     * estimated number of insertions and removals since the last rebuild
+     */
+    private long churn;
+    /**
+     * duration of the most recent swap of a background update (in
+     * nanoseconds)
+     */
+    private long lastFinalizeNanos;
+    /**
+     * duration of the most recent rebuild (in nanoseconds)
+     */
+    private long lastRebuildNanos;
+    /**
+     * total duration of all rebuilds (in nanoseconds)
+     */
+    private long totalRebuildNanos;
+    /**
+     * executor for background updates, or null to rebuild on the calling
+     * thread
+     */
+    private ExecutorService executor;
+    /**
+     * pending background update, which yields the virtual address of its
+     * native update state, or null if none
+     */
+    private FutureTask<Long> pendingUpdate;
+    /**
+     * system whose broad phase is optimized
+     */
+    final private PhysicsSystem system;
+    /**
+     * thread that started the pending background update, or null if none
+     */
+    private Thread lockingThread;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an optimizer for the specified system.
+     *
+     * @param system the system to optimize (not null, alias created)
+     */
+    public BroadPhaseOptimizer(PhysicsSystem system) {
+        this.system = system;
+        this.lastNumBodies = system.getNumBodies();
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Count the background updates finished so far.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countBackgroundUpdates() {
+        return numBackgroundUpdates;
+    }
+
+    /**
+     * Count the rebuilds performed so far.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countRebuilds() {
+        return numRebuilds;
+    }
+
+    /**
+     * Estimate how far the broad phase has degraded since the previous
+     * rebuild, as the ratio of churn to body count.
+     *
+     * @return the ratio (&ge;0, 0 after a rebuild)
+     */
+    public float degradation() {
+        sampleBodyCount();
+        int numBodies = Math.max(lastNumBodies, 1);
+        float result = churn / (float) numBodies;
+
+        return result;
+    }
+
+    /**
+     * Finish the pending background update, if any: wait for its rebuild to
+     * complete, swap in the new tree, and unlock the broad phase. Invoke on
+     * the thread that started the update.
+     *
+     * @return {@code true} if an update was finished, otherwise
+     * {@code false}
+     */
+    public boolean finishBackgroundUpdate() {
+        if (pendingUpdate == null) {
+            return false;
+        } else if (Thread.currentThread() != lockingThread) {
+            throw new IllegalStateException(
+                    "A background update must be finished by the thread "
+                    + "that started it.");
+        }
+
+        long stateVa = 0L;
+        Throwable failure = null;
+        boolean interrupted = false;
+        while (true) {
+            try {
+                stateVa = pendingUpdate.get();
+                break;
+            } catch (ExecutionException exception) {
+                failure = exception.getCause();
+                break;
+            } catch (InterruptedException exception) {
+                // The broad phase must be unlocked regardless.
+                interrupted = true;
+            }
+        }
+        this.pendingUpdate = null;
+        this.lockingThread = null;
+
+        long startNanos = System.nanoTime();
+        updateFinalize(system.va(), stateVa);
+        this.lastFinalizeNanos = System.nanoTime() - startNanos;
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw new IllegalStateException(failure);
+        }
+        ++numBackgroundUpdates;
+
+        return true;
+    }
+
+    /**
+     * Return the estimated number of insertions and removals since the
+     * previous rebuild.
+     *
+     * @return the count (&ge;0)
+     */
+    public long getChurn() {
+        sampleBodyCount();
+        return churn;
+    }
+
+    /**
+     * Return the duration of the most recent rebuild.
+     *
+     * @return the duration (in nanoseconds, &ge;0)
+     */
+    public long getLastRebuildNanos() {
+        return lastRebuildNanos;
+    }
+
+    /**
+     * Access the executor for background updates.
+     *
+     * @return the pre-existing executor, or {@code null} if rebuilds run on
+     * the calling thread
+     */
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Return the duration of the most recent swap of a background update,
+     * which is the only part of it that runs on the calling thread.
+     *
+     * @return the duration (in nanoseconds, &ge;0)
+     */
+    public long getLastFinalizeNanos() {
+        return lastFinalizeNanos;
+    }
+
+    /**
+     * Return the minimum churn that triggers a rebuild.
+     *
+     * @return the count (&ge;0)
+     */
+    public int getMinChurn() {
+        return minChurn;
+    }
+
+    /**
+     * Access the system whose broad phase is optimized.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    public PhysicsSystem getSystem() {
+        return system;
+    }
+
+    /**
+     * Return the fraction of the body count that triggers a rebuild.
+     *
+     * @return the fraction (&gt;0)
+     */
+    public float getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Return the total duration of all rebuilds.
+     *
+     * @return the duration (in nanoseconds, &ge;0)
+     */
+    public long getTotalRebuildNanos() {
+        return totalRebuildNanos;
+    }
+
+    /**
+     * Test whether a background update is pending.
+     *
+     * @return {@code true} if pending, otherwise {@code false}
+     */
+    public boolean isUpdating() {
+        boolean result = (pendingUpdate != null);
+        return result;
+    }
+
+    /**
+     * Rebuild the whole broad phase on the calling thread if it has degraded
+     * enough. Invoke only between updates. Any pending background update is
+     * finished first.
+     *
+     * @return {@code true} if a rebuild was performed, otherwise
+     * {@code false}
+     */
+    public boolean optimizeIfNeeded() {
+        finishBackgroundUpdate();
+        sampleBodyCount();
+        int numBodies = Math.max(lastNumBodies, 1);
+        if (churn < minChurn || churn < threshold * numBodies) {
+            return false;
+        }
+
+        long startNanos = System.nanoTime();
+        system.optimizeBroadPhase();
+        this.lastRebuildNanos = System.nanoTime() - startNanos;
+        totalRebuildNanos += lastRebuildNanos;
+        ++numRebuilds;
+        this.churn = 0L;
+
+        return true;
+    }
+
+    /**
+     * Report insertions or removals that don't change the system's body
+     * count.
+     *
+     * @param numBodies the number of bodies inserted or removed (&ge;0)
+     */
+    public void recordChurn(int numBodies) {
+        if (numBodies < 0) {
+            throw new IllegalArgumentException("numBodies = " + numBodies);
+        }
+        churn += numBodies;
+    }
+
+    /**
+     * Reset the rebuild and background-update counters to zero.
+     */
+    public void resetMetrics() {
+        this.numBackgroundUpdates = 0;
+        this.numRebuilds = 0;
+        this.lastFinalizeNanos = 0L;
+        this.lastRebuildNanos = 0L;
+        this.totalRebuildNanos = 0L;
+    }
+
+    /**
+     * Alter the executor for background updates. Any pending background
+     * update is finished first.
+     *
+     * @param executor the desired executor (alias created), or {@code null}
+     * to rebuild on the calling thread (default=null)
+     */
+    public void setExecutor(ExecutorService executor) {
+        finishBackgroundUpdate();
+        this.executor = executor;
+    }
+
+    /**
+     * Alter the minimum churn that triggers a rebuild.
+     *
+     * @param count the desired count (&ge;0, default=64)
+     */
+    public void setMinChurn(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count = " + count);
+        }
+        this.minChurn = count;
+    }
+
+    /**
+     * Alter the fraction of the body count that triggers a rebuild.
+     *
+     * @param fraction the desired fraction (&gt;0, default=0.25)
+     */
+    public void setThreshold(float fraction) {
+        if (!(fraction > 0f)) {
+            throw new IllegalArgumentException("fraction = " + fraction);
+        }
+        this.threshold = fraction;
+    }
+
+    /**
+     * Lock the broad phase and start rebuilding its next modified layer tree
+     * on the executor. Invoke only between updates. Until the update is
+     * finished, bodies must not be added, removed, or moved.
+     *
+     * @return {@code true} if an update was started, {@code false} if no
+     * executor is set or an update is already pending
+     */
+    public boolean startBackgroundUpdate() {
+        if (executor == null || pendingUpdate != null) {
+            return false;
+        }
+
+        long systemVa = system.va();
+        lockModifications(systemVa);
+        FutureTask<Long> task = new FutureTask<>(() -> updatePrepare(systemVa));
+        this.pendingUpdate = task;
+        this.lockingThread = Thread.currentThread();
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException exception) {
+            task.run();
+        }
+
+        return true;
+    }
+
+    /**
+     * Finish any pending background update and advance the simulation. If no
+     * executor is set, the whole broad phase is rebuilt first if needed.
+     * Otherwise, a background update is started afterwards.
+     *
+     * @param deltaTime the total time to advance (in seconds)
+     * @param collisionSteps the number of simulation steps to perform
+     * @param tempAllocator the allocator to use (not null)
+     * @param jobSystem the job system to use (not null)
+     * @return a bitmask of error conditions, or-ed together
+     *
+     * @see com.github.stephengold.joltjni.enumerate.EPhysicsUpdateError
+     */
+    public int update(float deltaTime, int collisionSteps,
+            TempAllocator tempAllocator, JobSystem jobSystem) {
+        finishBackgroundUpdate();
+        if (executor == null) {
+            optimizeIfNeeded();
+        }
+        int result = system.update(
+                deltaTime, collisionSteps, tempAllocator, jobSystem);
+        startBackgroundUpdate();
+
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Add any change in the system's body count to the churn.
+     */
+    private void sampleBodyCount() {
+        int numBodies = system.getNumBodies();
+        churn += Math.abs(numBodies - lastNumBodies);
+        this.lastNumBodies = numBodies;
+    }
+    // *************************************************************************
+    // native private methods
+
+    native private static void lockModifications(long systemVa);
+
+    native private static void updateFinalize(long systemVa, long stateVa);
+
+    native private static long updatePrepare(long systemVa);
+}
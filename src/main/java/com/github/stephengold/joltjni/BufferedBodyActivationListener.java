@@ -0,0 +1,120 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package com.github.stephengold.joltjni;
+
+import java.nio.IntBuffer;
+
+/**
+ * A {@code BodyActivationListener} that records activation and deactivation
+ * events in native buffers instead of invoking Java code for each event.
+ * <p>
+ * Events accumulate until drained, typically once after each
+ * {@code PhysicsSystem.update()}. Draining coalesces the events of each body,
+ * so a body that changed state several times is reported once, according to
+ * its most recent event. Body IDs are reported in the format of
+ * {@code BodyId.getIndexAndSequenceNumber()}.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class BufferedBodyActivationListener extends BodyActivationListener {
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a listener with no pending events.
+     */
+    public BufferedBodyActivationListener() {
+        long listenerVa = createDefault();
+        setVirtualAddress(listenerVa, true);
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Discard all pending events.
+     */
+    public void clear() {
+        long listenerVa = va();
+        clear(listenerVa);
+    }
+
+    /**
+     * Count the pending events, before coalescing. The listener is unaffected.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countEvents() {
+        long listenerVa = va();
+        int result = countEvents(listenerVa);
+
+        return result;
+    }
+
+    /**
+     * Drain all pending events, writing the IDs of bodies that became active
+     * to one buffer and those that went to sleep to the other. IDs are
+     * written starting at each buffer's current position, and each position
+     * is advanced past the IDs written.
+     *
+     * @param storeActivated storage for the IDs of activated bodies (not
+     * null, direct, remaining&ge;countEvents(), modified)
+     * @param storeDeactivated storage for the IDs of deactivated bodies (not
+     * null, direct, remaining&ge;countEvents(), modified)
+     * @return the total number of IDs written (&ge;0)
+     */
+    public int drain(IntBuffer storeActivated, IntBuffer storeDeactivated) {
+        Jolt.checkDirect(storeActivated);
+        Jolt.checkDirect(storeDeactivated);
+        long listenerVa = va();
+        int[] storeCounts = new int[2];
+        drain(listenerVa, storeActivated, storeActivated.position(),
+                storeActivated.remaining(), storeDeactivated,
+                storeDeactivated.position(), storeDeactivated.remaining(),
+                storeCounts);
+        int numActivated = storeCounts[0];
+        int numDeactivated = storeCounts[1];
+        if (numActivated < 0 || numDeactivated < 0) {
+            throw new IllegalArgumentException(
+                    "Insufficient space remaining in the buffers.");
+        }
+        storeActivated.position(storeActivated.position() + numActivated);
+        storeDeactivated.position(
+                storeDeactivated.position() + numDeactivated);
+        int result = numActivated + numDeactivated;
+
+        return result;
+    }
+    // *************************************************************************
+    // native private methods
+
+    native private static void clear(long listenerVa);
+
+    native private static int countEvents(long listenerVa);
+
+    native private static long createDefault();
+
+    native private static void drain(long listenerVa,
+            IntBuffer storeActivated, int activatedPosition,
+            int activatedRemaining, IntBuffer storeDeactivated,
+            int deactivatedPosition, int deactivatedRemaining,
+            int[] storeCounts);
+}
@@ -0,0 +1,501 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package com.github.stephengold.joltjni;
+
+import com.github.stephengold.joltjni.enumerate.EActivation;
+import com.github.stephengold.joltjni.readonly.ConstBodyCreationSettings;
+import com.github.stephengold.joltjni.readonly.QuatArg;
+import com.github.stephengold.joltjni.readonly.RVec3Arg;
+import com.github.stephengold.joltjni.readonly.Vec3Arg;
+import java.nio.Buffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Bulk operations of a {@code BodyInterface}, which operate on many bodies
+ * with a single native call.
+ * <p>
+ * Body IDs are passed in direct {@code IntBuffer} objects, in the format of
+ * {@code BodyId.getIndexAndSequenceNumber()}. Unless noted otherwise, the IDs
+ * between the buffer's position and its limit are used, and the buffer's
+ * position is unaffected. Per-body data are read from a second direct buffer,
+ * starting at its position, in the same order as the IDs.
+ * <p>
+ * Methods that modify body state lock all the bodies of a batch at once,
+ * acquiring each body mutex only once, and then activate the affected bodies
+ * in a single batch.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+abstract class BulkBodyInterface extends NonCopyable {
+    // *************************************************************************
+    // constants
+
+    /**
+     * operation code to add forces
+     */
+    final private static int cAddForce = 0;
+    /**
+     * operation code to add impulses
+     */
+    final private static int cAddImpulse = 1;
+    /**
+     * operation code to add torques
+     */
+    final private static int cAddTorque = 2;
+    /**
+     * operation code to set linear and angular velocities
+     */
+    final private static int cSetVelocities = 3;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate with the specified container and native object.
+     *
+     * @param system the containing object, or {@code null} if none
+     * @param bodyInterfaceVa the virtual address of the native object to assign
+     * (not zero)
+     */
+    BulkBodyInterface(PhysicsSystem system, long bodyInterfaceVa) {
+        super(system, bodyInterfaceVa);
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Activate the specified bodies.
+     *
+     * @param bodyIds the IDs of the bodies to activate (not null, direct,
+     * unaffected)
+     */
+    public void activateBodies(IntBuffer bodyIds) {
+        long bodyInterfaceVa = va();
+        Jolt.checkDirect(bodyIds);
+        activateBodies(bodyInterfaceVa, bodyIds, bodyIds.position(),
+                bodyIds.remaining());
+    }
+
+    /**
+     * Add the specified bodies to the system, updating the broad phase in a
+     * single batch.
+     *
+     * @param bodyIds the IDs of the bodies to add (not null, direct, may be
+     * reordered)
+     * @param activation whether to activate the bodies (not null)
+     */
+    public void addBodies(IntBuffer bodyIds, EActivation activation) {
+        long bodyInterfaceVa = va();
+        Jolt.checkDirect(bodyIds);
+        int ordinal = activation.ordinal();
+        addBodies(bodyInterfaceVa, bodyIds, bodyIds.position(),
+                bodyIds.remaining(), ordinal);
+    }
+
+    /**
+     * Abort adding bodies that were prepared using
+     * {@link #addBodiesPrepare(java.nio.IntBuffer)}.
+     *
+     * @param bodyIds the IDs that were prepared, in the same order (not null,
+     * direct, unaffected)
+     * @param addState the token returned by {@code addBodiesPrepare()}
+     */
+    public void addBodiesAbort(IntBuffer bodyIds, long addState) {
+        long bodyInterfaceVa = va();
+        Jolt.checkDirect(bodyIds);
+        addBodiesAbort(bodyInterfaceVa, bodyIds, bodyIds.position(),
+                bodyIds.remaining(), addState);
+    }
+
+    /**
+     * Finish adding bodies that were prepared using
+     * {@link #addBodiesPrepare(java.nio.IntBuffer)}.
+     *
+     * @param bodyIds the IDs that were prepared, in the same order (not null,
+     * direct, may be reordered)
+     * @param addState the token returned by {@code addBodiesPrepare()}
+     * @param activation whether to activate the bodies (not null)
+     */
+    public void addBodiesFinalize(
+            IntBuffer bodyIds, long addState, EActivation activation) {
+        long bodyInterfaceVa = va();
+        Jolt.checkDirect(bodyIds);
+        int ordinal = activation.ordinal();
+        addBodiesFinalize(bodyInterfaceVa, bodyIds, bodyIds.position(),
+                bodyIds.remaining(), addState, ordinal);
+    }
+
+    /**
+     * Prepare to add the specified bodies to the system. This builds the
+     * broad-phase structures for the bodies without locking the broad phase,
+     * so it can be done on a background thread. It must be followed by
+     * {@link #addBodiesFinalize(java.nio.IntBuffer, long, EActivation)} or
+     * {@link #addBodiesAbort(java.nio.IntBuffer, long)}.
+     *
+     * @param bodyIds the IDs of the bodies to add (not null, direct, may be
+     * reordered)
+     * @return an opaque token to pass to the finalize or abort method
+     */
+    public long addBodiesPrepare(IntBuffer bodyIds) {
+        long bodyInterfaceVa = va();
+        Jolt.checkDirect(bodyIds);
+        long result = addBodiesPrepare(
+                bodyInterfaceVa, bodyIds, bodyIds.position(),
+                bodyIds.remaining());
+
+        return result;
+    }
+
+    /**
+     * Apply a force to each of the specified bodies, activating them as
+     * needed. Only dynamic bodies are affected.
+     *
+     * @param bodyIds the IDs of the bodies to push (not null, direct,
+     * unaffected)
+     * @param forces the force on each body (in Newtons in system coordinates,
+     * not null, direct, 3 floats per body, unaffected)
+     */
+    public void addForces(IntBuffer bodyIds, FloatBuffer forces) {
+        int numBodies = checkBuffers(bodyIds, forces, 3);
+        applyVectors(systemVa(), isLocking(), bodyIds, bodyIds.position(),
+                numBodies, forces, forces.position(), cAddForce);
+    }
+
+    /**
+     * Apply an impulse to the center of mass of each of the specified bodies,
+     * activating them as needed. Only dynamic bodies are affected.
+     *
+     * @param bodyIds the IDs of the bodies to push (not null, direct,
+     * unaffected)
+     * @param impulses the impulse on each body (in kilogram.meters per second
+     * in system coordinates, not null, direct, 3 floats per body, unaffected)
+     */
+    public void addImpulses(IntBuffer bodyIds, FloatBuffer impulses) {
+        int numBodies = checkBuffers(bodyIds, impulses, 3);
+        applyVectors(systemVa(), isLocking(), bodyIds, bodyIds.position(),
+                numBodies, impulses, impulses.position(), cAddImpulse);
+    }
+
+    /**
+     * Apply a torque to each of the specified bodies, activating them as
+     * needed. Only dynamic bodies are affected.
+     *
+     * @param bodyIds the IDs of the bodies to twist (not null, direct,
+     * unaffected)
+     * @param torques the torque on each body (in Newton.meters in system
+     * coordinates, not null, direct, 3 floats per body, unaffected)
+     */
+    public void addTorques(IntBuffer bodyIds, FloatBuffer torques) {
+        int numBodies = checkBuffers(bodyIds, torques, 3);
+        applyVectors(systemVa(), isLocking(), bodyIds, bodyIds.position(),
+                numBodies, torques, torques.position(), cAddTorque);
+    }
+
+    /**
+     * Create bodies using the specified settings, without adding them to the
+     * system. Their IDs are written starting at the buffer's position, and
+     * the position is advanced past the IDs written. If the system runs out
+     * of bodies, {@code BodyId.cInvalidBodyId} is written for each body that
+     * couldn't be created.
+     *
+     * @param settings the settings for each body (not null, unaffected)
+     * @param storeIds storage for the IDs (not null, direct,
+     * remaining&ge;settings.length, modified)
+     * @return the number of bodies successfully created (&ge;0)
+     */
+    public int createBodies(
+            ConstBodyCreationSettings[] settings, IntBuffer storeIds) {
+        long bodyInterfaceVa = va();
+        Jolt.checkDirect(storeIds);
+        int numBodies = settings.length;
+        if (storeIds.remaining() < numBodies) {
+            throw new IllegalArgumentException(
+                    "remaining = " + storeIds.remaining());
+        }
+        long[] settingsVas = new long[numBodies];
+        for (int i = 0; i < numBodies; ++i) {
+            settingsVas[i] = settings[i].targetVa();
+        }
+        int position = storeIds.position();
+        int result = createBodies(
+                bodyInterfaceVa, settingsVas, storeIds, position);
+        storeIds.position(position + numBodies);
+
+        return result;
+    }
+
+    /**
+     * Create a rigid body from the specified template, without adding it to
+     * the system.
+     *
+     * @param template the template to use (not null, unaffected)
+     * @param location the desired location (in system coordinates, not null,
+     * unaffected)
+     * @param orientation the desired orientation (in system coordinates, not
+     * null, normalized, unaffected)
+     * @param linearVelocity the desired linear velocity (in meters per second
+     * in system coordinates, not null, unaffected)
+     * @return the new body
+     */
+    public Body createFromTemplate(BodyTemplate template, RVec3Arg location,
+            QuatArg orientation, Vec3Arg linearVelocity) {
+        long bodyInterfaceVa = va();
+        long templateVa = template.va();
+        long bodyVa = createFromTemplate(bodyInterfaceVa, templateVa,
+                location.xx(), location.yy(), location.zz(),
+                orientation.getX(), orientation.getY(), orientation.getZ(),
+                orientation.getW(), linearVelocity.getX(),
+                linearVelocity.getY(), linearVelocity.getZ());
+        if (bodyVa == 0L) {
+            throw new IllegalStateException("ran out of bodies");
+        }
+        Body result = new Body(bodyVa);
+
+        return result;
+    }
+
+    /**
+     * Create rigid bodies from the specified template, without adding them to
+     * the system. One body is created for each pose in the buffer. The IDs
+     * are written starting at the ID buffer's position, and that position is
+     * advanced past the IDs written. If the system runs out of bodies,
+     * {@code BodyId.cInvalidBodyId} is written for each body that couldn't be
+     * created.
+     *
+     * @param template the template to use (not null, unaffected)
+     * @param poses the location (x,y,z) followed by the orientation
+     * (qx,qy,qz,qw) of each body (in system coordinates, not null, direct, 7
+     * doubles per body, remaining a multiple of 7, unaffected)
+     * @param velocities the linear velocity (x,y,z) followed by the angular
+     * velocity (x,y,z) of each body (in system coordinates, direct, 6 floats
+     * per body, unaffected) or null for zero velocities
+     * @param storeIds storage for the IDs (not null, direct, modified)
+     * @return the number of bodies successfully created (&ge;0)
+     */
+    public int createFromTemplate(BodyTemplate template, DoubleBuffer poses,
+            FloatBuffer velocities, IntBuffer storeIds) {
+        Jolt.checkDirect(storeIds);
+        Jolt.checkDirect(poses);
+        if (poses.remaining() % 7 != 0) {
+            throw new IllegalArgumentException(
+                    "remaining = " + poses.remaining());
+        }
+        int numBodies = poses.remaining() / 7;
+        if (storeIds.remaining() < numBodies) {
+            throw new IllegalArgumentException(
+                    "remaining = " + storeIds.remaining());
+        }
+        int velocityPosition = 0;
+        if (velocities != null) {
+            Jolt.checkDirect(velocities);
+            if (velocities.remaining() < 6 * numBodies) {
+                throw new IllegalArgumentException(
+                        "remaining = " + velocities.remaining());
+            }
+            velocityPosition = velocities.position();
+        }
+        long bodyInterfaceVa = va();
+        long templateVa = template.va();
+        int idPosition = storeIds.position();
+        int result = createBodiesFromTemplate(bodyInterfaceVa, templateVa,
+                poses, poses.position(), velocities, velocityPosition,
+                storeIds, idPosition, numBodies);
+        storeIds.position(idPosition + numBodies);
+
+        return result;
+    }
+
+    /**
+     * Deactivate the specified bodies.
+     *
+     * @param bodyIds the IDs of the bodies to deactivate (not null, direct,
+     * unaffected)
+     */
+    public void deactivateBodies(IntBuffer bodyIds) {
+        long bodyInterfaceVa = va();
+        Jolt.checkDirect(bodyIds);
+        deactivateBodies(bodyInterfaceVa, bodyIds, bodyIds.position(),
+                bodyIds.remaining());
+    }
+
+    /**
+     * Destroy the specified bodies, which must have been removed from the
+     * system.
+     *
+     * @param bodyIds the IDs of the bodies to destroy (not null, direct,
+     * unaffected)
+     */
+    public void destroyBodies(IntBuffer bodyIds) {
+        long bodyInterfaceVa = va();
+        Jolt.checkDirect(bodyIds);
+        destroyBodies(bodyInterfaceVa, bodyIds, bodyIds.position(),
+                bodyIds.remaining());
+    }
+
+    /**
+     * Move each of the specified kinematic bodies so that it reaches its
+     * target location and orientation after the specified time, activating
+     * bodies as needed. Bodies that aren't kinematic are unaffected.
+     *
+     * @param bodyIds the IDs of the bodies to move (not null, direct,
+     * unaffected)
+     * @param targets the target of each body: location (x,y,z in system
+     * coordinates) followed by orientation (qx,qy,qz,qw) (not null, direct,
+     * 7 doubles per body, unaffected)
+     * @param deltaTime the time to reach the targets (in seconds, &gt;0)
+     */
+    public void moveKinematics(
+            IntBuffer bodyIds, DoubleBuffer targets, float deltaTime) {
+        int numBodies = checkBuffers(bodyIds, targets, 7);
+        moveKinematics(systemVa(), isLocking(), bodyIds, bodyIds.position(),
+                numBodies, targets, targets.position(), deltaTime);
+    }
+
+    /**
+     * Remove the specified bodies from the system, updating the broad phase
+     * in a single batch.
+     *
+     * @param bodyIds the IDs of the bodies to remove (not null, direct, may be
+     * reordered)
+     */
+    public void removeBodies(IntBuffer bodyIds) {
+        long bodyInterfaceVa = va();
+        Jolt.checkDirect(bodyIds);
+        removeBodies(bodyInterfaceVa, bodyIds, bodyIds.position(),
+                bodyIds.remaining());
+    }
+
+    /**
+     * Alter the linear and angular velocities of each of the specified
+     * bodies, activating bodies with non-zero velocities as needed. Static
+     * bodies are unaffected.
+     *
+     * @param bodyIds the IDs of the bodies to modify (not null, direct,
+     * unaffected)
+     * @param velocities the linear velocity (x,y,z) followed by the angular
+     * velocity (x,y,z) of each body (in system coordinates, not null, direct,
+     * 6 floats per body, unaffected)
+     */
+    public void setLinearAndAngularVelocities(
+            IntBuffer bodyIds, FloatBuffer velocities) {
+        int numBodies = checkBuffers(bodyIds, velocities, 6);
+        applyVectors(systemVa(), isLocking(), bodyIds, bodyIds.position(),
+                numBodies, velocities, velocities.position(), cSetVelocities);
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Verify that the specified buffers are direct and that the data buffer
+     * has enough values for all the IDs.
+     *
+     * @param bodyIds the buffer of body IDs (not null, unaffected)
+     * @param data the buffer of per-body data (not null, unaffected)
+     * @param stride the number of values per body
+     * @return the number of bodies
+     */
+    private static int checkBuffers(IntBuffer bodyIds, Buffer data,
+            int stride) {
+        Jolt.checkDirect(bodyIds);
+        Jolt.checkDirect(data);
+        int result = bodyIds.remaining();
+        if (data.remaining() < stride * result) {
+            throw new IllegalArgumentException(
+                    "remaining = " + data.remaining());
+        }
+
+        return result;
+    }
+
+    /**
+     * Test whether this is the locking interface of its system.
+     *
+     * @return true if locking, otherwise false
+     */
+    private boolean isLocking() {
+        PhysicsSystem system = (PhysicsSystem) getContainingObject();
+        boolean result = (system.getBodyInterface() == this);
+
+        return result;
+    }
+
+    /**
+     * Return the address of the containing system.
+     *
+     * @return the virtual address (not zero)
+     */
+    private long systemVa() {
+        PhysicsSystem system = (PhysicsSystem) getContainingObject();
+        long result = system.va();
+
+        return result;
+    }
+    // *************************************************************************
+    // native private methods
+
+    native private static void activateBodies(long bodyInterfaceVa,
+            IntBuffer bodyIds, int position, int numBodies);
+
+    native private static void addBodies(long bodyInterfaceVa,
+            IntBuffer bodyIds, int position, int numBodies, int ordinal);
+
+    native private static void addBodiesAbort(long bodyInterfaceVa,
+            IntBuffer bodyIds, int position, int numBodies, long addState);
+
+    native private static void addBodiesFinalize(long bodyInterfaceVa,
+            IntBuffer bodyIds, int position, int numBodies, long addState,
+            int ordinal);
+
+    native private static long addBodiesPrepare(long bodyInterfaceVa,
+            IntBuffer bodyIds, int position, int numBodies);
+
+    native private static void applyVectors(long systemVa, boolean locking,
+            IntBuffer bodyIds, int idPosition, int numBodies,
+            FloatBuffer vectors, int vectorPosition, int operation);
+
+    native private static int createBodies(long bodyInterfaceVa,
+            long[] settingsVas, IntBuffer storeIds, int position);
+
+    native private static int createBodiesFromTemplate(long bodyInterfaceVa,
+            long templateVa, DoubleBuffer poses, int posePosition,
+            FloatBuffer velocities, int velocityPosition, IntBuffer storeIds,
+            int idPosition, int numBodies);
+
+    native private static long createFromTemplate(long bodyInterfaceVa,
+            long templateVa, double xx, double yy, double zz, float qx,
+            float qy, float qz, float qw, float vx, float vy, float vz);
+
+    native private static void deactivateBodies(long bodyInterfaceVa,
+            IntBuffer bodyIds, int position, int numBodies);
+
+    native private static void destroyBodies(long bodyInterfaceVa,
+            IntBuffer bodyIds, int position, int numBodies);
+
+    native private static void moveKinematics(long systemVa,
+            boolean locking, IntBuffer bodyIds, int idPosition,
+            int numBodies, DoubleBuffer targets, int targetPosition,
+            float deltaTime);
+
+    native private static void removeBodies(long bodyInterfaceVa,
+            IntBuffer bodyIds, int position, int numBodies);
+}
@@ -0,0 +1,317 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package com.github.stephengold.joltjni;
+
+import com.github.stephengold.joltjni.enumerate.EGroundState;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+/**
+ * A direct buffer that captures the state of many characters with a single
+ * native call, for serialization or rendering.
+ * <p>
+ * Each character occupies a fixed-size record of 4-byte slots, in native byte
+ * order:
+ * <ul>
+ * <li>slots 0-2: position (floats)</li>
+ * <li>slots 3-6: rotation X, Y, Z, and W (floats)</li>
+ * <li>slots 7-9: linear velocity (floats)</li>
+ * <li>slots 10-12: ground normal (floats)</li>
+ * <li>slot 13: ground state ordinal (int)</li>
+ * <li>slot 14: index and sequence number of the ground body (int)</li>
+ * <li>slot 15: number of contact records that follow (int)</li>
+ * <li>then for each active contact: the body's index and sequence number
+ * (int), the contact normal (3 floats), and flags (int)</li>
+ * </ul>
+ * Only a {@code CharacterVirtual} has active contacts. Contacts beyond the
+ * buffer's per-character limit are omitted.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final public class CharacterStateBuffer {
+    // *************************************************************************
+    // constants
+
+    /**
+     * contact flag: the contact is with a sensor
+     */
+    final public static int cContactIsSensor = 0x1;
+    /**
+     * contact flag: the contact is with another virtual character
+     */
+    final public static int cContactIsCharacter = 0x2;
+    /**
+     * contact flag: the contact had a collision during the last update
+     */
+    final public static int cContactHadCollision = 0x4;
+    /**
+     * number of slots in the header of each record
+     */
+    final public static int cHeaderSlots = 16;
+    /**
+     * number of slots in each contact record
+     */
+    final public static int cContactSlots = 5;
+    // *************************************************************************
+    // fields
+
+    /**
+     * underlying storage
+     */
+    final private ByteBuffer buffer;
+    /**
+     * maximum number of contact records per character
+     */
+    final private int maxContacts;
+    /**
+     * number of characters in the most recent capture
+     */
+    private int numCaptured;
+    /**
+     * number of bytes per character
+     */
+    final private int recordBytes;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a buffer with the specified capacity.
+     *
+     * @param maxCharacters the maximum number of characters per capture
+     * (&ge;0)
+     * @param maxContacts the maximum number of contacts recorded per character
+     * (&ge;0)
+     */
+    public CharacterStateBuffer(int maxCharacters, int maxContacts) {
+        if (maxCharacters < 0) {
+            throw new IllegalArgumentException(
+                    "maxCharacters = " + maxCharacters);
+        }
+        if (maxContacts < 0) {
+            throw new IllegalArgumentException("maxContacts = " + maxContacts);
+        }
+        this.maxContacts = maxContacts;
+        this.recordBytes = 4 * (cHeaderSlots + cContactSlots * maxContacts);
+        this.buffer = ByteBuffer.allocateDirect(maxCharacters * recordBytes);
+        buffer.order(ByteOrder.nativeOrder());
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Capture the state of the specified characters, overwriting any previous
+     * capture. Each {@code Character} body is locked while it's read.
+     *
+     * @param characters the characters to capture (not null, each a
+     * {@code Character} or {@code CharacterVirtual}, unaffected)
+     * @return the number of characters captured (&ge;0)
+     */
+    public int capture(List<? extends CharacterBase> characters) {
+        int numCharacters = characters.size();
+        if (numCharacters * recordBytes > buffer.capacity()) {
+            throw new IllegalArgumentException(
+                    "numCharacters = " + numCharacters);
+        }
+        long[] characterVas = new long[numCharacters];
+        boolean[] isVirtual = new boolean[numCharacters];
+        for (int i = 0; i < numCharacters; ++i) {
+            CharacterBase character = characters.get(i);
+            characterVas[i] = character.va();
+            if (character instanceof CharacterVirtual) {
+                isVirtual[i] = true;
+            } else if (!(character instanceof Character)) {
+                throw new IllegalArgumentException(
+                        character.getClass().getSimpleName());
+            }
+        }
+        capture(characterVas, isVirtual, maxContacts, recordBytes, buffer);
+        this.numCaptured = numCharacters;
+        buffer.limit(numCharacters * recordBytes);
+
+        return numCharacters;
+    }
+
+    /**
+     * Count the contact records of the specified character in the most recent
+     * capture. The buffer is unaffected.
+     *
+     * @param index the index of the character (&ge;0)
+     * @return the count (&ge;0)
+     */
+    public int countContacts(int index) {
+        int result = buffer.getInt(slotOffset(index, 15));
+        return result;
+    }
+
+    /**
+     * Access the underlying buffer, whose limit marks the end of the most
+     * recent capture.
+     *
+     * @return the pre-existing direct buffer (not null)
+     */
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Return the index and sequence number of the specified contact's body.
+     * The buffer is unaffected.
+     *
+     * @param index the index of the character (&ge;0)
+     * @param contactIndex the index of the contact record (&ge;0)
+     * @return the body's index and sequence number
+     */
+    public int getContactBodyId(int index, int contactIndex) {
+        int result = buffer.getInt(contactOffset(index, contactIndex));
+        return result;
+    }
+
+    /**
+     * Return the flags of the specified contact. The buffer is unaffected.
+     *
+     * @param index the index of the character (&ge;0)
+     * @param contactIndex the index of the contact record (&ge;0)
+     * @return a bitmask of {@code cContact*} flags
+     */
+    public int getContactFlags(int index, int contactIndex) {
+        int result = buffer.getInt(contactOffset(index, contactIndex) + 16);
+        return result;
+    }
+
+    /**
+     * Copy the normal of the specified contact. The buffer is unaffected.
+     *
+     * @param index the index of the character (&ge;0)
+     * @param contactIndex the index of the contact record (&ge;0)
+     * @return a new direction vector
+     */
+    public Vec3 getContactNormal(int index, int contactIndex) {
+        int offset = contactOffset(index, contactIndex) + 4;
+        Vec3 result = getVec3(offset);
+
+        return result;
+    }
+
+    /**
+     * Return the ground state of the specified character. The buffer is
+     * unaffected.
+     *
+     * @param index the index of the character (&ge;0)
+     * @return an enum value (not null)
+     */
+    public EGroundState getGroundState(int index) {
+        int ordinal = buffer.getInt(slotOffset(index, 13));
+        EGroundState result = EGroundState.values()[ordinal];
+
+        return result;
+    }
+
+    /**
+     * Copy the linear velocity of the specified character. The buffer is
+     * unaffected.
+     *
+     * @param index the index of the character (&ge;0)
+     * @return a new velocity vector
+     */
+    public Vec3 getLinearVelocity(int index) {
+        Vec3 result = getVec3(slotOffset(index, 7));
+        return result;
+    }
+
+    /**
+     * Copy the position of the specified character. The buffer is unaffected.
+     *
+     * @param index the index of the character (&ge;0)
+     * @return a new location vector (single precision)
+     */
+    public Vec3 getPosition(int index) {
+        Vec3 result = getVec3(slotOffset(index, 0));
+        return result;
+    }
+
+    /**
+     * Return the number of bytes in each character's record. The buffer is
+     * unaffected.
+     *
+     * @return the size (in bytes, &gt;0)
+     */
+    public int recordBytes() {
+        return recordBytes;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Return the byte offset of the specified contact record.
+     *
+     * @param index the index of the character (&ge;0)
+     * @param contactIndex the index of the contact record (&ge;0)
+     * @return the offset (in bytes)
+     */
+    private int contactOffset(int index, int contactIndex) {
+        if (contactIndex < 0 || contactIndex >= countContacts(index)) {
+            throw new IndexOutOfBoundsException(
+                    "contactIndex = " + contactIndex);
+        }
+        int slot = cHeaderSlots + cContactSlots * contactIndex;
+        int result = slotOffset(index, slot);
+
+        return result;
+    }
+
+    /**
+     * Read 3 floats starting at the specified byte offset.
+     *
+     * @param offset the offset of the first float (in bytes)
+     * @return a new vector
+     */
+    private Vec3 getVec3(int offset) {
+        float x = buffer.getFloat(offset);
+        float y = buffer.getFloat(offset + 4);
+        float z = buffer.getFloat(offset + 8);
+        Vec3 result = new Vec3(x, y, z);
+
+        return result;
+    }
+
+    /**
+     * Return the byte offset of the specified slot.
+     *
+     * @param index the index of the character (&ge;0)
+     * @param slot the index of the slot within the record (&ge;0)
+     * @return the offset (in bytes)
+     */
+    private int slotOffset(int index, int slot) {
+        if (index < 0 || index >= numCaptured) {
+            throw new IndexOutOfBoundsException("index = " + index);
+        }
+        int result = index * recordBytes + 4 * slot;
+        return result;
+    }
+    // *************************************************************************
+    // native private methods
+
+    native private static void capture(long[] characterVas,
+            boolean[] isVirtual, int maxContacts, int recordBytes,
+            ByteBuffer storeBuffer);
+}
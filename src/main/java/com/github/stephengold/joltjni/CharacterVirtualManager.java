@@ -0,0 +1,364 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package com.github.stephengold.joltjni;
+
+import com.github.stephengold.joltjni.readonly.Vec3Arg;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Update many virtual characters with a single call, optionally in parallel.
+ * <p>
+ * Desired velocities are read from one buffer and the resulting states are
+ * written to another, both in the order the characters were added. Each
+ * character collides using default filters for its object layer, derived from
+ * the physics system's layer filters.
+ * <p>
+ * Characters that collide with each other (via a
+ * {@code CharacterVsCharacterCollision}) read each other's positions while
+ * they are being updated, so the parallel updates reject managers containing
+ * any character with such an interface. Update those managers on the current
+ * thread instead.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final public class CharacterVirtualManager {
+    // *************************************************************************
+    // constants
+
+    /**
+     * number of floats written per character by {@code update()}: position
+     * (3), linear velocity (3), ground state ordinal, and 1 if supported
+     * otherwise 0
+     */
+    final public static int cStateStride = 8;
+    /**
+     * minimum number of characters per job or task
+     */
+    final private static int minBatchSize = 8;
+    // *************************************************************************
+    // fields
+
+    /**
+     * settings used for every extended update
+     */
+    final private ExtendedUpdateSettings settings;
+    /**
+     * object layer of each character
+     */
+    private int[] objectLayers = new int[16];
+    /**
+     * managed characters, in order of addition
+     */
+    final private List<CharacterVirtual> characters = new ArrayList<>(16);
+    /**
+     * virtual address of each character
+     */
+    private long[] characterVas = new long[16];
+    /**
+     * system in which the characters are simulated
+     */
+    final private PhysicsSystem system;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an empty manager for the specified physics system.
+     *
+     * @param system the system in which the characters are simulated (not
+     * null, alias created)
+     */
+    public CharacterVirtualManager(PhysicsSystem system) {
+        this.system = system;
+        this.settings = new ExtendedUpdateSettings();
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Add the specified character.
+     *
+     * @param character the character to add (not null, alias created)
+     * @param objectLayer the object layer with which the character collides
+     * @return the character's index in the buffers (&ge;0)
+     */
+    public int add(CharacterVirtual character, int objectLayer) {
+        int result = characters.size();
+        if (result == characterVas.length) {
+            int capacity = 2 * result;
+            long[] vas = new long[capacity];
+            System.arraycopy(characterVas, 0, vas, 0, result);
+            this.characterVas = vas;
+            int[] layers = new int[capacity];
+            System.arraycopy(objectLayers, 0, layers, 0, result);
+            this.objectLayers = layers;
+        }
+        characters.add(character);
+        characterVas[result] = character.va();
+        objectLayers[result] = objectLayer;
+
+        return result;
+    }
+
+    /**
+     * Count the managed characters. The manager is unaffected.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countCharacters() {
+        int result = characters.size();
+        return result;
+    }
+
+    /**
+     * Access the character with the specified index.
+     *
+     * @param index the index of the character (&ge;0)
+     * @return the pre-existing object (not null)
+     */
+    public CharacterVirtual get(int index) {
+        CharacterVirtual result = characters.get(index);
+        return result;
+    }
+
+    /**
+     * Access the settings used for every extended update.
+     *
+     * @return the pre-existing object (not null)
+     */
+    public ExtendedUpdateSettings getSettings() {
+        return settings;
+    }
+
+    /**
+     * Remove the specified character. The indices of characters added after
+     * it decrease by one.
+     *
+     * @param character the character to remove (not null)
+     * @return {@code true} if the character was managed, otherwise
+     * {@code false}
+     */
+    public boolean remove(CharacterVirtual character) {
+        int index = characters.indexOf(character);
+        if (index < 0) {
+            return false;
+        }
+        characters.remove(index);
+        int numMoved = characters.size() - index;
+        System.arraycopy(characterVas, index + 1, characterVas, index,
+                numMoved);
+        System.arraycopy(objectLayers, index + 1, objectLayers, index,
+                numMoved);
+
+        return true;
+    }
+
+    /**
+     * Update all characters on the current thread.
+     *
+     * @param deltaTime the time step to simulate (in seconds, &ge;0)
+     * @param gravity the gravity acceleration vector (in meters per second
+     * squared, not null, unaffected)
+     * @param desiredVelocities the linear velocity of each character at the
+     * start of the step (not null, 3 floats per character, unaffected)
+     * @param storeStates storage for the resulting states (not null,
+     * {@code cStateStride} floats per character, modified)
+     * @param allocator for temporary allocations (not null)
+     */
+    public void update(float deltaTime, Vec3Arg gravity,
+            FloatBuffer desiredVelocities, FloatBuffer storeStates,
+            TempAllocator allocator) {
+        int numCharacters = checkBuffers(desiredVelocities, storeStates);
+        long systemVa = system.va();
+        long settingsVa = settings.va();
+        long allocatorVa = allocator.va();
+        updateRange(systemVa, characterVas, objectLayers, 0, numCharacters,
+                deltaTime, gravity.getX(), gravity.getY(), gravity.getZ(),
+                settingsVa, desiredVelocities, storeStates, allocatorVa);
+    }
+
+    /**
+     * Update all characters in parallel using the specified executor. Each
+     * task uses its own temporary allocator.
+     *
+     * @param deltaTime the time step to simulate (in seconds, &ge;0)
+     * @param gravity the gravity acceleration vector (in meters per second
+     * squared, not null, unaffected)
+     * @param desiredVelocities the linear velocity of each character at the
+     * start of the step (not null, 3 floats per character, unaffected)
+     * @param storeStates storage for the resulting states (not null,
+     * {@code cStateStride} floats per character, modified)
+     * @param executor the executor to run the tasks (not null)
+     * @param numTasks the desired number of tasks (&ge;1)
+     * @throws IllegalStateException if any character has a
+     * {@code CharacterVsCharacterCollision} interface
+     */
+    public void update(float deltaTime, Vec3Arg gravity,
+            FloatBuffer desiredVelocities, FloatBuffer storeStates,
+            ExecutorService executor, int numTasks) {
+        int numCharacters = checkBuffers(desiredVelocities, storeStates);
+        checkNoCharacterCollision();
+        long systemVa = system.va();
+        long settingsVa = settings.va();
+        float gx = gravity.getX();
+        float gy = gravity.getY();
+        float gz = gravity.getZ();
+        long[] vas = characterVas;
+        int[] layers = objectLayers;
+
+        int batchSize = batchSize(numCharacters, numTasks);
+        Collection<Callable<Void>> tasks = new ArrayList<>(numTasks);
+        for (int start = 0; start < numCharacters; start += batchSize) {
+            int begin = start;
+            int end = Math.min(start + batchSize, numCharacters);
+            tasks.add(() -> {
+                try (TempAllocatorMalloc allocator
+                        = new TempAllocatorMalloc()) {
+                    updateRange(systemVa, vas, layers, begin, end, deltaTime,
+                            gx, gy, gz, settingsVa, desiredVelocities,
+                            storeStates, allocator.va());
+                }
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> future
+                    : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (ExecutionException exception) {
+            throw new IllegalStateException(exception.getCause());
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    /**
+     * Update all characters in parallel using the specified job system. Each
+     * job uses its own temporary allocator.
+     *
+     * @param deltaTime the time step to simulate (in seconds, &ge;0)
+     * @param gravity the gravity acceleration vector (in meters per second
+     * squared, not null, unaffected)
+     * @param desiredVelocities the linear velocity of each character at the
+     * start of the step (not null, 3 floats per character, unaffected)
+     * @param storeStates storage for the resulting states (not null,
+     * {@code cStateStride} floats per character, modified)
+     * @param jobSystem the job system to run the jobs (not null)
+     * @throws IllegalStateException if any character has a
+     * {@code CharacterVsCharacterCollision} interface
+     */
+    public void update(float deltaTime, Vec3Arg gravity,
+            FloatBuffer desiredVelocities, FloatBuffer storeStates,
+            JobSystem jobSystem) {
+        int numCharacters = checkBuffers(desiredVelocities, storeStates);
+        checkNoCharacterCollision();
+        long systemVa = system.va();
+        long settingsVa = settings.va();
+        long jobSystemVa = jobSystem.va();
+        int numJobs = jobSystem.getMaxConcurrency();
+        int batchSize = batchSize(numCharacters, numJobs);
+        updateWithJobs(systemVa, characterVas, objectLayers, numCharacters,
+                batchSize, deltaTime, gravity.getX(), gravity.getY(),
+                gravity.getZ(), settingsVa, desiredVelocities, storeStates,
+                jobSystemVa);
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Determine how many characters to process in each job or task.
+     *
+     * @param numCharacters the number of characters (&ge;0)
+     * @param numBatches the desired number of batches (&ge;1)
+     * @return the batch size (&ge;1)
+     */
+    private static int batchSize(int numCharacters, int numBatches) {
+        if (numBatches < 1) {
+            throw new IllegalArgumentException("numBatches = " + numBatches);
+        }
+        int result = (numCharacters + numBatches - 1) / numBatches;
+        result = Math.max(result, minBatchSize);
+
+        return result;
+    }
+
+    /**
+     * Verify that no managed character collides with other characters, which
+     * would make parallel updates race.
+     */
+    private void checkNoCharacterCollision() {
+        int numCharacters = characters.size();
+        for (int i = 0; i < numCharacters; ++i) {
+            CharacterVirtual character = characters.get(i);
+            if (character.getCharacterVsCharacterCollision() != null) {
+                throw new IllegalStateException("Character " + i
+                        + " collides with other characters, so it can't be"
+                        + " updated in parallel.");
+            }
+        }
+    }
+
+    /**
+     * Verify that the specified buffers are direct and large enough.
+     *
+     * @param desiredVelocities the input buffer (not null, unaffected)
+     * @param storeStates the output buffer (not null, unaffected)
+     * @return the number of characters (&ge;0)
+     */
+    private int checkBuffers(
+            FloatBuffer desiredVelocities, FloatBuffer storeStates) {
+        int result = characters.size();
+        Jolt.checkDirect(desiredVelocities);
+        Jolt.checkDirect(storeStates);
+        if (desiredVelocities.capacity() < 3 * result) {
+            throw new IllegalArgumentException(
+                    "desiredVelocities is too small");
+        }
+        if (storeStates.capacity() < cStateStride * result) {
+            throw new IllegalArgumentException("storeStates is too small");
+        }
+
+        return result;
+    }
+    // *************************************************************************
+    // native private methods
+
+    native private static void updateRange(long systemVa,
+            long[] characterVas, int[] objectLayers, int start, int end,
+            float deltaTime, float gravityX, float gravityY, float gravityZ,
+            long settingsVa, FloatBuffer desiredVelocities,
+            FloatBuffer storeStates, long allocatorVa);
+
+    native private static void updateWithJobs(long systemVa,
+            long[] characterVas, int[] objectLayers, int numCharacters,
+            int batchSize, float deltaTime, float gravityX, float gravityY,
+            float gravityZ, long settingsVa, FloatBuffer desiredVelocities,
+            FloatBuffer storeStates, long jobSystemVa);
+}
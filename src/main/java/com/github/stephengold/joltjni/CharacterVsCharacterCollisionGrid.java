@@ -0,0 +1,123 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package com.github.stephengold.joltjni;
+
+import com.github.stephengold.joltjni.readonly.ConstCharacterVirtual;
+
+/**
+ * A Character-versus-Character collision interface that bins characters in a
+ * uniform grid, so each character is tested only against characters in nearby
+ * cells instead of against every other character.
+ * <p>
+ * Characters are binned by their positions as of the most recent
+ * {@link #update()}, which should be invoked once per frame, typically after
+ * the characters have been updated. The margin should cover the distance a
+ * character can move between invocations.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class CharacterVsCharacterCollisionGrid
+        extends CharacterVsCharacterCollision {
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an empty grid with the specified parameters.
+     *
+     * @param cellSize the edge length of each cubic cell (in meters, &gt;0,
+     * typically a few times the character diameter)
+     * @param margin the extra distance to search around each character (in
+     * meters, &ge;0)
+     */
+    public CharacterVsCharacterCollisionGrid(float cellSize, float margin) {
+        if (!(cellSize > 0f)) {
+            throw new IllegalArgumentException("cellSize = " + cellSize);
+        }
+        if (!(margin >= 0f)) {
+            throw new IllegalArgumentException("margin = " + margin);
+        }
+        long interfaceVa = create(cellSize, margin);
+        setVirtualAddress(interfaceVa, true);
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Add the specified character to the grid.
+     *
+     * @param character the character to add (not null)
+     */
+    public void add(ConstCharacterVirtual character) {
+        long interfaceVa = va();
+        long characterVa = character.targetVa();
+        add(interfaceVa, characterVa);
+    }
+
+    /**
+     * Count the characters in the grid. The grid is unaffected.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countCharacters() {
+        long interfaceVa = va();
+        int result = countCharacters(interfaceVa);
+
+        return result;
+    }
+
+    /**
+     * Remove the specified character from the grid.
+     *
+     * @param character the character to remove (not null)
+     */
+    public void remove(ConstCharacterVirtual character) {
+        long interfaceVa = va();
+        long characterVa = character.targetVa();
+        remove(interfaceVa, characterVa);
+    }
+
+    /**
+     * Re-bin characters that have moved into different cells and refresh
+     * their bounding radii. Must not be invoked while characters are being
+     * updated.
+     *
+     * @return the number of characters that changed cells (&ge;0)
+     */
+    public int update() {
+        long interfaceVa = va();
+        int result = update(interfaceVa);
+
+        return result;
+    }
+    // *************************************************************************
+    // native private methods
+
+    native private static void add(long interfaceVa, long characterVa);
+
+    native private static int countCharacters(long interfaceVa);
+
+    native private static long create(float cellSize, float margin);
+
+    native private static void remove(long interfaceVa, long characterVa);
+
+    native private static int update(long interfaceVa);
+}
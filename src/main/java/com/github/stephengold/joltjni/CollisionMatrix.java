@@ -0,0 +1,267 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package com.github.stephengold.joltjni;
+
+/**
+ * Compiled collision rules for object layers, stored in compact native tables
+ * and exposed through a broad-phase layer interface and 2 layer filters that
+ * are evaluated entirely in native code.
+ * <p>
+ * The collision rules can be replaced at runtime using
+ * {@link #update(CollisionMatrixBuilder)}, which swaps the tables atomically.
+ * The assignment of object layers to broad-phase layers is fixed when the
+ * matrix is built.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ * @see CollisionMatrixBuilder#build()
+ */
+final public class CollisionMatrix extends JoltPhysicsObject {
+    // *************************************************************************
+    // fields
+
+    /**
+     * broad-phase layer of each object layer
+     */
+    final private int[] objToBp;
+    /**
+     * number of broad-phase layers
+     */
+    final private int numBpLayers;
+    /**
+     * broad-phase layer interface backed by the tables
+     */
+    final private LayerMap layerMap;
+    /**
+     * object-vs-broad-phase filter backed by the tables
+     */
+    final private OvbFilter ovbFilter;
+    /**
+     * object-layer pair filter backed by the tables
+     */
+    final private OvoFilter ovoFilter;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a matrix from compiled tables.
+     *
+     * @param objToBp the broad-phase layer of each object layer (not null,
+     * alias created)
+     * @param objVsObj which object-layer pairs collide, with pair (i,j) at
+     * index i*numObjLayers+j (not null, unaffected)
+     */
+    CollisionMatrix(int[] objToBp, boolean[] objVsObj) {
+        this.objToBp = objToBp;
+        int maxBpLayer = 0;
+        for (int bpLayer : objToBp) {
+            maxBpLayer = Math.max(maxBpLayer, bpLayer);
+        }
+        this.numBpLayers = maxBpLayer + 1;
+
+        boolean[] objVsBp = compileObjVsBp(objVsObj);
+        long matrixVa = create(objToBp.length, numBpLayers, objToBp, objVsObj,
+                objVsBp);
+        setVirtualAddress(matrixVa, () -> free(matrixVa));
+
+        this.layerMap = new LayerMap(this, getLayerMap(matrixVa));
+        this.ovbFilter = new OvbFilter(this, getOvbFilter(matrixVa));
+        this.ovoFilter = new OvoFilter(this, getOvoFilter(matrixVa));
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Count the broad-phase layers.
+     *
+     * @return the count (&ge;1)
+     */
+    public int countBroadPhaseLayers() {
+        return numBpLayers;
+    }
+
+    /**
+     * Count the object layers.
+     *
+     * @return the count (&ge;1)
+     */
+    public int countObjectLayers() {
+        int result = objToBp.length;
+        return result;
+    }
+
+    /**
+     * Access the interface that maps object layers to broad-phase layers.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    public BroadPhaseLayerInterface getBroadPhaseLayerInterface() {
+        return layerMap;
+    }
+
+    /**
+     * Access the filter for object-layer pairs.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    public ObjectLayerPairFilter getObjVsObjFilter() {
+        return ovoFilter;
+    }
+
+    /**
+     * Access the filter for object layers versus broad-phase layers.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    public ObjectVsBroadPhaseLayerFilter getObjVsBpFilter() {
+        return ovbFilter;
+    }
+
+    /**
+     * Replace the collision rules with those of the specified builder. The
+     * new tables take effect atomically. Invoke only between physics updates.
+     *
+     * @param builder the builder to compile (not null, same number of layers,
+     * unaffected)
+     */
+    public void update(CollisionMatrixBuilder builder) {
+        int numObjLayers = objToBp.length;
+        int numLayers = builder.countLayers();
+        if (numLayers != numObjLayers) {
+            throw new IllegalArgumentException(
+                    "The builder has " + numLayers + " layers, not "
+                    + numObjLayers + ".");
+        }
+        boolean[] objVsObj = builder.compileObjVsObj();
+        boolean[] objVsBp = compileObjVsBp(objVsObj);
+        long matrixVa = va();
+        update(matrixVa, objVsObj, objVsBp);
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Derive the object-vs-broad-phase table: an object layer may collide
+     * with a broad-phase layer if it collides with any of its object layers.
+     *
+     * @param objVsObj which object-layer pairs collide (not null, unaffected)
+     * @return a new array, with pair (i,j) at index i*numBpLayers+j
+     */
+    private boolean[] compileObjVsBp(boolean[] objVsObj) {
+        int numObjLayers = objToBp.length;
+        boolean[] result = new boolean[numObjLayers * numBpLayers];
+        for (int i = 0; i < numObjLayers; ++i) {
+            for (int j = 0; j < numObjLayers; ++j) {
+                if (objVsObj[i * numObjLayers + j]) {
+                    result[i * numBpLayers + objToBp[j]] = true;
+                }
+            }
+        }
+
+        return result;
+    }
+    // *************************************************************************
+    // native private methods
+
+    native private static long create(int numObjLayers, int numBpLayers,
+            int[] objToBp, boolean[] objVsObj, boolean[] objVsBp);
+
+    native private static void free(long matrixVa);
+
+    native private static long getLayerMap(long matrixVa);
+
+    native private static long getOvbFilter(long matrixVa);
+
+    native private static long getOvoFilter(long matrixVa);
+
+    native private static void update(
+            long matrixVa, boolean[] objVsObj, boolean[] objVsBp);
+    // *************************************************************************
+    // LayerMap class
+
+    /**
+     * A broad-phase layer interface owned by a matrix.
+     */
+    final private static class LayerMap extends BroadPhaseLayerInterface {
+        /**
+         * matrix that owns the native object, to keep it reachable
+         */
+        final private CollisionMatrix matrix;
+
+        /**
+         * Instantiate a reference to the specified native object.
+         *
+         * @param matrix the owning matrix (not null)
+         * @param mapVa the virtual address of the native object (not zero)
+         */
+        LayerMap(CollisionMatrix matrix, long mapVa) {
+            this.matrix = matrix;
+            setVirtualAddress(mapVa, null);
+        }
+    }
+    // *************************************************************************
+    // OvbFilter class
+
+    /**
+     * An object-vs-broad-phase filter owned by a matrix.
+     */
+    final private static class OvbFilter
+            extends ObjectVsBroadPhaseLayerFilter {
+        /**
+         * matrix that owns the native object, to keep it reachable
+         */
+        final private CollisionMatrix matrix;
+
+        /**
+         * Instantiate a reference to the specified native object.
+         *
+         * @param matrix the owning matrix (not null)
+         * @param filterVa the virtual address of the native object (not zero)
+         */
+        OvbFilter(CollisionMatrix matrix, long filterVa) {
+            this.matrix = matrix;
+            setVirtualAddress(filterVa, null);
+        }
+    }
+    // *************************************************************************
+    // OvoFilter class
+
+    /**
+     * An object-layer pair filter owned by a matrix.
+     */
+    final private static class OvoFilter extends ObjectLayerPairFilter {
+        /**
+         * matrix that owns the native object, to keep it reachable
+         */
+        final private CollisionMatrix matrix;
+
+        /**
+         * Instantiate a reference to the specified native object.
+         *
+         * @param matrix the owning matrix (not null)
+         * @param filterVa the virtual address of the native object (not zero)
+         */
+        OvoFilter(CollisionMatrix matrix, long filterVa) {
+            this.matrix = matrix;
+            setVirtualAddress(filterVa, null);
+        }
+    }
+}
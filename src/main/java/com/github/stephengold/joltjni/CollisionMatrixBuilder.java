@@ -0,0 +1,379 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package com.github.stephengold.joltjni;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Declare object layers and their collision rules, then compile them into a
+ * {@code CollisionMatrix}.
+ * <p>
+ * Two layers collide if a pair rule says so. In the absence of a pair rule,
+ * they collide if each layer's group bits intersect the other layer's mask
+ * bits. By default, each layer has all group and mask bits set, so all layers
+ * collide.
+ * <p>
+ * Broad-phase layers are assigned automatically: object layers that collide
+ * with the same set of layers share a broad-phase layer. Layers marked as
+ * non-moving never share a broad-phase layer with moving ones. If that yields
+ * too many broad-phase layers, the most similar layers are merged, which
+ * affects only broad-phase culling, not which pairs collide.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class CollisionMatrixBuilder {
+    // *************************************************************************
+    // fields
+
+    /**
+     * maximum number of broad-phase layers
+     */
+    private int maxBpLayers = 8;
+    /**
+     * group bits of each layer
+     */
+    final private List<Integer> groups = new ArrayList<>(16);
+    /**
+     * mask bits of each layer
+     */
+    final private List<Integer> masks = new ArrayList<>(16);
+    /**
+     * whether each layer is for non-moving bodies
+     */
+    final private List<Boolean> nonMoving = new ArrayList<>(16);
+    /**
+     * names of the layers, in index order
+     */
+    final private List<String> names = new ArrayList<>(16);
+    /**
+     * map layer names to indices
+     */
+    final private Map<String, Integer> nameToIndex = new HashMap<>(16);
+    /**
+     * pair rules, keyed by the packed indices of both layers
+     */
+    final private Map<Integer, Boolean> pairRules = new HashMap<>(16);
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Add a moving layer with the specified name and all group and mask bits
+     * set.
+     *
+     * @param name the name of the layer (not null, unique)
+     * @return the index of the new object layer (&ge;0)
+     */
+    public int addLayer(String name) {
+        int result = addLayer(name, -1, -1, false);
+        return result;
+    }
+
+    /**
+     * Add a layer with the specified name and bitfields.
+     *
+     * @param name the name of the layer (not null, unique)
+     * @param group the group bits of the layer
+     * @param mask the mask bits of the layer
+     * @param isNonMoving true if the layer is for non-moving bodies
+     * @return the index of the new object layer (&ge;0)
+     */
+    public int addLayer(
+            String name, int group, int mask, boolean isNonMoving) {
+        if (nameToIndex.containsKey(name)) {
+            throw new IllegalArgumentException("duplicate name: " + name);
+        }
+        int result = names.size();
+        if (result == 0xffff) {
+            throw new IllegalStateException("too many layers");
+        }
+        names.add(name);
+        nameToIndex.put(name, result);
+        groups.add(group);
+        masks.add(mask);
+        nonMoving.add(isNonMoving);
+
+        return result;
+    }
+
+    /**
+     * Compile the layers and rules into native tables.
+     *
+     * @return a new matrix
+     */
+    public CollisionMatrix build() {
+        int numLayers = names.size();
+        if (numLayers == 0) {
+            throw new IllegalStateException("no layers");
+        }
+        boolean[] objVsObj = compileObjVsObj();
+        int[] objToBp = assignBroadPhaseLayers(objVsObj);
+        CollisionMatrix result = new CollisionMatrix(objToBp, objVsObj);
+
+        return result;
+    }
+
+    /**
+     * Compile the rules into a table of colliding object-layer pairs.
+     *
+     * @return a new array, with pair (i,j) at index i*numLayers+j
+     */
+    boolean[] compileObjVsObj() {
+        int numLayers = names.size();
+        boolean[] result = new boolean[numLayers * numLayers];
+        for (int i = 0; i < numLayers; ++i) {
+            for (int j = i; j < numLayers; ++j) {
+                boolean collide = shouldCollide(i, j);
+                result[i * numLayers + j] = collide;
+                result[j * numLayers + i] = collide;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Count the layers.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countLayers() {
+        int result = names.size();
+        return result;
+    }
+
+    /**
+     * Add a rule that prevents the specified layers from colliding,
+     * overriding their bitfields.
+     *
+     * @param layer1 the name of the first layer (not null)
+     * @param layer2 the name of the second layer (not null)
+     * @return the current builder, for chaining
+     */
+    public CollisionMatrixBuilder disablePair(String layer1, String layer2) {
+        setPairRule(findLayer(layer1), findLayer(layer2), false);
+        return this;
+    }
+
+    /**
+     * Add a rule that lets the specified layers collide, overriding their
+     * bitfields.
+     *
+     * @param layer1 the name of the first layer (not null)
+     * @param layer2 the name of the second layer (not null)
+     * @return the current builder, for chaining
+     */
+    public CollisionMatrixBuilder enablePair(String layer1, String layer2) {
+        setPairRule(findLayer(layer1), findLayer(layer2), true);
+        return this;
+    }
+
+    /**
+     * Find the index of the named layer.
+     *
+     * @param name the name to search for (not null)
+     * @return the index of the object layer (&ge;0)
+     */
+    public int findLayer(String name) {
+        Integer result = nameToIndex.get(name);
+        if (result == null) {
+            throw new IllegalArgumentException("no such layer: " + name);
+        }
+
+        return result;
+    }
+
+    /**
+     * Return the maximum number of broad-phase layers.
+     *
+     * @return the count (&ge;1)
+     */
+    public int getMaxBroadPhaseLayers() {
+        return maxBpLayers;
+    }
+
+    /**
+     * Return the name of the specified layer.
+     *
+     * @param layer the index of the object layer (&ge;0)
+     * @return the name (not null)
+     */
+    public String layerName(int layer) {
+        String result = names.get(layer);
+        return result;
+    }
+
+    /**
+     * Alter the maximum number of broad-phase layers.
+     *
+     * @param count the desired count (&ge;1, &le;255, default=8)
+     * @return the current builder, for chaining
+     */
+    public CollisionMatrixBuilder setMaxBroadPhaseLayers(int count) {
+        if (count < 1 || count > 255) {
+            throw new IllegalArgumentException("count = " + count);
+        }
+        this.maxBpLayers = count;
+        return this;
+    }
+
+    /**
+     * Test whether the specified layers collide, according to the current
+     * rules.
+     *
+     * @param layer1 the index of the first object layer (&ge;0)
+     * @param layer2 the index of the second object layer (&ge;0)
+     * @return {@code true} if they collide, otherwise {@code false}
+     */
+    public boolean shouldCollide(int layer1, int layer2) {
+        Boolean rule = pairRules.get(pairKey(layer1, layer2));
+        if (rule != null) {
+            return rule;
+        }
+        boolean result = (groups.get(layer1) & masks.get(layer2)) != 0
+                && (groups.get(layer2) & masks.get(layer1)) != 0;
+
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Assign each object layer to a broad-phase layer.
+     *
+     * @param objVsObj the compiled object-layer pair table (not null,
+     * unaffected)
+     * @return a new array of broad-phase layer indices
+     */
+    private int[] assignBroadPhaseLayers(boolean[] objVsObj) {
+        int numLayers = names.size();
+
+        // Group layers with identical collision rows and the same mobility:
+        List<boolean[]> rows = new ArrayList<>(numLayers);
+        List<Boolean> rowIsNonMoving = new ArrayList<>(numLayers);
+        List<List<Integer>> members = new ArrayList<>(numLayers);
+        for (int layer = 0; layer < numLayers; ++layer) {
+            boolean[] row = Arrays.copyOfRange(
+                    objVsObj, layer * numLayers, (layer + 1) * numLayers);
+            boolean isNonMoving = nonMoving.get(layer);
+            int groupIndex = -1;
+            for (int i = 0; i < rows.size(); ++i) {
+                if (rowIsNonMoving.get(i) == isNonMoving
+                        && Arrays.equals(rows.get(i), row)) {
+                    groupIndex = i;
+                    break;
+                }
+            }
+            if (groupIndex < 0) {
+                rows.add(row);
+                rowIsNonMoving.add(isNonMoving);
+                members.add(new ArrayList<>(4));
+                groupIndex = rows.size() - 1;
+            }
+            members.get(groupIndex).add(layer);
+        }
+
+        // Merge the most similar groups until there are few enough:
+        while (rows.size() > maxBpLayers) {
+            int bestI = -1;
+            int bestJ = -1;
+            int bestCost = Integer.MAX_VALUE;
+            for (int i = 0; i < rows.size(); ++i) {
+                for (int j = i + 1; j < rows.size(); ++j) {
+                    int cost = mergeCost(rows.get(i), rows.get(j));
+                    if (!rowIsNonMoving.get(i).equals(rowIsNonMoving.get(j))) {
+                        cost += numLayers + 1;
+                    }
+                    if (cost < bestCost) {
+                        bestCost = cost;
+                        bestI = i;
+                        bestJ = j;
+                    }
+                }
+            }
+            boolean[] merged = rows.get(bestI);
+            boolean[] absorbed = rows.remove(bestJ);
+            for (int k = 0; k < numLayers; ++k) {
+                merged[k] |= absorbed[k];
+            }
+            rowIsNonMoving.remove(bestJ);
+            members.get(bestI).addAll(members.remove(bestJ));
+        }
+
+        int[] result = new int[numLayers];
+        for (int bpLayer = 0; bpLayer < members.size(); ++bpLayer) {
+            for (int layer : members.get(bpLayer)) {
+                result[layer] = bpLayer;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Count the layers that would become falsely eligible for broad-phase
+     * pairing if the specified rows were merged.
+     *
+     * @param row1 the first row (not null, unaffected)
+     * @param row2 the second row (not null, unaffected)
+     * @return the count (&ge;0)
+     */
+    private static int mergeCost(boolean[] row1, boolean[] row2) {
+        int result = 0;
+        for (int k = 0; k < row1.length; ++k) {
+            if (row1[k] != row2[k]) {
+                ++result;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Pack 2 layer indices into a key that's independent of their order.
+     *
+     * @param layer1 the index of the first object layer (&ge;0)
+     * @param layer2 the index of the second object layer (&ge;0)
+     * @return the key
+     */
+    private static int pairKey(int layer1, int layer2) {
+        int low = Math.min(layer1, layer2);
+        int high = Math.max(layer1, layer2);
+        int result = (high << 16) | low;
+
+        return result;
+    }
+
+    /**
+     * Add or replace the rule for the specified pair of layers.
+     *
+     * @param layer1 the index of the first object layer (&ge;0)
+     * @param layer2 the index of the second object layer (&ge;0)
+     * @param collide true to collide, false to not collide
+     */
+    private void setPairRule(int layer1, int layer2, boolean collide) {
+        pairRules.put(pairKey(layer1, layer2), collide);
+    }
+}
@@ -0,0 +1,248 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package com.github.stephengold.joltjni;
+
+import com.github.stephengold.joltjni.enumerate.EConstraintSubType;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Drive the motors of many constraints and read back their current positions
+ * with a single native call per operation.
+ * <p>
+ * Each constraint contributes a fixed number of values, called degrees of
+ * freedom (DOFs), to each buffer, in the order the constraints were added,
+ * starting at {@link #firstDof(int)}:
+ * <ul>
+ * <li>a hinge: 1 value (angle in radians, or angular velocity in radians per
+ * second)</li>
+ * <li>a slider: 1 value (position in meters, or velocity in meters per
+ * second)</li>
+ * <li>a six-DOF constraint: 6 values in constraint space (translation x,y,z
+ * then rotation vector x,y,z, or linear velocity x,y,z then angular velocity
+ * x,y,z)</li>
+ * </ul>
+ * A rotation vector is the rotation axis scaled by the rotation angle (in
+ * radians). Buffers are accessed starting at index 0, and their positions are
+ * unaffected.
+ * <p>
+ * As with the individual setters, altering motor targets doesn't activate
+ * the constrained bodies.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final public class ConstraintGroup {
+    // *************************************************************************
+    // fields
+
+    /**
+     * index of the first DOF of each constraint
+     */
+    private int[] firstDofs = new int[16];
+    /**
+     * subtype ordinal of each constraint
+     */
+    private int[] subTypes = new int[16];
+    /**
+     * total number of DOFs in all constraints
+     */
+    private int numDofs;
+    /**
+     * constraints, in the order added
+     */
+    final private List<TwoBodyConstraint> constraints = new ArrayList<>(16);
+    /**
+     * virtual addresses of the constraints
+     */
+    private long[] constraintVas = new long[16];
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Add a hinge constraint.
+     *
+     * @param constraint the constraint to add (not null, alias created)
+     * @return the index of the added constraint (&ge;0)
+     */
+    public int add(HingeConstraint constraint) {
+        int result = addConstraint(constraint, EConstraintSubType.Hinge, 1);
+        return result;
+    }
+
+    /**
+     * Add a six-DOF constraint.
+     *
+     * @param constraint the constraint to add (not null, alias created)
+     * @return the index of the added constraint (&ge;0)
+     */
+    public int add(SixDofConstraint constraint) {
+        int result = addConstraint(constraint, EConstraintSubType.SixDof, 6);
+        return result;
+    }
+
+    /**
+     * Add a slider constraint.
+     *
+     * @param constraint the constraint to add (not null, alias created)
+     * @return the index of the added constraint (&ge;0)
+     */
+    public int add(SliderConstraint constraint) {
+        int result = addConstraint(constraint, EConstraintSubType.Slider, 1);
+        return result;
+    }
+
+    /**
+     * Count the constraints in the group.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countConstraints() {
+        int result = constraints.size();
+        return result;
+    }
+
+    /**
+     * Count the DOFs in all constraints.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countDofs() {
+        return numDofs;
+    }
+
+    /**
+     * Return the index of the specified constraint's first DOF.
+     *
+     * @param constraintIndex the index of the constraint (&ge;0)
+     * @return the DOF index (&ge;0)
+     */
+    public int firstDof(int constraintIndex) {
+        if (constraintIndex < 0 || constraintIndex >= constraints.size()) {
+            throw new IndexOutOfBoundsException(
+                    "constraintIndex = " + constraintIndex);
+        }
+        int result = firstDofs[constraintIndex];
+
+        return result;
+    }
+
+    /**
+     * Access the specified constraint.
+     *
+     * @param constraintIndex the index of the constraint (&ge;0)
+     * @return the pre-existing instance (not null)
+     */
+    public TwoBodyConstraint getConstraint(int constraintIndex) {
+        TwoBodyConstraint result = constraints.get(constraintIndex);
+        return result;
+    }
+
+    /**
+     * Copy the current position of each DOF: the angle of each hinge, the
+     * position of each slider, and the translation and rotation vector of
+     * each six-DOF constraint. The constraints are unaffected.
+     *
+     * @param storeValues storage for the positions (not null, direct,
+     * capacity&ge;countDofs(), modified)
+     */
+    public void getCurrentPositions(FloatBuffer storeValues) {
+        Jolt.checkCapacity(storeValues, numDofs);
+        int numConstraints = constraints.size();
+        getCurrentPositions(constraintVas, subTypes, firstDofs,
+                numConstraints, storeValues);
+    }
+
+    /**
+     * Alter the motor target of each position DOF: the target angle of each
+     * hinge, the target position of each slider, and the target translation
+     * and orientation of each six-DOF constraint.
+     *
+     * @param targets the desired positions (not null, direct,
+     * capacity&ge;countDofs(), unaffected)
+     */
+    public void setTargetPositions(FloatBuffer targets) {
+        Jolt.checkCapacity(targets, numDofs);
+        int numConstraints = constraints.size();
+        setTargetPositions(
+                constraintVas, subTypes, firstDofs, numConstraints, targets);
+    }
+
+    /**
+     * Alter the motor target of each velocity DOF: the target angular
+     * velocity of each hinge, the target velocity of each slider, and the
+     * target linear and angular velocities of each six-DOF constraint.
+     *
+     * @param targets the desired velocities (not null, direct,
+     * capacity&ge;countDofs(), unaffected)
+     */
+    public void setTargetVelocities(FloatBuffer targets) {
+        Jolt.checkCapacity(targets, numDofs);
+        int numConstraints = constraints.size();
+        setTargetVelocities(
+                constraintVas, subTypes, firstDofs, numConstraints, targets);
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Append the specified constraint to the group.
+     *
+     * @param constraint the constraint to add (not null, alias created)
+     * @param subType the constraint's subtype (not null)
+     * @param dofs the number of DOFs the constraint contributes (&gt;0)
+     * @return the index of the added constraint (&ge;0)
+     */
+    private int addConstraint(
+            TwoBodyConstraint constraint, EConstraintSubType subType,
+            int dofs) {
+        int result = constraints.size();
+        if (result == constraintVas.length) {
+            int capacity = 2 * result;
+            constraintVas = Arrays.copyOf(constraintVas, capacity);
+            firstDofs = Arrays.copyOf(firstDofs, capacity);
+            subTypes = Arrays.copyOf(subTypes, capacity);
+        }
+        constraints.add(constraint);
+        constraintVas[result] = constraint.va();
+        subTypes[result] = subType.ordinal();
+        firstDofs[result] = numDofs;
+        numDofs += dofs;
+
+        return result;
+    }
+    // *************************************************************************
+    // native private methods
+
+    native private static void getCurrentPositions(long[] constraintVas,
+            int[] subTypes, int[] firstDofs, int numConstraints,
+            FloatBuffer storeValues);
+
+    native private static void setTargetPositions(long[] constraintVas,
+            int[] subTypes, int[] firstDofs, int numConstraints,
+            FloatBuffer targets);
+
+    native private static void setTargetVelocities(long[] constraintVas,
+            int[] subTypes, int[] firstDofs, int numConstraints,
+            FloatBuffer targets);
+}
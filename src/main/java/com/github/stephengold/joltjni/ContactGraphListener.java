@@ -0,0 +1,256 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package com.github.stephengold.joltjni;
+
+import java.nio.IntBuffer;
+
+/**
+ * A contact listener that maintains the graph of bodies in contact and can
+ * partition the active dynamic bodies of a system into simulation islands,
+ * entirely in native code.
+ * <p>
+ * Two active dynamic bodies belong to the same island if they're connected
+ * by a chain of contacts and/or enabled constraints, as in the solver. Static
+ * and kinematic bodies don't join islands. Islands are computed on demand by
+ * {@link #buildIslands(PhysicsSystem)}, which should be invoked between
+ * updates, and then exported as flat buffers.
+ * <p>
+ * Since a system has only one contact listener, contact events can be
+ * forwarded to another listener using {@link #setNext(ContactListener)}.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final public class ContactGraphListener extends ContactListener {
+    // *************************************************************************
+    // fields
+
+    /**
+     * listener to forward events to, or null if none
+     */
+    private ContactListener next;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a listener with an empty graph.
+     */
+    public ContactGraphListener() {
+        long listenerVa = createDefault();
+        setVirtualAddress(listenerVa, true);
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Partition the system's active dynamic bodies into islands, replacing
+     * any previously built islands. Invoke only between updates.
+     *
+     * @param system the system to analyze (not null, unaffected)
+     * @return the number of islands (&ge;0)
+     */
+    public int buildIslands(PhysicsSystem system) {
+        long listenerVa = va();
+        long systemVa = system.va();
+        int result = buildIslands(listenerVa, systemVa);
+
+        return result;
+    }
+
+    /**
+     * Count the distinct pairs of bodies currently in contact. The listener
+     * is unaffected.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countContactPairs() {
+        long listenerVa = va();
+        int result = countContactPairs(listenerVa);
+
+        return result;
+    }
+
+    /**
+     * Count the bodies in the most recently built islands. The listener is
+     * unaffected.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countIslandBodies() {
+        long listenerVa = va();
+        int result = countIslandBodies(listenerVa);
+
+        return result;
+    }
+
+    /**
+     * Count the constraints in the most recently built islands. The listener
+     * is unaffected.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countIslandConstraints() {
+        long listenerVa = va();
+        int result = countIslandConstraints(listenerVa);
+
+        return result;
+    }
+
+    /**
+     * Count the most recently built islands. The listener is unaffected.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countIslands() {
+        long listenerVa = va();
+        int result = countIslands(listenerVa);
+
+        return result;
+    }
+
+    /**
+     * Export the contact graph in compressed-sparse-row form. The neighbors of
+     * body {@code storeBodyIds[i]} are found in {@code storeNeighbors} from
+     * index {@code storeStarts[i]} up to (but not including) index
+     * {@code storeStarts[i+1]}. All indices are relative to the buffer
+     * positions, which are unaffected. The listener is unaffected.
+     *
+     * @param storeBodyIds storage for the IDs of bodies with contacts (not
+     * null, direct, remaining&ge;2*countContactPairs(), modified)
+     * @param storeStarts storage for the start of each body's neighbors (not
+     * null, direct, remaining&ge;2*countContactPairs()+1, modified)
+     * @param storeNeighbors storage for the neighbor IDs (not null, direct,
+     * remaining&ge;2*countContactPairs(), modified)
+     * @return the number of bodies with contacts (&ge;0)
+     */
+    public int exportAdjacency(IntBuffer storeBodyIds, IntBuffer storeStarts,
+            IntBuffer storeNeighbors) {
+        long listenerVa = va();
+        int numEntries = 2 * countContactPairs(listenerVa);
+        checkBuffer(storeBodyIds, numEntries);
+        checkBuffer(storeStarts, numEntries + 1);
+        checkBuffer(storeNeighbors, numEntries);
+        int result = exportAdjacency(listenerVa, storeBodyIds,
+                storeBodyIds.position(), storeStarts, storeStarts.position(),
+                storeNeighbors, storeNeighbors.position());
+
+        return result;
+    }
+
+    /**
+     * Export the most recently built islands. The bodies of island {@code i}
+     * are found in {@code storeBodyIds} from index {@code storeBodyStarts[i]}
+     * up to (but not including) index {@code storeBodyStarts[i+1]}, and
+     * likewise for constraints. Constraints are identified by their index in
+     * {@code PhysicsSystem.getConstraints()}. All indices are relative to the
+     * buffer positions, which are unaffected. The listener is unaffected.
+     *
+     * @param storeBodyStarts storage for the start of each island's bodies
+     * (not null, direct, remaining&ge;countIslands()+1, modified)
+     * @param storeBodyIds storage for the body IDs (not null, direct,
+     * remaining&ge;countIslandBodies(), modified)
+     * @param storeConstraintStarts storage for the start of each island's
+     * constraints (not null, direct, remaining&ge;countIslands()+1, modified)
+     * @param storeConstraintIndices storage for the constraint indices (not
+     * null, direct, remaining&ge;countIslandConstraints(), modified)
+     */
+    public void exportIslands(IntBuffer storeBodyStarts, IntBuffer storeBodyIds,
+            IntBuffer storeConstraintStarts,
+            IntBuffer storeConstraintIndices) {
+        long listenerVa = va();
+        int numIslands = countIslands(listenerVa);
+        checkBuffer(storeBodyStarts, numIslands + 1);
+        checkBuffer(storeBodyIds, countIslandBodies(listenerVa));
+        checkBuffer(storeConstraintStarts, numIslands + 1);
+        checkBuffer(
+                storeConstraintIndices, countIslandConstraints(listenerVa));
+        exportIslands(listenerVa, storeBodyStarts, storeBodyStarts.position(),
+                storeBodyIds, storeBodyIds.position(), storeConstraintStarts,
+                storeConstraintStarts.position(), storeConstraintIndices,
+                storeConstraintIndices.position());
+    }
+
+    /**
+     * Access the listener to which events are forwarded.
+     *
+     * @return the pre-existing instance, or {@code null} if none
+     */
+    public ContactListener getNext() {
+        return next;
+    }
+
+    /**
+     * Forward contact events to the specified listener. Its validation result
+     * is used for new contacts.
+     *
+     * @param listener the listener to forward to (alias created) or
+     * {@code null} for none
+     */
+    public void setNext(ContactListener listener) {
+        this.next = listener;
+        long listenerVa = va();
+        long nextVa = (listener == null) ? 0L : listener.va();
+        setNext(listenerVa, nextVa);
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Verify that the specified buffer is direct and has enough space.
+     *
+     * @param buffer the buffer to test (not null, unaffected)
+     * @param minRemaining the minimum number of elements required
+     */
+    private static void checkBuffer(IntBuffer buffer, int minRemaining) {
+        Jolt.checkDirect(buffer);
+        if (buffer.remaining() < minRemaining) {
+            throw new IllegalArgumentException(
+                    "remaining = " + buffer.remaining());
+        }
+    }
+    // *************************************************************************
+    // native private methods
+
+    native private static int buildIslands(long listenerVa, long systemVa);
+
+    native private static int countContactPairs(long listenerVa);
+
+    native private static int countIslandBodies(long listenerVa);
+
+    native private static int countIslandConstraints(long listenerVa);
+
+    native private static int countIslands(long listenerVa);
+
+    native private static long createDefault();
+
+    native private static int exportAdjacency(long listenerVa,
+            IntBuffer storeBodyIds, int bodyPosition, IntBuffer storeStarts,
+            int startPosition, IntBuffer storeNeighbors,
+            int neighborPosition);
+
+    native private static void exportIslands(long listenerVa,
+            IntBuffer storeBodyStarts, int bodyStartPosition,
+            IntBuffer storeBodyIds, int bodyPosition,
+            IntBuffer storeConstraintStarts, int constraintStartPosition,
+            IntBuffer storeConstraintIndices, int constraintPosition);
+
+    native private static void setNext(long listenerVa, long nextVa);
+}
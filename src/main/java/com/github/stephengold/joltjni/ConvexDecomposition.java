@@ -0,0 +1,648 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package com.github.stephengold.joltjni;
+
+import com.github.stephengold.joltjni.readonly.QuatArg;
+import com.github.stephengold.joltjni.readonly.Vec3Arg;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Approximate a concave triangle mesh with a compound of convex hulls, for use
+ * with dynamic bodies.
+ * <p>
+ * The mesh is split recursively by axis-aligned planes, always splitting the
+ * most concave part next. The concavity of a part is the volume between the
+ * part and its convex hull, relative to the hull volume of the whole mesh.
+ * Candidate planes for each split are evaluated in parallel. Hull volumes are
+ * computed using {@code ConvexHullBuilder}.
+ * <p>
+ * Parts whose hull has no volume (such as flat or degenerate pieces of the
+ * mesh) can't become {@code ConvexHullShape} parts, so they are omitted from
+ * the result. The number omitted is reported by {@link #countDroppedParts()}.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final public class ConvexDecomposition {
+    // *************************************************************************
+    // constants
+
+    /**
+     * maximum number of vertices used to estimate a hull volume
+     */
+    final private static int maxHullVertices = 256;
+    // *************************************************************************
+    // fields
+
+    /**
+     * tolerance for building hulls (in meters)
+     */
+    private float hullTolerance = 1e-3f;
+    /**
+     * maximum relative concavity of each resulting hull
+     */
+    private float maxConcavity = 0.01f;
+    /**
+     * maximum convex radius of the resulting hull shapes
+     */
+    private float maxConvexRadius = Jolt.cDefaultConvexRadius;
+    /**
+     * maximum number of resulting hulls
+     */
+    private int maxHulls = 32;
+    /**
+     * number of parts without hull volume omitted by the most recent
+     * decomposition
+     */
+    private int numDroppedParts;
+    /**
+     * number of candidate planes per axis for each split
+     */
+    private int planesPerAxis = 8;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Count the parts omitted from the most recent decomposition because
+     * their hulls had no volume. The settings are unaffected.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countDroppedParts() {
+        return numDroppedParts;
+    }
+
+    /**
+     * Decompose the specified triangle mesh. Parts whose hulls have no volume
+     * are omitted and counted. The decomposition settings are unaffected.
+     *
+     * @param vertices the vertex locations (not null, 3 floats per vertex,
+     * unaffected)
+     * @param indices the vertex indices of the triangles (not null, 3 indices
+     * per triangle, outward faces consistently wound, unaffected)
+     * @param executor the executor to evaluate candidate planes, or
+     * {@code null} to evaluate them on the current thread
+     * @return new settings for a compound of {@code ConvexHullShape} parts
+     */
+    public StaticCompoundShapeSettings decompose(FloatBuffer vertices,
+            IntBuffer indices, ExecutorService executor) {
+        int numIndices = indices.limit();
+        if (numIndices % 3 != 0) {
+            throw new IllegalArgumentException("numIndices = " + numIndices);
+        }
+        int numTriangles = numIndices / 3;
+        float[] surface = new float[9 * numTriangles];
+        int numVertices = vertices.limit() / 3;
+        for (int i = 0; i < numIndices; ++i) {
+            int vertexIndex = indices.get(i);
+            if (vertexIndex < 0 || vertexIndex >= numVertices) {
+                throw new IllegalArgumentException(
+                        "vertexIndex = " + vertexIndex);
+            }
+            for (int axis = 0; axis < 3; ++axis) {
+                surface[3 * i + axis] = vertices.get(3 * vertexIndex + axis);
+            }
+        }
+
+        Part whole = new Part(surface, new float[0]);
+        double totalHullVolume = whole.hullVolume;
+        if (!(totalHullVolume > 0.0)) {
+            throw new IllegalArgumentException("mesh has no volume");
+        }
+        whole.updateConcavity(totalHullVolume);
+
+        List<Part> finished = new ArrayList<>(maxHulls);
+        PriorityQueue<Part> queue = new PriorityQueue<>(
+                (a, b) -> Double.compare(b.concavity, a.concavity));
+        queue.add(whole);
+        while (!queue.isEmpty()) {
+            Part part = queue.poll();
+            int numParts = finished.size() + queue.size() + 1;
+            if (part.concavity <= maxConcavity || numParts >= maxHulls) {
+                finished.add(part);
+                continue;
+            }
+            Part[] halves = split(part, executor);
+            if (halves == null) {
+                finished.add(part);
+            } else {
+                for (Part half : halves) {
+                    half.updateConcavity(totalHullVolume);
+                    queue.add(half);
+                }
+            }
+        }
+
+        StaticCompoundShapeSettings result = new StaticCompoundShapeSettings();
+        Vec3Arg offset = Vec3.sZero();
+        QuatArg rotation = Quat.sIdentity();
+        this.numDroppedParts = 0;
+        for (Part part : finished) {
+            if (!(part.hullVolume > 0.0)) {
+                ++numDroppedParts;
+            } else {
+                int numPoints = part.surface.length / 3;
+                FloatBuffer points = Jolt.newDirectFloatBuffer(3 * numPoints);
+                points.put(part.surface).flip();
+                ConvexHullShapeSettings hull = new ConvexHullShapeSettings(
+                        numPoints, points, maxConvexRadius);
+                result.addShape(offset, rotation, hull);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Return the tolerance for building hulls. The settings are unaffected.
+     *
+     * @return the tolerance (in meters, &gt;0)
+     */
+    public float getHullTolerance() {
+        return hullTolerance;
+    }
+
+    /**
+     * Return the maximum relative concavity of each hull. The settings are
+     * unaffected.
+     *
+     * @return the fraction of the mesh's hull volume (&ge;0)
+     */
+    public float getMaxConcavity() {
+        return maxConcavity;
+    }
+
+    /**
+     * Return the maximum convex radius of the resulting hull shapes. The
+     * settings are unaffected.
+     *
+     * @return the radius (in meters, &ge;0)
+     */
+    public float getMaxConvexRadius() {
+        return maxConvexRadius;
+    }
+
+    /**
+     * Return the maximum number of hulls. The settings are unaffected.
+     *
+     * @return the count (&ge;1)
+     */
+    public int getMaxHulls() {
+        return maxHulls;
+    }
+
+    /**
+     * Return the number of candidate planes per axis for each split. The
+     * settings are unaffected.
+     *
+     * @return the count (&ge;1)
+     */
+    public int getPlanesPerAxis() {
+        return planesPerAxis;
+    }
+
+    /**
+     * Alter the tolerance for building hulls.
+     *
+     * @param tolerance the desired tolerance (in meters, &gt;0, default=0.001)
+     */
+    public void setHullTolerance(float tolerance) {
+        if (!(tolerance > 0f)) {
+            throw new IllegalArgumentException("tolerance = " + tolerance);
+        }
+        this.hullTolerance = tolerance;
+    }
+
+    /**
+     * Alter the maximum relative concavity of each hull. Parts that are more
+     * concave get split, unless the hull limit has been reached.
+     *
+     * @param concavity the desired fraction of the mesh's hull volume (&ge;0,
+     * default=0.01)
+     */
+    public void setMaxConcavity(float concavity) {
+        if (!(concavity >= 0f)) {
+            throw new IllegalArgumentException("concavity = " + concavity);
+        }
+        this.maxConcavity = concavity;
+    }
+
+    /**
+     * Alter the maximum convex radius of the resulting hull shapes.
+     *
+     * @param radius the desired radius (in meters, &ge;0, default=0.05)
+     */
+    public void setMaxConvexRadius(float radius) {
+        if (!(radius >= 0f)) {
+            throw new IllegalArgumentException("radius = " + radius);
+        }
+        this.maxConvexRadius = radius;
+    }
+
+    /**
+     * Alter the maximum number of hulls.
+     *
+     * @param numHulls the desired limit (&ge;1, default=32)
+     */
+    public void setMaxHulls(int numHulls) {
+        if (numHulls < 1) {
+            throw new IllegalArgumentException("numHulls = " + numHulls);
+        }
+        this.maxHulls = numHulls;
+    }
+
+    /**
+     * Alter the number of candidate planes per axis for each split. More
+     * planes give better splits at a higher cost.
+     *
+     * @param numPlanes the desired count (&ge;1, default=8)
+     */
+    public void setPlanesPerAxis(int numPlanes) {
+        if (numPlanes < 1) {
+            throw new IllegalArgumentException("numPlanes = " + numPlanes);
+        }
+        this.planesPerAxis = numPlanes;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Clip the specified triangles against an axis-aligned plane, appending
+     * the kept pieces and the cap triangles of the cut.
+     *
+     * @param triangles the triangles to clip (not null, 9 floats each,
+     * unaffected)
+     * @param axis the axis of the plane normal (0, 1, or 2)
+     * @param position the plane's coordinate on that axis
+     * @param below {@code true} to keep the side below the plane,
+     * {@code false} to keep the side above it
+     * @param storeKept storage for the kept triangles (not null, modified)
+     * @param storeSegments storage for the cut segments, oriented for the cap
+     * (not null, modified)
+     */
+    private static void clip(float[] triangles, int axis, float position,
+            boolean below, FloatList storeKept, FloatList storeSegments) {
+        float[] polygon = new float[12];
+        float[] enter = new float[3];
+        float[] exit = new float[3];
+        int numTriangles = triangles.length / 9;
+        for (int t = 0; t < numTriangles; ++t) {
+            int base = 9 * t;
+            int numPolyVertices = 0;
+            boolean entered = false;
+            boolean exited = false;
+            for (int i = 0; i < 3; ++i) {
+                int cur = base + 3 * i;
+                int next = base + 3 * ((i + 1) % 3);
+                float sCur = triangles[cur + axis] - position;
+                float sNext = triangles[next + axis] - position;
+                boolean curIn = below ? sCur < 0f : sCur >= 0f;
+                boolean nextIn = below ? sNext < 0f : sNext >= 0f;
+                if (curIn != nextIn) {
+                    float[] store = curIn ? exit : enter;
+                    float f = sCur / (sCur - sNext);
+                    for (int j = 0; j < 3; ++j) {
+                        float a = triangles[cur + j];
+                        store[j] = a + f * (triangles[next + j] - a);
+                    }
+                    store[axis] = position;
+                    System.arraycopy(store, 0, polygon, 3 * numPolyVertices, 3);
+                    ++numPolyVertices;
+                    if (curIn) {
+                        exited = true;
+                    } else {
+                        entered = true;
+                    }
+                }
+                if (nextIn) {
+                    System.arraycopy(
+                            triangles, next, polygon, 3 * numPolyVertices, 3);
+                    ++numPolyVertices;
+                }
+            }
+            for (int i = 1; i + 1 < numPolyVertices; ++i) {
+                storeKept.add(polygon, 0);
+                storeKept.add(polygon, 3 * i);
+                storeKept.add(polygon, 3 * i + 3);
+            }
+            if (entered && exited) {
+                // The cap must traverse the cut edge in the opposite direction:
+                storeSegments.add(enter, 0);
+                storeSegments.add(exit, 0);
+            }
+        }
+    }
+
+    /**
+     * Calculate the volume of the convex hull of the specified points.
+     *
+     * @param points the point locations (not null, 3 floats each, unaffected)
+     * @param tolerance the hull-building tolerance (in meters, &gt;0)
+     * @return the volume (&ge;0) or 0 if no hull could be built
+     */
+    private static double hullVolume(float[] points, float tolerance) {
+        int numPoints = points.length / 3;
+        if (numPoints < 4) {
+            return 0.0;
+        }
+        FloatBuffer buffer = Jolt.newDirectFloatBuffer(points.length);
+        buffer.put(points);
+        float volume = hullVolume(buffer, maxHullVertices, tolerance);
+
+        return volume;
+    }
+
+    /**
+     * Split the specified part along the best candidate plane.
+     *
+     * @param part the part to split (not null, unaffected)
+     * @param executor the executor for evaluating candidates, or {@code null}
+     * @return a new pair of parts, or {@code null} if no plane splits the part
+     */
+    private Part[] split(Part part, ExecutorService executor) {
+        float[] min = {Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE};
+        float[] max = {-Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE};
+        float[] surface = part.surface;
+        for (int i = 0; i < surface.length; ++i) {
+            int axis = i % 3;
+            min[axis] = Math.min(min[axis], surface[i]);
+            max[axis] = Math.max(max[axis], surface[i]);
+        }
+
+        Collection<Callable<Part[]>> tasks = new ArrayList<>();
+        for (int axis = 0; axis < 3; ++axis) {
+            float extent = max[axis] - min[axis];
+            if (extent <= 2f * hullTolerance) {
+                continue;
+            }
+            for (int i = 0; i < planesPerAxis; ++i) {
+                float fraction = (i + 0.5f) / planesPerAxis;
+                float position = min[axis] + fraction * extent;
+                int planeAxis = axis;
+                tasks.add(() -> splitAt(part, planeAxis, position));
+            }
+        }
+
+        List<Part[]> candidates = new ArrayList<>(tasks.size());
+        if (executor == null) {
+            for (Callable<Part[]> task : tasks) {
+                candidates.add(callTask(task));
+            }
+        } else {
+            try {
+                for (Future<Part[]> future : executor.invokeAll(tasks)) {
+                    candidates.add(future.get());
+                }
+            } catch (ExecutionException exception) {
+                throw new IllegalStateException(exception.getCause());
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(exception);
+            }
+        }
+
+        Part[] result = null;
+        double bestCost = Double.MAX_VALUE;
+        for (Part[] halves : candidates) {
+            if (halves != null) {
+                double cost = halves[0].hullVolume + halves[1].hullVolume;
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    result = halves;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Run the specified candidate evaluation on the current thread.
+     *
+     * @param task the evaluation to run (not null)
+     * @return the pair of parts, or {@code null}
+     */
+    private static Part[] callTask(Callable<Part[]> task) {
+        try {
+            Part[] result = task.call();
+            return result;
+        } catch (Exception exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    /**
+     * Split the specified part along the specified axis-aligned plane.
+     *
+     * @param part the part to split (not null, unaffected)
+     * @param axis the axis of the plane normal (0, 1, or 2)
+     * @param position the plane's coordinate on that axis
+     * @return a new pair of parts, or {@code null} if either side is empty
+     */
+    private Part[] splitAt(Part part, int axis, float position) {
+        Part[] result = new Part[2];
+        for (int side = 0; side < 2; ++side) {
+            boolean below = (side == 0);
+            FloatList surface = new FloatList(part.surface.length);
+            FloatList caps = new FloatList(part.caps.length);
+            FloatList segments = new FloatList(64);
+            clip(part.surface, axis, position, below, surface, segments);
+            clip(part.caps, axis, position, below, caps, segments);
+            if (surface.size() == 0) {
+                return null;
+            }
+
+            // Fan-triangulate the new cap from the centroid of its segments:
+            float[] segs = segments.toArray();
+            int numPoints = segs.length / 3;
+            if (numPoints > 0) {
+                float[] center = new float[3];
+                for (int i = 0; i < segs.length; ++i) {
+                    center[i % 3] += segs[i] / numPoints;
+                }
+                for (int i = 0; i < numPoints; i += 2) {
+                    caps.add(center, 0);
+                    caps.add(segs, 3 * i);
+                    caps.add(segs, 3 * i + 3);
+                }
+            }
+            result[side] = new Part(surface.toArray(), caps.toArray());
+        }
+
+        return result;
+    }
+    // *************************************************************************
+    // native private methods
+
+    native private static float hullVolume(
+            FloatBuffer points, int maxVertices, float tolerance);
+    // *************************************************************************
+    // FloatList class
+
+    /**
+     * A growable array of floats.
+     */
+    private static class FloatList {
+        /**
+         * stored elements, followed by unused capacity
+         */
+        private float[] elements;
+        /**
+         * number of stored elements
+         */
+        private int size;
+
+        /**
+         * Instantiate an empty list.
+         *
+         * @param capacity the initial capacity (&ge;0)
+         */
+        FloatList(int capacity) {
+            this.elements = new float[Math.max(capacity, 9)];
+        }
+
+        /**
+         * Append 3 floats from the specified array.
+         *
+         * @param source the source array (not null, unaffected)
+         * @param offset the index of the first float to append
+         */
+        void add(float[] source, int offset) {
+            if (size + 3 > elements.length) {
+                float[] grown = new float[2 * elements.length];
+                System.arraycopy(elements, 0, grown, 0, size);
+                this.elements = grown;
+            }
+            System.arraycopy(source, offset, elements, size, 3);
+            size += 3;
+        }
+
+        /**
+         * Return the number of stored elements.
+         *
+         * @return the count (&ge;0)
+         */
+        int size() {
+            return size;
+        }
+
+        /**
+         * Copy the stored elements to a new array.
+         *
+         * @return a new array
+         */
+        float[] toArray() {
+            float[] result = new float[size];
+            System.arraycopy(elements, 0, result, 0, size);
+
+            return result;
+        }
+    }
+
+    // *************************************************************************
+    // Part class
+
+    /**
+     * A closed piece of the mesh, bounded by original triangles and by caps
+     * generated where it was cut.
+     */
+    private class Part {
+        /**
+         * relative concavity, updated by {@code updateConcavity()}
+         */
+        private double concavity;
+        /**
+         * volume of the part's convex hull
+         */
+        final private double hullVolume;
+        /**
+         * volume enclosed by the part
+         */
+        final private double volume;
+        /**
+         * cap triangles (9 floats each)
+         */
+        final private float[] caps;
+        /**
+         * triangles from the original mesh (9 floats each)
+         */
+        final private float[] surface;
+
+        /**
+         * Instantiate a part from the specified triangles.
+         *
+         * @param surface the original-mesh triangles (not null, alias created)
+         * @param caps the cap triangles (not null, alias created)
+         */
+        Part(float[] surface, float[] caps) {
+            this.surface = surface;
+            this.caps = caps;
+            this.hullVolume = hullVolume(surface, hullTolerance);
+            double sum = signedVolume(surface) + signedVolume(caps);
+            this.volume = Math.min(Math.abs(sum), hullVolume);
+        }
+
+        /**
+         * Update the concavity relative to the hull volume of the whole mesh.
+         *
+         * @param totalHullVolume the hull volume of the mesh (&gt;0)
+         */
+        void updateConcavity(double totalHullVolume) {
+            this.concavity = (hullVolume - volume) / totalHullVolume;
+        }
+
+        /**
+         * Sum the signed volumes of the tetrahedra formed by the origin and
+         * each of the specified triangles.
+         *
+         * @param triangles the triangles (not null, 9 floats each, unaffected)
+         * @return the signed volume
+         */
+        private double signedVolume(float[] triangles) {
+            double result = 0.0;
+            for (int i = 0; i < triangles.length; i += 9) {
+                double ax = triangles[i];
+                double ay = triangles[i + 1];
+                double az = triangles[i + 2];
+                double bx = triangles[i + 3];
+                double by = triangles[i + 4];
+                double bz = triangles[i + 5];
+                double cx = triangles[i + 6];
+                double cy = triangles[i + 7];
+                double cz = triangles[i + 8];
+                result += ax * (by * cz - bz * cy) - ay * (bx * cz - bz * cx)
+                        + az * (bx * cy - by * cx);
+            }
+            result /= 6.0;
+
+            return result;
+        }
+    }
+}
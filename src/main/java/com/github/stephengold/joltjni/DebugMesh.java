@@ -0,0 +1,291 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package com.github.stephengold.joltjni;
+
+import com.github.stephengold.joltjni.readonly.ConstShape;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * An indexed triangle mesh for visualizing a shape, with welded vertices and
+ * per-vertex normals. Vertices are split where adjacent faces meet at more
+ * than 60 degrees, so hard edges stay sharp. Meshes are cached per native
+ * shape and per level of detail, so bodies that share a shape share its mesh.
+ * <p>
+ * Each cached mesh holds a counted reference to its shape. {@link #purge()},
+ * which also runs automatically as the cache grows, releases an entry once
+ * its shape has lost a reference that existed when the entry was created. A
+ * shape that had no counted references at that time, such as one constructed
+ * directly, is kept alive by the cache until it's evicted or the cache is
+ * cleared, at which point the shape is freed unless something else has
+ * referenced it. Shapes modified through {@code HeightFieldShape} or
+ * {@code MutableCompoundShape} are evicted automatically; use
+ * {@link #evict(com.github.stephengold.joltjni.readonly.ConstShape)} after
+ * modifying a shape by other means.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final public class DebugMesh {
+    // *************************************************************************
+    // constants
+
+    /**
+     * minimum cache size that triggers an automatic purge
+     */
+    final private static int minPurgeSize = 64;
+    // *************************************************************************
+    // fields
+
+    /**
+     * vertex normals (3 floats per vertex, each normalized)
+     */
+    final private FloatBuffer normals;
+    /**
+     * vertex locations (3 floats per vertex, relative to the shape's center
+     * of mass)
+     */
+    final private FloatBuffer positions;
+    /**
+     * cache size that triggers the next automatic purge
+     */
+    private static int purgeSize = minPurgeSize;
+    /**
+     * vertex indices (3 ints per triangle, counter-clockwise when viewed from
+     * outside)
+     */
+    final private IntBuffer indices;
+    /**
+     * cached meshes of each native shape, keyed by virtual address
+     */
+    final private static Map<Long, CacheEntry> cache = new HashMap<>(64);
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Generate a mesh for the specified shape.
+     *
+     * @param shapeVa the virtual address of the native shape (not zero)
+     * @param numSegments the number of segments for round shapes (&ge;3) or 0
+     * for Jolt's default tessellation
+     */
+    private DebugMesh(long shapeVa, int numSegments) {
+        long meshVa = create(shapeVa, numSegments);
+        int numVertices = countVertices(meshVa);
+        int numIndices = countIndices(meshVa);
+        this.positions = Jolt.newDirectFloatBuffer(3 * numVertices);
+        this.normals = Jolt.newDirectFloatBuffer(3 * numVertices);
+        this.indices = Jolt.newDirectIntBuffer(numIndices);
+        copyAndFree(meshVa, positions, normals, indices);
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Release all cached meshes and the counted references they hold.
+     */
+    public static void clearCache() {
+        synchronized (cache) {
+            for (CacheEntry entry : cache.values()) {
+                entry.shapeRef.close();
+            }
+            cache.clear();
+            purgeSize = minPurgeSize;
+        }
+    }
+
+    /**
+     * Count the triangles in the mesh. The mesh is unaffected.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countTriangles() {
+        int result = indices.capacity() / 3;
+        return result;
+    }
+
+    /**
+     * Count the vertices in the mesh. The mesh is unaffected.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countVertices() {
+        int result = positions.capacity() / 3;
+        return result;
+    }
+
+    /**
+     * Release the cached meshes of the specified shape, for instance after
+     * the shape has been modified.
+     *
+     * @param shape the shape to evict (not null, unaffected)
+     */
+    public static void evict(ConstShape shape) {
+        long shapeVa = shape.targetVa();
+        synchronized (cache) {
+            CacheEntry entry = cache.remove(shapeVa);
+            if (entry != null) {
+                entry.shapeRef.close();
+            }
+        }
+    }
+
+    /**
+     * Access the cached mesh of the specified shape, generating it if
+     * necessary.
+     *
+     * @param shape the shape to visualize (not null, unaffected)
+     * @param numSegments the number of segments for round shapes (&ge;3) or 0
+     * for Jolt's default tessellation
+     * @return a mesh (not null)
+     */
+    static DebugMesh getCached(ConstShape shape, int numSegments) {
+        if (numSegments != 0 && numSegments < 3) {
+            throw new IllegalArgumentException(
+                    "numSegments = " + numSegments);
+        }
+        long shapeVa = shape.targetVa();
+        synchronized (cache) {
+            CacheEntry entry = cache.get(shapeVa);
+            if (entry == null) {
+                if (cache.size() >= purgeSize) {
+                    purge();
+                    purgeSize = Math.max(2 * cache.size(), minPurgeSize);
+                }
+                ShapeRefC shapeRef = shape.toRefC();
+                Shape target = (Shape) shapeRef.getPtr();
+                int baseRefCount = target.getRefCount() - 1;
+                entry = new CacheEntry(shapeRef, baseRefCount);
+                cache.put(shapeVa, entry);
+            }
+            DebugMesh result = entry.meshes.get(numSegments);
+            if (result == null) {
+                result = new DebugMesh(shapeVa, numSegments);
+                entry.meshes.put(numSegments, result);
+            }
+
+            return result;
+        }
+    }
+
+    /**
+     * Access the vertex indices, 3 per triangle.
+     *
+     * @return a new read-only view of the direct buffer (not null)
+     */
+    public IntBuffer getIndices() {
+        IntBuffer result = indices.asReadOnlyBuffer();
+        return result;
+    }
+
+    /**
+     * Access the vertex normals, 3 floats per vertex.
+     *
+     * @return a new read-only view of the direct buffer (not null)
+     */
+    public FloatBuffer getNormals() {
+        FloatBuffer result = normals.asReadOnlyBuffer();
+        return result;
+    }
+
+    /**
+     * Access the vertex locations, 3 floats per vertex.
+     *
+     * @return a new read-only view of the direct buffer (not null)
+     */
+    public FloatBuffer getPositions() {
+        FloatBuffer result = positions.asReadOnlyBuffer();
+        return result;
+    }
+
+    /**
+     * Release the cached meshes of shapes that have lost references since
+     * they were cached. Shapes that had no counted references when cached
+     * are never released by a purge.
+     *
+     * @return the number of shapes released (&ge;0)
+     */
+    public static int purge() {
+        int result = 0;
+        synchronized (cache) {
+            Iterator<CacheEntry> iterator = cache.values().iterator();
+            while (iterator.hasNext()) {
+                CacheEntry entry = iterator.next();
+                Shape shape = (Shape) entry.shapeRef.getPtr();
+                if (shape.getRefCount() <= entry.baseRefCount) {
+                    entry.shapeRef.close();
+                    iterator.remove();
+                    ++result;
+                }
+            }
+        }
+
+        return result;
+    }
+    // *************************************************************************
+    // native private methods
+
+    native private static void copyAndFree(long meshVa,
+            FloatBuffer storePositions, FloatBuffer storeNormals,
+            IntBuffer storeIndices);
+
+    native private static int countIndices(long meshVa);
+
+    native private static int countVertices(long meshVa);
+
+    native private static long create(long shapeVa, int numSegments);
+    // *************************************************************************
+    // CacheEntry class
+
+    /**
+     * The cached meshes of a single native shape.
+     */
+    private static class CacheEntry {
+        /**
+         * meshes keyed by number of segments
+         */
+        final Map<Integer, DebugMesh> meshes = new HashMap<>(4);
+        /**
+         * number of counted references to the shape before the cache took
+         * its own
+         */
+        final int baseRefCount;
+        /**
+         * counted reference that keeps the shape alive
+         */
+        final ShapeRefC shapeRef;
+
+        /**
+         * Instantiate an empty entry.
+         *
+         * @param shapeRef a counted reference to the shape (not null)
+         * @param baseRefCount the number of counted references to the shape
+         * before {@code shapeRef} was created (&ge;0)
+         */
+        CacheEntry(ShapeRefC shapeRef, int baseRefCount) {
+            this.shapeRef = shapeRef;
+            this.baseRefCount = baseRefCount;
+        }
+    }
+}
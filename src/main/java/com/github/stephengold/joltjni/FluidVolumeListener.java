@@ -0,0 +1,239 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package com.github.stephengold.joltjni;
+
+import com.github.stephengold.joltjni.readonly.ConstAaBox;
+import com.github.stephengold.joltjni.readonly.RVec3Arg;
+import com.github.stephengold.joltjni.readonly.Vec3Arg;
+
+/**
+ * A step listener that applies buoyancy and drag to every active dynamic body
+ * that overlaps one of its fluid volumes, entirely in native code.
+ * <p>
+ * Each volume is bounded by an axis-aligned box and has either a planar
+ * surface or a height-field surface. Overlapping bodies are found using the
+ * broad phase. The buoyancy factor of each body is derived from the fluid's
+ * density and the body's mass and volume.
+ * <p>
+ * The listener runs during {@code PhysicsSystem.update()} on a job-system
+ * thread, concurrently with the system's other step listeners. Volumes may
+ * be added or modified at any time: changes made during an update wait until
+ * the listener has finished its step.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final public class FluidVolumeListener
+        extends JoltPhysicsObject
+        implements PhysicsStepListener {
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a listener with no volumes.
+     */
+    public FluidVolumeListener() {
+        long listenerVa = createDefault();
+        setVirtualAddress(listenerVa, () -> free(listenerVa));
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Add a volume with a height-field surface. The heights are sampled on a
+     * regular grid in the X-Z plane and interpolated bilinearly. The surface
+     * normal is derived from the interpolated slope. Height fields assume +Y
+     * is up; for other orientations, use {@code addPlane()}.
+     *
+     * @param origin the location of sample (0,0) at height zero (in system
+     * coordinates, not null, unaffected)
+     * @param cellSize the spacing between adjacent samples (in meters, &gt;0)
+     * @param numX the number of samples along the X axis (&ge;2)
+     * @param numZ the number of samples along the Z axis (&ge;2)
+     * @param heights the surface height of each sample relative to the
+     * origin, with sample (x,z) at index x+numX*z (not null,
+     * length&ge;numX*numZ, unaffected)
+     * @param depth the depth of the volume below its lowest sample (in meters,
+     * &gt;0)
+     * @param density the density of the fluid (in kilograms per cubic meter,
+     * &ge;0)
+     * @param linearDrag the drag factor for linear motion (&ge;0)
+     * @param angularDrag the drag factor for angular motion (&ge;0)
+     * @return the index of the new volume (&ge;0)
+     */
+    public int addHeightField(RVec3Arg origin, float cellSize, int numX,
+            int numZ, float[] heights, float depth, float density,
+            float linearDrag, float angularDrag) {
+        if (!(cellSize > 0f)) {
+            throw new IllegalArgumentException("cellSize = " + cellSize);
+        }
+        if (numX < 2 || numZ < 2) {
+            throw new IllegalArgumentException(
+                    "numX = " + numX + ", numZ = " + numZ);
+        }
+        if (heights.length < numX * numZ) {
+            throw new IllegalArgumentException(
+                    "heights.length = " + heights.length);
+        }
+        long listenerVa = va();
+        int result = addHeightField(listenerVa, origin.xx(), origin.yy(),
+                origin.zz(), cellSize, numX, numZ, heights, depth, density,
+                linearDrag, angularDrag);
+
+        return result;
+    }
+
+    /**
+     * Add a volume with a planar surface.
+     *
+     * @param bounds the extent of the volume (in system coordinates, not
+     * null, unaffected)
+     * @param surfacePoint a location on the fluid's surface (in system
+     * coordinates, not null, unaffected)
+     * @param surfaceNormal the upward normal direction of the fluid's surface
+     * (in system coordinates, not null, normalized, unaffected)
+     * @param density the density of the fluid (in kilograms per cubic meter,
+     * &ge;0)
+     * @param linearDrag the drag factor for linear motion (&ge;0)
+     * @param angularDrag the drag factor for angular motion (&ge;0)
+     * @return the index of the new volume (&ge;0)
+     */
+    public int addPlane(ConstAaBox bounds, RVec3Arg surfacePoint,
+            Vec3Arg surfaceNormal, float density, float linearDrag,
+            float angularDrag) {
+        long listenerVa = va();
+        long boundsVa = bounds.targetVa();
+        int result = addPlane(listenerVa, boundsVa, surfacePoint.xx(),
+                surfacePoint.yy(), surfacePoint.zz(), surfaceNormal.getX(),
+                surfaceNormal.getY(), surfaceNormal.getZ(), density,
+                linearDrag, angularDrag);
+
+        return result;
+    }
+
+    /**
+     * Count the bodies that were in contact with fluid during the most recent
+     * simulation step. A body that overlaps several volumes is counted once.
+     * The listener is unaffected.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countSubmergedBodies() {
+        long listenerVa = va();
+        int result = countSubmergedBodies(listenerVa);
+
+        return result;
+    }
+
+    /**
+     * Count the fluid volumes. The listener is unaffected.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countVolumes() {
+        long listenerVa = va();
+        int result = countVolumes(listenerVa);
+
+        return result;
+    }
+
+    /**
+     * Enable or disable the specified volume.
+     *
+     * @param volumeIndex the index of the volume to modify (&ge;0)
+     * @param enable {@code true} to enable, {@code false} to disable
+     * (default=true)
+     */
+    public void setEnabled(int volumeIndex, boolean enable) {
+        long listenerVa = va();
+        checkIndex(listenerVa, volumeIndex);
+        setEnabled(listenerVa, volumeIndex, enable);
+    }
+
+    /**
+     * Alter the flow velocity of the specified volume.
+     *
+     * @param volumeIndex the index of the volume to modify (&ge;0)
+     * @param velocity the desired velocity of the fluid (in meters per second
+     * in system coordinates, not null, unaffected, default=(0,0,0))
+     */
+    public void setFlowVelocity(int volumeIndex, Vec3Arg velocity) {
+        long listenerVa = va();
+        checkIndex(listenerVa, volumeIndex);
+        setFlowVelocity(listenerVa, volumeIndex, velocity.getX(),
+                velocity.getY(), velocity.getZ());
+    }
+    // *************************************************************************
+    // PhysicsStepListener methods
+
+    /**
+     * Callback invoked (by native code) each time the system is stepped.
+     *
+     * @param contextVa the virtual address of the
+     * {@code PhysicsStepListenerContext} (not zero)
+     */
+    @Override
+    public void onStep(long contextVa) {
+        long listenerVa = va();
+        onStep(listenerVa, contextVa);
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Verify that the specified volume index is valid.
+     *
+     * @param listenerVa the virtual address of the native listener
+     * @param volumeIndex the index to test
+     */
+    private static void checkIndex(long listenerVa, int volumeIndex) {
+        if (volumeIndex < 0 || volumeIndex >= countVolumes(listenerVa)) {
+            throw new IndexOutOfBoundsException("volumeIndex = " + volumeIndex);
+        }
+    }
+    // *************************************************************************
+    // native private methods
+
+    native private static int addHeightField(long listenerVa, double xx,
+            double yy, double zz, float cellSize, int numX, int numZ,
+            float[] heights, float depth, float density, float linearDrag,
+            float angularDrag);
+
+    native private static int addPlane(long listenerVa, long boundsVa,
+            double xx, double yy, double zz, float nx, float ny, float nz,
+            float density, float linearDrag, float angularDrag);
+
+    native private static int countSubmergedBodies(long listenerVa);
+
+    native private static int countVolumes(long listenerVa);
+
+    native private static long createDefault();
+
+    native private static void free(long listenerVa);
+
+    native private static void onStep(long listenerVa, long contextVa);
+
+    native private static void setEnabled(
+            long listenerVa, int volumeIndex, boolean enable);
+
+    native private static void setFlowVelocity(
+            long listenerVa, int volumeIndex, float vx, float vy, float vz);
+}
@@ -21,6 +21,7 @@ SOFTWARE.
  */
 package com.github.stephengold.joltjni;
 
+import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 
 /**
@@ -57,6 +58,70 @@ public class HeightFieldShape extends Shape {
         return result;
     }
 
+    /**
+     * Copy the heights of a rectangular sub-matrix to the specified buffer,
+     * using a single native copy. Holes are represented by
+     * {@code HeightFieldShapeConstants.cNoCollisionValue}. The shape is
+     * unaffected.
+     *
+     * @param startX the index of the start row (multiple of the block size,
+     * &ge;0, &lt;{@code sampleCount})
+     * @param startY the index of the start column (multiple of the block size,
+     * &ge;0, &lt;{@code sampleCount})
+     * @param sizeX the number of rows to copy (multiple of the block size,
+     * &ge;0, &le;{@code sampleCount-startX})
+     * @param sizeY the number of columns to copy (multiple of the block size,
+     * &ge;0, &le;{@code sampleCount-startY})
+     * @param storeHeights the direct buffer to fill with height values (not
+     * null, capacity&ge;stride*sizeY, modified)
+     * @param stride stride between consecutive rows in {@code storeHeights}
+     * (in floats, &ge;sizeX)
+     */
+    public void getHeights(int startX, int startY, int sizeX, int sizeY,
+            FloatBuffer storeHeights, int stride) {
+        checkRegion(startX, startY, sizeX, sizeY, stride, true);
+        Jolt.checkDirect(storeHeights);
+        if (storeHeights.capacity() < stride * sizeY) {
+            throw new IllegalArgumentException(
+                    "capacity = " + storeHeights.capacity());
+        }
+        long shapeVa = va();
+        getHeights(
+                shapeVa, startX, startY, sizeX, sizeY, storeHeights, stride);
+    }
+
+    /**
+     * Copy the material indices of a rectangular sub-matrix to the specified
+     * buffer, using a single native copy. Materials are stored per cell, so
+     * there are {@code sampleCount-1} of them along each edge. The shape is
+     * unaffected.
+     *
+     * @param startX the index of the start row (&ge;0,
+     * &lt;{@code sampleCount-1})
+     * @param startY the index of the start column (&ge;0,
+     * &lt;{@code sampleCount-1})
+     * @param sizeX the number of rows to copy (&ge;0,
+     * &le;{@code sampleCount-1-startX})
+     * @param sizeY the number of columns to copy (&ge;0,
+     * &le;{@code sampleCount-1-startY})
+     * @param storeMaterials the direct buffer to fill with material indices
+     * (not null, capacity&ge;stride*sizeY, modified)
+     * @param stride stride between consecutive rows in {@code storeMaterials}
+     * (in bytes, &ge;sizeX)
+     */
+    public void getMaterials(int startX, int startY, int sizeX, int sizeY,
+            ByteBuffer storeMaterials, int stride) {
+        checkRegion(startX, startY, sizeX, sizeY, stride, false);
+        Jolt.checkDirect(storeMaterials);
+        if (storeMaterials.capacity() < stride * sizeY) {
+            throw new IllegalArgumentException(
+                    "capacity = " + storeMaterials.capacity());
+        }
+        long shapeVa = va();
+        getMaterials(
+                shapeVa, startX, startY, sizeX, sizeY, storeMaterials, stride);
+    }
+
     /**
      * Copy the location of specified sample. The shape is unaffected.
      *
@@ -74,6 +139,18 @@ public class HeightFieldShape extends Shape {
         return result;
     }
 
+    /**
+     * Return the number of samples along each edge. The shape is unaffected.
+     *
+     * @return the count (a multiple of the block size)
+     */
+    public int getSampleCount() {
+        long shapeVa = va();
+        int result = getSampleCount(shapeVa);
+
+        return result;
+    }
+
     /**
      * Test whether the shape has a hole at the specified sample. The shape is
      * unaffected.
@@ -100,7 +177,8 @@ public class HeightFieldShape extends Shape {
      * &ge;0, &le;{@code sampleCount-startX})
      * @param sizeY the number of affected columns (multiple of the block size,
      * &ge;0, &le;{@code sampleCount-startY})
-     * @param heights the height values to set
+     * @param heights the direct buffer of height values to set (not null,
+     * capacity&ge;stride*sizeY, unaffected)
      * @param stride stride between consecutive rows in {@code heights} (in
      * floats)
      * @param allocator for temporary allocations (not null)
@@ -122,7 +200,8 @@ public class HeightFieldShape extends Shape {
      * &ge;0, &le;{@code sampleCount-startX})
      * @param sizeY the number of affected columns (multiple of the block size,
      * &ge;0, &le;{@code sampleCount-startY})
-     * @param heights the height values to set
+     * @param heights the direct buffer of height values to set (not null,
+     * capacity&ge;stride*sizeY, unaffected)
      * @param stride stride between consecutive rows in {@code heights} (in
      * floats)
      * @param allocator for temporary allocations (not null)
@@ -131,22 +210,80 @@ public class HeightFieldShape extends Shape {
     public void setHeights(int startX, int startY, int sizeX, int sizeY,
             FloatBuffer heights, int stride,
             TempAllocator allocator, float cosThresholdAngle) {
+        checkRegion(startX, startY, sizeX, sizeY, stride, true);
+        Jolt.checkDirect(heights);
+        if (heights.capacity() < stride * sizeY) {
+            throw new IllegalArgumentException(
+                    "capacity = " + heights.capacity());
+        }
         long shapeVa = va();
         long allocatorVa = allocator.va();
         setHeights(shapeVa, startX, startY, sizeX, sizeY, heights, stride,
                 allocatorVa, cosThresholdAngle);
+        DebugMesh.evict(this);
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Verify that the specified rectangular sub-matrix lies within the shape
+     * and, for heights, that it's aligned with the blocks.
+     *
+     * @param startX the index of the start row
+     * @param startY the index of the start column
+     * @param sizeX the number of rows
+     * @param sizeY the number of columns
+     * @param stride the stride between consecutive rows
+     * @param heights true for a region of samples, which must be multiples
+     * of the block size, false for a region of cells (materials), which may
+     * be unaligned but has one less row and column
+     */
+    private void checkRegion(int startX, int startY, int sizeX, int sizeY,
+            int stride, boolean heights) {
+        int sampleCount = getSampleCount();
+        int limit = heights ? sampleCount : sampleCount - 1;
+        if (startX < 0 || startY < 0 || sizeX < 0 || sizeY < 0
+                || startX + sizeX > limit || startY + sizeY > limit) {
+            throw new IllegalArgumentException("startX = " + startX
+                    + ", startY = " + startY + ", sizeX = " + sizeX
+                    + ", sizeY = " + sizeY + ", sampleCount = " + sampleCount);
+        }
+        if (stride < sizeX) {
+            throw new IllegalArgumentException("stride = " + stride);
+        }
+        if (heights) {
+            int blockSize = getBlockSize();
+            if (startX % blockSize != 0 || startY % blockSize != 0
+                    || sizeX % blockSize != 0 || sizeY % blockSize != 0) {
+                throw new IllegalArgumentException("The region (startX = "
+                        + startX + ", startY = " + startY + ", sizeX = "
+                        + sizeX + ", sizeY = " + sizeY
+                        + ") isn't aligned with the blocks (blockSize = "
+                        + blockSize + ").");
+            }
+        }
     }
     // *************************************************************************
     // native private methods
 
     native private static int getBlockSize(long shapeVa);
 
+    native private static void getHeights(long shapeVa, int startX,
+            int startY, int sizeX, int sizeY, FloatBuffer storeHeights,
+            int stride);
+
+    native private static void getMaterials(long shapeVa, int startX,
+            int startY, int sizeX, int sizeY, ByteBuffer storeMaterials,
+            int stride);
+
     native private static float getPositionX(long shapeVa, int x, int y);
 
     native private static float getPositionY(long shapeVa, int x, int y);
 
     native private static float getPositionZ(long shapeVa, int x, int y);
 
+    native private static int getSampleCount(long shapeVa);
+
     native private static boolean isNoCollision(long shapeVa, int x, int y);
 
     native private static void setHeights(long shapeVa, int startX, int startY,
@@ -0,0 +1,727 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package com.github.stephengold.joltjni;
+
+import com.github.stephengold.joltjni.enumerate.EActivation;
+import com.github.stephengold.joltjni.enumerate.EMotionType;
+import com.github.stephengold.joltjni.operator.Op;
+import com.github.stephengold.joltjni.readonly.RVec3Arg;
+import com.github.stephengold.joltjni.readonly.Vec3Arg;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * A large terrain, split into square tiles, each of which is streamed into a
+ * {@code PhysicsSystem} as a static body with a {@code HeightFieldShape}.
+ * <p>
+ * Tiles are cooked (converted into shapes) on the threads of a caller-supplied
+ * {@code ExecutorService}. Bodies are only created, added, removed, and
+ * destroyed during {@code update()}, which should be invoked between physics
+ * steps, never during {@code PhysicsSystem.update()}.
+ * <p>
+ * Adjacent tiles share their border samples, so the height map must contain
+ * {@code numTiles * tileCells + 1} samples along each edge.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final public class HeightFieldTerrain implements AutoCloseable {
+    // *************************************************************************
+    // fields
+
+    /**
+     * block size used to cook each tile (&ge;2, &le;8)
+     */
+    final private int blockSize;
+    /**
+     * number of cells along each edge of a tile (a multiple of
+     * {@code blockSize})
+     */
+    final private int tileCells;
+    /**
+     * number of samples along each edge of the height map
+     */
+    final private int mapSamples;
+    /**
+     * number of tiles along each edge of the terrain
+     */
+    final private int numTiles;
+    /**
+     * number of samples along each edge of a cooked tile, including padding
+     */
+    final private int paddedSamples;
+    /**
+     * ID of the object layer for the tile bodies
+     */
+    final private int objectLayer;
+    /**
+     * the system to which tile bodies are added
+     */
+    final private BodyInterface bodyInterface;
+    /**
+     * cook tiles on background threads
+     */
+    final private ExecutorService executor;
+    /**
+     * the height map, indexed by {@code z * mapSamples + x}
+     */
+    final private FloatBuffer heightMap;
+    /**
+     * distance (in meters) within which tiles are loaded
+     */
+    private float loadRadius;
+    /**
+     * maximum height accommodated by {@code setHeights()}
+     */
+    private float maxHeight = -Float.MAX_VALUE;
+    /**
+     * minimum height accommodated by {@code setHeights()}
+     */
+    private float minHeight = Float.MAX_VALUE;
+    /**
+     * distance (in meters) beyond which tiles are unloaded (&ge;loadRadius)
+     */
+    private float unloadRadius;
+    /**
+     * map tile keys to tiles that are loaded or being cooked
+     */
+    final private Map<Integer, Tile> tiles = new HashMap<>(64);
+    /**
+     * physics system that contains the tile bodies
+     */
+    final private PhysicsSystem system;
+    /**
+     * location of sample (0,0) in system coordinates
+     */
+    final private RVec3 origin;
+    /**
+     * for temporary allocations during {@code setHeights()}
+     */
+    final private TempAllocator tempAllocator = new TempAllocatorMalloc();
+    /**
+     * scale factors applied to the samples
+     */
+    final private Vec3 scale;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a terrain with the specified height map.
+     *
+     * @param system the physics system to populate (not null)
+     * @param heightMap the height values, indexed by
+     * {@code z * mapSamples + x} (not null, alias created)
+     * @param mapSamples the number of samples along each edge of the map
+     * (&gt;tileCells)
+     * @param tileCells the number of cells along each edge of a tile (a
+     * multiple of {@code blockSize}, &ge;2*blockSize)
+     * @param blockSize the block size for cooked tiles (&ge;2, &le;8)
+     * @param origin the location of sample (0,0) in system coordinates (not
+     * null, unaffected)
+     * @param scale the scale factors to apply to the samples (not null,
+     * unaffected)
+     * @param objectLayer the ID of the object layer for tile bodies
+     * @param executor the executor for cooking tiles (not null)
+     */
+    public HeightFieldTerrain(PhysicsSystem system, FloatBuffer heightMap,
+            int mapSamples, int tileCells, int blockSize, RVec3Arg origin,
+            Vec3Arg scale, int objectLayer, ExecutorService executor) {
+        if (blockSize < 2 || blockSize > 8) {
+            throw new IllegalArgumentException("blockSize = " + blockSize);
+        }
+        if (tileCells < 2 * blockSize || tileCells % blockSize != 0) {
+            throw new IllegalArgumentException("tileCells = " + tileCells);
+        }
+        if (mapSamples <= tileCells || (mapSamples - 1) % tileCells != 0) {
+            throw new IllegalArgumentException("mapSamples = " + mapSamples);
+        }
+        if (heightMap.capacity() < mapSamples * mapSamples) {
+            throw new IllegalArgumentException(
+                    "capacity = " + heightMap.capacity());
+        }
+
+        this.system = system;
+        this.bodyInterface = system.getBodyInterface();
+        this.heightMap = heightMap;
+        this.mapSamples = mapSamples;
+        this.tileCells = tileCells;
+        this.blockSize = blockSize;
+        this.numTiles = (mapSamples - 1) / tileCells;
+        this.paddedSamples = tileCells + blockSize;
+        this.origin = new RVec3(origin.xx(), origin.yy(), origin.zz());
+        this.scale = new Vec3(scale);
+        this.objectLayer = objectLayer;
+        this.executor = executor;
+
+        float tileSize = tileCells * Math.max(scale.getX(), scale.getZ());
+        this.loadRadius = tileSize;
+        this.unloadRadius = 1.5f * tileSize;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Count the tiles whose bodies are currently in the physics system. The
+     * terrain is unaffected.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countLoadedTiles() {
+        int result = 0;
+        for (Tile tile : tiles.values()) {
+            if (tile.bodyId != null) {
+                ++result;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Count the tiles that are currently being cooked. The terrain is
+     * unaffected.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countPendingTiles() {
+        int result = 0;
+        for (Tile tile : tiles.values()) {
+            if (tile.pending != null) {
+                ++result;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Return the ID of the body for the specified tile. The terrain is
+     * unaffected.
+     *
+     * @param tileX the X index of the tile (&ge;0, &lt;numTiles)
+     * @param tileZ the Z index of the tile (&ge;0, &lt;numTiles)
+     * @return the pre-existing ID, or {@code null} if the tile isn't loaded
+     */
+    public BodyId getBodyId(int tileX, int tileZ) {
+        Tile tile = tiles.get(tileKey(tileX, tileZ));
+        BodyId result = (tile == null) ? null : tile.bodyId;
+
+        return result;
+    }
+
+    /**
+     * Return the number of tiles along each edge of the terrain. The terrain
+     * is unaffected.
+     *
+     * @return the count (&gt;0)
+     */
+    public int getNumTiles() {
+        return numTiles;
+    }
+
+    /**
+     * Alter the range of heights that cooked tiles can accommodate. Tiles that
+     * are already loaded are unaffected.
+     *
+     * @param minHeight the lowest height to accommodate
+     * @param maxHeight the highest height to accommodate (&ge;minHeight)
+     */
+    public void setHeightRange(float minHeight, float maxHeight) {
+        if (maxHeight < minHeight) {
+            throw new IllegalArgumentException(
+                    "min = " + minHeight + ", max = " + maxHeight);
+        }
+        this.minHeight = minHeight;
+        this.maxHeight = maxHeight;
+    }
+
+    /**
+     * Alter the heights for a rectangular region of the height map and apply
+     * the change to every loaded tile that overlaps the region. Must not be
+     * invoked during {@code PhysicsSystem.update()}.
+     *
+     * @param startX the X index of the first sample to alter (&ge;0)
+     * @param startZ the Z index of the first sample to alter (&ge;0)
+     * @param sizeX the number of samples to alter in the X direction (&ge;0)
+     * @param sizeZ the number of samples to alter in the Z direction (&ge;0)
+     * @param heights the new height values (not null, unaffected)
+     * @param stride the stride between consecutive rows in {@code heights}
+     * (in floats)
+     */
+    public void setHeights(int startX, int startZ, int sizeX, int sizeZ,
+            FloatBuffer heights, int stride) {
+        if (startX < 0 || startZ < 0 || sizeX < 0 || sizeZ < 0
+                || startX + sizeX > mapSamples
+                || startZ + sizeZ > mapSamples) {
+            throw new IllegalArgumentException("region out of range");
+        }
+        if (sizeX == 0 || sizeZ == 0) {
+            return;
+        }
+
+        for (int z = 0; z < sizeZ; ++z) {
+            for (int x = 0; x < sizeX; ++x) {
+                float height = heights.get(z * stride + x);
+                heightMap.put((startZ + z) * mapSamples + startX + x, height);
+            }
+        }
+
+        int firstTileX = Math.max((startX - 1) / tileCells, 0);
+        int firstTileZ = Math.max((startZ - 1) / tileCells, 0);
+        int lastTileX
+                = Math.min((startX + sizeX - 1) / tileCells, numTiles - 1);
+        int lastTileZ
+                = Math.min((startZ + sizeZ - 1) / tileCells, numTiles - 1);
+        for (int tileZ = firstTileZ; tileZ <= lastTileZ; ++tileZ) {
+            for (int tileX = firstTileX; tileX <= lastTileX; ++tileX) {
+                Tile tile = tiles.get(tileKey(tileX, tileZ));
+                if (tile != null) {
+                    ++tile.version;
+                    if (tile.bodyId != null) {
+                        applyEdit(tile, startX, startZ, sizeX, sizeZ);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Alter the distances used to decide which tiles to stream.
+     *
+     * @param loadRadius the distance within which tiles are loaded (in
+     * meters, &ge;0)
+     * @param unloadRadius the distance beyond which tiles are unloaded (in
+     * meters, &ge;loadRadius)
+     */
+    public void setStreamingRadii(float loadRadius, float unloadRadius) {
+        if (loadRadius < 0f || unloadRadius < loadRadius) {
+            throw new IllegalArgumentException(
+                    "load = " + loadRadius + ", unload = " + unloadRadius);
+        }
+        this.loadRadius = loadRadius;
+        this.unloadRadius = unloadRadius;
+    }
+
+    /**
+     * Stream tiles based on the specified points of interest: request cooking
+     * of nearby tiles, add the bodies of cooked tiles, and remove distant
+     * tiles. Must not be invoked during {@code PhysicsSystem.update()}.
+     *
+     * @param observers the points of interest, in system coordinates (not
+     * null, unaffected)
+     */
+    public void update(RVec3Arg... observers) {
+        // Unload distant tiles and harvest the results of finished cooks:
+        List<BodyId> addList = new ArrayList<>(8);
+        Iterator<Tile> iterator = tiles.values().iterator();
+        while (iterator.hasNext()) {
+            Tile tile = iterator.next();
+            if (minDistance(tile, observers) > unloadRadius) {
+                unload(tile);
+                iterator.remove();
+            } else if (tile.pending != null && tile.pending.isDone()) {
+                BodyId bodyId = harvest(tile);
+                if (bodyId != null) {
+                    addList.add(bodyId);
+                }
+            }
+        }
+        for (BodyId bodyId : addList) {
+            bodyInterface.addBody(bodyId, EActivation.DontActivate);
+        }
+
+        // Request cooking of nearby tiles:
+        for (RVec3Arg observer : observers) {
+            double localX = (observer.xx() - origin.xx()) / scale.getX();
+            double localZ = (observer.zz() - origin.zz()) / scale.getZ();
+            int reachX = (int) Math.ceil(loadRadius / scale.getX() / tileCells);
+            int reachZ = (int) Math.ceil(loadRadius / scale.getZ() / tileCells);
+            int centerX = (int) Math.floor(localX / tileCells);
+            int centerZ = (int) Math.floor(localZ / tileCells);
+            int minX = Math.max(centerX - reachX, 0);
+            int minZ = Math.max(centerZ - reachZ, 0);
+            int maxX = Math.min(centerX + reachX, numTiles - 1);
+            int maxZ = Math.min(centerZ + reachZ, numTiles - 1);
+            for (int tileZ = minZ; tileZ <= maxZ; ++tileZ) {
+                for (int tileX = minX; tileX <= maxX; ++tileX) {
+                    int key = tileKey(tileX, tileZ);
+                    if (!tiles.containsKey(key)) {
+                        Tile tile = new Tile(tileX, tileZ);
+                        if (minDistance(tile, observers) <= loadRadius) {
+                            tiles.put(key, tile);
+                            cook(tile);
+                        }
+                    }
+                }
+            }
+        }
+    }
+    // *************************************************************************
+    // AutoCloseable methods
+
+    /**
+     * Remove all tile bodies from the physics system, cancel all pending
+     * cooks, and free the temporary allocator.
+     */
+    @Override
+    public void close() {
+        for (Tile tile : tiles.values()) {
+            unload(tile);
+        }
+        tiles.clear();
+        tempAllocator.close();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Apply an edit of the height map to the specified loaded tile.
+     *
+     * @param tile the tile to modify (not null)
+     * @param startX the X index of the first altered sample in the map
+     * @param startZ the Z index of the first altered sample in the map
+     * @param sizeX the number of altered samples in the X direction
+     * @param sizeZ the number of altered samples in the Z direction
+     */
+    private void applyEdit(
+            Tile tile, int startX, int startZ, int sizeX, int sizeZ) {
+        int mapX0 = tile.tileX * tileCells;
+        int mapZ0 = tile.tileZ * tileCells;
+        int lowX = Math.max(startX - mapX0, 0);
+        int lowZ = Math.max(startZ - mapZ0, 0);
+        int highX = Math.min(startX + sizeX - mapX0, tileCells + 1);
+        int highZ = Math.min(startZ + sizeZ - mapZ0, tileCells + 1);
+        if (lowX >= highX || lowZ >= highZ) {
+            return;
+        }
+
+        // The shape can only be modified in whole blocks:
+        lowX = (lowX / blockSize) * blockSize;
+        lowZ = (lowZ / blockSize) * blockSize;
+        highX = ((highX + blockSize - 1) / blockSize) * blockSize;
+        highZ = ((highZ + blockSize - 1) / blockSize) * blockSize;
+        highX = Math.min(highX, paddedSamples);
+        highZ = Math.min(highZ, paddedSamples);
+        int countX = highX - lowX;
+        int countZ = highZ - lowZ;
+        FloatBuffer buffer = Jolt.newDirectFloatBuffer(countX * countZ);
+        copySamples(tile, lowX, lowZ, countX, countZ, buffer);
+
+        HeightFieldShape shape = (HeightFieldShape) tile.shape.getPtr();
+        Vec3 oldCom = shape.getCenterOfMass();
+        AaBox oldBounds = shape.getLocalBounds();
+        shape.setHeights(lowX, lowZ, countX, countZ, buffer, countX,
+                tempAllocator);
+        bodyInterface.notifyShapeChanged(
+                tile.bodyId, oldCom, false, EActivation.DontActivate);
+
+        // A change in the height field doesn't wake up bodies:
+        AaBox newBounds = shape.getLocalBounds();
+        float minY = Math.min(oldBounds.getMin().getY(),
+                newBounds.getMin().getY());
+        float maxY = Math.max(oldBounds.getMax().getY(),
+                newBounds.getMax().getY());
+        int maxX = Math.min(highX - 1, tileCells);
+        int maxZ = Math.min(highZ - 1, tileCells);
+        Vec3 offset = tileOffset(tile);
+        double baseX = origin.xx() + offset.getX();
+        double baseZ = origin.zz() + offset.getZ();
+        float x0 = (float) (baseX + lowX * scale.getX());
+        float y0 = (float) (origin.yy() + minY);
+        float z0 = (float) (baseZ + lowZ * scale.getZ());
+        float x1 = (float) (baseX + maxX * scale.getX());
+        float y1 = (float) (origin.yy() + maxY);
+        float z1 = (float) (baseZ + maxZ * scale.getZ());
+        AaBox affected = new AaBox(new Vec3(x0, y0, z0),
+                new Vec3(x1, y1, z1));
+        affected.expandBy(Vec3.sReplicate(0.1f));
+        bodyInterface.activateBodiesInAaBox(affected,
+                system.getDefaultBroadPhaseLayerFilter(objectLayer),
+                system.getDefaultLayerFilter(objectLayer));
+    }
+
+    /**
+     * Snapshot the current samples of the specified tile and submit a task to
+     * cook them.
+     *
+     * @param tile the tile to cook (not null)
+     */
+    private void cook(Tile tile) {
+        FloatBuffer samples
+                = Jolt.newDirectFloatBuffer(paddedSamples * paddedSamples);
+        copySamples(tile, 0, 0, paddedSamples, paddedSamples, samples);
+
+        Vec3 zero = new Vec3();
+        Vec3 tileScale = new Vec3(scale);
+        float lowest = minHeight;
+        float highest = maxHeight;
+        tile.pendingVersion = tile.version;
+        tile.pending = executor.submit(() -> {
+            HeightFieldShapeSettings settings = new HeightFieldShapeSettings(
+                    samples, zero, tileScale, paddedSamples);
+            ShapeSettingsRef settingsRef = settings.toRef();
+            settings.setBlockSize(blockSize);
+            if (lowest <= highest) {
+                settings.setMinHeightValue(lowest);
+                settings.setMaxHeightValue(highest);
+            }
+            ShapeResult result = settings.create();
+            settingsRef.close();
+            if (result.hasError()) {
+                String message = result.getError();
+                result.close();
+                throw new IllegalStateException(message);
+            }
+            ShapeRefC shape = result.get();
+            result.close();
+
+            synchronized (tile) {
+                if (tile.discarded) { // unloaded while cooking
+                    shape.close();
+                    return null;
+                }
+                tile.cooked = shape;
+            }
+
+            return shape;
+        });
+    }
+
+    /**
+     * Copy samples of the specified tile from the height map to the specified
+     * buffer, filling the padding with {@code cNoCollisionValue}.
+     *
+     * @param tile the tile to copy (not null)
+     * @param lowX the X index of the first sample in the tile (&ge;0)
+     * @param lowZ the Z index of the first sample in the tile (&ge;0)
+     * @param countX the number of samples to copy in the X direction
+     * @param countZ the number of samples to copy in the Z direction
+     * @param storeBuffer the buffer to fill (not null, modified)
+     */
+    private void copySamples(Tile tile, int lowX, int lowZ, int countX,
+            int countZ, FloatBuffer storeBuffer) {
+        int mapX0 = tile.tileX * tileCells;
+        int mapZ0 = tile.tileZ * tileCells;
+        for (int z = lowZ; z < lowZ + countZ; ++z) {
+            for (int x = lowX; x < lowX + countX; ++x) {
+                float height;
+                if (x > tileCells || z > tileCells) {
+                    height = HeightFieldShapeConstants.cNoCollisionValue;
+                } else {
+                    int index = (mapZ0 + z) * mapSamples + mapX0 + x;
+                    height = heightMap.get(index);
+                }
+                storeBuffer.put(height);
+            }
+        }
+        storeBuffer.flip();
+    }
+
+    /**
+     * Collect the shape of a finished cook and create its body, unless the
+     * tile was edited while it was being cooked.
+     *
+     * @param tile the tile to harvest (not null)
+     * @return the ID of the new body, or {@code null} if none was created
+     */
+    private BodyId harvest(Tile tile) {
+        ShapeRefC shape;
+        try {
+            shape = tile.pending.get();
+        } catch (ExecutionException exception) {
+            throw new IllegalStateException(exception.getCause());
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        tile.pending = null;
+        synchronized (tile) {
+            tile.cooked = null; // ownership passes to this thread
+        }
+
+        if (tile.pendingVersion != tile.version) { // stale, so cook it again
+            shape.close();
+            cook(tile);
+            return null;
+        }
+
+        Vec3 offset = tileOffset(tile);
+        RVec3 location = Op.plus(origin, offset);
+        BodyCreationSettings bcs = new BodyCreationSettings(shape, location,
+                Quat.sIdentity(), EMotionType.Static, objectLayer);
+        Body body = bodyInterface.createBody(bcs);
+        bcs.close();
+        tile.shape = shape;
+        tile.bodyId = body.getId();
+
+        return tile.bodyId;
+    }
+
+    /**
+     * Return the horizontal distance from the specified tile to the nearest
+     * of the specified observers.
+     *
+     * @param tile the tile to measure (not null)
+     * @param observers the observer locations (not null, unaffected)
+     * @return the distance (in meters, &ge;0) or {@code +Infinity} if there
+     * are no observers
+     */
+    private double minDistance(Tile tile, RVec3Arg... observers) {
+        double minX = origin.xx() + tile.tileX * tileCells * scale.getX();
+        double minZ = origin.zz() + tile.tileZ * tileCells * scale.getZ();
+        double maxX = minX + tileCells * scale.getX();
+        double maxZ = minZ + tileCells * scale.getZ();
+
+        double result = Double.POSITIVE_INFINITY;
+        for (RVec3Arg observer : observers) {
+            double x = observer.xx();
+            double z = observer.zz();
+            double dx = Math.max(Math.max(minX - x, x - maxX), 0.0);
+            double dz = Math.max(Math.max(minZ - z, z - maxZ), 0.0);
+            double distance = Math.sqrt(dx * dx + dz * dz);
+            result = Math.min(result, distance);
+        }
+
+        return result;
+    }
+
+    /**
+     * Return the key of the specified tile.
+     *
+     * @param tileX the X index of the tile
+     * @param tileZ the Z index of the tile
+     * @return the key value
+     */
+    private int tileKey(int tileX, int tileZ) {
+        int result = tileZ * numTiles + tileX;
+        return result;
+    }
+
+    /**
+     * Return the offset of the specified tile's body relative to the origin.
+     *
+     * @param tile the tile (not null)
+     * @return a new offset vector
+     */
+    private Vec3 tileOffset(Tile tile) {
+        float x = tile.tileX * tileCells * scale.getX();
+        float z = tile.tileZ * tileCells * scale.getZ();
+        Vec3 result = new Vec3(x, 0f, z);
+
+        return result;
+    }
+
+    /**
+     * Remove the specified tile's body (if any) from the physics system and
+     * discard its pending cook (if any). A cook that has already finished has
+     * its shape freed here; one still in progress frees its own shape.
+     *
+     * @param tile the tile to unload (not null)
+     */
+    private void unload(Tile tile) {
+        if (tile.pending != null) {
+            ShapeRefC cooked;
+            synchronized (tile) {
+                tile.discarded = true;
+                cooked = tile.cooked;
+                tile.cooked = null;
+            }
+            if (cooked != null) {
+                cooked.close();
+            }
+            tile.pending.cancel(false);
+            tile.pending = null;
+        }
+        if (tile.bodyId != null) {
+            bodyInterface.removeBody(tile.bodyId);
+            bodyInterface.destroyBody(tile.bodyId);
+            tile.bodyId = null;
+        }
+        if (tile.shape != null) {
+            tile.shape.close();
+            tile.shape = null;
+        }
+    }
+    // *************************************************************************
+    // Tile class
+
+    /**
+     * Streaming state of a single tile.
+     */
+    private static class Tile {
+        /**
+         * ID of the tile's body, or {@code null} if not loaded
+         */
+        BodyId bodyId;
+        /**
+         * true if the tile was unloaded while a cook was pending (guarded by
+         * the tile's monitor)
+         */
+        boolean discarded;
+        /**
+         * number of edits applied to the tile
+         */
+        int version;
+        /**
+         * value of {@code version} when the pending cook was submitted
+         */
+        int pendingVersion;
+        /**
+         * shape produced by a finished cook that hasn't been harvested yet, or
+         * {@code null} if none (guarded by the tile's monitor)
+         */
+        ShapeRefC cooked;
+        /**
+         * result of the pending cook, or {@code null} if none
+         */
+        Future<ShapeRefC> pending;
+        /**
+         * X index of the tile
+         */
+        final int tileX;
+        /**
+         * Z index of the tile
+         */
+        final int tileZ;
+        /**
+         * reference to the tile's shape, or {@code null} if not loaded
+         */
+        ShapeRefC shape;
+
+        /**
+         * Instantiate an unloaded tile.
+         *
+         * @param tileX the X index of the tile
+         * @param tileZ the Z index of the tile
+         */
+        Tile(int tileX, int tileZ) {
+            this.tileX = tileX;
+            this.tileZ = tileZ;
+        }
+    }
+}
@@ -22,8 +22,10 @@ SOFTWARE.
 package com.github.stephengold.joltjni;
 
 import com.github.stephengold.joltjni.readonly.Vec3Arg;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 
@@ -91,6 +93,33 @@ final public class Jolt {
      */
     native public static String buildType();
 
+    /**
+     * Verify that the specified buffer is direct and large enough.
+     *
+     * @param buffer the buffer to test (not null, unaffected)
+     * @param minCapacity the minimum capacity required (in elements)
+     */
+    static void checkCapacity(Buffer buffer, int minCapacity) {
+        checkDirect(buffer);
+        int capacity = buffer.capacity();
+        if (capacity < minCapacity) {
+            throw new IllegalArgumentException("The buffer capacity must be "
+                    + "at least " + minCapacity + ", not " + capacity + ".");
+        }
+    }
+
+    /**
+     * Verify that the specified buffer is direct, as required for native
+     * access.
+     *
+     * @param buffer the buffer to test (not null, unaffected)
+     */
+    static void checkDirect(Buffer buffer) {
+        if (!buffer.isDirect()) {
+            throw new IllegalArgumentException("The buffer must be direct.");
+        }
+    }
+
     /**
      * Convert the specified angle from degrees to radians.
      *
@@ -199,6 +228,47 @@ final public class Jolt {
      */
     native public static boolean isDoublePrecision();
 
+    /**
+     * Count the native memory blocks currently allocated through the tracking
+     * allocator.
+     *
+     * @return the count (&ge;0), or 0 if the tracking allocator isn't
+     * registered
+     *
+     * @see registerTrackingAllocator
+     */
+    native public static long nativeBlocksInUse();
+
+    /**
+     * Return the number of native bytes currently allocated through the
+     * tracking allocator.
+     *
+     * @return the number of bytes (&ge;0), or 0 if the tracking allocator
+     * isn't registered
+     *
+     * @see registerTrackingAllocator
+     */
+    native public static long nativeBytesInUse();
+
+    /**
+     * Create a direct {@code DoubleBuffer} with native byte order and the
+     * specified capacity.
+     *
+     * @param numDoubles the desired capacity (in doubles)
+     * @return a new direct buffer, zeroed and rewound but not flipped
+     */
+    public static DoubleBuffer newDirectDoubleBuffer(int numDoubles) {
+        ByteBuffer byteBuffer
+                = ByteBuffer.allocateDirect(numDoubles * Double.BYTES);
+        byteBuffer.order(ByteOrder.nativeOrder());
+        DoubleBuffer result = byteBuffer.asDoubleBuffer();
+
+        assert result.capacity() == numDoubles : result.capacity();
+        assert result.limit() == numDoubles : result.limit();
+        assert result.position() == 0 : result.position();
+        return result;
+    }
+
     /**
      * Create a direct {@code FloatBuffer} with native byte order and the
      * specified capacity.
@@ -237,6 +307,17 @@ final public class Jolt {
         return result;
     }
 
+    /**
+     * Return the highest number of native bytes simultaneously allocated
+     * through the tracking allocator.
+     *
+     * @return the number of bytes (&ge;0), or 0 if the tracking allocator
+     * isn't registered
+     *
+     * @see registerTrackingAllocator
+     */
+    native public static long peakNativeBytes();
+
     /**
      * Generate 3-D Perlin noise.
      *
@@ -332,6 +413,18 @@ final public class Jolt {
      */
     native public static void registerDefaultAllocator();
 
+    /**
+     * Register allocation hooks that use malloc/free and also keep track of
+     * the number of bytes and blocks in use. This must be done (instead of
+     * {@code registerDefaultAllocator()}) before any other Jolt function is
+     * called.
+     *
+     * @see nativeBlocksInUse
+     * @see nativeBytesInUse
+     * @see peakNativeBytes
+     */
+    native public static void registerTrackingAllocator();
+
     /**
      * Register all physics types with the factory and install their collision
      * handlers.
@@ -25,6 +25,11 @@ import com.github.stephengold.joltjni.readonly.ConstJoltPhysicsObject;
 import com.github.stephengold.joltjni.template.Ref;
 import com.github.stephengold.joltjni.template.RefTarget;
 import java.lang.ref.Cleaner;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * An abstract class to represent a (native) Jolt Physics object.
@@ -41,6 +46,11 @@ abstract public class JoltPhysicsObject
      * none
      */
     private static Cleaner cleaner;
+    /**
+     * number of live owned native objects of each JVM class, or {@code null}
+     * if live counting is disabled
+     */
+    private static Map<Class<?>, LongAdder> liveCounts;
     /**
      * containing object or a counted reference thereto (to prevent premature
      * garbage collection), or {@code null} if none
@@ -101,6 +111,43 @@ abstract public class JoltPhysicsObject
     // *************************************************************************
     // new methods exposed
 
+    /**
+     * Count the owned native objects that have been assigned since live
+     * counting was enabled and not yet freed, grouped by JVM class.
+     *
+     * @return a new map from simple class names to counts (not null)
+     */
+    public static Map<String, Long> countLive() {
+        Map<String, Long> result = new TreeMap<>();
+        Map<Class<?>, LongAdder> counts = liveCounts;
+        if (counts != null) {
+            for (Map.Entry<Class<?>, LongAdder> entry : counts.entrySet()) {
+                long count = entry.getValue().sum();
+                if (count != 0L) {
+                    String name = entry.getKey().getSimpleName();
+                    result.merge(name, count, Long::sum);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Enable or disable counting of live owned native objects. Enabling resets
+     * all counts to zero. Counting adds a small overhead to each assignment.
+     *
+     * @param enable {@code true} to enable, {@code false} to disable
+     * @see #countLive()
+     */
+    public static void setLiveCounting(boolean enable) {
+        if (enable) {
+            liveCounts = new ConcurrentHashMap<>(64);
+        } else {
+            liveCounts = null;
+        }
+    }
+
     /**
      * Start a daemon thread to process the phantom reachable objects and invoke
      * freeing actions.
@@ -149,6 +196,10 @@ abstract public class JoltPhysicsObject
         if (action != null) {
             assert containingObject == null : containingObject;
             assert !(this instanceof RefTarget) : "RefTarget cannot be owner";
+            Map<Class<?>, LongAdder> counts = liveCounts;
+            if (counts != null) {
+                action = countedAction(counts, action);
+            }
             this.freeingAction = action;
             if (cleaner != null) {
                 cleaner.register(this, action);
@@ -156,6 +207,32 @@ abstract public class JoltPhysicsObject
         }
     }
     // *************************************************************************
+    // private methods
+
+    /**
+     * Count the current object as live and wrap the specified freeing action
+     * so that it stops being counted once freed.
+     *
+     * @param counts the map of live counts (not null)
+     * @param action the freeing action to wrap (not null)
+     * @return a new action
+     */
+    private Runnable countedAction(
+            Map<Class<?>, LongAdder> counts, Runnable action) {
+        LongAdder adder
+                = counts.computeIfAbsent(getClass(), k -> new LongAdder());
+        adder.increment();
+        AtomicBoolean freed = new AtomicBoolean();
+        Runnable result = () -> {
+            if (freed.compareAndSet(false, true)) {
+                adder.decrement();
+                action.run();
+            }
+        };
+
+        return result;
+    }
+    // *************************************************************************
     // AutoCloseable/ConstJoltPhysicsObject methods
 
     /**
@@ -0,0 +1,177 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package com.github.stephengold.joltjni;
+
+/**
+ * An immutable snapshot of the native memory attributed to a
+ * {@code PhysicsSystem}.
+ * <p>
+ * Body storage, broad phase, and contact caches include memory reserved by
+ * {@code PhysicsSystem.init()}, which is only measured if the tracking
+ * allocator was registered. The total reserved is measured exactly; its split
+ * between the body table and the broad phase is estimated from the
+ * configured capacities, with the remainder attributed to the contact caches.
+ * Shapes shared by several bodies are counted only once.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ * @see PhysicsSystem#getMemoryStats(TempAllocator...)
+ */
+final public class MemoryStats {
+    // *************************************************************************
+    // fields
+
+    /**
+     * bytes used for bodies, their motion properties, and the body table
+     */
+    final private long bodyStorageBytes;
+    /**
+     * bytes reserved for the broad phase
+     */
+    final private long broadPhaseBytes;
+    /**
+     * bytes used for constraints that are in the system
+     */
+    final private long constraintBytes;
+    /**
+     * bytes reserved for contact caches and other fixed-size solver state
+     */
+    final private long contactCacheBytes;
+    /**
+     * bytes used for the shapes of bodies in the system
+     */
+    final private long shapeBytes;
+    /**
+     * capacity (in bytes) of the specified temporary allocators
+     */
+    final private long tempAllocatorBytes;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a snapshot with the specified values.
+     *
+     * @param bodyStorageBytes bytes used for body storage
+     * @param broadPhaseBytes bytes reserved for the broad phase
+     * @param contactCacheBytes bytes reserved for contact caches
+     * @param constraintBytes bytes used for constraints
+     * @param shapeBytes bytes used for shapes
+     * @param tempAllocatorBytes capacity of temporary allocators
+     */
+    MemoryStats(long bodyStorageBytes, long broadPhaseBytes,
+            long contactCacheBytes, long constraintBytes, long shapeBytes,
+            long tempAllocatorBytes) {
+        this.bodyStorageBytes = bodyStorageBytes;
+        this.broadPhaseBytes = broadPhaseBytes;
+        this.contactCacheBytes = contactCacheBytes;
+        this.constraintBytes = constraintBytes;
+        this.shapeBytes = shapeBytes;
+        this.tempAllocatorBytes = tempAllocatorBytes;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Return the number of bytes used for bodies, their motion properties, and
+     * the body table.
+     *
+     * @return the number of bytes (&ge;0)
+     */
+    public long getBodyStorageBytes() {
+        return bodyStorageBytes;
+    }
+
+    /**
+     * Return the number of bytes reserved for the broad phase.
+     *
+     * @return the number of bytes (&ge;0)
+     */
+    public long getBroadPhaseBytes() {
+        return broadPhaseBytes;
+    }
+
+    /**
+     * Return the number of bytes used for constraints in the system.
+     *
+     * @return the number of bytes (&ge;0)
+     */
+    public long getConstraintBytes() {
+        return constraintBytes;
+    }
+
+    /**
+     * Return the number of bytes reserved for contact caches and other
+     * fixed-size solver state.
+     *
+     * @return the number of bytes (&ge;0)
+     */
+    public long getContactCacheBytes() {
+        return contactCacheBytes;
+    }
+
+    /**
+     * Return the number of bytes used for the shapes of bodies in the system,
+     * counting each shared shape only once.
+     *
+     * @return the number of bytes (&ge;0)
+     */
+    public long getShapeBytes() {
+        return shapeBytes;
+    }
+
+    /**
+     * Return the capacity of the temporary allocators.
+     *
+     * @return the number of bytes (&ge;0)
+     */
+    public long getTempAllocatorBytes() {
+        return tempAllocatorBytes;
+    }
+
+    /**
+     * Return the sum of all categories.
+     *
+     * @return the number of bytes (&ge;0)
+     */
+    public long totalBytes() {
+        long result = bodyStorageBytes + broadPhaseBytes + contactCacheBytes
+                + constraintBytes + shapeBytes + tempAllocatorBytes;
+        return result;
+    }
+    // *************************************************************************
+    // Object methods
+
+    /**
+     * Represent the snapshot as a String.
+     *
+     * @return a descriptive string of text (not null, not empty)
+     */
+    @Override
+    public String toString() {
+        String result = "MemoryStats[bodies=" + bodyStorageBytes
+                + " broadPhase=" + broadPhaseBytes
+                + " contacts=" + contactCacheBytes
+                + " constraints=" + constraintBytes
+                + " shapes=" + shapeBytes
+                + " temp=" + tempAllocatorBytes + "]";
+        return result;
+    }
+}
@@ -75,6 +75,7 @@ public class MutableCompoundShape extends CompoundShape {
         long shapeRefVa = shapeRef.va();
         int result = addShape(shapeVa, offsetX, offsetY, offsetZ,
                 rotX, rotY, rotZ, rotW, shapeRefVa);
+        DebugMesh.evict(this);
 
         return result;
     }
@@ -85,6 +86,7 @@ public class MutableCompoundShape extends CompoundShape {
     public void adjustCenterOfMass() {
         long shapeVa = va();
         adjustCenterOfMass(shapeVa);
+        DebugMesh.evict(this);
     }
 
     /**
@@ -95,6 +97,7 @@ public class MutableCompoundShape extends CompoundShape {
     public void removeShape(int index) {
         long shapeVa = va();
         removeShape(shapeVa, index);
+        DebugMesh.evict(this);
     }
     // *************************************************************************
     // native private methods
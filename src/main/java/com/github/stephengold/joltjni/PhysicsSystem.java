@@ -74,6 +74,12 @@ public class PhysicsSystem extends NonCopyable {
      * map virtual address to system
      */
     final private static Map<Long, PhysicsSystem> va2ps = new WeakHashMap<>(32);
+    /**
+     * bytes reserved by {@code init()} for the body table, the broad phase,
+     * and the contact caches (measured in total only if the tracking
+     * allocator is registered, then apportioned using size estimates)
+     */
+    final private long[] reservedBytes = new long[3];
     /**
      * cached reference to the system's locking {@code NarrowPhaseQuery}
      */
@@ -410,6 +416,36 @@ public class PhysicsSystem extends NonCopyable {
         return result;
     }
 
+    /**
+     * Take a snapshot of the native memory used by the system. The physics
+     * system is unaffected.
+     *
+     * @param tempAllocators temporary allocators to include in the snapshot
+     * (not null, each an instance of {@code TempAllocatorImpl}, unaffected)
+     * @return a new snapshot
+     * @throws IllegalArgumentException if an allocator isn't a
+     * {@code TempAllocatorImpl}, whose usage can't be measured
+     */
+    public MemoryStats getMemoryStats(TempAllocator... tempAllocators) {
+        long systemVa = va();
+        long[] liveBytes = new long[3];
+        getMemoryStats(systemVa, liveBytes);
+
+        long tempBytes = 0L;
+        for (TempAllocator allocator : tempAllocators) {
+            if (!(allocator instanceof TempAllocatorImpl)) {
+                throw new IllegalArgumentException(
+                        "Can't measure a " + allocator.getClass().getName());
+            }
+            tempBytes += ((TempAllocatorImpl) allocator).getSize();
+        }
+        MemoryStats result = new MemoryStats(
+                reservedBytes[0] + liveBytes[0], reservedBytes[1],
+                reservedBytes[2], liveBytes[1], liveBytes[2], tempBytes);
+
+        return result;
+    }
+
     /**
      * Access the system's interface for fine collision queries.
      *
@@ -520,7 +556,8 @@ public class PhysicsSystem extends NonCopyable {
         long ovbFilterVa = ovbFilter.targetVa();
         long ovoFilterVa = ovoFilter.targetVa();
         init(systemVa, maxBodies, numBodyMutexes, maxBodyPairs,
-                maxContactConstraints, mapVa, ovbFilterVa, ovoFilterVa);
+                maxContactConstraints, mapVa, ovbFilterVa, ovoFilterVa,
+                reservedBytes);
     }
 
     /**
@@ -748,6 +785,9 @@ public class PhysicsSystem extends NonCopyable {
 
     native private static int getMaxBodies(long systemVa);
 
+    native private static void getMemoryStats(
+            long systemVa, long[] storeBytes);
+
     native private static int getNumActiveBodies(
             long systemVa, int typeOrdinal);
 
@@ -757,7 +797,8 @@ public class PhysicsSystem extends NonCopyable {
 
     native private static void init(long systemVa, int maxBodies,
             int numBodyMutexes, int maxBodyPairs, int maxContactConstraints,
-            long mapVa, long ovbFilterVa, long ovoFilterVa);
+            long mapVa, long ovbFilterVa, long ovoFilterVa,
+            long[] storeReservedBytes);
 
     native private static void optimizeBroadPhase(long systemVa);
 
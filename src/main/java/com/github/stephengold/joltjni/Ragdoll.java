@@ -22,7 +22,9 @@ SOFTWARE.
 package com.github.stephengold.joltjni;
 
 import com.github.stephengold.joltjni.enumerate.EActivation;
+import com.github.stephengold.joltjni.readonly.RVec3Arg;
 import com.github.stephengold.joltjni.template.RefTarget;
+import java.nio.FloatBuffer;
 
 /**
  * Runtime information to simulate a ragdoll composed of bodies connected by
@@ -58,6 +60,75 @@ public class Ragdoll extends NonCopyable implements RefTarget {
         addToPhysicsSystem(ragdollVa, ordinal);
     }
 
+    /**
+     * Count the bodies in the ragdoll, which equals the number of joints in
+     * its skeleton. The ragdoll is unaffected.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countBodies() {
+        long ragdollVa = va();
+        int result = countBodies(ragdollVa);
+
+        return result;
+    }
+
+    /**
+     * Drive the ragdoll to the specified pose by setting the velocities of
+     * its bodies, using the locking body interface.
+     *
+     * @param pose the desired pose (not null, unaffected)
+     * @param deltaTime the time step over which to reach the pose (in
+     * seconds, &gt;0)
+     */
+    public void driveToPoseUsingKinematics(SkeletonPose pose, float deltaTime) {
+        driveToPoseUsingKinematics(pose, deltaTime, true);
+    }
+
+    /**
+     * Drive the ragdoll to the specified pose by setting the velocities of
+     * its bodies.
+     *
+     * @param pose the desired pose (not null, unaffected)
+     * @param deltaTime the time step over which to reach the pose (in
+     * seconds, &gt;0)
+     * @param lockBodies true&rarr;use the locking body interface,
+     * false&rarr;use the non-locking body interface
+     */
+    public void driveToPoseUsingKinematics(
+            SkeletonPose pose, float deltaTime, boolean lockBodies) {
+        long ragdollVa = va();
+        long poseVa = pose.va();
+        driveToPoseUsingKinematics(ragdollVa, poseVa, deltaTime, lockBodies);
+    }
+
+    /**
+     * Drive the ragdoll to the pose described by the specified model-space
+     * joint matrices by setting the velocities of its bodies. The matrices
+     * are read starting at the buffer's current position.
+     *
+     * @param rootOffset the offset of the model origin (in system
+     * coordinates, not null, unaffected)
+     * @param jointMatrices the desired joint matrices (not null, direct,
+     * unaffected, 16 floats per body in column-major order)
+     * @param deltaTime the time step over which to reach the pose (in
+     * seconds, &gt;0)
+     * @param lockBodies true&rarr;use the locking body interface,
+     * false&rarr;use the non-locking body interface
+     */
+    public void driveToPoseUsingKinematics(RVec3Arg rootOffset,
+            FloatBuffer jointMatrices, float deltaTime, boolean lockBodies) {
+        long ragdollVa = va();
+        int numFloats = SkeletonPose.cMatrixStride * countBodies(ragdollVa);
+        int position = jointMatrices.position();
+        Jolt.checkCapacity(jointMatrices, position + numFloats);
+        double xx = rootOffset.xx();
+        double yy = rootOffset.yy();
+        double zz = rootOffset.zz();
+        driveMatricesUsingKinematics(ragdollVa, xx, yy, zz, jointMatrices,
+                position, deltaTime, lockBodies);
+    }
+
     /**
      * Drive the ragdoll to the specified pose using motors.
      *
@@ -69,6 +140,54 @@ public class Ragdoll extends NonCopyable implements RefTarget {
         driveToPoseUsingMotors(ragdollVa, poseVa);
     }
 
+    /**
+     * Copy the current pose of the ragdoll to the specified pose, using the
+     * locking body interface. The ragdoll is unaffected.
+     *
+     * @param storePose storage for the pose (not null, modified)
+     */
+    public void getPose(SkeletonPose storePose) {
+        getPose(storePose, true);
+    }
+
+    /**
+     * Copy the current pose of the ragdoll to the specified pose. The ragdoll
+     * is unaffected.
+     *
+     * @param storePose storage for the pose (not null, modified)
+     * @param lockBodies true&rarr;use the locking body interface,
+     * false&rarr;use the non-locking body interface
+     */
+    public void getPose(SkeletonPose storePose, boolean lockBodies) {
+        long ragdollVa = va();
+        long poseVa = storePose.va();
+        getPose(ragdollVa, poseVa, lockBodies);
+    }
+
+    /**
+     * Copy the current pose of the ragdoll as a root offset plus model-space
+     * joint matrices. The matrices are written starting at the buffer's
+     * current position. The ragdoll is unaffected.
+     *
+     * @param storeRootOffset storage for the offset of the model origin (in
+     * system coordinates, not null, modified)
+     * @param storeMatrices storage for the joint matrices (not null, direct,
+     * modified, 16 floats per body in column-major order)
+     * @param lockBodies true&rarr;use the locking body interface,
+     * false&rarr;use the non-locking body interface
+     */
+    public void getPose(RVec3 storeRootOffset, FloatBuffer storeMatrices,
+            boolean lockBodies) {
+        long ragdollVa = va();
+        int numFloats = SkeletonPose.cMatrixStride * countBodies(ragdollVa);
+        int position = storeMatrices.position();
+        Jolt.checkCapacity(storeMatrices, position + numFloats);
+        double[] storeDoubles = new double[3];
+        getPoseMatrices(
+                ragdollVa, storeDoubles, storeMatrices, position, lockBodies);
+        storeRootOffset.set(storeDoubles[0], storeDoubles[1], storeDoubles[2]);
+    }
+
     /**
      * Remove bodies and constraints from the physics system.
      */
@@ -142,8 +261,23 @@ public class Ragdoll extends NonCopyable implements RefTarget {
 
     native static void addToPhysicsSystem(long ragdollVa, int ordinal);
 
+    native static int countBodies(long ragdollVa);
+
+    native private static void driveMatricesUsingKinematics(long ragdollVa,
+            double xx, double yy, double zz, FloatBuffer jointMatrices,
+            int position, float deltaTime, boolean lockBodies);
+
+    native static void driveToPoseUsingKinematics(long ragdollVa, long poseVa,
+            float deltaTime, boolean lockBodies);
+
     native static void driveToPoseUsingMotors(long ragdollVa, long poseVa);
 
+    native static void getPose(long ragdollVa, long poseVa, boolean lockBodies);
+
+    native private static void getPoseMatrices(long ragdollVa,
+            double[] storeDoubles, FloatBuffer storeMatrices, int position,
+            boolean lockBodies);
+
     native private static int getRefCount(long ragdollVa);
 
     native static void removeFromPhysicsSystem(long ragdollVa);
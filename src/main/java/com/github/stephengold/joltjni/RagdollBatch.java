@@ -0,0 +1,309 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package com.github.stephengold.joltjni;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Pose many ragdolls with a single call, optionally in parallel using a job
+ * system.
+ * <p>
+ * Each ragdoll is paired with a scratch pose (for its skeleton) and,
+ * optionally, an animation. Joint data are read from and written to buffers
+ * in the order the ragdolls were added, with each ragdoll's joints in
+ * skeleton order starting at {@link #firstJoint(int)}. A scratch pose
+ * shouldn't be shared between ragdolls, nor modified while the batch is being
+ * processed.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final public class RagdollBatch {
+    // *************************************************************************
+    // constants
+
+    /**
+     * minimum number of ragdolls per job
+     */
+    final private static int minBatchSize = 4;
+    // *************************************************************************
+    // fields
+
+    /**
+     * index of the first joint of each ragdoll
+     */
+    private int[] firstJoints = new int[16];
+    /**
+     * total number of joints in all ragdolls
+     */
+    private int numJoints;
+    /**
+     * animations, in the order added (may contain null)
+     */
+    final private List<SkeletalAnimation> animations = new ArrayList<>(16);
+    /**
+     * ragdolls, in the order added
+     */
+    final private List<Ragdoll> ragdolls = new ArrayList<>(16);
+    /**
+     * scratch poses, in the order added
+     */
+    final private List<SkeletonPose> poses = new ArrayList<>(16);
+    /**
+     * virtual addresses of the animations (0 for none)
+     */
+    private long[] animationVas = new long[16];
+    /**
+     * virtual addresses of the scratch poses
+     */
+    private long[] poseVas = new long[16];
+    /**
+     * virtual addresses of the ragdolls
+     */
+    private long[] ragdollVas = new long[16];
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Add a ragdoll without an animation.
+     *
+     * @param ragdoll the ragdoll to add (not null, alias created)
+     * @param pose a scratch pose for the ragdoll's skeleton (not null, alias
+     * created)
+     * @return the index of the added ragdoll (&ge;0)
+     */
+    public int add(Ragdoll ragdoll, SkeletonPose pose) {
+        int result = add(ragdoll, pose, null);
+        return result;
+    }
+
+    /**
+     * Add a ragdoll with an optional animation.
+     *
+     * @param ragdoll the ragdoll to add (not null, alias created)
+     * @param pose a scratch pose for the ragdoll's skeleton (not null, alias
+     * created)
+     * @param animation the animation to sample, or null for none (alias
+     * created if not null)
+     * @return the index of the added ragdoll (&ge;0)
+     */
+    public int add(Ragdoll ragdoll, SkeletonPose pose,
+            SkeletalAnimation animation) {
+        int numBodies = ragdoll.countBodies();
+        int numPoseJoints = pose.countJoints();
+        if (numPoseJoints != numBodies) {
+            throw new IllegalArgumentException("The pose has " + numPoseJoints
+                    + " joints but the ragdoll has " + numBodies + " bodies.");
+        }
+
+        int result = ragdolls.size();
+        if (result == ragdollVas.length) {
+            int capacity = 2 * result;
+            animationVas = Arrays.copyOf(animationVas, capacity);
+            firstJoints = Arrays.copyOf(firstJoints, capacity);
+            poseVas = Arrays.copyOf(poseVas, capacity);
+            ragdollVas = Arrays.copyOf(ragdollVas, capacity);
+        }
+        ragdolls.add(ragdoll);
+        poses.add(pose);
+        animations.add(animation);
+        ragdollVas[result] = ragdoll.va();
+        poseVas[result] = pose.va();
+        animationVas[result] = (animation == null) ? 0L : animation.va();
+        firstJoints[result] = numJoints;
+        numJoints += numBodies;
+
+        return result;
+    }
+
+    /**
+     * Sample each ragdoll's animation and drive the ragdoll to the sampled
+     * pose using motors. Ragdolls without animations are skipped.
+     *
+     * @param times the animation time for each ragdoll (in seconds, not null,
+     * length&ge;countRagdolls(), unaffected)
+     * @param storeStates storage for the sampled joint transforms (direct,
+     * {@code SkeletonPose.cStateStride} floats per joint, modified) or null
+     * @param jobSystem the job system to run the jobs, or null to process the
+     * ragdolls on the current thread
+     */
+    public void animate(
+            float[] times, FloatBuffer storeStates, JobSystem jobSystem) {
+        int numRagdolls = ragdolls.size();
+        if (times.length < numRagdolls) {
+            throw new IllegalArgumentException(
+                    "times.length = " + times.length);
+        }
+        if (storeStates != null) {
+            Jolt.checkCapacity(
+                    storeStates, SkeletonPose.cStateStride * numJoints);
+        }
+        int batchSize = batchSize(jobSystem);
+        long jobSystemVa = (jobSystem == null) ? 0L : jobSystem.va();
+        animate(ragdollVas, poseVas, animationVas, firstJoints, numRagdolls,
+                times, storeStates, batchSize, jobSystemVa);
+    }
+
+    /**
+     * Count the joints in all ragdolls.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countJoints() {
+        return numJoints;
+    }
+
+    /**
+     * Count the ragdolls in the batch.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countRagdolls() {
+        int result = ragdolls.size();
+        return result;
+    }
+
+    /**
+     * Drive each ragdoll to a pose using motors. The joint transforms are
+     * read from the specified buffer.
+     *
+     * @param jointStates the desired joint-space transforms (not null,
+     * direct, {@code SkeletonPose.cStateStride} floats per joint, unaffected)
+     * @param jobSystem the job system to run the jobs, or null to process the
+     * ragdolls on the current thread
+     */
+    public void driveToPoses(FloatBuffer jointStates, JobSystem jobSystem) {
+        Jolt.checkCapacity(
+                jointStates, SkeletonPose.cStateStride * numJoints);
+        int numRagdolls = ragdolls.size();
+        int batchSize = batchSize(jobSystem);
+        long jobSystemVa = (jobSystem == null) ? 0L : jobSystem.va();
+        driveToPoses(ragdollVas, poseVas, firstJoints, numRagdolls,
+                jointStates, batchSize, jobSystemVa);
+    }
+
+    /**
+     * Copy the current pose of each ragdoll, as a root offset plus
+     * model-space joint matrices. The ragdolls are unaffected.
+     *
+     * @param storeRootOffsets storage for the root offsets (not null, 3
+     * doubles per ragdoll, modified)
+     * @param storeMatrices storage for the joint matrices (not null, direct,
+     * {@code SkeletonPose.cMatrixStride} floats per joint, modified)
+     * @param lockBodies true&rarr;use the locking body interface,
+     * false&rarr;use the non-locking body interface
+     * @param jobSystem the job system to run the jobs, or null to process the
+     * ragdolls on the current thread
+     */
+    public void exportPoses(double[] storeRootOffsets,
+            FloatBuffer storeMatrices, boolean lockBodies,
+            JobSystem jobSystem) {
+        int numRagdolls = ragdolls.size();
+        if (storeRootOffsets.length < 3 * numRagdolls) {
+            throw new IllegalArgumentException(
+                    "storeRootOffsets.length = " + storeRootOffsets.length);
+        }
+        Jolt.checkCapacity(
+                storeMatrices, SkeletonPose.cMatrixStride * numJoints);
+        int batchSize = batchSize(jobSystem);
+        long jobSystemVa = (jobSystem == null) ? 0L : jobSystem.va();
+        exportPoses(ragdollVas, poseVas, firstJoints, numRagdolls,
+                storeRootOffsets, storeMatrices, lockBodies, batchSize,
+                jobSystemVa);
+    }
+
+    /**
+     * Return the index of the specified ragdoll's first joint.
+     *
+     * @param ragdollIndex the index of the ragdoll (&ge;0)
+     * @return the joint index (&ge;0)
+     */
+    public int firstJoint(int ragdollIndex) {
+        if (ragdollIndex < 0 || ragdollIndex >= ragdolls.size()) {
+            throw new IndexOutOfBoundsException(
+                    "ragdollIndex = " + ragdollIndex);
+        }
+        int result = firstJoints[ragdollIndex];
+
+        return result;
+    }
+
+    /**
+     * Access the scratch pose of the specified ragdoll.
+     *
+     * @param ragdollIndex the index of the ragdoll (&ge;0)
+     * @return the pre-existing instance (not null)
+     */
+    public SkeletonPose getPose(int ragdollIndex) {
+        SkeletonPose result = poses.get(ragdollIndex);
+        return result;
+    }
+
+    /**
+     * Access the specified ragdoll.
+     *
+     * @param ragdollIndex the index of the ragdoll (&ge;0)
+     * @return the pre-existing instance (not null)
+     */
+    public Ragdoll getRagdoll(int ragdollIndex) {
+        Ragdoll result = ragdolls.get(ragdollIndex);
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Determine how many ragdolls to process in each job.
+     *
+     * @param jobSystem the job system to be used (may be null)
+     * @return the batch size (&ge;1)
+     */
+    private int batchSize(JobSystem jobSystem) {
+        int numRagdolls = ragdolls.size();
+        if (jobSystem == null) {
+            return Math.max(numRagdolls, 1);
+        }
+        int numJobs = jobSystem.getMaxConcurrency();
+        int result = (numRagdolls + numJobs - 1) / numJobs;
+        result = Math.max(result, minBatchSize);
+
+        return result;
+    }
+    // *************************************************************************
+    // native private methods
+
+    native private static void animate(long[] ragdollVas, long[] poseVas,
+            long[] animationVas, int[] firstJoints, int numRagdolls,
+            float[] times, FloatBuffer storeStates, int batchSize,
+            long jobSystemVa);
+
+    native private static void driveToPoses(long[] ragdollVas,
+            long[] poseVas, int[] firstJoints, int numRagdolls,
+            FloatBuffer jointStates, int batchSize, long jobSystemVa);
+
+    native private static void exportPoses(long[] ragdollVas, long[] poseVas,
+            int[] firstJoints, int numRagdolls, double[] storeRootOffsets,
+            FloatBuffer storeMatrices, boolean lockBodies, int batchSize,
+            long jobSystemVa);
+}
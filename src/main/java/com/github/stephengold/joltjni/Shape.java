@@ -244,6 +244,21 @@ abstract public class Shape extends NonCopyable
         return result;
     }
 
+    /**
+     * Access the shape's indexed debug mesh, generating and caching it if
+     * necessary. Shapes shared by several bodies share one cached mesh. The
+     * shape is unaffected.
+     *
+     * @param numSegments the number of segments around the axis of spheres,
+     * capsules, and cylinders (&ge;3) or 0 for Jolt's default tessellation
+     * @return a mesh (not null)
+     */
+    @Override
+    public DebugMesh getDebugMesh(int numSegments) {
+        DebugMesh result = DebugMesh.getCached(this, numSegments);
+        return result;
+    }
+
     /**
      * Return the radius of the largest sphere that fits inside the shape. The
      * shape is unaffected.
@@ -0,0 +1,717 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package com.github.stephengold.joltjni;
+
+import com.github.stephengold.joltjni.enumerate.EActivation;
+import com.github.stephengold.joltjni.readonly.ConstBodyCreationSettings;
+import com.github.stephengold.joltjni.readonly.RVec3Arg;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * A world partitioned into a grid of square regions in the X-Z plane, each
+ * simulated by its own {@code PhysicsSystem}.
+ * <p>
+ * The regions are stepped concurrently. Every region update creates a
+ * barrier in the shared job system, so at most
+ * {@link #setMaxConcurrentUpdates(int)} regions (by default
+ * {@code Jolt.cMaxPhysicsBarriers}) are updated at once; that limit must not
+ * exceed the number of barriers the job system was created with.
+ * <p>
+ * After each step, every moving body whose location (its origin, as set by
+ * {@code BodyCreationSettings.setPosition()}) has left its region by more than
+ * half the margin migrates to the region containing it, by re-creating it
+ * from its {@code BodyCreationSettings} and copying its velocities.
+ * Constraints can't span systems, so bodies with constraints never migrate
+ * and can't be removed until their constraints are.
+ * <p>
+ * Each moving body within the margin of a neighboring region is mirrored
+ * there by a kinematic ghost, which follows the body so that bodies on either
+ * side of a border can collide. Because ghosts are kinematic, such
+ * collisions are one-way: a body pushes the bodies of a neighboring region
+ * through its ghost, but they don't push back. Static bodies are copied to
+ * every region they overlap.
+ * <p>
+ * Bodies are identified by world handles, which remain valid across
+ * migrations. The systems should be configured identically, with layers that
+ * allow kinematic ghosts to collide with dynamic bodies.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final public class ShardedWorld {
+    // *************************************************************************
+    // fields
+
+    /**
+     * X coordinate of the world's minimum corner
+     */
+    final private double originX;
+    /**
+     * Z coordinate of the world's minimum corner
+     */
+    final private double originZ;
+    /**
+     * width of the overlap band at each border (in meters)
+     */
+    final private float margin;
+    /**
+     * width of each (square) region (in meters)
+     */
+    final private float regionSize;
+    /**
+     * number of regions along the X axis
+     */
+    final private int numRegionsX;
+    /**
+     * number of regions along the Z axis
+     */
+    final private int numRegionsZ;
+    /**
+     * maximum number of regions to update concurrently
+     */
+    private int maxConcurrentUpdates = Jolt.cMaxPhysicsBarriers;
+    /**
+     * total number of migrations since the world was created
+     */
+    private int numMigrations;
+    /**
+     * members of the world, indexed by handle (null for removed bodies)
+     */
+    final private List<Member> members = new ArrayList<>(64);
+    /**
+     * moving members owned by each region
+     */
+    final private List<List<Member>> regionMembers;
+    /**
+     * one system per region, in X-major order
+     */
+    final private PhysicsSystem[] systems;
+    /**
+     * one temporary allocator per region
+     */
+    final private TempAllocator[] allocators;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a world from the specified systems.
+     *
+     * @param origin the location of the world's minimum corner (only the X
+     * and Z components are used, not null, unaffected)
+     * @param regionSize the width of each region (in meters, &gt;0)
+     * @param numRegionsX the number of regions along the X axis (&ge;1)
+     * @param numRegionsZ the number of regions along the Z axis (&ge;1)
+     * @param margin the width of the overlap band at each border (in meters,
+     * &ge;0, &lt;regionSize)
+     * @param systems one initialized system per region, with the region at
+     * grid location (x,z) at index x+numRegionsX*z (not null, length
+     * numRegionsX*numRegionsZ, aliases created)
+     * @param tempBytes the size of each region's temporary allocator (in
+     * bytes, &gt;0)
+     */
+    public ShardedWorld(RVec3Arg origin, float regionSize, int numRegionsX,
+            int numRegionsZ, float margin, PhysicsSystem[] systems,
+            int tempBytes) {
+        if (!(regionSize > 0f)) {
+            throw new IllegalArgumentException("regionSize = " + regionSize);
+        }
+        if (!(margin >= 0f && margin < regionSize)) {
+            throw new IllegalArgumentException("margin = " + margin);
+        }
+        int numRegions = numRegionsX * numRegionsZ;
+        if (numRegionsX < 1 || numRegionsZ < 1
+                || systems.length != numRegions) {
+            throw new IllegalArgumentException("numRegionsX = " + numRegionsX
+                    + ", numRegionsZ = " + numRegionsZ
+                    + ", systems.length = " + systems.length);
+        }
+
+        this.originX = origin.xx();
+        this.originZ = origin.zz();
+        this.regionSize = regionSize;
+        this.numRegionsX = numRegionsX;
+        this.numRegionsZ = numRegionsZ;
+        this.margin = margin;
+        this.systems = systems.clone();
+        this.allocators = new TempAllocator[numRegions];
+        this.regionMembers = new ArrayList<>(numRegions);
+        for (int i = 0; i < numRegions; ++i) {
+            allocators[i] = new TempAllocatorImpl(tempBytes);
+            regionMembers.add(new ArrayList<>(64));
+        }
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Create a body and add it to the region that contains its location.
+     * Static bodies are also copied to every other region they overlap
+     * (including the margins).
+     *
+     * @param settings the settings to use (not null, unaffected)
+     * @param activation whether to activate the body (not null)
+     * @return the handle of the new body (&ge;0)
+     */
+    public int addBody(
+            ConstBodyCreationSettings settings, EActivation activation) {
+        RVec3 location = settings.getPosition();
+        int region = regionOf(location.xx(), location.zz());
+        long systemVa = systems[region].va();
+        long settingsVa = settings.targetVa();
+        int activationOrdinal = activation.ordinal();
+        int bodyId = createBody(systemVa, settingsVa, activationOrdinal);
+        if (bodyId == BodyId.cInvalidBodyId) {
+            throw new IllegalStateException(
+                    "Region " + region + " is out of bodies.");
+        }
+
+        Member member = new Member(region, bodyId);
+        member.isStatic = isStatic(systemVa, bodyId);
+        if (member.isStatic) {
+            double[] bounds = new double[4];
+            getBoundsXz(systemVa, bodyId, bounds);
+            int minX = cellX(bounds[0] - margin);
+            int minZ = cellZ(bounds[1] - margin);
+            int maxX = cellX(bounds[2] + margin);
+            int maxZ = cellZ(bounds[3] + margin);
+            for (int z = minZ; z <= maxZ; ++z) {
+                for (int x = minX; x <= maxX; ++x) {
+                    int copyRegion = x + numRegionsX * z;
+                    if (copyRegion != region) {
+                        addCopy(member, copyRegion, false);
+                    }
+                }
+            }
+        } else {
+            regionMembers.get(region).add(member);
+        }
+        int result = members.size();
+        members.add(member);
+
+        return result;
+    }
+
+    /**
+     * Count the bodies in the world, excluding ghosts and static copies.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countBodies() {
+        int result = 0;
+        for (Member member : members) {
+            if (member != null) {
+                ++result;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Count the ghosts and static copies in all regions.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countGhosts() {
+        int result = 0;
+        for (Member member : members) {
+            if (member != null) {
+                result += member.numCopies;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Return the total number of migrations since the world was created.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countMigrations() {
+        return numMigrations;
+    }
+
+    /**
+     * Count the regions in the world.
+     *
+     * @return the count (&ge;1)
+     */
+    public int countRegions() {
+        int result = systems.length;
+        return result;
+    }
+
+    /**
+     * Return the ID of the specified body in the system that owns it.
+     *
+     * @param handle the handle of the body (&ge;0)
+     * @return the ID, in the format of
+     * {@code BodyId.getIndexAndSequenceNumber()}
+     */
+    public int getBodyId(int handle) {
+        Member member = getMember(handle);
+        int result = member.bodyId;
+
+        return result;
+    }
+
+    /**
+     * Return the index of the region that owns the specified body.
+     *
+     * @param handle the handle of the body (&ge;0)
+     * @return the region index (&ge;0)
+     */
+    public int getRegion(int handle) {
+        Member member = getMember(handle);
+        int result = member.region;
+
+        return result;
+    }
+
+    /**
+     * Access the system of the specified region.
+     *
+     * @param regionIndex the index of the region (&ge;0)
+     * @return the pre-existing instance (not null)
+     */
+    public PhysicsSystem getSystem(int regionIndex) {
+        PhysicsSystem result = systems[regionIndex];
+        return result;
+    }
+
+    /**
+     * Remove the specified body from the world and destroy it, along with any
+     * ghosts or copies. The handle is not reused.
+     *
+     * @param handle the handle of the body (&ge;0, without constraints)
+     */
+    public void removeBody(int handle) {
+        Member member = getMember(handle);
+        if (isConstrained(systems[member.region].va(), member.bodyId)) {
+            throw new IllegalStateException("Body " + handle
+                    + " can't be removed while it has constraints.");
+        }
+        removeCopies(member, -1);
+        destroyBody(systems[member.region].va(), member.bodyId);
+        if (!member.isStatic) {
+            regionMembers.get(member.region).remove(member);
+        }
+        members.set(handle, null);
+    }
+
+    /**
+     * Alter the maximum number of regions to update concurrently. Each
+     * concurrent update uses one barrier of the job system passed to
+     * {@link #update(float, int, JobSystem, ExecutorService)}.
+     *
+     * @param maxUpdates the desired maximum (&ge;1, &le;the number of barriers
+     * in the job system, default=Jolt.cMaxPhysicsBarriers)
+     */
+    public void setMaxConcurrentUpdates(int maxUpdates) {
+        if (maxUpdates < 1) {
+            throw new IllegalArgumentException("maxUpdates = " + maxUpdates);
+        }
+        this.maxConcurrentUpdates = maxUpdates;
+    }
+
+    /**
+     * Advance all regions concurrently (at most
+     * {@link #setMaxConcurrentUpdates(int)} at a time), then migrate bodies
+     * and update ghosts.
+     *
+     * @param deltaTime the total time to advance (in seconds)
+     * @param collisionSteps the number of simulation steps to perform
+     * @param jobSystem the job system shared by all regions (not null)
+     * @param executor the executor to run the region updates (not null)
+     * @return a bitmask of error conditions from all regions, or-ed together
+     */
+    public int update(float deltaTime, int collisionSteps,
+            JobSystem jobSystem, ExecutorService executor) {
+        int numRegions = systems.length;
+        Semaphore barriers = new Semaphore(maxConcurrentUpdates);
+        Collection<Callable<Integer>> tasks = new ArrayList<>(numRegions);
+        for (int i = 0; i < numRegions; ++i) {
+            PhysicsSystem system = systems[i];
+            TempAllocator allocator = allocators[i];
+            tasks.add(() -> {
+                barriers.acquire();
+                try {
+                    return system.update(
+                            deltaTime, collisionSteps, allocator, jobSystem);
+                } finally {
+                    barriers.release();
+                }
+            });
+        }
+        int result = 0;
+        try {
+            for (Future<Integer> future : executor.invokeAll(tasks)) {
+                result |= future.get();
+            }
+        } catch (ExecutionException exception) {
+            throw new IllegalStateException(exception.getCause());
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(exception);
+        }
+
+        for (int region = 0; region < numRegions; ++region) {
+            updateRegion(region);
+        }
+        syncGhosts();
+
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Copy the specified member's body to the specified region.
+     *
+     * @param member the member to copy (not null, modified)
+     * @param region the index of the destination region
+     * @param asGhost true to create a kinematic ghost, false for an exact
+     * copy
+     */
+    private void addCopy(Member member, int region, boolean asGhost) {
+        long srcVa = systems[member.region].va();
+        long dstVa = systems[region].va();
+        int copyId = copyBody(srcVa, member.bodyId, dstVa, asGhost);
+        if (copyId == BodyId.cInvalidBodyId) {
+            return; // the destination region is full
+        }
+
+        int index = member.numCopies;
+        if (index == member.copyIds.length) {
+            int capacity = 2 * index;
+            member.copyIds = Arrays.copyOf(member.copyIds, capacity);
+            member.copyRegions = Arrays.copyOf(member.copyRegions, capacity);
+        }
+        member.copyIds[index] = copyId;
+        member.copyRegions[index] = region;
+        ++member.numCopies;
+    }
+
+    /**
+     * Return the column of the region containing the specified X coordinate,
+     * clamped to the grid.
+     *
+     * @param x the X coordinate (in system coordinates)
+     * @return the column index (&ge;0, &lt;numRegionsX)
+     */
+    private int cellX(double x) {
+        int result = (int) Math.floor((x - originX) / regionSize);
+        result = Math.max(0, Math.min(result, numRegionsX - 1));
+
+        return result;
+    }
+
+    /**
+     * Return the row of the region containing the specified Z coordinate,
+     * clamped to the grid.
+     *
+     * @param z the Z coordinate (in system coordinates)
+     * @return the row index (&ge;0, &lt;numRegionsZ)
+     */
+    private int cellZ(double z) {
+        int result = (int) Math.floor((z - originZ) / regionSize);
+        result = Math.max(0, Math.min(result, numRegionsZ - 1));
+
+        return result;
+    }
+
+    /**
+     * Access the member with the specified handle.
+     *
+     * @param handle the handle to look up
+     * @return the pre-existing member (not null)
+     */
+    private Member getMember(int handle) {
+        Member result = (handle >= 0 && handle < members.size())
+                ? members.get(handle) : null;
+        if (result == null) {
+            throw new IllegalArgumentException("handle = " + handle);
+        }
+
+        return result;
+    }
+
+    /**
+     * Test whether the specified location lies inside the specified region
+     * expanded by the specified distance.
+     *
+     * @param region the index of the region
+     * @param x the X coordinate of the location
+     * @param z the Z coordinate of the location
+     * @param expansion the distance to expand the region (in meters)
+     * @return true if inside, otherwise false
+     */
+    private boolean isInside(int region, double x, double z, double expansion) {
+        double minX = originX + regionSize * (region % numRegionsX);
+        double minZ = originZ + regionSize * (region / numRegionsX);
+        boolean result = x >= minX - expansion
+                && x <= minX + regionSize + expansion
+                && z >= minZ - expansion
+                && z <= minZ + regionSize + expansion;
+
+        return result;
+    }
+
+    /**
+     * Return the index of the region containing the specified location,
+     * clamped to the grid.
+     *
+     * @param x the X coordinate (in system coordinates)
+     * @param z the Z coordinate (in system coordinates)
+     * @return the region index (&ge;0)
+     */
+    private int regionOf(double x, double z) {
+        int result = cellX(x) + numRegionsX * cellZ(z);
+        return result;
+    }
+
+    /**
+     * Destroy the ghosts or copies of the specified member, optionally
+     * keeping those in one region.
+     *
+     * @param member the member to modify (not null)
+     * @param keepRegion the index of the region whose copy to keep, or -1 to
+     * destroy all copies
+     */
+    private void removeCopies(Member member, int keepRegion) {
+        int numKept = 0;
+        for (int i = 0; i < member.numCopies; ++i) {
+            int region = member.copyRegions[i];
+            int copyId = member.copyIds[i];
+            if (region == keepRegion) {
+                member.copyRegions[numKept] = region;
+                member.copyIds[numKept] = copyId;
+                ++numKept;
+            } else {
+                destroyBody(systems[region].va(), copyId);
+            }
+        }
+        member.numCopies = numKept;
+    }
+
+    /**
+     * Update the ghosts of all moving members, using the native bulk copy.
+     */
+    private void syncGhosts() {
+        int numGhosts = countGhosts();
+        long[] srcVas = new long[numGhosts];
+        int[] srcIds = new int[numGhosts];
+        long[] dstVas = new long[numGhosts];
+        int[] dstIds = new int[numGhosts];
+        int count = 0;
+        for (List<Member> list : regionMembers) {
+            for (Member member : list) {
+                long srcVa = systems[member.region].va();
+                for (int i = 0; i < member.numCopies; ++i) {
+                    srcVas[count] = srcVa;
+                    srcIds[count] = member.bodyId;
+                    dstVas[count] = systems[member.copyRegions[i]].va();
+                    dstIds[count] = member.copyIds[i];
+                    ++count;
+                }
+            }
+        }
+        syncGhosts(srcVas, srcIds, dstVas, dstIds, count);
+    }
+
+    /**
+     * Migrate the moving members of the specified region as needed and update
+     * the set of ghosts for each one.
+     *
+     * @param region the index of the region to process
+     */
+    private void updateRegion(int region) {
+        List<Member> list = regionMembers.get(region);
+        Member[] snapshot = list.toArray(new Member[0]);
+        int numMembers = snapshot.length;
+        int[] bodyIds = new int[numMembers];
+        for (int i = 0; i < numMembers; ++i) {
+            bodyIds[i] = snapshot[i].bodyId;
+        }
+        long srcVa = systems[region].va();
+        double[] locations = new double[2 * numMembers];
+        getLocationsXz(srcVa, bodyIds, numMembers, locations);
+
+        float hysteresis = 0.5f * margin;
+        for (int i = 0; i < numMembers; ++i) {
+            Member member = snapshot[i];
+            double x = locations[2 * i];
+            double z = locations[2 * i + 1];
+            int home = regionOf(x, z);
+            if (home != region && !isInside(region, x, z, hysteresis)
+                    && !isConstrained(srcVa, member.bodyId)) {
+                /*
+                 * Re-create the body in its new region
+                 * and replace the original with a ghost, if appropriate:
+                 */
+                removeCopies(member, -1);
+                long dstVa = systems[home].va();
+                int newId = copyBody(srcVa, member.bodyId, dstVa, false);
+                if (newId != BodyId.cInvalidBodyId) {
+                    destroyBody(srcVa, member.bodyId);
+                    list.remove(member);
+                    regionMembers.get(home).add(member);
+                    member.region = home;
+                    member.bodyId = newId;
+                    ++numMigrations;
+                }
+            }
+            updateGhosts(member, x, z);
+        }
+    }
+
+    /**
+     * Create and destroy ghosts of the specified member so that it has one in
+     * each neighboring region whose margin contains its location.
+     *
+     * @param member the member to update (not null)
+     * @param x the X coordinate of the member's location
+     * @param z the Z coordinate of the member's location
+     */
+    private void updateGhosts(Member member, double x, double z) {
+        int minX = cellX(x - margin);
+        int minZ = cellZ(z - margin);
+        int maxX = cellX(x + margin);
+        int maxZ = cellZ(z + margin);
+
+        // Destroy ghosts that are no longer needed:
+        int numKept = 0;
+        for (int i = 0; i < member.numCopies; ++i) {
+            int region = member.copyRegions[i];
+            int copyId = member.copyIds[i];
+            if (region != member.region && isInside(region, x, z, margin)) {
+                member.copyRegions[numKept] = region;
+                member.copyIds[numKept] = copyId;
+                ++numKept;
+            } else {
+                destroyBody(systems[region].va(), copyId);
+            }
+        }
+        member.numCopies = numKept;
+
+        // Create missing ghosts:
+        for (int cz = minZ; cz <= maxZ; ++cz) {
+            for (int cx = minX; cx <= maxX; ++cx) {
+                int region = cx + numRegionsX * cz;
+                if (region != member.region && isInside(region, x, z, margin)
+                        && !member.hasCopyIn(region)) {
+                    addCopy(member, region, true);
+                }
+            }
+        }
+    }
+    // *************************************************************************
+    // native private methods
+
+    native private static int copyBody(
+            long srcSystemVa, int srcId, long dstSystemVa, boolean asGhost);
+
+    native private static int createBody(
+            long systemVa, long settingsVa, int activationOrdinal);
+
+    native private static void destroyBody(long systemVa, int bodyId);
+
+    native private static void getBoundsXz(
+            long systemVa, int bodyId, double[] storeBounds);
+
+    native private static void getLocationsXz(long systemVa, int[] bodyIds,
+            int numBodies, double[] storeLocations);
+
+    native private static boolean isConstrained(long systemVa, int bodyId);
+
+    native private static boolean isStatic(long systemVa, int bodyId);
+
+    native private static void syncGhosts(long[] srcSystemVas, int[] srcIds,
+            long[] dstSystemVas, int[] dstIds, int numGhosts);
+    // *************************************************************************
+    // Member class
+
+    /**
+     * Bookkeeping for a single body in the world.
+     */
+    private static class Member {
+        /**
+         * true for a static body, which never migrates
+         */
+        boolean isStatic;
+        /**
+         * IDs of the ghosts or copies
+         */
+        int[] copyIds = new int[3];
+        /**
+         * regions of the ghosts or copies
+         */
+        int[] copyRegions = new int[3];
+        /**
+         * ID of the body in its owning region
+         */
+        int bodyId;
+        /**
+         * number of ghosts or copies
+         */
+        int numCopies;
+        /**
+         * index of the owning region
+         */
+        int region;
+
+        /**
+         * Instantiate a member with no copies.
+         *
+         * @param region the index of the owning region
+         * @param bodyId the ID of the body in that region
+         */
+        Member(int region, int bodyId) {
+            this.region = region;
+            this.bodyId = bodyId;
+        }
+
+        /**
+         * Test whether the member has a ghost or copy in the specified
+         * region.
+         *
+         * @param region the index of the region to test
+         * @return true if it has one, otherwise false
+         */
+        boolean hasCopyIn(int region) {
+            for (int i = 0; i < numCopies; ++i) {
+                if (copyRegions[i] == region) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -22,6 +22,7 @@ SOFTWARE.
 package com.github.stephengold.joltjni;
 
 import com.github.stephengold.joltjni.template.RefTarget;
+import java.nio.FloatBuffer;
 
 /**
  * A skeletal animation for skinning.
@@ -68,6 +69,22 @@ public class SkeletalAnimation extends JoltPhysicsObject implements RefTarget {
         long poseVa = storePose.va();
         sample(animationVa, time, poseVa);
     }
+
+    /**
+     * Interpolate the joint transforms for the specified animation time and
+     * copy them to the specified buffer, starting at its current position.
+     * The animation is unaffected.
+     *
+     * @param time the animation time to use (in seconds)
+     * @param storePose storage for the interpolated pose (not null, modified)
+     * @param storeStates storage for the joint transforms (not null, direct,
+     * modified, {@code SkeletonPose.cStateStride} floats per joint)
+     */
+    public void sample(
+            float time, SkeletonPose storePose, FloatBuffer storeStates) {
+        sample(time, storePose);
+        storePose.getJointStates(storeStates);
+    }
     // *************************************************************************
     // RefTarget methods
 
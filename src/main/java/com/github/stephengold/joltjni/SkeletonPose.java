@@ -22,6 +22,7 @@ SOFTWARE.
 package com.github.stephengold.joltjni;
 
 import com.github.stephengold.joltjni.readonly.RVec3Arg;
+import java.nio.FloatBuffer;
 
 /**
  * A skeleton with joint transforms specifying a pose.
@@ -29,6 +30,19 @@ import com.github.stephengold.joltjni.readonly.RVec3Arg;
  * @author Stephen Gold sgold@sonic.net
  */
 public class SkeletonPose extends JoltPhysicsObject {
+    // *************************************************************************
+    // constants
+
+    /**
+     * number of floats per joint in a joint-matrix buffer: a 4x4 model-space
+     * matrix in column-major order
+     */
+    final public static int cMatrixStride = 16;
+    /**
+     * number of floats per joint in a joint-state buffer: translation
+     * (x,y,z) followed by rotation (x,y,z,w)
+     */
+    final public static int cStateStride = 7;
     // *************************************************************************
     // constructors
 
@@ -61,6 +75,26 @@ public class SkeletonPose extends JoltPhysicsObject {
         calculateJointMatrices(poseVa);
     }
 
+    /**
+     * Convert the joint matrices to joint transforms.
+     */
+    public void calculateJointStates() {
+        long poseVa = va();
+        calculateJointStates(poseVa);
+    }
+
+    /**
+     * Count the joints in the pose. The pose is unaffected.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countJoints() {
+        long poseVa = va();
+        int result = countJoints(poseVa);
+
+        return result;
+    }
+
     /**
      * Access the transforms of the specified joint.
      *
@@ -75,6 +109,69 @@ public class SkeletonPose extends JoltPhysicsObject {
         return result;
     }
 
+    /**
+     * Copy the joint matrices of all joints to the specified buffer, starting
+     * at its current position. The pose is unaffected.
+     * {@link #calculateJointMatrices()} should be invoked first.
+     *
+     * @param storeMatrices the buffer to fill (not null, direct, modified,
+     * capacity&ge;position+16*jointCount)
+     */
+    public void getJointMatrices(FloatBuffer storeMatrices) {
+        long poseVa = va();
+        int numFloats = cMatrixStride * countJoints(poseVa);
+        int position = storeMatrices.position();
+        Jolt.checkCapacity(storeMatrices, position + numFloats);
+        getJointMatrices(poseVa, storeMatrices, position);
+    }
+
+    /**
+     * Copy the transforms of all joints to the specified buffer, starting at
+     * its current position. The pose is unaffected.
+     *
+     * @param storeStates the buffer to fill (not null, direct, modified,
+     * capacity&ge;position+7*jointCount)
+     */
+    public void getJointStates(FloatBuffer storeStates) {
+        long poseVa = va();
+        int numFloats = cStateStride * countJoints(poseVa);
+        int position = storeStates.position();
+        Jolt.checkCapacity(storeStates, position + numFloats);
+        getJointStates(poseVa, storeStates, position);
+    }
+
+    /**
+     * Alter the matrices of all joints using data in the specified buffer,
+     * starting at its current position. {@link #calculateJointStates()} may
+     * be invoked afterwards to update the joint transforms.
+     *
+     * @param matrices the desired model-space matrices (not null, direct,
+     * unaffected, capacity&ge;position+16*jointCount)
+     */
+    public void setJointMatrices(FloatBuffer matrices) {
+        long poseVa = va();
+        int numFloats = cMatrixStride * countJoints(poseVa);
+        int position = matrices.position();
+        Jolt.checkCapacity(matrices, position + numFloats);
+        setJointMatrices(poseVa, matrices, position);
+    }
+
+    /**
+     * Alter the transforms of all joints using data in the specified buffer,
+     * starting at its current position. {@link #calculateJointMatrices()}
+     * may be invoked afterwards to update the joint matrices.
+     *
+     * @param states the desired joint-space transforms (not null, direct,
+     * unaffected, capacity&ge;position+7*jointCount)
+     */
+    public void setJointStates(FloatBuffer states) {
+        long poseVa = va();
+        int numFloats = cStateStride * countJoints(poseVa);
+        int position = states.position();
+        Jolt.checkCapacity(states, position + numFloats);
+        setJointStates(poseVa, states, position);
+    }
+
     /**
      * Alter the root offset.
      *
@@ -103,6 +200,10 @@ public class SkeletonPose extends JoltPhysicsObject {
 
     native private static void calculateJointMatrices(long poseVa);
 
+    native private static void calculateJointStates(long poseVa);
+
+    native private static int countJoints(long poseVa);
+
     native private static long createCopy(long poseVa);
 
     native private static long createSkeletonPoseDefault();
@@ -111,6 +212,18 @@ public class SkeletonPose extends JoltPhysicsObject {
 
     native private static long getJoint(long poseVa, int jointIndex);
 
+    native private static void getJointMatrices(
+            long poseVa, FloatBuffer storeMatrices, int position);
+
+    native private static void getJointStates(
+            long poseVa, FloatBuffer storeStates, int position);
+
+    native private static void setJointMatrices(
+            long poseVa, FloatBuffer matrices, int position);
+
+    native private static void setJointStates(
+            long poseVa, FloatBuffer states, int position);
+
     native private static void setRootOffset(
             long poseVa, double xx, double yy, double zz);
 
@@ -0,0 +1,109 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package com.github.stephengold.joltjni;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Additional state for a soft body, including the state of its vertices.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class SoftBodyMotionProperties extends MotionProperties {
+    // *************************************************************************
+    // constants
+
+    /**
+     * number of floats per vertex copied by {@code getVertices()}: position
+     * (x,y,z), velocity (x,y,z), and inverse mass
+     */
+    final public static int cVertexStride = 7;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate with the specified native object assigned but not owned.
+     *
+     * @param propertiesVa the virtual address of the native object to assign
+     * (not zero)
+     */
+    SoftBodyMotionProperties(long propertiesVa) {
+        super(propertiesVa);
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Count the vertices in the soft body. The properties are unaffected.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countVertices() {
+        long propertiesVa = va();
+        int result = countVertices(propertiesVa);
+
+        return result;
+    }
+
+    /**
+     * Copy the state of all vertices to the specified buffer, starting at its
+     * current position. Positions are relative to the body's center of mass.
+     * The properties are unaffected.
+     *
+     * @param storeVertices the buffer to fill (not null, direct, modified,
+     * capacity&ge;position+7*vertexCount)
+     */
+    public void getVertices(FloatBuffer storeVertices) {
+        long propertiesVa = va();
+        int numFloats = cVertexStride * countVertices(propertiesVa);
+        int position = storeVertices.position();
+        Jolt.checkCapacity(storeVertices, position + numFloats);
+        getVertices(propertiesVa, storeVertices, position);
+    }
+
+    /**
+     * Alter the inverse mass of the specified vertex. Zero pins the vertex in
+     * place.
+     *
+     * @param vertexIndex the index of the vertex to modify (&ge;0)
+     * @param invMass the desired inverse mass (in 1/kilograms, &ge;0)
+     */
+    public void setVertexInvMass(int vertexIndex, float invMass) {
+        long propertiesVa = va();
+        int numVertices = countVertices(propertiesVa);
+        if (vertexIndex < 0 || vertexIndex >= numVertices) {
+            throw new IndexOutOfBoundsException(
+                    "vertexIndex = " + vertexIndex);
+        }
+        setVertexInvMass(propertiesVa, vertexIndex, invMass);
+    }
+    // *************************************************************************
+    // native private methods
+
+    native private static int countVertices(long propertiesVa);
+
+    native private static void getVertices(
+            long propertiesVa, FloatBuffer storeVertices, int position);
+
+    native private static void setVertexInvMass(
+            long propertiesVa, int vertexIndex, float invMass);
+}
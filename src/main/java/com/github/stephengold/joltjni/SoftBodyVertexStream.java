@@ -0,0 +1,234 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package com.github.stephengold.joltjni;
+
+import com.github.stephengold.joltjni.readonly.ConstBodyId;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/**
+ * Stream the vertex state of many soft bodies into a single direct buffer,
+ * copying only the bodies whose vertices may have changed.
+ * <p>
+ * Each vertex occupies {@code cVertexStride} floats of the buffer: its
+ * location (in system coordinates), its velocity (in system coordinates), and
+ * its inverse mass. The vertices of each body are contiguous, starting at
+ * {@link #firstVertex(int)}.
+ * <p>
+ * A body is copied if it's active, if it was active during the previous
+ * update (to capture the step in which it fell asleep), or if it was marked
+ * dirty. Bodies that are modified while inactive, for instance by
+ * repositioning them, should be marked dirty using {@link #markDirty(int)}.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final public class SoftBodyVertexStream {
+    // *************************************************************************
+    // constants
+
+    /**
+     * number of floats per vertex in the buffer: location (x,y,z), velocity
+     * (x,y,z), and inverse mass
+     */
+    final public static int cVertexStride = 7;
+    // *************************************************************************
+    // fields
+
+    /**
+     * true if the corresponding body should be copied during the next update,
+     * regardless of its activation state
+     */
+    private boolean[] dirty = new boolean[16];
+    /**
+     * true if the corresponding body was active during the previous update
+     */
+    private boolean[] wasActive = new boolean[16];
+    /**
+     * vertex state of all bodies
+     */
+    private FloatBuffer buffer = Jolt.newDirectFloatBuffer(0);
+    /**
+     * IDs of the bodies, in the order added
+     */
+    private int[] bodyIds = new int[16];
+    /**
+     * index of the first vertex of each body
+     */
+    private int[] firstVertices = new int[16];
+    /**
+     * number of bodies in the stream
+     */
+    private int numBodies;
+    /**
+     * total number of vertices in all bodies
+     */
+    private int numVertices;
+    /**
+     * system that contains the bodies
+     */
+    final private PhysicsSystem system;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an empty stream for the specified system.
+     *
+     * @param system the system that contains the bodies (not null, alias
+     * created)
+     */
+    public SoftBodyVertexStream(PhysicsSystem system) {
+        this.system = system;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Add the specified soft body to the stream. The buffer is replaced, and
+     * the new body will be copied during the next update.
+     *
+     * @param bodyId the ID of the soft body to add (not null, unaffected)
+     * @return the index of the added body (&ge;0)
+     */
+    public int add(ConstBodyId bodyId) {
+        long systemVa = system.va();
+        int id = bodyId.getIndexAndSequenceNumber();
+        int numBodyVertices = countVertices(systemVa, id);
+        if (numBodyVertices < 0) {
+            throw new IllegalArgumentException("not a soft body: " + id);
+        }
+
+        int result = numBodies;
+        if (result == bodyIds.length) {
+            int capacity = 2 * result;
+            bodyIds = Arrays.copyOf(bodyIds, capacity);
+            dirty = Arrays.copyOf(dirty, capacity);
+            firstVertices = Arrays.copyOf(firstVertices, capacity);
+            wasActive = Arrays.copyOf(wasActive, capacity);
+        }
+        bodyIds[result] = id;
+        dirty[result] = true;
+        firstVertices[result] = numVertices;
+        wasActive[result] = false;
+        ++numBodies;
+        numVertices += numBodyVertices;
+
+        FloatBuffer newBuffer
+                = Jolt.newDirectFloatBuffer(cVertexStride * numVertices);
+        buffer.clear();
+        newBuffer.put(buffer);
+        newBuffer.rewind();
+        buffer = newBuffer;
+
+        return result;
+    }
+
+    /**
+     * Count the bodies in the stream.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countBodies() {
+        return numBodies;
+    }
+
+    /**
+     * Count the vertices in all bodies.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countVertices() {
+        return numVertices;
+    }
+
+    /**
+     * Return the index of the specified body's first vertex.
+     *
+     * @param bodyIndex the index of the body (&ge;0)
+     * @return the vertex index (&ge;0)
+     */
+    public int firstVertex(int bodyIndex) {
+        if (bodyIndex < 0 || bodyIndex >= numBodies) {
+            throw new IndexOutOfBoundsException("bodyIndex = " + bodyIndex);
+        }
+        int result = firstVertices[bodyIndex];
+
+        return result;
+    }
+
+    /**
+     * Access the buffer that holds the vertex state. The buffer is replaced
+     * whenever a body is added.
+     *
+     * @return the pre-existing direct buffer (not null)
+     */
+    public FloatBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Mark all bodies to be copied during the next update.
+     */
+    public void markAllDirty() {
+        Arrays.fill(dirty, 0, numBodies, true);
+    }
+
+    /**
+     * Mark the specified body to be copied during the next update.
+     *
+     * @param bodyIndex the index of the body (&ge;0)
+     */
+    public void markDirty(int bodyIndex) {
+        if (bodyIndex < 0 || bodyIndex >= numBodies) {
+            throw new IndexOutOfBoundsException("bodyIndex = " + bodyIndex);
+        }
+        dirty[bodyIndex] = true;
+    }
+
+    /**
+     * Copy the vertex state of each body that may have changed since the
+     * previous update, using the locking body interface. Bodies that have
+     * been removed from the system are skipped.
+     *
+     * @param storeIndices storage for the indices of the copied bodies (in
+     * ascending order, length&ge;countBodies(), modified) or null
+     * @return the number of bodies copied (&ge;0)
+     */
+    public int update(int[] storeIndices) {
+        if (storeIndices != null && storeIndices.length < numBodies) {
+            throw new IllegalArgumentException(
+                    "storeIndices.length = " + storeIndices.length);
+        }
+        long systemVa = system.va();
+        int result = update(systemVa, bodyIds, firstVertices, numBodies,
+                wasActive, dirty, buffer, storeIndices);
+
+        return result;
+    }
+    // *************************************************************************
+    // native private methods
+
+    native private static int countVertices(long systemVa, int bodyId);
+
+    native private static int update(long systemVa, int[] bodyIds,
+            int[] firstVertices, int numBodies, boolean[] wasActive,
+            boolean[] dirty, FloatBuffer storeVertices, int[] storeIndices);
+}
@@ -40,7 +40,53 @@ public class TempAllocatorImpl extends TempAllocator {
         setVirtualAddress(allocatorVa, true);
     }
     // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Return the capacity of the allocator's buffer. The allocator is
+     * unaffected.
+     *
+     * @return the number of bytes (&ge;0)
+     */
+    public int getSize() {
+        long allocatorVa = va();
+        int result = getSize(allocatorVa);
+
+        return result;
+    }
+
+    /**
+     * Return the number of bytes currently allocated. The allocator is
+     * unaffected.
+     *
+     * @return the number of bytes (&ge;0, &le;size)
+     */
+    public int getUsage() {
+        long allocatorVa = va();
+        int result = getUsage(allocatorVa);
+
+        return result;
+    }
+
+    /**
+     * Test whether the allocator is empty. The allocator is unaffected.
+     *
+     * @return {@code true} if no memory is allocated, otherwise {@code false}
+     */
+    public boolean isEmpty() {
+        long allocatorVa = va();
+        boolean result = isEmpty(allocatorVa);
+
+        return result;
+    }
+    // *************************************************************************
     // native private methods
 
     native private static long create(int numBytes);
+
+    native private static int getSize(long allocatorVa);
+
+    native private static int getUsage(long allocatorVa);
+
+    native private static boolean isEmpty(long allocatorVa);
 }
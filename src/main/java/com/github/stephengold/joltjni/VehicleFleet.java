@@ -0,0 +1,218 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package com.github.stephengold.joltjni;
+
+import com.github.stephengold.joltjni.readonly.Vec3Arg;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Apply driver inputs to many vehicles and export the state of their wheels,
+ * one native call each.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final public class VehicleFleet {
+    // *************************************************************************
+    // constants
+
+    /**
+     * number of floats read per vehicle by {@code applyDriverInputs()}
+     */
+    final public static int cInputStride = 4;
+    /**
+     * number of floats written per wheel by {@code exportWheels()}: world
+     * position (3), world rotation X, Y, Z, and W (4), suspension length,
+     * angular velocity, and 1 if in contact otherwise 0
+     */
+    final public static int cWheelStride = 10;
+    // *************************************************************************
+    // fields
+
+    /**
+     * local wheel right and up axes of each vehicle (6 floats per vehicle)
+     */
+    private float[] wheelAxes = new float[6 * 16];
+    /**
+     * controller type of each vehicle
+     */
+    private int[] controllerTypes = new int[16];
+    /**
+     * index of each vehicle's first wheel in the export buffer
+     */
+    private int[] firstWheels = new int[16];
+    /**
+     * managed vehicles, in order of addition
+     */
+    final private List<VehicleConstraint> vehicles = new ArrayList<>(16);
+    /**
+     * virtual address of each vehicle's constraint
+     */
+    private long[] constraintVas = new long[16];
+    /**
+     * system used to activate vehicles that receive input
+     */
+    final private PhysicsSystem system;
+    /**
+     * total number of wheels
+     */
+    private int numWheels;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an empty fleet for the specified system.
+     *
+     * @param system the system containing the vehicles (not null, alias
+     * created)
+     */
+    public VehicleFleet(PhysicsSystem system) {
+        this.system = system;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Add the specified vehicle to the fleet.
+     *
+     * @param vehicle the vehicle to add (not null, alias created)
+     * @param wheelRight the wheel's local "right" axis, as passed to
+     * {@code getWheelWorldTransform()} (not null, unaffected)
+     * @param wheelUp the wheel's local "up" axis, as passed to
+     * {@code getWheelWorldTransform()} (not null, unaffected)
+     * @return the vehicle's index in the input buffer (&ge;0)
+     */
+    public int add(
+            VehicleConstraint vehicle, Vec3Arg wheelRight, Vec3Arg wheelUp) {
+        int result = vehicles.size();
+        if (result == constraintVas.length) {
+            int capacity = 2 * result;
+            constraintVas = Arrays.copyOf(constraintVas, capacity);
+            firstWheels = Arrays.copyOf(firstWheels, capacity);
+            controllerTypes = Arrays.copyOf(controllerTypes, capacity);
+            wheelAxes = Arrays.copyOf(wheelAxes, 6 * capacity);
+        }
+        vehicles.add(vehicle);
+        long constraintVa = vehicle.va();
+        constraintVas[result] = constraintVa;
+        firstWheels[result] = numWheels;
+        numWheels += vehicle.countWheels();
+        controllerTypes[result] = Constraint.getControllerType(constraintVa);
+        wheelAxes[6 * result] = wheelRight.getX();
+        wheelAxes[6 * result + 1] = wheelRight.getY();
+        wheelAxes[6 * result + 2] = wheelRight.getZ();
+        wheelAxes[6 * result + 3] = wheelUp.getX();
+        wheelAxes[6 * result + 4] = wheelUp.getY();
+        wheelAxes[6 * result + 5] = wheelUp.getZ();
+
+        return result;
+    }
+
+    /**
+     * Apply driver inputs to all vehicles. For wheeled vehicles, the inputs
+     * are forward, right, brake, and hand brake. For tracked vehicles, they
+     * are forward, left ratio, right ratio, and brake. Vehicles with other
+     * controllers ignore their inputs. Inactive vehicles with
+     * non-zero forward or steering input are activated.
+     *
+     * @param inputs the inputs (not null, direct, {@code cInputStride} floats
+     * per vehicle, unaffected)
+     */
+    public void applyDriverInputs(FloatBuffer inputs) {
+        int numVehicles = vehicles.size();
+        Jolt.checkCapacity(inputs, cInputStride * numVehicles);
+        long systemVa = system.va();
+        applyDriverInputs(
+                systemVa, constraintVas, controllerTypes, numVehicles, inputs);
+    }
+
+    /**
+     * Count the vehicles in the fleet. The fleet is unaffected.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countVehicles() {
+        int result = vehicles.size();
+        return result;
+    }
+
+    /**
+     * Count the wheels of all vehicles in the fleet. The fleet is unaffected.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countWheels() {
+        return numWheels;
+    }
+
+    /**
+     * Export the state of every wheel, in order of vehicle addition. The
+     * fleet is unaffected.
+     *
+     * @param storeWheels storage for the wheel states (not null, direct,
+     * {@code cWheelStride} floats per wheel, modified)
+     */
+    public void exportWheels(FloatBuffer storeWheels) {
+        Jolt.checkCapacity(storeWheels, cWheelStride * numWheels);
+        int numVehicles = vehicles.size();
+        exportWheels(constraintVas, wheelAxes, numVehicles, storeWheels);
+    }
+
+    /**
+     * Return the index of the specified vehicle's first wheel in the export
+     * buffer. The fleet is unaffected.
+     *
+     * @param vehicleIndex the index of the vehicle (&ge;0)
+     * @return the wheel index (&ge;0)
+     */
+    public int firstWheel(int vehicleIndex) {
+        if (vehicleIndex < 0 || vehicleIndex >= vehicles.size()) {
+            throw new IndexOutOfBoundsException(
+                    "vehicleIndex = " + vehicleIndex);
+        }
+        int result = firstWheels[vehicleIndex];
+
+        return result;
+    }
+
+    /**
+     * Access the specified vehicle.
+     *
+     * @param vehicleIndex the index of the vehicle (&ge;0)
+     * @return the pre-existing object (not null)
+     */
+    public VehicleConstraint get(int vehicleIndex) {
+        VehicleConstraint result = vehicles.get(vehicleIndex);
+        return result;
+    }
+    // *************************************************************************
+    // native private methods
+
+    native private static void applyDriverInputs(long systemVa,
+            long[] constraintVas, int[] controllerTypes, int numVehicles,
+            FloatBuffer inputs);
+
+    native private static void exportWheels(long[] constraintVas,
+            float[] wheelAxes, int numVehicles, FloatBuffer storeWheels);
+}
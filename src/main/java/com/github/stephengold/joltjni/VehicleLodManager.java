@@ -0,0 +1,437 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package com.github.stephengold.joltjni;
+
+import com.github.stephengold.joltjni.readonly.RVec3Arg;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Adjust the simulation level of detail (LOD) of vehicles based on their
+ * distance from the nearest observer.
+ * <p>
+ * There are 4 levels. Near vehicles use the near collision tester and test
+ * their wheels every step. Mid-range and far vehicles use the far tester
+ * (typically a cheap {@code VehicleCollisionTesterRay}) and test less often.
+ * Vehicles beyond the sleep distance are deactivated, if enabled. A sleeping
+ * vehicle that gets woken (for instance, by a collision) is held at the far
+ * level until it deactivates on its own. Settings are applied only when a
+ * vehicle changes level.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final public class VehicleLodManager {
+    // *************************************************************************
+    // constants
+
+    /**
+     * LOD for vehicles near an observer
+     */
+    final public static int cLodNear = 0;
+    /**
+     * LOD for vehicles at mid-range
+     */
+    final public static int cLodMid = 1;
+    /**
+     * LOD for distant vehicles
+     */
+    final public static int cLodFar = 2;
+    /**
+     * LOD for vehicles beyond the sleep distance
+     */
+    final public static int cLodAsleep = 3;
+    /**
+     * number of levels of detail
+     */
+    final public static int cNumLods = 4;
+    // *************************************************************************
+    // fields
+
+    /**
+     * {@code true} to deactivate vehicles beyond the sleep distance
+     */
+    private boolean sleepEnabled = true;
+    /**
+     * interface used to activate and deactivate vehicle bodies
+     */
+    final private BodyInterface bodyInterface;
+    /**
+     * fraction by which a vehicle must cross a threshold before its level
+     * increases
+     */
+    private float hysteresis = 0.1f;
+    /**
+     * minimum distance for each level (in meters, index 0 unused)
+     */
+    final private float[] lodDistances = {0f, 50f, 150f, 400f};
+    /**
+     * number of vehicles at each level as of the last update
+     */
+    final private int[] lodCounts = new int[cNumLods];
+    /**
+     * steps between collision tests while active, for each level
+     */
+    final private int[] stepsActive = {1, 2, 4, 4};
+    /**
+     * steps between collision tests while inactive, for each level
+     */
+    final private int[] stepsInactive = {1, 2, 4, 4};
+    /**
+     * registered vehicles
+     */
+    final private List<Entry> entries = new ArrayList<>(64);
+    /**
+     * registered observer locations
+     */
+    final private List<RVec3> observers = new ArrayList<>(4);
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a manager for vehicles in the specified system.
+     *
+     * @param system the system containing the vehicles (not null)
+     */
+    public VehicleLodManager(PhysicsSystem system) {
+        this.bodyInterface = system.getBodyInterface();
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Register the specified vehicle. It starts at the near level.
+     *
+     * @param vehicle the vehicle to manage (not null, alias created)
+     * @param nearTester the tester for near vehicles (not null, alias created)
+     * @param farTester the tester for mid-range and far vehicles (not null,
+     * alias created)
+     */
+    public void add(VehicleConstraint vehicle,
+            VehicleCollisionTester nearTester,
+            VehicleCollisionTester farTester) {
+        Entry entry = new Entry(vehicle, nearTester, farTester);
+        entries.add(entry);
+        applyLod(entry, cLodNear);
+    }
+
+    /**
+     * Register an observer location, such as a player or camera.
+     *
+     * @param location the location (not null, unaffected)
+     * @return the index of the observer (&ge;0)
+     */
+    public int addObserver(RVec3Arg location) {
+        int result = observers.size();
+        observers.add(
+                new RVec3(location.xx(), location.yy(), location.zz()));
+
+        return result;
+    }
+
+    /**
+     * Count the vehicles at the specified level as of the last update. The
+     * manager is unaffected.
+     *
+     * @param lod the level of detail (&ge;0, &lt;cNumLods)
+     * @return the count (&ge;0)
+     */
+    public int countVehicles(int lod) {
+        int result = lodCounts[lod];
+        return result;
+    }
+
+    /**
+     * Return the current level of the specified vehicle. The manager is
+     * unaffected.
+     *
+     * @param vehicle the vehicle to look up (not null, unaffected)
+     * @return the level of detail, or -1 if the vehicle isn't registered
+     */
+    public int getLod(VehicleConstraint vehicle) {
+        for (Entry entry : entries) {
+            if (entry.vehicle == vehicle) {
+                return entry.lod;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Unregister the specified vehicle and restore its near-level settings.
+     *
+     * @param vehicle the vehicle to remove (not null)
+     * @return {@code true} if it was registered, otherwise {@code false}
+     */
+    public boolean remove(VehicleConstraint vehicle) {
+        for (int i = 0; i < entries.size(); ++i) {
+            Entry entry = entries.get(i);
+            if (entry.vehicle == vehicle) {
+                applyLod(entry, cLodNear);
+                entries.remove(i);
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Unregister all observers.
+     */
+    public void removeAllObservers() {
+        observers.clear();
+    }
+
+    /**
+     * Alter the fraction by which a vehicle must exceed a level's distance
+     * before it is moved to that level.
+     *
+     * @param fraction the desired fraction (&ge;0, default=0.1)
+     */
+    public void setHysteresis(float fraction) {
+        if (!(fraction >= 0f)) {
+            throw new IllegalArgumentException("fraction = " + fraction);
+        }
+        this.hysteresis = fraction;
+    }
+
+    /**
+     * Alter the distances at which the levels begin.
+     *
+     * @param midDistance the desired mid-range distance (in meters, &ge;0,
+     * default=50)
+     * @param farDistance the desired far distance (in meters,
+     * &ge;midDistance, default=150)
+     * @param sleepDistance the desired sleep distance (in meters,
+     * &ge;farDistance, default=400)
+     */
+    public void setLodDistances(
+            float midDistance, float farDistance, float sleepDistance) {
+        if (!(midDistance >= 0f && farDistance >= midDistance
+                && sleepDistance >= farDistance)) {
+            throw new IllegalArgumentException("distances must increase");
+        }
+        lodDistances[cLodMid] = midDistance;
+        lodDistances[cLodFar] = farDistance;
+        lodDistances[cLodAsleep] = sleepDistance;
+    }
+
+    /**
+     * Alter the location of the specified observer.
+     *
+     * @param index the index of the observer (&ge;0)
+     * @param location the desired location (not null, unaffected)
+     */
+    public void setObserver(int index, RVec3Arg location) {
+        observers.get(index).set(location.xx(), location.yy(), location.zz());
+    }
+
+    /**
+     * Enable or disable deactivation of vehicles beyond the sleep distance.
+     * When disabled, such vehicles stay at the far level.
+     *
+     * @param enable {@code true} to enable, {@code false} to disable
+     * (default=true)
+     */
+    public void setSleepEnabled(boolean enable) {
+        this.sleepEnabled = enable;
+    }
+
+    /**
+     * Alter the number of steps between wheel-collision tests at the
+     * specified level.
+     *
+     * @param lod the level of detail (&ge;0, &lt;cNumLods)
+     * @param active the desired number of steps while the vehicle is active
+     * (0=never test, 1=test every step)
+     * @param inactive the desired number of steps while the vehicle is
+     * inactive (0=never test, 1=test every step)
+     */
+    public void setStepsBetweenTests(int lod, int active, int inactive) {
+        if (lod < 0 || lod >= cNumLods) {
+            throw new IllegalArgumentException("lod = " + lod);
+        }
+        if (active < 0) {
+            throw new IllegalArgumentException("active = " + active);
+        }
+        if (inactive < 0) {
+            throw new IllegalArgumentException("inactive = " + inactive);
+        }
+        stepsActive[lod] = active;
+        stepsInactive[lod] = inactive;
+        for (Entry entry : entries) {
+            if (entry.lod == lod) {
+                entry.vehicle.setNumStepsBetweenCollisionTestActive(active);
+                entry.vehicle.setNumStepsBetweenCollisionTestInactive(
+                        inactive);
+            }
+        }
+    }
+
+    /**
+     * Re-evaluate the level of every vehicle. With no observers, every
+     * vehicle is treated as near.
+     */
+    public void update() {
+        Arrays.fill(lodCounts, 0);
+        for (Entry entry : entries) {
+            boolean isActive = bodyInterface.isActive(entry.bodyId);
+            if (entry.lod == cLodAsleep && isActive) {
+                // Something woke the vehicle since it was put to sleep:
+                entry.woken = true;
+            } else if (!isActive) {
+                entry.woken = false;
+            }
+
+            int lod = cLodNear;
+            if (!observers.isEmpty()) {
+                RVec3 location = bodyInterface.getPosition(entry.bodyId);
+                double distance = Math.sqrt(minDistanceSquared(location));
+                lod = chooseLod(entry, distance);
+            }
+            if (lod != entry.lod) {
+                applyLod(entry, lod);
+            }
+            ++lodCounts[lod];
+        }
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Apply the settings of the specified level to a vehicle.
+     *
+     * @param entry the vehicle's entry (not null, modified)
+     * @param lod the desired level
+     */
+    private void applyLod(Entry entry, int lod) {
+        VehicleConstraint vehicle = entry.vehicle;
+        VehicleCollisionTester tester
+                = (lod == cLodNear) ? entry.nearTester : entry.farTester;
+        if (vehicle.getVehicleCollisionTester() != tester) {
+            vehicle.setVehicleCollisionTester(tester);
+        }
+        vehicle.setNumStepsBetweenCollisionTestActive(stepsActive[lod]);
+        vehicle.setNumStepsBetweenCollisionTestInactive(stepsInactive[lod]);
+
+        if (lod == cLodAsleep) {
+            bodyInterface.deactivateBody(entry.bodyId);
+        } else if (entry.lod == cLodAsleep) {
+            bodyInterface.activateBody(entry.bodyId);
+        }
+        entry.lod = lod;
+    }
+
+    /**
+     * Choose a level for a vehicle at the specified distance.
+     *
+     * @param entry the vehicle's entry (not null, unaffected)
+     * @param distance the distance to the nearest observer (in meters)
+     * @return the new level
+     */
+    private int chooseLod(Entry entry, double distance) {
+        int currentLod = entry.lod;
+        int maxLod = (sleepEnabled && !entry.woken) ? cLodAsleep : cLodFar;
+        int result = cLodNear;
+        for (int lod = 1; lod <= maxLod; ++lod) {
+            double threshold = lodDistances[lod];
+            if (lod > currentLod) {
+                threshold *= 1.0 + hysteresis;
+            }
+            if (distance >= threshold) {
+                result = lod;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Calculate the squared distance from the specified location to the
+     * nearest observer.
+     *
+     * @param location the location (not null, unaffected)
+     * @return the squared distance (in square meters, &ge;0)
+     */
+    private double minDistanceSquared(RVec3Arg location) {
+        double result = Double.POSITIVE_INFINITY;
+        for (RVec3 observer : observers) {
+            double dx = observer.xx() - location.xx();
+            double dy = observer.yy() - location.yy();
+            double dz = observer.zz() - location.zz();
+            double d2 = dx * dx + dy * dy + dz * dz;
+            result = Math.min(result, d2);
+        }
+
+        return result;
+    }
+    // *************************************************************************
+    // Entry class
+
+    /**
+     * LOD state of a single vehicle.
+     */
+    private static class Entry {
+        /**
+         * ID of the vehicle body
+         */
+        final BodyId bodyId;
+        /**
+         * {@code true} if the vehicle was woken while asleep and hasn't yet
+         * deactivated on its own
+         */
+        boolean woken;
+        /**
+         * current level of detail
+         */
+        int lod = -1;
+        /**
+         * tester for mid-range and far levels
+         */
+        final VehicleCollisionTester farTester;
+        /**
+         * tester for the near level
+         */
+        final VehicleCollisionTester nearTester;
+        /**
+         * the managed vehicle
+         */
+        final VehicleConstraint vehicle;
+
+        /**
+         * Instantiate an entry.
+         *
+         * @param vehicle the vehicle (not null, alias created)
+         * @param nearTester the near tester (not null, alias created)
+         * @param farTester the far tester (not null, alias created)
+         */
+        Entry(VehicleConstraint vehicle, VehicleCollisionTester nearTester,
+                VehicleCollisionTester farTester) {
+            this.vehicle = vehicle;
+            this.nearTester = nearTester;
+            this.farTester = farTester;
+            this.bodyId = vehicle.getVehicleBody().getId();
+        }
+    }
+}
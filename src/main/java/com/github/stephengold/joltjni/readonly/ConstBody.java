@@ -255,6 +255,13 @@ public interface ConstBody extends ConstJoltPhysicsObject {
      */
     boolean isSensor();
 
+    /**
+     * Test whether the body is a soft body. It is unaffected.
+     *
+     * @return {@code true} if soft body, otherwise {@code false}
+     */
+    boolean isSoftBody();
+
     /**
      * Test whether the body is static (non-moving). It is unaffected.
      *
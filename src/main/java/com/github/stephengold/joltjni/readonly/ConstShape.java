@@ -22,6 +22,7 @@ SOFTWARE.
 package com.github.stephengold.joltjni.readonly;
 
 import com.github.stephengold.joltjni.AaBox;
+import com.github.stephengold.joltjni.DebugMesh;
 import com.github.stephengold.joltjni.DebugRenderer;
 import com.github.stephengold.joltjni.MassProperties;
 import com.github.stephengold.joltjni.ShapeRefC;
@@ -96,6 +97,17 @@ public interface ConstShape extends ConstJoltPhysicsObject {
      */
     Vec3 getCenterOfMass();
 
+    /**
+     * Access the shape's indexed debug mesh, generating and caching it if
+     * necessary. Shapes shared by several bodies share one cached mesh. The
+     * shape is unaffected.
+     *
+     * @param numSegments the number of segments around the axis of spheres,
+     * capsules, and cylinders (&ge;3) or 0 for Jolt's default tessellation
+     * @return a mesh (not null)
+     */
+    DebugMesh getDebugMesh(int numSegments);
+
     /**
      * Return the radius of the largest sphere that fits inside the shape. The
      * shape is unaffected.
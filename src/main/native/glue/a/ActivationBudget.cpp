@@ -0,0 +1,478 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+/*
+ * Author: Stephen Gold
+ */
+#include "Jolt/Jolt.h"
+#include "Jolt/Core/UnorderedMap.h"
+#include "Jolt/Core/UnorderedSet.h"
+#include "Jolt/Physics/PhysicsSystem.h"
+#include "auto/com_github_stephengold_joltjni_ActivationBudget.h"
+#include "glue/glue.h"
+
+#include <algorithm>
+
+using namespace JPH;
+
+/*
+ * Caps the number of active dynamic bodies in a physics system. Bodies in
+ * excess of the budget are deactivated, least important first, and queued
+ * for re-activation near observers.
+ */
+class ActivationBudget {
+public:
+    PhysicsSystem * const mpSystem;
+    jint mMaxActive;
+    float mDistanceWeight = 1.0f;
+    float mWakeRadius = 0.0f;
+    Array<RVec3> mObservers;
+    // keyed by index and sequence number, so recycled IDs don't match:
+    UnorderedMap<uint32, float> mPriorities;
+    UnorderedSet<uint32> mQueued; // index and sequence numbers
+    size_t mPruneSize = 64; // prune priorities when this many accumulate
+    jint mLastActive = 0;
+    jint mPeakActive = 0;
+    uint64 mDeactivated = 0;
+    uint64 mReactivated = 0;
+
+    ActivationBudget(PhysicsSystem *pSystem, jint maxActive)
+            : mpSystem(pSystem), mMaxActive(maxActive) {
+    }
+
+    /*
+     * Deactivate excess bodies, or else re-activate queued bodies near
+     * observers while the budget permits. Not valid during an update.
+     */
+    jint Enforce() {
+        if (mPriorities.size() >= mPruneSize) {
+            PrunePriorities();
+            mPruneSize = std::max((size_t) 64, 2 * mPriorities.size());
+        }
+
+        BodyIDVector active;
+        mpSystem->GetActiveBodies(EBodyType::RigidBody, active);
+        Array<Entry> entries;
+        entries.reserve(active.size());
+        const BodyLockInterface& lockInterface
+                = mpSystem->GetBodyLockInterface();
+        for (const BodyID& id : active) {
+            const BodyLockRead lock(lockInterface, id);
+            if (lock.Succeeded() && lock.GetBody().IsDynamic()) {
+                const Body& body = lock.GetBody();
+                const float score = Score(id, body.GetCenterOfMassPosition());
+                entries.push_back({id, score});
+                mQueued.erase(id.GetIndexAndSequenceNumber());
+            }
+        }
+
+        const jint numActive = (jint) entries.size();
+        mLastActive = numActive;
+        mPeakActive = std::max(mPeakActive, numActive);
+        BodyInterface& bi = mpSystem->GetBodyInterface();
+        if (numActive > mMaxActive) {
+            // Deactivate the least important bodies:
+            const jint numExcess = numActive - mMaxActive;
+            std::nth_element(entries.begin(), entries.begin() + numExcess,
+                    entries.end(), Entry::sLess);
+            Array<BodyID> ids;
+            ids.reserve(numExcess);
+            for (jint i = 0; i < numExcess; ++i) {
+                const BodyID id = entries[i].mId;
+                ids.push_back(id);
+                mQueued.insert(id.GetIndexAndSequenceNumber());
+            }
+            bi.DeactivateBodies(ids.data(), numExcess);
+            mDeactivated += numExcess;
+            return numExcess;
+        }
+
+        if (mQueued.empty() || mObservers.empty()) {
+            return 0;
+        }
+
+        // Re-activate the most important queued bodies near observers:
+        Array<Entry> candidates;
+        Array<uint32> stale;
+        const float radiusSq = mWakeRadius * mWakeRadius;
+        for (uint32 key : mQueued) {
+            const BodyID id(key);
+            const BodyLockRead lock(lockInterface, id);
+            if (!lock.Succeeded() || !lock.GetBody().IsInBroadPhase()
+                    || lock.GetBody().IsActive()) {
+                stale.push_back(key);
+                continue;
+            }
+            const RVec3 location = lock.GetBody().GetCenterOfMassPosition();
+            if (NearestDistanceSq(location) <= radiusSq) {
+                candidates.push_back({id, Score(id, location)});
+            }
+        }
+        for (uint32 key : stale) {
+            mQueued.erase(key);
+        }
+
+        const jint numWake = std::min(
+                mMaxActive - numActive, (jint) candidates.size());
+        if (numWake <= 0) {
+            return 0;
+        }
+        std::sort(candidates.begin(), candidates.end(), Entry::sGreater);
+        Array<BodyID> ids;
+        ids.reserve(numWake);
+        for (jint i = 0; i < numWake; ++i) {
+            const BodyID id = candidates[i].mId;
+            ids.push_back(id);
+            mQueued.erase(id.GetIndexAndSequenceNumber());
+        }
+        bi.ActivateBodies(ids.data(), numWake);
+        mReactivated += numWake;
+
+        return 0;
+    }
+
+private:
+    struct Entry {
+        BodyID mId;
+        float mScore;
+
+        static bool sGreater(const Entry& a, const Entry& b) {
+            return a.mScore > b.mScore;
+        }
+
+        static bool sLess(const Entry& a, const Entry& b) {
+            return a.mScore < b.mScore;
+        }
+    };
+
+    /*
+     * Return the squared distance from the specified location to the
+     * nearest observer.
+     */
+    float NearestDistanceSq(RVec3Arg location) const {
+        float result = FLT_MAX;
+        for (const RVec3& observer : mObservers) {
+            const float distanceSq = Vec3(location - observer).LengthSq();
+            result = std::min(result, distanceSq);
+        }
+        return result;
+    }
+
+    /*
+     * Discard the priorities of bodies that no longer exist.
+     */
+    void PrunePriorities() {
+        const BodyLockInterface& lockInterface
+                = mpSystem->GetBodyLockInterfaceNoLock();
+        for (auto it = mPriorities.begin(); it != mPriorities.end();) {
+            if (lockInterface.TryGetBody(BodyID(it->first)) == nullptr) {
+                it = mPriorities.erase(it);
+            } else {
+                ++it;
+            }
+        }
+    }
+
+    /*
+     * Return the importance of the specified body: its priority minus the
+     * weighted distance to the nearest observer.
+     */
+    float Score(const BodyID& id, RVec3Arg location) const {
+        float result = 0.0f;
+        const auto it = mPriorities.find(id.GetIndexAndSequenceNumber());
+        if (it != mPriorities.end()) {
+            result = it->second;
+        }
+        if (!mObservers.empty()) {
+            const float distance = sqrt(NearestDistanceSq(location));
+            result -= mDistanceWeight * distance;
+        }
+        return result;
+    }
+};
+
+/*
+ * Class:     com_github_stephengold_joltjni_ActivationBudget
+ * Method:    addObserver
+ * Signature: (JDDD)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_stephengold_joltjni_ActivationBudget_addObserver
+  (JNIEnv *, jclass, jlong budgetVa, jdouble xx, jdouble yy, jdouble zz) {
+    ActivationBudget * const pBudget
+            = reinterpret_cast<ActivationBudget *> (budgetVa);
+    const jint result = (jint) pBudget->mObservers.size();
+    pBudget->mObservers.push_back(RVec3(xx, yy, zz));
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_ActivationBudget
+ * Method:    clearObservers
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_ActivationBudget_clearObservers
+  (JNIEnv *, jclass, jlong budgetVa) {
+    ActivationBudget * const pBudget
+            = reinterpret_cast<ActivationBudget *> (budgetVa);
+    pBudget->mObservers.clear();
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_ActivationBudget
+ * Method:    countActive
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_stephengold_joltjni_ActivationBudget_countActive
+  (JNIEnv *, jclass, jlong budgetVa) {
+    ActivationBudget * const pBudget
+            = reinterpret_cast<ActivationBudget *> (budgetVa);
+    const jint result = pBudget->mLastActive;
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_ActivationBudget
+ * Method:    countDeactivated
+ * Signature: (J)J
+ */
+JNIEXPORT jlong JNICALL Java_com_github_stephengold_joltjni_ActivationBudget_countDeactivated
+  (JNIEnv *, jclass, jlong budgetVa) {
+    ActivationBudget * const pBudget
+            = reinterpret_cast<ActivationBudget *> (budgetVa);
+    const jlong result = (jlong) pBudget->mDeactivated;
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_ActivationBudget
+ * Method:    countObservers
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_stephengold_joltjni_ActivationBudget_countObservers
+  (JNIEnv *, jclass, jlong budgetVa) {
+    ActivationBudget * const pBudget
+            = reinterpret_cast<ActivationBudget *> (budgetVa);
+    const jint result = (jint) pBudget->mObservers.size();
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_ActivationBudget
+ * Method:    countPriorities
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_stephengold_joltjni_ActivationBudget_countPriorities
+  (JNIEnv *, jclass, jlong budgetVa) {
+    ActivationBudget * const pBudget
+            = reinterpret_cast<ActivationBudget *> (budgetVa);
+    const jint result = (jint) pBudget->mPriorities.size();
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_ActivationBudget
+ * Method:    countQueued
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_stephengold_joltjni_ActivationBudget_countQueued
+  (JNIEnv *, jclass, jlong budgetVa) {
+    ActivationBudget * const pBudget
+            = reinterpret_cast<ActivationBudget *> (budgetVa);
+    const jint result = (jint) pBudget->mQueued.size();
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_ActivationBudget
+ * Method:    countReactivated
+ * Signature: (J)J
+ */
+JNIEXPORT jlong JNICALL Java_com_github_stephengold_joltjni_ActivationBudget_countReactivated
+  (JNIEnv *, jclass, jlong budgetVa) {
+    ActivationBudget * const pBudget
+            = reinterpret_cast<ActivationBudget *> (budgetVa);
+    const jlong result = (jlong) pBudget->mReactivated;
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_ActivationBudget
+ * Method:    create
+ * Signature: (JI)J
+ */
+JNIEXPORT jlong JNICALL Java_com_github_stephengold_joltjni_ActivationBudget_create
+  (JNIEnv *, jclass, jlong systemVa, jint maxActive) {
+    PhysicsSystem * const pSystem
+            = reinterpret_cast<PhysicsSystem *> (systemVa);
+    ActivationBudget * const pResult
+            = new ActivationBudget(pSystem, maxActive);
+    TRACE_NEW("ActivationBudget", pResult)
+    return reinterpret_cast<jlong> (pResult);
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_ActivationBudget
+ * Method:    enforce
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_stephengold_joltjni_ActivationBudget_enforce
+  (JNIEnv *, jclass, jlong budgetVa) {
+    ActivationBudget * const pBudget
+            = reinterpret_cast<ActivationBudget *> (budgetVa);
+    const jint result = pBudget->Enforce();
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_ActivationBudget
+ * Method:    free
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_ActivationBudget_free
+  (JNIEnv *, jclass, jlong budgetVa) {
+    ActivationBudget * const pBudget
+            = reinterpret_cast<ActivationBudget *> (budgetVa);
+    TRACE_DELETE("ActivationBudget", pBudget)
+    delete pBudget;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_ActivationBudget
+ * Method:    getMaxActive
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_stephengold_joltjni_ActivationBudget_getMaxActive
+  (JNIEnv *, jclass, jlong budgetVa) {
+    ActivationBudget * const pBudget
+            = reinterpret_cast<ActivationBudget *> (budgetVa);
+    const jint result = pBudget->mMaxActive;
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_ActivationBudget
+ * Method:    getPeakActive
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_stephengold_joltjni_ActivationBudget_getPeakActive
+  (JNIEnv *, jclass, jlong budgetVa) {
+    ActivationBudget * const pBudget
+            = reinterpret_cast<ActivationBudget *> (budgetVa);
+    const jint result = pBudget->mPeakActive;
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_ActivationBudget
+ * Method:    resetMetrics
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_ActivationBudget_resetMetrics
+  (JNIEnv *, jclass, jlong budgetVa) {
+    ActivationBudget * const pBudget
+            = reinterpret_cast<ActivationBudget *> (budgetVa);
+    pBudget->mDeactivated = 0;
+    pBudget->mReactivated = 0;
+    pBudget->mPeakActive = 0;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_ActivationBudget
+ * Method:    setDistanceWeight
+ * Signature: (JF)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_ActivationBudget_setDistanceWeight
+  (JNIEnv *, jclass, jlong budgetVa, jfloat weight) {
+    ActivationBudget * const pBudget
+            = reinterpret_cast<ActivationBudget *> (budgetVa);
+    pBudget->mDistanceWeight = weight;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_ActivationBudget
+ * Method:    setMaxActive
+ * Signature: (JI)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_ActivationBudget_setMaxActive
+  (JNIEnv *, jclass, jlong budgetVa, jint maxActive) {
+    ActivationBudget * const pBudget
+            = reinterpret_cast<ActivationBudget *> (budgetVa);
+    pBudget->mMaxActive = maxActive;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_ActivationBudget
+ * Method:    setObserver
+ * Signature: (JIDDD)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_ActivationBudget_setObserver
+  (JNIEnv *, jclass, jlong budgetVa, jint observerIndex, jdouble xx,
+  jdouble yy, jdouble zz) {
+    ActivationBudget * const pBudget
+            = reinterpret_cast<ActivationBudget *> (budgetVa);
+    pBudget->mObservers[observerIndex] = RVec3(xx, yy, zz);
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_ActivationBudget
+ * Method:    setPriorities
+ * Signature: (JLjava/nio/IntBuffer;ILjava/nio/FloatBuffer;II)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_ActivationBudget_setPriorities
+  (JNIEnv *pEnv, jclass, jlong budgetVa, jobject bodyIds, jint idPosition,
+  jobject priorities, jint priorityPosition, jint numBodies) {
+    ActivationBudget * const pBudget
+            = reinterpret_cast<ActivationBudget *> (budgetVa);
+    const jint * const pIds
+            = (jint *) pEnv->GetDirectBufferAddress(bodyIds) + idPosition;
+    JPH_ASSERT(!pEnv->ExceptionCheck());
+    const jfloat * const pPriorities = (jfloat *)
+            pEnv->GetDirectBufferAddress(priorities) + priorityPosition;
+    JPH_ASSERT(!pEnv->ExceptionCheck());
+    for (jint i = 0; i < numBodies; ++i) {
+        pBudget->mPriorities[(uint32) pIds[i]] = pPriorities[i];
+    }
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_ActivationBudget
+ * Method:    setPriority
+ * Signature: (JIF)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_ActivationBudget_setPriority
+  (JNIEnv *, jclass, jlong budgetVa, jint bodyId, jfloat priority) {
+    ActivationBudget * const pBudget
+            = reinterpret_cast<ActivationBudget *> (budgetVa);
+    pBudget->mPriorities[(uint32) bodyId] = priority;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_ActivationBudget
+ * Method:    setWakeRadius
+ * Signature: (JF)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_ActivationBudget_setWakeRadius
+  (JNIEnv *, jclass, jlong budgetVa, jfloat radius) {
+    ActivationBudget * const pBudget
+            = reinterpret_cast<ActivationBudget *> (budgetVa);
+    pBudget->mWakeRadius = radius;
+}
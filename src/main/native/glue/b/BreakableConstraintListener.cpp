@@ -0,0 +1,337 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+/*
+ * Author: Stephen Gold
+ */
+#include "Jolt/Jolt.h"
+#include "Jolt/Physics/Constraints/ConeConstraint.h"
+#include "Jolt/Physics/Constraints/DistanceConstraint.h"
+#include "Jolt/Physics/Constraints/FixedConstraint.h"
+#include "Jolt/Physics/Constraints/HingeConstraint.h"
+#include "Jolt/Physics/Constraints/PointConstraint.h"
+#include "Jolt/Physics/Constraints/SixDOFConstraint.h"
+#include "Jolt/Physics/Constraints/SliderConstraint.h"
+#include "Jolt/Physics/Constraints/SwingTwistConstraint.h"
+#include "Jolt/Physics/PhysicsStepListener.h"
+#include "Jolt/Physics/PhysicsSystem.h"
+#include "auto/com_github_stephengold_joltjni_BreakableConstraintListener.h"
+#include "glue/glue.h"
+
+using namespace JPH;
+
+/*
+ * A step listener that disables constraints whose most recent impulses exceed
+ * their thresholds.
+ */
+class BreakableConstraintListener : public PhysicsStepListener {
+public:
+    /*
+     * a registered constraint and its breaking thresholds
+     */
+    struct Entry {
+        bool mBroken = false;
+        float mMaxForce;
+        float mMaxTorque;
+        Ref<Constraint> mConstraint;
+    };
+
+    Array<Entry> mEntries;
+    Array<int> mPending; // indices of broken entries not yet drained
+
+    /*
+     * Determine the magnitudes of the linear and angular impulses applied by
+     * the specified constraint during the most recent step.
+     */
+    static void GetImpulses(const Constraint& inConstraint, float& outLinear,
+            float& outAngular) {
+        float linearSq = 0.0f;
+        float angularSq = 0.0f;
+        switch (inConstraint.GetSubType()) {
+            case EConstraintSubType::Fixed: {
+                const FixedConstraint& c
+                        = static_cast<const FixedConstraint&> (inConstraint);
+                linearSq = c.GetTotalLambdaPosition().LengthSq();
+                angularSq = c.GetTotalLambdaRotation().LengthSq();
+                break;
+            }
+            case EConstraintSubType::Point: {
+                const PointConstraint& c
+                        = static_cast<const PointConstraint&> (inConstraint);
+                linearSq = c.GetTotalLambdaPosition().LengthSq();
+                break;
+            }
+            case EConstraintSubType::Hinge: {
+                const HingeConstraint& c
+                        = static_cast<const HingeConstraint&> (inConstraint);
+                linearSq = c.GetTotalLambdaPosition().LengthSq();
+                const Vector<2> rotation = c.GetTotalLambdaRotation();
+                const float axial = c.GetTotalLambdaRotationLimits()
+                        + c.GetTotalLambdaMotor();
+                angularSq = Square(rotation[0]) + Square(rotation[1])
+                        + Square(axial);
+                break;
+            }
+            case EConstraintSubType::Slider: {
+                const SliderConstraint& c
+                        = static_cast<const SliderConstraint&> (inConstraint);
+                const Vector<2> position = c.GetTotalLambdaPosition();
+                const float axial = c.GetTotalLambdaPositionLimits()
+                        + c.GetTotalLambdaMotor();
+                linearSq = Square(position[0]) + Square(position[1])
+                        + Square(axial);
+                angularSq = c.GetTotalLambdaRotation().LengthSq();
+                break;
+            }
+            case EConstraintSubType::Distance: {
+                const DistanceConstraint& c
+                        = static_cast<const DistanceConstraint&> (inConstraint);
+                linearSq = Square(c.GetTotalLambdaPosition());
+                break;
+            }
+            case EConstraintSubType::Cone: {
+                const ConeConstraint& c
+                        = static_cast<const ConeConstraint&> (inConstraint);
+                linearSq = c.GetTotalLambdaPosition().LengthSq();
+                angularSq = Square(c.GetTotalLambdaRotation());
+                break;
+            }
+            case EConstraintSubType::SwingTwist: {
+                const SwingTwistConstraint& c = static_cast<
+                        const SwingTwistConstraint&> (inConstraint);
+                linearSq = c.GetTotalLambdaPosition().LengthSq();
+                const Vec3 limits(c.GetTotalLambdaTwist(),
+                        c.GetTotalLambdaSwingY(), c.GetTotalLambdaSwingZ());
+                angularSq = limits.LengthSq()
+                        + c.GetTotalLambdaMotor().LengthSq();
+                break;
+            }
+            case EConstraintSubType::SixDOF: {
+                const SixDOFConstraint& c
+                        = static_cast<const SixDOFConstraint&> (inConstraint);
+                linearSq = (c.GetTotalLambdaPosition()
+                        + c.GetTotalLambdaMotorTranslation()).LengthSq();
+                angularSq = (c.GetTotalLambdaRotation()
+                        + c.GetTotalLambdaMotorRotation()).LengthSq();
+                break;
+            }
+            default:
+                JPH_ASSERT(false);
+        }
+        outLinear = sqrt(linearSq);
+        outAngular = sqrt(angularSq);
+    }
+
+    /*
+     * Test whether the specified constraint subtype is supported.
+     */
+    static bool IsSupported(EConstraintSubType inSubType) {
+        switch (inSubType) {
+            case EConstraintSubType::Fixed:
+            case EConstraintSubType::Point:
+            case EConstraintSubType::Hinge:
+            case EConstraintSubType::Slider:
+            case EConstraintSubType::Distance:
+            case EConstraintSubType::Cone:
+            case EConstraintSubType::SwingTwist:
+            case EConstraintSubType::SixDOF:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /*
+     * Disable each active constraint whose impulses exceed its thresholds.
+     * This runs before the system determines its active constraints, so
+     * disabled constraints are excluded from the upcoming step.
+     */
+    virtual void OnStep(const PhysicsStepListenerContext& inContext) override {
+        const float deltaTime = inContext.mDeltaTime;
+        const int numEntries = (int) mEntries.size();
+        for (int i = 0; i < numEntries; ++i) {
+            Entry& entry = mEntries[i];
+            Constraint& constraint = *entry.mConstraint;
+            if (entry.mBroken || !constraint.IsActive()) {
+                continue;
+            }
+            float linear, angular;
+            GetImpulses(constraint, linear, angular);
+            if (linear > entry.mMaxForce * deltaTime
+                    || angular > entry.mMaxTorque * deltaTime) {
+                constraint.SetEnabled(false);
+                entry.mBroken = true;
+                mPending.push_back(i);
+            }
+        }
+    }
+};
+
+/*
+ * Class:     com_github_stephengold_joltjni_BreakableConstraintListener
+ * Method:    add
+ * Signature: (JJFF)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_stephengold_joltjni_BreakableConstraintListener_add
+  (JNIEnv *, jclass, jlong listenerVa, jlong constraintVa,
+  jfloat maxForce, jfloat maxTorque) {
+    BreakableConstraintListener * const pListener
+            = reinterpret_cast<BreakableConstraintListener *> (listenerVa);
+    Constraint * const pConstraint
+            = reinterpret_cast<Constraint *> (constraintVa);
+    if (!BreakableConstraintListener::IsSupported(pConstraint->GetSubType())) {
+        return -1;
+    }
+    BreakableConstraintListener::Entry entry;
+    entry.mConstraint = pConstraint;
+    entry.mMaxForce = maxForce;
+    entry.mMaxTorque = maxTorque;
+    const jint result = (jint) pListener->mEntries.size();
+    pListener->mEntries.push_back(entry);
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_BreakableConstraintListener
+ * Method:    countBroken
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_stephengold_joltjni_BreakableConstraintListener_countBroken
+  (JNIEnv *, jclass, jlong listenerVa) {
+    BreakableConstraintListener * const pListener
+            = reinterpret_cast<BreakableConstraintListener *> (listenerVa);
+    const jint result = (jint) pListener->mPending.size();
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_BreakableConstraintListener
+ * Method:    countConstraints
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_stephengold_joltjni_BreakableConstraintListener_countConstraints
+  (JNIEnv *, jclass, jlong listenerVa) {
+    BreakableConstraintListener * const pListener
+            = reinterpret_cast<BreakableConstraintListener *> (listenerVa);
+    const jint result = (jint) pListener->mEntries.size();
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_BreakableConstraintListener
+ * Method:    createDefault
+ * Signature: ()J
+ */
+JNIEXPORT jlong JNICALL Java_com_github_stephengold_joltjni_BreakableConstraintListener_createDefault
+  (JNIEnv *, jclass) {
+    BreakableConstraintListener * const pResult
+            = new BreakableConstraintListener();
+    TRACE_NEW("BreakableConstraintListener", pResult)
+    return reinterpret_cast<jlong> (pResult);
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_BreakableConstraintListener
+ * Method:    drainBroken
+ * Signature: (JLjava/nio/IntBuffer;IIJ)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_stephengold_joltjni_BreakableConstraintListener_drainBroken
+  (JNIEnv *pEnv, jclass, jlong listenerVa, jobject storeIndices,
+  jint position, jint maxIndices, jlong systemVa) {
+    BreakableConstraintListener * const pListener
+            = reinterpret_cast<BreakableConstraintListener *> (listenerVa);
+    jint * const pIndices
+            = (jint *) pEnv->GetDirectBufferAddress(storeIndices) + position;
+    JPH_ASSERT(!pEnv->ExceptionCheck());
+    Array<int>& pending = pListener->mPending;
+    const jint result = std::min(maxIndices, (jint) pending.size());
+    Array<Constraint *> remove;
+    for (jint i = 0; i < result; ++i) {
+        const int entryIndex = pending[i];
+        pIndices[i] = entryIndex;
+        remove.push_back(pListener->mEntries[entryIndex].mConstraint.GetPtr());
+    }
+    pending.erase(pending.begin(), pending.begin() + result);
+
+    if (systemVa != 0L && result > 0) {
+        PhysicsSystem * const pSystem
+                = reinterpret_cast<PhysicsSystem *> (systemVa);
+        pSystem->RemoveConstraints(remove.data(), result);
+    }
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_BreakableConstraintListener
+ * Method:    free
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_BreakableConstraintListener_free
+  (JNIEnv *, jclass, jlong listenerVa) {
+    BreakableConstraintListener * const pListener
+            = reinterpret_cast<BreakableConstraintListener *> (listenerVa);
+    TRACE_DELETE("BreakableConstraintListener", pListener)
+    delete pListener;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_BreakableConstraintListener
+ * Method:    isBroken
+ * Signature: (JI)Z
+ */
+JNIEXPORT jboolean JNICALL Java_com_github_stephengold_joltjni_BreakableConstraintListener_isBroken
+  (JNIEnv *, jclass, jlong listenerVa, jint constraintIndex) {
+    BreakableConstraintListener * const pListener
+            = reinterpret_cast<BreakableConstraintListener *> (listenerVa);
+    const bool result = pListener->mEntries[constraintIndex].mBroken;
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_BreakableConstraintListener
+ * Method:    onStep
+ * Signature: (JJ)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_BreakableConstraintListener_onStep
+  (JNIEnv *, jclass, jlong listenerVa, jlong contextVa) {
+    BreakableConstraintListener * const pListener
+            = reinterpret_cast<BreakableConstraintListener *> (listenerVa);
+    const PhysicsStepListenerContext * const pContext
+            = reinterpret_cast<PhysicsStepListenerContext *> (contextVa);
+    pListener->OnStep(*pContext);
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_BreakableConstraintListener
+ * Method:    setThresholds
+ * Signature: (JIFF)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_BreakableConstraintListener_setThresholds
+  (JNIEnv *, jclass, jlong listenerVa, jint constraintIndex,
+  jfloat maxForce, jfloat maxTorque) {
+    BreakableConstraintListener * const pListener
+            = reinterpret_cast<BreakableConstraintListener *> (listenerVa);
+    BreakableConstraintListener::Entry& entry
+            = pListener->mEntries[constraintIndex];
+    entry.mMaxForce = maxForce;
+    entry.mMaxTorque = maxTorque;
+}
@@ -0,0 +1,83 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+/*
+ * Author: Stephen Gold
+ */
+#include "Jolt/Jolt.h"
+#include "Jolt/Physics/Collision/BroadPhase/BroadPhase.h"
+#include "Jolt/Physics/PhysicsSystem.h"
+#include "auto/com_github_stephengold_joltjni_BroadPhaseOptimizer.h"
+#include "glue/glue.h"
+
+using namespace JPH;
+
+inline static BroadPhase& getBroadPhase(jlong systemVa) {
+    const PhysicsSystem * const pSystem
+            = reinterpret_cast<PhysicsSystem *> (systemVa);
+    const BroadPhaseQuery& query = pSystem->GetBroadPhaseQuery();
+    return const_cast<BroadPhase&> (static_cast<const BroadPhase&> (query));
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_BroadPhaseOptimizer
+ * Method:    lockModifications
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_BroadPhaseOptimizer_lockModifications
+  (JNIEnv *, jclass, jlong systemVa) {
+    BroadPhase& phase = getBroadPhase(systemVa);
+    phase.FrameSync();
+    phase.LockModifications();
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_BroadPhaseOptimizer
+ * Method:    updateFinalize
+ * Signature: (JJ)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_BroadPhaseOptimizer_updateFinalize
+  (JNIEnv *, jclass, jlong systemVa, jlong stateVa) {
+    BroadPhase& phase = getBroadPhase(systemVa);
+    BroadPhase::UpdateState * const pState
+            = reinterpret_cast<BroadPhase::UpdateState *> (stateVa);
+    if (pState != nullptr) {
+        phase.UpdateFinalize(*pState);
+        TRACE_DELETE("BroadPhase::UpdateState", pState)
+        delete pState;
+    }
+    phase.UnlockModifications();
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_BroadPhaseOptimizer
+ * Method:    updatePrepare
+ * Signature: (J)J
+ */
+JNIEXPORT jlong JNICALL Java_com_github_stephengold_joltjni_BroadPhaseOptimizer_updatePrepare
+  (JNIEnv *, jclass, jlong systemVa) {
+    BroadPhase& phase = getBroadPhase(systemVa);
+    BroadPhase::UpdateState * const pResult
+            = new BroadPhase::UpdateState(phase.UpdatePrepare());
+    TRACE_NEW("BroadPhase::UpdateState", pResult)
+    return reinterpret_cast<jlong> (pResult);
+}
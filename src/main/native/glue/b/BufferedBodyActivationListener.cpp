@@ -0,0 +1,168 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+/*
+ * Author: Stephen Gold
+ */
+#include "Jolt/Jolt.h"
+#include "Jolt/Core/Mutex.h"
+#include "Jolt/Core/UnorderedSet.h"
+#include "Jolt/Physics/Body/BodyActivationListener.h"
+#include "auto/com_github_stephengold_joltjni_BufferedBodyActivationListener.h"
+#include "glue/glue.h"
+
+using namespace JPH;
+
+/*
+ * A BodyActivationListener that records events for later draining. Events
+ * may arrive from several threads at once, so access is serialized.
+ */
+class BufferedBodyActivationListener : public BodyActivationListener {
+public:
+    /*
+     * an activation or deactivation event
+     */
+    struct Event {
+        uint32 mId;
+        bool mActivated;
+    };
+
+    Array<Event> mEvents;
+    Mutex mMutex;
+
+    virtual void OnBodyActivated(const BodyID& inBodyID, uint64) override {
+        std::lock_guard<Mutex> lock(mMutex);
+        mEvents.push_back({inBodyID.GetIndexAndSequenceNumber(), true});
+    }
+
+    virtual void OnBodyDeactivated(const BodyID& inBodyID, uint64) override {
+        std::lock_guard<Mutex> lock(mMutex);
+        mEvents.push_back({inBodyID.GetIndexAndSequenceNumber(), false});
+    }
+};
+
+/*
+ * Class:     com_github_stephengold_joltjni_BufferedBodyActivationListener
+ * Method:    clear
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_BufferedBodyActivationListener_clear
+  (JNIEnv *, jclass, jlong listenerVa) {
+    BufferedBodyActivationListener * const pListener
+            = reinterpret_cast<BufferedBodyActivationListener *> (listenerVa);
+    std::lock_guard<Mutex> lock(pListener->mMutex);
+    pListener->mEvents.clear();
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_BufferedBodyActivationListener
+ * Method:    countEvents
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_stephengold_joltjni_BufferedBodyActivationListener_countEvents
+  (JNIEnv *, jclass, jlong listenerVa) {
+    BufferedBodyActivationListener * const pListener
+            = reinterpret_cast<BufferedBodyActivationListener *> (listenerVa);
+    std::lock_guard<Mutex> lock(pListener->mMutex);
+    const jint result = pListener->mEvents.size();
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_BufferedBodyActivationListener
+ * Method:    createDefault
+ * Signature: ()J
+ */
+JNIEXPORT jlong JNICALL Java_com_github_stephengold_joltjni_BufferedBodyActivationListener_createDefault
+  (JNIEnv *, jclass) {
+    BufferedBodyActivationListener * const pResult
+            = new BufferedBodyActivationListener();
+    TRACE_NEW("BufferedBodyActivationListener", pResult)
+    return reinterpret_cast<jlong> (pResult);
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_BufferedBodyActivationListener
+ * Method:    drain
+ * Signature: (JLjava/nio/IntBuffer;IILjava/nio/IntBuffer;II[I)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_BufferedBodyActivationListener_drain
+  (JNIEnv *pEnv, jclass, jlong listenerVa, jobject storeActivated,
+  jint activatedPosition, jint activatedRemaining, jobject storeDeactivated,
+  jint deactivatedPosition, jint deactivatedRemaining,
+  jintArray storeCounts) {
+    BufferedBodyActivationListener * const pListener
+            = reinterpret_cast<BufferedBodyActivationListener *> (listenerVa);
+    jint * const pActivated
+            = (jint *) pEnv->GetDirectBufferAddress(storeActivated);
+    JPH_ASSERT(!pEnv->ExceptionCheck());
+    jint * const pDeactivated
+            = (jint *) pEnv->GetDirectBufferAddress(storeDeactivated);
+    JPH_ASSERT(!pEnv->ExceptionCheck());
+    jint numActivated = 0;
+    jint numDeactivated = 0;
+    {
+        std::lock_guard<Mutex> lock(pListener->mMutex);
+        Array<BufferedBodyActivationListener::Event>& events
+                = pListener->mEvents;
+        /*
+         * Visit the events from newest to oldest,
+         * so the first event seen for each body is its most recent one:
+         */
+        UnorderedSet<uint32> seen;
+        seen.reserve((uint32) events.size());
+        Array<uint32> activated;
+        Array<uint32> deactivated;
+        for (size_t i = events.size(); i > 0; --i) {
+            const BufferedBodyActivationListener::Event& event = events[i - 1];
+            if (seen.insert(event.mId).second) {
+                if (event.mActivated) {
+                    activated.push_back(event.mId);
+                } else {
+                    deactivated.push_back(event.mId);
+                }
+            }
+        }
+
+        if (activated.size() > (size_t) activatedRemaining
+                || deactivated.size() > (size_t) deactivatedRemaining) {
+            numActivated = -1;
+            numDeactivated = -1;
+        } else {
+            numActivated = activated.size();
+            for (jint i = 0; i < numActivated; ++i) {
+                pActivated[activatedPosition + i] = activated[i];
+            }
+            numDeactivated = deactivated.size();
+            for (jint i = 0; i < numDeactivated; ++i) {
+                pDeactivated[deactivatedPosition + i] = deactivated[i];
+            }
+            events.clear();
+        }
+    }
+
+    jboolean isCopy;
+    jint * const pCounts = pEnv->GetIntArrayElements(storeCounts, &isCopy);
+    pCounts[0] = numActivated;
+    pCounts[1] = numDeactivated;
+    pEnv->ReleaseIntArrayElements(storeCounts, pCounts, 0);
+}
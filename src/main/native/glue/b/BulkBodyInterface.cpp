@@ -0,0 +1,428 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+/*
+ * Author: Stephen Gold
+ */
+#include "Jolt/Jolt.h"
+#include "Jolt/Physics/Body/BodyCreationSettings.h"
+#include "Jolt/Physics/Body/BodyInterface.h"
+#include "Jolt/Physics/Body/BodyLockMulti.h"
+#include "Jolt/Physics/PhysicsSystem.h"
+#include "auto/com_github_stephengold_joltjni_BulkBodyInterface.h"
+#include "glue/glue.h"
+
+using namespace JPH;
+
+/*
+ * Body IDs are passed in direct int buffers,
+ * which works because BodyID wraps a single uint32:
+ */
+static_assert(sizeof(BodyID) == sizeof(jint), "BodyID must be 32 bits");
+
+/*
+ * operation codes, matching those in BulkBodyInterface.java:
+ */
+static constexpr jint cAddForce = 0;
+static constexpr jint cAddImpulse = 1;
+static constexpr jint cAddTorque = 2;
+static constexpr jint cSetVelocities = 3;
+
+/*
+ * Lock the specified bodies (acquiring each body mutex only once), invoke the
+ * specified function on each body that exists, then activate the inactive
+ * bodies for which the function returned true.
+ */
+template <typename Function>
+static void ApplyLocked(jlong systemVa, jboolean locking,
+        const BodyID *pIds, jint numBodies, const Function& apply) {
+    PhysicsSystem * const pSystem
+            = reinterpret_cast<PhysicsSystem *> (systemVa);
+    const BodyLockInterface *pLockInterface;
+    BodyInterface *pBodyInterface;
+    if (locking) {
+        pLockInterface = &pSystem->GetBodyLockInterface();
+        pBodyInterface = &pSystem->GetBodyInterface();
+    } else {
+        pLockInterface = &pSystem->GetBodyLockInterfaceNoLock();
+        pBodyInterface = &pSystem->GetBodyInterfaceNoLock();
+    }
+
+    Array<BodyID> activate;
+    {
+        const BodyLockMultiWrite lock(*pLockInterface, pIds, numBodies);
+        for (jint i = 0; i < numBodies; ++i) {
+            Body * const pBody = lock.GetBody(i);
+            if (pBody != nullptr && apply(*pBody, i) && !pBody->IsActive()) {
+                activate.push_back(pIds[i]);
+            }
+        }
+    }
+    if (!activate.empty()) {
+        pBodyInterface->ActivateBodies(activate.data(), (int) activate.size());
+    }
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_BulkBodyInterface
+ * Method:    activateBodies
+ * Signature: (JLjava/nio/IntBuffer;II)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_BulkBodyInterface_activateBodies
+  (JNIEnv * pEnv, jclass, jlong bodyInterfaceVa, jobject bodyIds,
+  jint position, jint numBodies) {
+    BodyInterface * const pInterface
+            = reinterpret_cast<BodyInterface *> (bodyInterfaceVa);
+    BodyID * const pIds = reinterpret_cast<BodyID *> (
+            pEnv->GetDirectBufferAddress(bodyIds)) + position;
+    JPH_ASSERT(!pEnv->ExceptionCheck());
+    pInterface->ActivateBodies(pIds, numBodies);
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_BulkBodyInterface
+ * Method:    addBodies
+ * Signature: (JLjava/nio/IntBuffer;III)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_BulkBodyInterface_addBodies
+  (JNIEnv * pEnv, jclass, jlong bodyInterfaceVa, jobject bodyIds,
+  jint position, jint numBodies, jint ordinal) {
+    BodyInterface * const pInterface
+            = reinterpret_cast<BodyInterface *> (bodyInterfaceVa);
+    BodyID * const pIds = reinterpret_cast<BodyID *> (
+            pEnv->GetDirectBufferAddress(bodyIds)) + position;
+    JPH_ASSERT(!pEnv->ExceptionCheck());
+    const EActivation activation = (EActivation) ordinal;
+    const BodyInterface::AddState state
+            = pInterface->AddBodiesPrepare(pIds, numBodies);
+    pInterface->AddBodiesFinalize(pIds, numBodies, state, activation);
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_BulkBodyInterface
+ * Method:    addBodiesAbort
+ * Signature: (JLjava/nio/IntBuffer;IIJ)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_BulkBodyInterface_addBodiesAbort
+  (JNIEnv * pEnv, jclass, jlong bodyInterfaceVa, jobject bodyIds,
+  jint position, jint numBodies, jlong addState) {
+    BodyInterface * const pInterface
+            = reinterpret_cast<BodyInterface *> (bodyInterfaceVa);
+    BodyID * const pIds = reinterpret_cast<BodyID *> (
+            pEnv->GetDirectBufferAddress(bodyIds)) + position;
+    JPH_ASSERT(!pEnv->ExceptionCheck());
+    const BodyInterface::AddState state
+            = reinterpret_cast<BodyInterface::AddState> (addState);
+    pInterface->AddBodiesAbort(pIds, numBodies, state);
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_BulkBodyInterface
+ * Method:    addBodiesFinalize
+ * Signature: (JLjava/nio/IntBuffer;IIJI)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_BulkBodyInterface_addBodiesFinalize
+  (JNIEnv * pEnv, jclass, jlong bodyInterfaceVa, jobject bodyIds,
+  jint position, jint numBodies, jlong addState,
+  jint ordinal) {
+    BodyInterface * const pInterface
+            = reinterpret_cast<BodyInterface *> (bodyInterfaceVa);
+    BodyID * const pIds = reinterpret_cast<BodyID *> (
+            pEnv->GetDirectBufferAddress(bodyIds)) + position;
+    JPH_ASSERT(!pEnv->ExceptionCheck());
+    const BodyInterface::AddState state
+            = reinterpret_cast<BodyInterface::AddState> (addState);
+    const EActivation activation = (EActivation) ordinal;
+    pInterface->AddBodiesFinalize(pIds, numBodies, state, activation);
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_BulkBodyInterface
+ * Method:    addBodiesPrepare
+ * Signature: (JLjava/nio/IntBuffer;II)J
+ */
+JNIEXPORT jlong JNICALL Java_com_github_stephengold_joltjni_BulkBodyInterface_addBodiesPrepare
+  (JNIEnv * pEnv, jclass, jlong bodyInterfaceVa, jobject bodyIds,
+  jint position, jint numBodies) {
+    BodyInterface * const pInterface
+            = reinterpret_cast<BodyInterface *> (bodyInterfaceVa);
+    BodyID * const pIds = reinterpret_cast<BodyID *> (
+            pEnv->GetDirectBufferAddress(bodyIds)) + position;
+    JPH_ASSERT(!pEnv->ExceptionCheck());
+    const BodyInterface::AddState result
+            = pInterface->AddBodiesPrepare(pIds, numBodies);
+    return reinterpret_cast<jlong> (result);
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_BulkBodyInterface
+ * Method:    applyVectors
+ * Signature: (JZLjava/nio/IntBuffer;IILjava/nio/FloatBuffer;II)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_BulkBodyInterface_applyVectors
+  (JNIEnv *pEnv, jclass, jlong systemVa, jboolean locking, jobject bodyIds,
+  jint idPosition, jint numBodies, jobject vectors, jint vectorPosition,
+  jint operation) {
+    const BodyID * const pIds = reinterpret_cast<BodyID *> (
+            pEnv->GetDirectBufferAddress(bodyIds)) + idPosition;
+    JPH_ASSERT(!pEnv->ExceptionCheck());
+    const jfloat * const pFloats
+            = (jfloat *) pEnv->GetDirectBufferAddress(vectors) + vectorPosition;
+    JPH_ASSERT(!pEnv->ExceptionCheck());
+
+    switch (operation) {
+        case cAddForce:
+            ApplyLocked(systemVa, locking, pIds, numBodies,
+                    [pFloats](Body& body, jint i) {
+                if (!body.IsDynamic()) {
+                    return false;
+                }
+                const jfloat * const pF = pFloats + 3 * i;
+                body.AddForce(Vec3(pF[0], pF[1], pF[2]));
+                return true;
+            });
+            break;
+
+        case cAddImpulse:
+            ApplyLocked(systemVa, locking, pIds, numBodies,
+                    [pFloats](Body& body, jint i) {
+                if (!body.IsDynamic()) {
+                    return false;
+                }
+                const jfloat * const pF = pFloats + 3 * i;
+                body.AddImpulse(Vec3(pF[0], pF[1], pF[2]));
+                return true;
+            });
+            break;
+
+        case cAddTorque:
+            ApplyLocked(systemVa, locking, pIds, numBodies,
+                    [pFloats](Body& body, jint i) {
+                if (!body.IsDynamic()) {
+                    return false;
+                }
+                const jfloat * const pF = pFloats + 3 * i;
+                body.AddTorque(Vec3(pF[0], pF[1], pF[2]));
+                return true;
+            });
+            break;
+
+        case cSetVelocities:
+            ApplyLocked(systemVa, locking, pIds, numBodies,
+                    [pFloats](Body& body, jint i) {
+                if (body.IsStatic()) {
+                    return false;
+                }
+                const jfloat * const pF = pFloats + 6 * i;
+                const Vec3 linear(pF[0], pF[1], pF[2]);
+                const Vec3 angular(pF[3], pF[4], pF[5]);
+                body.SetLinearVelocityClamped(linear);
+                body.SetAngularVelocityClamped(angular);
+                return !linear.IsNearZero() || !angular.IsNearZero();
+            });
+            break;
+
+        default:
+            JPH_ASSERT(false);
+    }
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_BulkBodyInterface
+ * Method:    createBodies
+ * Signature: (J[JLjava/nio/IntBuffer;I)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_stephengold_joltjni_BulkBodyInterface_createBodies
+  (JNIEnv * pEnv, jclass, jlong bodyInterfaceVa, jlongArray settingsVas,
+  jobject storeIds, jint position) {
+    BodyInterface * const pInterface
+            = reinterpret_cast<BodyInterface *> (bodyInterfaceVa);
+    jint * const pStoreIds
+            = (jint *) pEnv->GetDirectBufferAddress(storeIds) + position;
+    JPH_ASSERT(!pEnv->ExceptionCheck());
+    const jsize numBodies = pEnv->GetArrayLength(settingsVas);
+    jboolean isCopy;
+    jlong * const pVas = pEnv->GetLongArrayElements(settingsVas, &isCopy);
+    jint result = 0;
+    for (jsize i = 0; i < numBodies; ++i) {
+        const BodyCreationSettings * const pSettings
+                = reinterpret_cast<BodyCreationSettings *> (pVas[i]);
+        const Body * const pBody = pInterface->CreateBody(*pSettings);
+        if (pBody == nullptr) {
+            pStoreIds[i] = BodyID::cInvalidBodyID;
+        } else {
+            pStoreIds[i] = pBody->GetID().GetIndexAndSequenceNumber();
+            ++result;
+        }
+    }
+    pEnv->ReleaseLongArrayElements(settingsVas, pVas, JNI_ABORT);
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_BulkBodyInterface
+ * Method:    createBodiesFromTemplate
+ * Signature: (JJLjava/nio/DoubleBuffer;ILjava/nio/FloatBuffer;ILjava/nio/IntBuffer;II)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_stephengold_joltjni_BulkBodyInterface_createBodiesFromTemplate
+  (JNIEnv *pEnv, jclass, jlong bodyInterfaceVa, jlong templateVa,
+  jobject poses, jint posePosition, jobject velocities, jint velocityPosition,
+  jobject storeIds, jint idPosition, jint numBodies) {
+    BodyInterface * const pInterface
+            = reinterpret_cast<BodyInterface *> (bodyInterfaceVa);
+    const BodyCreationSettings * const pTemplate
+            = reinterpret_cast<BodyCreationSettings *> (templateVa);
+    const jdouble * const pPoses
+            = (jdouble *) pEnv->GetDirectBufferAddress(poses) + posePosition;
+    JPH_ASSERT(!pEnv->ExceptionCheck());
+    const jfloat *pVelocities = nullptr;
+    if (velocities != nullptr) {
+        pVelocities = (jfloat *) pEnv->GetDirectBufferAddress(velocities)
+                + velocityPosition;
+        JPH_ASSERT(!pEnv->ExceptionCheck());
+    }
+    jint * const pStoreIds
+            = (jint *) pEnv->GetDirectBufferAddress(storeIds) + idPosition;
+    JPH_ASSERT(!pEnv->ExceptionCheck());
+
+    BodyCreationSettings settings(*pTemplate);
+    jint result = 0;
+    for (jint i = 0; i < numBodies; ++i) {
+        const jdouble * const pPose = pPoses + 7 * i;
+        settings.mPosition = RVec3(pPose[0], pPose[1], pPose[2]);
+        settings.mRotation = Quat((float) pPose[3], (float) pPose[4],
+                (float) pPose[5], (float) pPose[6]);
+        if (pVelocities != nullptr) {
+            const jfloat * const pV = pVelocities + 6 * i;
+            settings.mLinearVelocity = Vec3(pV[0], pV[1], pV[2]);
+            settings.mAngularVelocity = Vec3(pV[3], pV[4], pV[5]);
+        }
+        const Body * const pBody = pInterface->CreateBody(settings);
+        if (pBody == nullptr) {
+            pStoreIds[i] = BodyID::cInvalidBodyID;
+        } else {
+            pStoreIds[i] = pBody->GetID().GetIndexAndSequenceNumber();
+            ++result;
+        }
+    }
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_BulkBodyInterface
+ * Method:    createFromTemplate
+ * Signature: (JJDDDFFFFFFF)J
+ */
+JNIEXPORT jlong JNICALL Java_com_github_stephengold_joltjni_BulkBodyInterface_createFromTemplate
+  (JNIEnv *, jclass, jlong bodyInterfaceVa, jlong templateVa, jdouble xx,
+  jdouble yy, jdouble zz, jfloat qx, jfloat qy, jfloat qz, jfloat qw,
+  jfloat vx, jfloat vy, jfloat vz) {
+    BodyInterface * const pInterface
+            = reinterpret_cast<BodyInterface *> (bodyInterfaceVa);
+    const BodyCreationSettings * const pTemplate
+            = reinterpret_cast<BodyCreationSettings *> (templateVa);
+    BodyCreationSettings settings(*pTemplate);
+    settings.mPosition = RVec3(xx, yy, zz);
+    settings.mRotation = Quat(qx, qy, qz, qw);
+    settings.mLinearVelocity = Vec3(vx, vy, vz);
+    Body * const pResult = pInterface->CreateBody(settings);
+    return reinterpret_cast<jlong> (pResult);
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_BulkBodyInterface
+ * Method:    deactivateBodies
+ * Signature: (JLjava/nio/IntBuffer;II)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_BulkBodyInterface_deactivateBodies
+  (JNIEnv * pEnv, jclass, jlong bodyInterfaceVa, jobject bodyIds,
+  jint position, jint numBodies) {
+    BodyInterface * const pInterface
+            = reinterpret_cast<BodyInterface *> (bodyInterfaceVa);
+    BodyID * const pIds = reinterpret_cast<BodyID *> (
+            pEnv->GetDirectBufferAddress(bodyIds)) + position;
+    JPH_ASSERT(!pEnv->ExceptionCheck());
+    pInterface->DeactivateBodies(pIds, numBodies);
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_BulkBodyInterface
+ * Method:    destroyBodies
+ * Signature: (JLjava/nio/IntBuffer;II)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_BulkBodyInterface_destroyBodies
+  (JNIEnv * pEnv, jclass, jlong bodyInterfaceVa, jobject bodyIds,
+  jint position, jint numBodies) {
+    BodyInterface * const pInterface
+            = reinterpret_cast<BodyInterface *> (bodyInterfaceVa);
+    BodyID * const pIds = reinterpret_cast<BodyID *> (
+            pEnv->GetDirectBufferAddress(bodyIds)) + position;
+    JPH_ASSERT(!pEnv->ExceptionCheck());
+    pInterface->DestroyBodies(pIds, numBodies);
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_BulkBodyInterface
+ * Method:    moveKinematics
+ * Signature: (JZLjava/nio/IntBuffer;IILjava/nio/DoubleBuffer;IF)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_BulkBodyInterface_moveKinematics
+  (JNIEnv *pEnv, jclass, jlong systemVa, jboolean locking, jobject bodyIds,
+  jint idPosition, jint numBodies, jobject targets, jint targetPosition,
+  jfloat deltaTime) {
+    const BodyID * const pIds = reinterpret_cast<BodyID *> (
+            pEnv->GetDirectBufferAddress(bodyIds)) + idPosition;
+    JPH_ASSERT(!pEnv->ExceptionCheck());
+    const jdouble * const pDoubles = (jdouble *) pEnv->GetDirectBufferAddress(
+            targets) + targetPosition;
+    JPH_ASSERT(!pEnv->ExceptionCheck());
+
+    ApplyLocked(systemVa, locking, pIds, numBodies,
+            [pDoubles, deltaTime](Body& body, jint i) {
+        if (!body.IsKinematic()) {
+            return false;
+        }
+        const jdouble * const pT = pDoubles + 7 * i;
+        const RVec3 location(pT[0], pT[1], pT[2]);
+        const Quat orientation((float) pT[3], (float) pT[4], (float) pT[5],
+                (float) pT[6]);
+        body.MoveKinematic(location, orientation, deltaTime);
+        return !body.GetLinearVelocity().IsNearZero()
+                || !body.GetAngularVelocity().IsNearZero();
+    });
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_BulkBodyInterface
+ * Method:    removeBodies
+ * Signature: (JLjava/nio/IntBuffer;II)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_BulkBodyInterface_removeBodies
+  (JNIEnv * pEnv, jclass, jlong bodyInterfaceVa, jobject bodyIds,
+  jint position, jint numBodies) {
+    BodyInterface * const pInterface
+            = reinterpret_cast<BodyInterface *> (bodyInterfaceVa);
+    BodyID * const pIds = reinterpret_cast<BodyID *> (
+            pEnv->GetDirectBufferAddress(bodyIds)) + position;
+    JPH_ASSERT(!pEnv->ExceptionCheck());
+    pInterface->RemoveBodies(pIds, numBodies);
+}
@@ -730,6 +730,18 @@ JNIEXPORT jboolean JNICALL Java_com_github_stephengold_joltjni_Body_isSensor
     return result;
 }
 
+/*
+ * Class:     com_github_stephengold_joltjni_Body
+ * Method:    isSoftBody
+ * Signature: (J)Z
+ */
+JNIEXPORT jboolean JNICALL Java_com_github_stephengold_joltjni_Body_isSoftBody
+  (JNIEnv *, jclass, jlong bodyVa) {
+    const Body * const pBody = reinterpret_cast<Body *> (bodyVa);
+    const bool result = pBody->IsSoftBody();
+    return result;
+}
+
 /*
  * Class:     com_github_stephengold_joltjni_Body
  * Method:    isStatic
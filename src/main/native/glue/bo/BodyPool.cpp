@@ -0,0 +1,425 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+/*
+ * Author: Stephen Gold
+ */
+#include "Jolt/Jolt.h"
+#include "Jolt/Core/UnorderedSet.h"
+#include "Jolt/Physics/Body/BodyCreationSettings.h"
+#include "Jolt/Physics/Body/BodyLockMulti.h"
+#include "Jolt/Physics/PhysicsSystem.h"
+#include "auto/com_github_stephengold_joltjni_BodyPool.h"
+#include "glue/glue.h"
+
+using namespace JPH;
+
+/*
+ * A pool of rigid bodies created from a template. Free bodies are kept out
+ * of the system's broad phase.
+ */
+class BodyPool {
+public:
+    BodyCreationSettings mSettings;
+    PhysicsSystem * const mpSystem;
+    Array<BodyID> mFree;
+    UnorderedSet<uint32> mInUse; // index and sequence numbers
+    uint64 mHits = 0;
+    uint64 mMisses = 0;
+
+    BodyPool(PhysicsSystem *pSystem, const BodyCreationSettings& inTemplate)
+            : mSettings(inTemplate), mpSystem(pSystem) {
+    }
+
+    /*
+     * Destroy the free bodies. Invoke only while the system exists.
+     */
+    void DestroyFree() {
+        PruneFree();
+        if (!mFree.empty()) {
+            BodyInterface& bi = mpSystem->GetBodyInterface();
+            bi.DestroyBodies(mFree.data(), (int) mFree.size());
+            mFree.clear();
+        }
+    }
+
+    /*
+     * Acquire bodies, reset their state, and add them to the system.
+     */
+    jint Acquire(const jdouble *pPoses, const jfloat *pVelocities,
+            jint numBodies, EActivation activation, jint *pStoreIds) {
+        BodyInterface& bi = mpSystem->GetBodyInterface();
+        const BodyLockInterfaceNoLock& noLock
+                = mpSystem->GetBodyLockInterfaceNoLock();
+        Array<BodyID> ids;
+        ids.reserve(numBodies);
+        for (jint i = 0; i < numBodies; ++i) {
+            BodyID id;
+            while (id.IsInvalid() && !mFree.empty()) {
+                // Skip bodies destroyed since they were released:
+                const BodyID candidate = mFree.back();
+                mFree.pop_back();
+                if (noLock.TryGetBody(candidate) != nullptr) {
+                    id = candidate;
+                }
+            }
+            if (!id.IsInvalid()) {
+                ++mHits;
+                /*
+                 * The body isn't in the broad phase,
+                 * so restoring its layer and motion quality is cheap:
+                 */
+                bi.SetObjectLayer(id, mSettings.mObjectLayer);
+                bi.SetMotionQuality(id, mSettings.mMotionQuality);
+            } else {
+                const Body * const pBody = bi.CreateBody(mSettings);
+                if (pBody != nullptr) {
+                    id = pBody->GetID();
+                }
+                ++mMisses;
+            }
+            pStoreIds[i] = id.GetIndexAndSequenceNumber();
+            if (!id.IsInvalid()) {
+                ids.push_back(id);
+            }
+        }
+
+        if (ids.empty()) {
+            return 0;
+        }
+        Array<BodyID> add;
+        add.reserve(ids.size());
+        {
+            const BodyLockMultiWrite lock(mpSystem->GetBodyLockInterface(),
+                    ids.data(), (int) ids.size());
+            jint j = 0;
+            for (jint i = 0; i < numBodies; ++i) {
+                if (pStoreIds[i] == (jint) BodyID::cInvalidBodyID) {
+                    continue;
+                }
+                Body * const pBody = lock.GetBody(j++);
+                if (pBody == nullptr) { // destroyed by another thread
+                    pStoreIds[i] = BodyID::cInvalidBodyID;
+                    continue;
+                }
+                add.push_back(pBody->GetID());
+                Body& body = *pBody;
+                const jdouble * const pPose = pPoses + 7 * i;
+                const RVec3 location(pPose[0], pPose[1], pPose[2]);
+                const Quat orientation((float) pPose[3], (float) pPose[4],
+                        (float) pPose[5], (float) pPose[6]);
+                body.SetPositionAndRotationInternal(location, orientation);
+                // Undo any changes made while the body was last in use:
+                body.SetUserData(mSettings.mUserData);
+                body.SetFriction(mSettings.mFriction);
+                body.SetRestitution(mSettings.mRestitution);
+                body.SetCollisionGroup(mSettings.mCollisionGroup);
+                body.SetIsSensor(mSettings.mIsSensor);
+                if (body.IsStatic()) {
+                    continue;
+                }
+                MotionProperties * const pProperties
+                        = body.GetMotionProperties();
+                pProperties->SetGravityFactor(mSettings.mGravityFactor);
+                pProperties->SetLinearDamping(mSettings.mLinearDamping);
+                pProperties->SetAngularDamping(mSettings.mAngularDamping);
+                pProperties->ResetForce();
+                pProperties->ResetTorque();
+                if (pVelocities == nullptr) {
+                    body.SetLinearVelocity(Vec3::sZero());
+                    body.SetAngularVelocity(Vec3::sZero());
+                } else {
+                    const jfloat * const pV = pVelocities + 6 * i;
+                    body.SetLinearVelocityClamped(Vec3(pV[0], pV[1], pV[2]));
+                    body.SetAngularVelocityClamped(Vec3(pV[3], pV[4], pV[5]));
+                }
+            }
+        }
+
+        const jint result = (jint) add.size();
+        if (result == 0) {
+            return 0;
+        }
+        BodyInterface::AddState state = bi.AddBodiesPrepare(add.data(), result);
+        bi.AddBodiesFinalize(add.data(), result, state, activation);
+        for (const BodyID& id : add) {
+            mInUse.insert(id.GetIndexAndSequenceNumber());
+        }
+        return result;
+    }
+
+    /*
+     * Forget free bodies that were destroyed since they were released.
+     */
+    void PruneFree() {
+        const BodyLockInterfaceNoLock& noLock
+                = mpSystem->GetBodyLockInterfaceNoLock();
+        size_t numKept = 0;
+        for (size_t i = 0; i < mFree.size(); ++i) {
+            if (noLock.TryGetBody(mFree[i]) != nullptr) {
+                mFree[numKept++] = mFree[i];
+            }
+        }
+        mFree.resize(numKept);
+    }
+
+    /*
+     * Remove the specified bodies from the system and return them to the
+     * pool, ignoring bodies that are not in use. Bodies destroyed while in
+     * use are forgotten.
+     */
+    jint Release(const jint *pIds, jint numBodies) {
+        BodyInterface& bi = mpSystem->GetBodyInterface();
+        const BodyLockInterfaceNoLock& noLock
+                = mpSystem->GetBodyLockInterfaceNoLock();
+        Array<BodyID> remove;
+        const size_t oldNumFree = mFree.size();
+        for (jint i = 0; i < numBodies; ++i) {
+            if (mInUse.erase((uint32) pIds[i]) == 0) {
+                continue;
+            }
+            const BodyID id((uint32) pIds[i]);
+            if (noLock.TryGetBody(id) == nullptr) {
+                continue;
+            }
+            mFree.push_back(id);
+            if (bi.IsAdded(id)) {
+                remove.push_back(id);
+            }
+        }
+        if (!remove.empty()) {
+            bi.RemoveBodies(remove.data(), (int) remove.size());
+        }
+        const jint result = jint(mFree.size() - oldNumFree);
+        return result;
+    }
+};
+
+/*
+ * Class:     com_github_stephengold_joltjni_BodyPool
+ * Method:    acquire
+ * Signature: (JDDDFFFFFFFFFFI)J
+ */
+JNIEXPORT jlong JNICALL Java_com_github_stephengold_joltjni_BodyPool_acquire
+  (JNIEnv *, jclass, jlong poolVa, jdouble xx, jdouble yy, jdouble zz,
+  jfloat qx, jfloat qy, jfloat qz, jfloat qw, jfloat vx, jfloat vy, jfloat vz,
+  jfloat wx, jfloat wy, jfloat wz, jint activationOrdinal) {
+    BodyPool * const pPool = reinterpret_cast<BodyPool *> (poolVa);
+    const jdouble pose[7] = {xx, yy, zz, qx, qy, qz, qw};
+    const jfloat velocities[6] = {vx, vy, vz, wx, wy, wz};
+    const EActivation activation = (EActivation) activationOrdinal;
+    jint id;
+    pPool->Acquire(pose, velocities, 1, activation, &id);
+    BodyID * const pResult = new BodyID((uint32) id);
+    TRACE_NEW("BodyID", pResult)
+    return reinterpret_cast<jlong> (pResult);
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_BodyPool
+ * Method:    acquireBodies
+ * Signature: (JLjava/nio/DoubleBuffer;ILjava/nio/FloatBuffer;ILjava/nio/IntBuffer;III)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_stephengold_joltjni_BodyPool_acquireBodies
+  (JNIEnv *pEnv, jclass, jlong poolVa, jobject poses, jint posePosition,
+  jobject velocities, jint velocityPosition, jobject storeIds, jint idPosition,
+  jint numBodies, jint activationOrdinal) {
+    BodyPool * const pPool = reinterpret_cast<BodyPool *> (poolVa);
+    const jdouble * const pPoses
+            = (jdouble *) pEnv->GetDirectBufferAddress(poses) + posePosition;
+    JPH_ASSERT(!pEnv->ExceptionCheck());
+    const jfloat *pVelocities = nullptr;
+    if (velocities != nullptr) {
+        pVelocities = (jfloat *) pEnv->GetDirectBufferAddress(velocities)
+                + velocityPosition;
+        JPH_ASSERT(!pEnv->ExceptionCheck());
+    }
+    jint * const pStoreIds
+            = (jint *) pEnv->GetDirectBufferAddress(storeIds) + idPosition;
+    JPH_ASSERT(!pEnv->ExceptionCheck());
+    const EActivation activation = (EActivation) activationOrdinal;
+    const jint result = pPool->Acquire(
+            pPoses, pVelocities, numBodies, activation, pStoreIds);
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_BodyPool
+ * Method:    countFree
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_stephengold_joltjni_BodyPool_countFree
+  (JNIEnv *, jclass, jlong poolVa) {
+    BodyPool * const pPool = reinterpret_cast<BodyPool *> (poolVa);
+    pPool->PruneFree();
+    const jint result = (jint) pPool->mFree.size();
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_BodyPool
+ * Method:    countHits
+ * Signature: (J)J
+ */
+JNIEXPORT jlong JNICALL Java_com_github_stephengold_joltjni_BodyPool_countHits
+  (JNIEnv *, jclass, jlong poolVa) {
+    BodyPool * const pPool = reinterpret_cast<BodyPool *> (poolVa);
+    const jlong result = (jlong) pPool->mHits;
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_BodyPool
+ * Method:    countInUse
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_stephengold_joltjni_BodyPool_countInUse
+  (JNIEnv *, jclass, jlong poolVa) {
+    BodyPool * const pPool = reinterpret_cast<BodyPool *> (poolVa);
+    const jint result = (jint) pPool->mInUse.size();
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_BodyPool
+ * Method:    countMisses
+ * Signature: (J)J
+ */
+JNIEXPORT jlong JNICALL Java_com_github_stephengold_joltjni_BodyPool_countMisses
+  (JNIEnv *, jclass, jlong poolVa) {
+    BodyPool * const pPool = reinterpret_cast<BodyPool *> (poolVa);
+    const jlong result = (jlong) pPool->mMisses;
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_BodyPool
+ * Method:    create
+ * Signature: (JJ)J
+ */
+JNIEXPORT jlong JNICALL Java_com_github_stephengold_joltjni_BodyPool_create
+  (JNIEnv *, jclass, jlong systemVa, jlong templateVa) {
+    PhysicsSystem * const pSystem
+            = reinterpret_cast<PhysicsSystem *> (systemVa);
+    const BodyCreationSettings * const pTemplate
+            = reinterpret_cast<BodyCreationSettings *> (templateVa);
+    BodyPool * const pResult = new BodyPool(pSystem, *pTemplate);
+    TRACE_NEW("BodyPool", pResult)
+    return reinterpret_cast<jlong> (pResult);
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_BodyPool
+ * Method:    free
+ * Signature: (JZ)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_BodyPool_free
+  (JNIEnv *, jclass, jlong poolVa, jboolean systemExists) {
+    BodyPool * const pPool = reinterpret_cast<BodyPool *> (poolVa);
+    if (systemExists) {
+        pPool->DestroyFree();
+    }
+    TRACE_DELETE("BodyPool", pPool)
+    delete pPool;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_BodyPool
+ * Method:    release
+ * Signature: (JI)Z
+ */
+JNIEXPORT jboolean JNICALL Java_com_github_stephengold_joltjni_BodyPool_release
+  (JNIEnv *, jclass, jlong poolVa, jint bodyId) {
+    BodyPool * const pPool = reinterpret_cast<BodyPool *> (poolVa);
+    const jint numReleased = pPool->Release(&bodyId, 1);
+    const bool result = (numReleased == 1);
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_BodyPool
+ * Method:    releaseBodies
+ * Signature: (JLjava/nio/IntBuffer;II)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_stephengold_joltjni_BodyPool_releaseBodies
+  (JNIEnv *pEnv, jclass, jlong poolVa, jobject bodyIds, jint position,
+  jint numBodies) {
+    BodyPool * const pPool = reinterpret_cast<BodyPool *> (poolVa);
+    const jint * const pIds
+            = (jint *) pEnv->GetDirectBufferAddress(bodyIds) + position;
+    JPH_ASSERT(!pEnv->ExceptionCheck());
+    const jint result = pPool->Release(pIds, numBodies);
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_BodyPool
+ * Method:    reserve
+ * Signature: (JI)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_stephengold_joltjni_BodyPool_reserve
+  (JNIEnv *, jclass, jlong poolVa, jint minFree) {
+    BodyPool * const pPool = reinterpret_cast<BodyPool *> (poolVa);
+    BodyInterface& bi = pPool->mpSystem->GetBodyInterface();
+    pPool->PruneFree();
+    jint result = 0;
+    while ((jint) pPool->mFree.size() < minFree) {
+        const Body * const pBody = bi.CreateBody(pPool->mSettings);
+        if (pBody == nullptr) {
+            break;
+        }
+        pPool->mFree.push_back(pBody->GetID());
+        ++result;
+    }
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_BodyPool
+ * Method:    resetMetrics
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_BodyPool_resetMetrics
+  (JNIEnv *, jclass, jlong poolVa) {
+    BodyPool * const pPool = reinterpret_cast<BodyPool *> (poolVa);
+    pPool->mHits = 0;
+    pPool->mMisses = 0;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_BodyPool
+ * Method:    trim
+ * Signature: (JI)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_stephengold_joltjni_BodyPool_trim
+  (JNIEnv *, jclass, jlong poolVa, jint maxFree) {
+    BodyPool * const pPool = reinterpret_cast<BodyPool *> (poolVa);
+    pPool->PruneFree();
+    Array<BodyID>& freeIds = pPool->mFree;
+    const jint result = std::max(0, (jint) freeIds.size() - maxFree);
+    if (result > 0) {
+        BodyInterface& bi = pPool->mpSystem->GetBodyInterface();
+        bi.DestroyBodies(freeIds.data() + maxFree, result);
+        freeIds.resize(maxFree);
+    }
+    return result;
+}
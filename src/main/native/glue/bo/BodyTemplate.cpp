@@ -0,0 +1,70 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+/*
+ * Author: Stephen Gold
+ */
+#include "Jolt/Jolt.h"
+#include "Jolt/Physics/Body/BodyCreationSettings.h"
+#include "auto/com_github_stephengold_joltjni_BodyTemplate.h"
+#include "glue/glue.h"
+
+using namespace JPH;
+
+/*
+ * Class:     com_github_stephengold_joltjni_BodyTemplate
+ * Method:    create
+ * Signature: (JJ)J
+ */
+JNIEXPORT jlong JNICALL Java_com_github_stephengold_joltjni_BodyTemplate_create
+  (JNIEnv *, jclass, jlong settingsVa, jlong shapeVa) {
+    const BodyCreationSettings * const pSettings
+            = reinterpret_cast<BodyCreationSettings *> (settingsVa);
+    const Shape * const pShape = reinterpret_cast<Shape *> (shapeVa);
+    BodyCreationSettings * const pResult = new BodyCreationSettings(*pSettings);
+    TRACE_NEW("BodyTemplate", pResult)
+    if (pShape != nullptr) {
+        pResult->SetShape(pShape);
+    } else {
+        const Shape::ShapeResult shapeResult = pResult->ConvertShapeSettings();
+        if (shapeResult.HasError()) {
+            TRACE_DELETE("BodyTemplate", pResult)
+            delete pResult;
+            return 0L;
+        }
+        pResult->SetShape(shapeResult.Get());
+    }
+    return reinterpret_cast<jlong> (pResult);
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_BodyTemplate
+ * Method:    free
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_BodyTemplate_free
+  (JNIEnv *, jclass, jlong templateVa) {
+    BodyCreationSettings * const pTemplate
+            = reinterpret_cast<BodyCreationSettings *> (templateVa);
+    TRACE_DELETE("BodyTemplate", pTemplate)
+    delete pTemplate;
+}
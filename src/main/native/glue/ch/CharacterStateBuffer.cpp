@@ -0,0 +1,123 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+/*
+ * Author: Stephen Gold
+ */
+#include "Jolt/Jolt.h"
+#include "Jolt/Physics/Character/Character.h"
+#include "Jolt/Physics/Character/CharacterVirtual.h"
+
+#include "auto/com_github_stephengold_joltjni_CharacterStateBuffer.h"
+#include "glue/glue.h"
+
+using namespace JPH;
+
+/*
+ * A record slot, which holds either a float or an int.
+ */
+union Slot {
+    jfloat f;
+    jint i;
+};
+
+static void StoreVec3(Slot *pSlots, Vec3Arg v) {
+    pSlots[0].f = v.GetX();
+    pSlots[1].f = v.GetY();
+    pSlots[2].f = v.GetZ();
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_CharacterStateBuffer
+ * Method:    capture
+ * Signature: ([J[ZIILjava/nio/ByteBuffer;)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_CharacterStateBuffer_capture
+  (JNIEnv *pEnv, jclass, jlongArray characterVas, jbooleanArray isVirtual,
+  jint maxContacts, jint recordBytes, jobject storeBuffer) {
+    jbyte * const pBytes = (jbyte *) pEnv->GetDirectBufferAddress(storeBuffer);
+    const jsize numCharacters = pEnv->GetArrayLength(characterVas);
+    jboolean isCopy;
+    jlong * const pVas = pEnv->GetLongArrayElements(characterVas, &isCopy);
+    jboolean * const pIsVirtual
+            = pEnv->GetBooleanArrayElements(isVirtual, &isCopy);
+    for (jsize i = 0; i < numCharacters; ++i) {
+        Slot * const pSlots = reinterpret_cast<Slot *> (
+                pBytes + (size_t) i * recordBytes);
+        const CharacterBase *pBase;
+        RVec3 position;
+        Quat rotation;
+        Vec3 velocity;
+        if (pIsVirtual[i]) {
+            const CharacterVirtual * const pCharacter
+                    = reinterpret_cast<CharacterVirtual *> (pVas[i]);
+            pBase = pCharacter;
+            position = pCharacter->GetPosition();
+            rotation = pCharacter->GetRotation();
+            velocity = pCharacter->GetLinearVelocity();
+        } else {
+            const Character * const pCharacter
+                    = reinterpret_cast<Character *> (pVas[i]);
+            pBase = pCharacter;
+            pCharacter->GetPositionAndRotation(position, rotation);
+            velocity = pCharacter->GetLinearVelocity();
+        }
+        StoreVec3(pSlots, Vec3(position));
+        pSlots[3].f = rotation.GetX();
+        pSlots[4].f = rotation.GetY();
+        pSlots[5].f = rotation.GetZ();
+        pSlots[6].f = rotation.GetW();
+        StoreVec3(pSlots + 7, velocity);
+        StoreVec3(pSlots + 10, pBase->GetGroundNormal());
+        pSlots[13].i = (jint) pBase->GetGroundState();
+        pSlots[14].i = pBase->GetGroundBodyID().GetIndexAndSequenceNumber();
+
+        int numContacts = 0;
+        if (pIsVirtual[i]) {
+            const CharacterVirtual * const pCharacter
+                    = reinterpret_cast<CharacterVirtual *> (pVas[i]);
+            for (const CharacterVirtual::Contact& contact
+                    : pCharacter->GetActiveContacts()) {
+                if (numContacts >= maxContacts) {
+                    break;
+                }
+                Slot * const pContact = pSlots + 16 + 5 * numContacts;
+                pContact[0].i = contact.mBodyB.GetIndexAndSequenceNumber();
+                StoreVec3(pContact + 1, contact.mContactNormal);
+                jint flags = 0;
+                if (contact.mIsSensorB) {
+                    flags |= 0x1;
+                }
+                if (contact.mCharacterB != nullptr) {
+                    flags |= 0x2;
+                }
+                if (contact.mHadCollision) {
+                    flags |= 0x4;
+                }
+                pContact[4].i = flags;
+                ++numContacts;
+            }
+        }
+        pSlots[15].i = numContacts;
+    }
+    pEnv->ReleaseBooleanArrayElements(isVirtual, pIsVirtual, JNI_ABORT);
+    pEnv->ReleaseLongArrayElements(characterVas, pVas, JNI_ABORT);
+}
@@ -0,0 +1,154 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+/*
+ * Author: Stephen Gold
+ */
+#include "Jolt/Jolt.h"
+#include "Jolt/Core/JobSystem.h"
+#include "Jolt/Core/TempAllocator.h"
+#include "Jolt/Physics/Character/CharacterVirtual.h"
+#include "Jolt/Physics/PhysicsSystem.h"
+
+#include "auto/com_github_stephengold_joltjni_CharacterVirtualManager.h"
+#include "glue/glue.h"
+
+using namespace JPH;
+
+/*
+ * The number of floats written per character, which must match
+ * CharacterVirtualManager.cStateStride.
+ */
+static constexpr int cStateStride = 8;
+
+/*
+ * Update characters [start, end) and write their states.
+ */
+static void UpdateRange(PhysicsSystem& system, const jlong *pCharacterVas,
+        const jint *pLayers, int start, int end, float deltaTime,
+        Vec3Arg gravity,
+        const CharacterVirtual::ExtendedUpdateSettings& settings,
+        const jfloat *pVelocities, jfloat *pStates, TempAllocator& allocator) {
+    const ObjectVsBroadPhaseLayerFilter& ovbFilter
+            = system.GetObjectVsBroadPhaseLayerFilter();
+    const ObjectLayerPairFilter& ovoFilter = system.GetObjectLayerPairFilter();
+    const BodyFilter bodyFilter;
+    const ShapeFilter shapeFilter;
+    for (int i = start; i < end; ++i) {
+        CharacterVirtual * const pCharacter
+                = reinterpret_cast<CharacterVirtual *> (pCharacterVas[i]);
+        const ObjectLayer layer = (ObjectLayer) pLayers[i];
+        const DefaultBroadPhaseLayerFilter bpFilter(ovbFilter, layer);
+        const DefaultObjectLayerFilter olFilter(ovoFilter, layer);
+        const Vec3 velocity(pVelocities[3 * i], pVelocities[3 * i + 1],
+                pVelocities[3 * i + 2]);
+        pCharacter->SetLinearVelocity(velocity);
+        pCharacter->ExtendedUpdate(deltaTime, gravity, settings, bpFilter,
+                olFilter, bodyFilter, shapeFilter, allocator);
+
+        jfloat * const pState = pStates + cStateStride * i;
+        const RVec3 position = pCharacter->GetPosition();
+        pState[0] = position.GetX();
+        pState[1] = position.GetY();
+        pState[2] = position.GetZ();
+        const Vec3 newVelocity = pCharacter->GetLinearVelocity();
+        pState[3] = newVelocity.GetX();
+        pState[4] = newVelocity.GetY();
+        pState[5] = newVelocity.GetZ();
+        pState[6] = (jfloat) (int) pCharacter->GetGroundState();
+        pState[7] = pCharacter->IsSupported() ? 1.0f : 0.0f;
+    }
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_CharacterVirtualManager
+ * Method:    updateRange
+ * Signature: (J[J[IIIFFFFJLjava/nio/FloatBuffer;Ljava/nio/FloatBuffer;J)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_CharacterVirtualManager_updateRange
+  (JNIEnv *pEnv, jclass, jlong systemVa, jlongArray characterVas,
+  jintArray objectLayers, jint start, jint end, jfloat deltaTime,
+  jfloat gravityX, jfloat gravityY, jfloat gravityZ, jlong settingsVa,
+  jobject desiredVelocities, jobject storeStates, jlong allocatorVa) {
+    PhysicsSystem * const pSystem
+            = reinterpret_cast<PhysicsSystem *> (systemVa);
+    const CharacterVirtual::ExtendedUpdateSettings * const pSettings
+            = reinterpret_cast<CharacterVirtual::ExtendedUpdateSettings *> (
+                    settingsVa);
+    TempAllocator * const pAllocator
+            = reinterpret_cast<TempAllocator *> (allocatorVa);
+    const jfloat * const pVelocities
+            = (jfloat *) pEnv->GetDirectBufferAddress(desiredVelocities);
+    jfloat * const pStates
+            = (jfloat *) pEnv->GetDirectBufferAddress(storeStates);
+    jboolean isCopy;
+    jlong * const pVas = pEnv->GetLongArrayElements(characterVas, &isCopy);
+    jint * const pLayers = pEnv->GetIntArrayElements(objectLayers, &isCopy);
+    const Vec3 gravity(gravityX, gravityY, gravityZ);
+    UpdateRange(*pSystem, pVas, pLayers, start, end, deltaTime, gravity,
+            *pSettings, pVelocities, pStates, *pAllocator);
+    pEnv->ReleaseIntArrayElements(objectLayers, pLayers, JNI_ABORT);
+    pEnv->ReleaseLongArrayElements(characterVas, pVas, JNI_ABORT);
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_CharacterVirtualManager
+ * Method:    updateWithJobs
+ * Signature: (J[J[IIIFFFFJLjava/nio/FloatBuffer;Ljava/nio/FloatBuffer;J)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_CharacterVirtualManager_updateWithJobs
+  (JNIEnv *pEnv, jclass, jlong systemVa, jlongArray characterVas,
+  jintArray objectLayers, jint numCharacters, jint batchSize,
+  jfloat deltaTime, jfloat gravityX, jfloat gravityY, jfloat gravityZ,
+  jlong settingsVa, jobject desiredVelocities, jobject storeStates,
+  jlong jobSystemVa) {
+    PhysicsSystem * const pSystem
+            = reinterpret_cast<PhysicsSystem *> (systemVa);
+    const CharacterVirtual::ExtendedUpdateSettings * const pSettings
+            = reinterpret_cast<CharacterVirtual::ExtendedUpdateSettings *> (
+                    settingsVa);
+    JobSystem * const pJobSystem = reinterpret_cast<JobSystem *> (jobSystemVa);
+    const jfloat * const pVelocities
+            = (jfloat *) pEnv->GetDirectBufferAddress(desiredVelocities);
+    jfloat * const pStates
+            = (jfloat *) pEnv->GetDirectBufferAddress(storeStates);
+    jboolean isCopy;
+    jlong * const pVas = pEnv->GetLongArrayElements(characterVas, &isCopy);
+    jint * const pLayers = pEnv->GetIntArrayElements(objectLayers, &isCopy);
+    const Vec3 gravity(gravityX, gravityY, gravityZ);
+
+    JobSystem::Barrier * const pBarrier = pJobSystem->CreateBarrier();
+    for (int start = 0; start < numCharacters; start += batchSize) {
+        const int end = std::min(start + batchSize, (int) numCharacters);
+        const JobSystem::JobHandle handle = pJobSystem->CreateJob(
+                "CharacterVirtualManager", Color::sGreen, [=]() {
+            TempAllocatorMalloc allocator;
+            UpdateRange(*pSystem, pVas, pLayers, start, end, deltaTime,
+                    gravity, *pSettings, pVelocities, pStates, allocator);
+        });
+        pBarrier->AddJob(handle);
+    }
+    pJobSystem->WaitForJobs(pBarrier);
+    pJobSystem->DestroyBarrier(pBarrier);
+
+    pEnv->ReleaseIntArrayElements(objectLayers, pLayers, JNI_ABORT);
+    pEnv->ReleaseLongArrayElements(characterVas, pVas, JNI_ABORT);
+}
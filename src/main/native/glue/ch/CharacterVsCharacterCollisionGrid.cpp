@@ -0,0 +1,316 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+/*
+ * Author: Stephen Gold
+ */
+#include "Jolt/Jolt.h"
+#include "Jolt/Physics/Character/CharacterVirtual.h"
+#include "Jolt/Physics/Collision/CollisionDispatch.h"
+#include "Jolt/Physics/Collision/ShapeCast.h"
+#include "auto/com_github_stephengold_joltjni_CharacterVsCharacterCollisionGrid.h"
+#include "glue/glue.h"
+
+using namespace JPH;
+
+/*
+ * A character-vs-character collision interface that bins characters in a
+ * uniform grid of cubic cells, so that each query only tests characters in
+ * nearby cells.
+ */
+class CharacterVsCharacterCollisionGrid : public CharacterVsCharacterCollision {
+public:
+    CharacterVsCharacterCollisionGrid(float cellSize, float margin) :
+        mCellSize(cellSize), mMargin(margin) {
+    }
+
+    void Add(CharacterVirtual *pCharacter) {
+        Entry entry;
+        entry.mpCharacter = pCharacter;
+        entry.mRadius = BoundingRadius(pCharacter);
+        entry.mCell = CellKey(pCharacter->GetCenterOfMassPosition());
+        mCells[entry.mCell].push_back(pCharacter);
+        mEntries.push_back(entry);
+        mMaxRadius = std::max(mMaxRadius, entry.mRadius);
+    }
+
+    int CountCharacters() const {
+        return (int) mEntries.size();
+    }
+
+    void Remove(const CharacterVirtual *pCharacter) {
+        for (size_t i = 0; i < mEntries.size(); ++i) {
+            if (mEntries[i].mpCharacter == pCharacter) {
+                RemoveFromCell(mEntries[i]);
+                mEntries.erase(mEntries.begin() + i);
+                break;
+            }
+        }
+        UpdateMaxRadius();
+    }
+
+    /*
+     * Re-bin characters that moved into other cells and refresh their
+     * bounding radii. Returns the number of characters that changed cells.
+     */
+    int Update() {
+        int result = 0;
+        for (Entry& entry : mEntries) {
+            entry.mRadius = BoundingRadius(entry.mpCharacter);
+            const uint64 cell
+                    = CellKey(entry.mpCharacter->GetCenterOfMassPosition());
+            if (cell != entry.mCell) {
+                RemoveFromCell(entry);
+                entry.mCell = cell;
+                mCells[cell].push_back(entry.mpCharacter);
+                ++result;
+            }
+        }
+        UpdateMaxRadius();
+        return result;
+    }
+
+    void CollideCharacter(const CharacterVirtual *inCharacter,
+            RMat44Arg inCenterOfMassTransform,
+            const CollideShapeSettings &inCollideShapeSettings,
+            RVec3Arg inBaseOffset,
+            CollideShapeCollector &ioCollector) const override {
+        const Mat44 transform1 = inCenterOfMassTransform.PostTranslated(
+                -inBaseOffset).ToMat44();
+        const Shape * const pShape = inCharacter->GetShape();
+        CollideShapeSettings settings = inCollideShapeSettings;
+
+        const RVec3 center = inCenterOfMassTransform.GetTranslation();
+        const float reach = BoundingRadius(inCharacter)
+                + inCollideShapeSettings.mMaxSeparationDistance;
+        ForEachNearby(center, center, reach, [&](const CharacterVirtual *c) {
+            if (c == inCharacter || ioCollector.ShouldEarlyOut()) {
+                return;
+            }
+            ioCollector.SetUserData(reinterpret_cast<uint64> (c));
+            const Mat44 transform2 = c->GetCenterOfMassTransform()
+                    .PostTranslated(-inBaseOffset).ToMat44();
+            settings.mMaxSeparationDistance
+                    = inCollideShapeSettings.mMaxSeparationDistance
+                    + c->GetCharacterPadding();
+            CollisionDispatch::sCollideShapeVsShape(pShape, c->GetShape(),
+                    Vec3::sOne(), Vec3::sOne(), transform1, transform2,
+                    SubShapeIDCreator(), SubShapeIDCreator(), settings,
+                    ioCollector);
+        });
+        ioCollector.SetUserData(0);
+    }
+
+    void CastCharacter(const CharacterVirtual *inCharacter,
+            RMat44Arg inCenterOfMassTransform, Vec3Arg inDirection,
+            const ShapeCastSettings &inShapeCastSettings,
+            RVec3Arg inBaseOffset,
+            CastShapeCollector &ioCollector) const override {
+        const Mat44 transform1 = inCenterOfMassTransform.PostTranslated(
+                -inBaseOffset).ToMat44();
+        const ShapeCast shapeCast(
+                inCharacter->GetShape(), Vec3::sOne(), transform1, inDirection);
+
+        const RVec3 start = inCenterOfMassTransform.GetTranslation();
+        const RVec3 end = start + inDirection;
+        const float reach = BoundingRadius(inCharacter);
+        ForEachNearby(start, end, reach, [&](const CharacterVirtual *c) {
+            if (c == inCharacter || ioCollector.ShouldEarlyOut()) {
+                return;
+            }
+            ioCollector.SetUserData(reinterpret_cast<uint64> (c));
+            const Mat44 transform2 = c->GetCenterOfMassTransform()
+                    .PostTranslated(-inBaseOffset).ToMat44();
+            CollisionDispatch::sCastShapeVsShapeWorldSpace(shapeCast,
+                    inShapeCastSettings, c->GetShape(), Vec3::sOne(), { },
+                    transform2, SubShapeIDCreator(), SubShapeIDCreator(),
+                    ioCollector);
+        });
+        ioCollector.SetUserData(0);
+    }
+
+private:
+    struct Entry {
+        CharacterVirtual *mpCharacter;
+        uint64 mCell;
+        float mRadius;
+    };
+
+    static float BoundingRadius(const CharacterVirtual *pCharacter) {
+        const AABox bounds = pCharacter->GetShape()->GetLocalBounds();
+        const float result = Vec3::sMax(bounds.mMin.Abs(), bounds.mMax.Abs())
+                .Length() + pCharacter->GetCharacterPadding();
+        return result;
+    }
+
+    int CellIndex(Real coordinate) const {
+        return (int) std::floor(coordinate / mCellSize);
+    }
+
+    uint64 CellKey(int ix, int iy, int iz) const {
+        constexpr uint64 cMask = (1 << 21) - 1;
+        const uint64 result = (((uint64) ix & cMask) << 42)
+                | (((uint64) iy & cMask) << 21) | ((uint64) iz & cMask);
+        return result;
+    }
+
+    uint64 CellKey(RVec3Arg location) const {
+        return CellKey(CellIndex(location.GetX()), CellIndex(location.GetY()),
+                CellIndex(location.GetZ()));
+    }
+
+    /*
+     * Visit each character binned in a cell that might overlap a sphere of
+     * the specified radius swept from start to end.
+     */
+    template <class Visitor>
+    void ForEachNearby(RVec3Arg start, RVec3Arg end, float radius,
+            const Visitor& visitor) const {
+        const Real reach = radius + mMaxRadius + mMargin;
+        const RVec3 low = RVec3::sMin(start, end) - RVec3::sReplicate(reach);
+        const RVec3 high = RVec3::sMax(start, end) + RVec3::sReplicate(reach);
+        const int minX = CellIndex(low.GetX());
+        const int minY = CellIndex(low.GetY());
+        const int minZ = CellIndex(low.GetZ());
+        const int maxX = CellIndex(high.GetX());
+        const int maxY = CellIndex(high.GetY());
+        const int maxZ = CellIndex(high.GetZ());
+        const int64 numCells = (int64) (maxX - minX + 1)
+                * (maxY - minY + 1) * (maxZ - minZ + 1);
+        if (numCells > (int64) mCells.size()) {
+            // The region is larger than the populated grid:
+            for (const Entry& entry : mEntries) {
+                visitor(entry.mpCharacter);
+            }
+            return;
+        }
+        for (int ix = minX; ix <= maxX; ++ix) {
+            for (int iy = minY; iy <= maxY; ++iy) {
+                for (int iz = minZ; iz <= maxZ; ++iz) {
+                    const auto found = mCells.find(CellKey(ix, iy, iz));
+                    if (found != mCells.end()) {
+                        for (const CharacterVirtual *c : found->second) {
+                            visitor(c);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    void RemoveFromCell(const Entry& entry) {
+        const auto found = mCells.find(entry.mCell);
+        if (found == mCells.end()) {
+            return;
+        }
+        Array<CharacterVirtual *>& list = found->second;
+        for (size_t i = 0; i < list.size(); ++i) {
+            if (list[i] == entry.mpCharacter) {
+                list[i] = list.back();
+                list.pop_back();
+                break;
+            }
+        }
+        if (list.empty()) {
+            mCells.erase(found);
+        }
+    }
+
+    void UpdateMaxRadius() {
+        mMaxRadius = 0.0f;
+        for (const Entry& entry : mEntries) {
+            mMaxRadius = std::max(mMaxRadius, entry.mRadius);
+        }
+    }
+
+    const float mCellSize;
+    const float mMargin;
+    float mMaxRadius = 0.0f;
+    Array<Entry> mEntries;
+    UnorderedMap<uint64, Array<CharacterVirtual *>> mCells;
+};
+
+/*
+ * Class:     com_github_stephengold_joltjni_CharacterVsCharacterCollisionGrid
+ * Method:    add
+ * Signature: (JJ)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_CharacterVsCharacterCollisionGrid_add
+  (JNIEnv *, jclass, jlong interfaceVa, jlong characterVa) {
+    CharacterVsCharacterCollisionGrid * const pCollision
+            = reinterpret_cast<CharacterVsCharacterCollisionGrid *> (interfaceVa);
+    CharacterVirtual * const pCharacter
+            = reinterpret_cast<CharacterVirtual *> (characterVa);
+    pCollision->Add(pCharacter);
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_CharacterVsCharacterCollisionGrid
+ * Method:    countCharacters
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_stephengold_joltjni_CharacterVsCharacterCollisionGrid_countCharacters
+  (JNIEnv *, jclass, jlong interfaceVa) {
+    const CharacterVsCharacterCollisionGrid * const pCollision
+            = reinterpret_cast<CharacterVsCharacterCollisionGrid *> (interfaceVa);
+    const int result = pCollision->CountCharacters();
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_CharacterVsCharacterCollisionGrid
+ * Method:    create
+ * Signature: (FF)J
+ */
+JNIEXPORT jlong JNICALL Java_com_github_stephengold_joltjni_CharacterVsCharacterCollisionGrid_create
+  (JNIEnv *, jclass, jfloat cellSize, jfloat margin) {
+    CharacterVsCharacterCollisionGrid * const pInterface
+            = new CharacterVsCharacterCollisionGrid(cellSize, margin);
+    TRACE_NEW("CharacterVsCharacterCollisionGrid", pInterface)
+    return reinterpret_cast<jlong> (pInterface);
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_CharacterVsCharacterCollisionGrid
+ * Method:    remove
+ * Signature: (JJ)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_CharacterVsCharacterCollisionGrid_remove
+  (JNIEnv *, jclass, jlong interfaceVa, jlong characterVa) {
+    CharacterVsCharacterCollisionGrid * const pCollision
+            = reinterpret_cast<CharacterVsCharacterCollisionGrid *> (interfaceVa);
+    const CharacterVirtual * const pCharacter
+            = reinterpret_cast<CharacterVirtual *> (characterVa);
+    pCollision->Remove(pCharacter);
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_CharacterVsCharacterCollisionGrid
+ * Method:    update
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_stephengold_joltjni_CharacterVsCharacterCollisionGrid_update
+  (JNIEnv *, jclass, jlong interfaceVa) {
+    CharacterVsCharacterCollisionGrid * const pCollision
+            = reinterpret_cast<CharacterVsCharacterCollisionGrid *> (interfaceVa);
+    const int result = pCollision->Update();
+    return result;
+}
@@ -0,0 +1,282 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+/*
+ * Author: Stephen Gold
+ */
+#include "Jolt/Jolt.h"
+#include "Jolt/Physics/Collision/BroadPhase/BroadPhaseLayer.h"
+#include "Jolt/Physics/Collision/ObjectLayer.h"
+#include "auto/com_github_stephengold_joltjni_CollisionMatrix.h"
+#include "glue/glue.h"
+
+#include <atomic>
+
+using namespace JPH;
+
+/*
+ * Immutable bit tables of colliding layer pairs.
+ */
+class CollisionTables {
+private:
+    Array<uint64> mObjVsBp;
+    Array<uint64> mObjVsObj;
+    uint mBpWords;
+    uint mObjWords;
+
+    static bool TestBit(const Array<uint64>& inBits, uint inWordsPerRow,
+            uint inRow, uint inColumn) {
+        const uint64 word = inBits[inRow * inWordsPerRow + (inColumn >> 6)];
+        const bool result = (word >> (inColumn & 63)) & 1;
+        return result;
+    }
+
+    static void Pack(const jboolean *pFlags, uint inNumRows,
+            uint inNumColumns, uint inWordsPerRow, Array<uint64>& outBits) {
+        outBits.resize(inNumRows * inWordsPerRow, 0);
+        for (uint row = 0; row < inNumRows; ++row) {
+            for (uint column = 0; column < inNumColumns; ++column) {
+                if (pFlags[row * inNumColumns + column]) {
+                    outBits[row * inWordsPerRow + (column >> 6)]
+                            |= uint64(1) << (column & 63);
+                }
+            }
+        }
+    }
+
+public:
+    CollisionTables(uint inNumObjLayers, uint inNumBpLayers,
+            const jboolean *pObjVsObj, const jboolean *pObjVsBp) {
+        mBpWords = (inNumBpLayers + 63) >> 6;
+        mObjWords = (inNumObjLayers + 63) >> 6;
+        Pack(pObjVsObj, inNumObjLayers, inNumObjLayers, mObjWords, mObjVsObj);
+        Pack(pObjVsBp, inNumObjLayers, inNumBpLayers, mBpWords, mObjVsBp);
+    }
+
+    bool ShouldCollide(ObjectLayer inLayer1, ObjectLayer inLayer2) const {
+        const bool result = TestBit(mObjVsObj, mObjWords, inLayer1, inLayer2);
+        return result;
+    }
+
+    bool ShouldCollide(ObjectLayer inLayer1, BroadPhaseLayer inLayer2) const {
+        const bool result = TestBit(
+                mObjVsBp, mBpWords, inLayer1, inLayer2.GetValue());
+        return result;
+    }
+};
+
+/*
+ * Compiled collision rules, with a broad-phase layer interface and 2 layer
+ * filters that read whichever tables are current.
+ */
+class CollisionMatrix {
+public:
+    class LayerMap final : public BroadPhaseLayerInterface {
+    public:
+        const CollisionMatrix *mpMatrix;
+
+        virtual BroadPhaseLayer GetBroadPhaseLayer(ObjectLayer inLayer)
+                const override {
+            JPH_ASSERT(inLayer < mpMatrix->mObjToBp.size());
+            const BroadPhaseLayer result = mpMatrix->mObjToBp[inLayer];
+            return result;
+        }
+
+        virtual uint GetNumBroadPhaseLayers() const override {
+            return mpMatrix->mNumBpLayers;
+        }
+    };
+
+    class OvbFilter final : public ObjectVsBroadPhaseLayerFilter {
+    public:
+        const CollisionMatrix *mpMatrix;
+
+        virtual bool ShouldCollide(ObjectLayer inLayer1,
+                BroadPhaseLayer inLayer2) const override {
+            const bool result = mpMatrix->GetTables()->ShouldCollide(
+                    inLayer1, inLayer2);
+            return result;
+        }
+    };
+
+    class OvoFilter final : public ObjectLayerPairFilter {
+    public:
+        const CollisionMatrix *mpMatrix;
+
+        virtual bool ShouldCollide(ObjectLayer inLayer1,
+                ObjectLayer inLayer2) const override {
+            const bool result = mpMatrix->GetTables()->ShouldCollide(
+                    inLayer1, inLayer2);
+            return result;
+        }
+    };
+
+    Array<BroadPhaseLayer> mObjToBp;
+    LayerMap mLayerMap;
+    OvbFilter mOvbFilter;
+    OvoFilter mOvoFilter;
+    uint mNumBpLayers;
+    uint mNumObjLayers;
+
+    CollisionMatrix(uint inNumObjLayers, uint inNumBpLayers,
+            const jint *pObjToBp) {
+        mNumBpLayers = inNumBpLayers;
+        mNumObjLayers = inNumObjLayers;
+        mObjToBp.reserve(inNumObjLayers);
+        for (uint i = 0; i < inNumObjLayers; ++i) {
+            const BroadPhaseLayer::Type bpLayer
+                    = (BroadPhaseLayer::Type) pObjToBp[i];
+            mObjToBp.push_back(BroadPhaseLayer(bpLayer));
+        }
+        mLayerMap.mpMatrix = this;
+        mOvbFilter.mpMatrix = this;
+        mOvoFilter.mpMatrix = this;
+    }
+
+    ~CollisionMatrix() {
+        for (CollisionTables *pTables : mAllTables) {
+            TRACE_DELETE("CollisionTables", pTables)
+            delete pTables;
+        }
+    }
+
+    const CollisionTables *GetTables() const {
+        return mpTables.load(std::memory_order_acquire);
+    }
+
+    /*
+     * Make the specified tables current. Retired tables are kept until the
+     * matrix is deleted, since other threads might still be reading them.
+     */
+    void SetTables(CollisionTables *pTables) {
+        mAllTables.push_back(pTables);
+        mpTables.store(pTables, std::memory_order_release);
+    }
+
+private:
+    Array<CollisionTables *> mAllTables;
+    std::atomic<const CollisionTables *> mpTables{nullptr};
+};
+
+/*
+ * Pack the specified Java tables into new native tables.
+ */
+static CollisionTables * CreateTables(JNIEnv *pEnv, uint numObjLayers,
+        uint numBpLayers, jbooleanArray objVsObj, jbooleanArray objVsBp) {
+    jboolean isCopy;
+    jboolean * const pObjVsObj
+            = pEnv->GetBooleanArrayElements(objVsObj, &isCopy);
+    jboolean * const pObjVsBp = pEnv->GetBooleanArrayElements(objVsBp, &isCopy);
+    CollisionTables * const pResult = new CollisionTables(
+            numObjLayers, numBpLayers, pObjVsObj, pObjVsBp);
+    TRACE_NEW("CollisionTables", pResult)
+    pEnv->ReleaseBooleanArrayElements(objVsBp, pObjVsBp, JNI_ABORT);
+    pEnv->ReleaseBooleanArrayElements(objVsObj, pObjVsObj, JNI_ABORT);
+    return pResult;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_CollisionMatrix
+ * Method:    create
+ * Signature: (II[I[Z[Z)J
+ */
+JNIEXPORT jlong JNICALL Java_com_github_stephengold_joltjni_CollisionMatrix_create
+  (JNIEnv *pEnv, jclass, jint numObjLayers, jint numBpLayers,
+  jintArray objToBp, jbooleanArray objVsObj, jbooleanArray objVsBp) {
+    jboolean isCopy;
+    jint * const pObjToBp = pEnv->GetIntArrayElements(objToBp, &isCopy);
+    CollisionMatrix * const pResult
+            = new CollisionMatrix(numObjLayers, numBpLayers, pObjToBp);
+    TRACE_NEW("CollisionMatrix", pResult)
+    pEnv->ReleaseIntArrayElements(objToBp, pObjToBp, JNI_ABORT);
+    CollisionTables * const pTables = CreateTables(
+            pEnv, numObjLayers, numBpLayers, objVsObj, objVsBp);
+    pResult->SetTables(pTables);
+    return reinterpret_cast<jlong> (pResult);
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_CollisionMatrix
+ * Method:    free
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_CollisionMatrix_free
+  (JNIEnv *, jclass, jlong matrixVa) {
+    CollisionMatrix * const pMatrix
+            = reinterpret_cast<CollisionMatrix *> (matrixVa);
+    TRACE_DELETE("CollisionMatrix", pMatrix)
+    delete pMatrix;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_CollisionMatrix
+ * Method:    getLayerMap
+ * Signature: (J)J
+ */
+JNIEXPORT jlong JNICALL Java_com_github_stephengold_joltjni_CollisionMatrix_getLayerMap
+  (JNIEnv *, jclass, jlong matrixVa) {
+    CollisionMatrix * const pMatrix
+            = reinterpret_cast<CollisionMatrix *> (matrixVa);
+    BroadPhaseLayerInterface * const pResult = &pMatrix->mLayerMap;
+    return reinterpret_cast<jlong> (pResult);
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_CollisionMatrix
+ * Method:    getOvbFilter
+ * Signature: (J)J
+ */
+JNIEXPORT jlong JNICALL Java_com_github_stephengold_joltjni_CollisionMatrix_getOvbFilter
+  (JNIEnv *, jclass, jlong matrixVa) {
+    CollisionMatrix * const pMatrix
+            = reinterpret_cast<CollisionMatrix *> (matrixVa);
+    ObjectVsBroadPhaseLayerFilter * const pResult = &pMatrix->mOvbFilter;
+    return reinterpret_cast<jlong> (pResult);
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_CollisionMatrix
+ * Method:    getOvoFilter
+ * Signature: (J)J
+ */
+JNIEXPORT jlong JNICALL Java_com_github_stephengold_joltjni_CollisionMatrix_getOvoFilter
+  (JNIEnv *, jclass, jlong matrixVa) {
+    CollisionMatrix * const pMatrix
+            = reinterpret_cast<CollisionMatrix *> (matrixVa);
+    ObjectLayerPairFilter * const pResult = &pMatrix->mOvoFilter;
+    return reinterpret_cast<jlong> (pResult);
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_CollisionMatrix
+ * Method:    update
+ * Signature: (J[Z[Z)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_CollisionMatrix_update
+  (JNIEnv *pEnv, jclass, jlong matrixVa, jbooleanArray objVsObj,
+  jbooleanArray objVsBp) {
+    CollisionMatrix * const pMatrix
+            = reinterpret_cast<CollisionMatrix *> (matrixVa);
+    CollisionTables * const pTables = CreateTables(pEnv, pMatrix->mNumObjLayers,
+            pMatrix->mNumBpLayers, objVsObj, objVsBp);
+    pMatrix->SetTables(pTables);
+}
@@ -0,0 +1,216 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+/*
+ * Author: Stephen Gold
+ */
+#include "Jolt/Jolt.h"
+#include "Jolt/Physics/Body/Body.h"
+#include "Jolt/Physics/Constraints/HingeConstraint.h"
+#include "Jolt/Physics/Constraints/SixDOFConstraint.h"
+#include "Jolt/Physics/Constraints/SliderConstraint.h"
+#include "auto/com_github_stephengold_joltjni_ConstraintGroup.h"
+#include "glue/glue.h"
+
+using namespace JPH;
+
+/*
+ * Invoke the specified function on each constraint in a group, passing it
+ * the constraint, its subtype, and a pointer to its first DOF in the buffer.
+ */
+template <typename Function>
+static void ForEachConstraint(JNIEnv *pEnv, jlongArray constraintVas,
+        jintArray subTypes, jintArray firstDofs, jint numConstraints,
+        jobject buffer, const Function& process) {
+    jfloat * const pFloats = (jfloat *) pEnv->GetDirectBufferAddress(buffer);
+    JPH_ASSERT(!pEnv->ExceptionCheck());
+    jboolean isCopy;
+    jlong * const pConstraintVas
+            = pEnv->GetLongArrayElements(constraintVas, &isCopy);
+    jint * const pSubTypes = pEnv->GetIntArrayElements(subTypes, &isCopy);
+    jint * const pFirstDofs = pEnv->GetIntArrayElements(firstDofs, &isCopy);
+
+    for (jint i = 0; i < numConstraints; ++i) {
+        TwoBodyConstraint * const pConstraint
+                = reinterpret_cast<TwoBodyConstraint *> (pConstraintVas[i]);
+        const EConstraintSubType subType = (EConstraintSubType) pSubTypes[i];
+        process(*pConstraint, subType, pFloats + pFirstDofs[i]);
+    }
+
+    pEnv->ReleaseIntArrayElements(firstDofs, pFirstDofs, JNI_ABORT);
+    pEnv->ReleaseIntArrayElements(subTypes, pSubTypes, JNI_ABORT);
+    pEnv->ReleaseLongArrayElements(constraintVas, pConstraintVas, JNI_ABORT);
+}
+
+/*
+ * Convert the specified unit quaternion to a rotation vector.
+ */
+static Vec3 ToRotationVector(QuatArg inRotation) {
+    Vec3 axis;
+    float angle;
+    inRotation.EnsureWPositive().GetAxisAngle(axis, angle);
+    const Vec3 result = angle * axis;
+    return result;
+}
+
+/*
+ * Convert the specified rotation vector to a unit quaternion.
+ */
+static Quat ToQuaternion(Vec3Arg inRotationVector) {
+    const float angle = inRotationVector.Length();
+    if (angle == 0.0f) {
+        return Quat::sIdentity();
+    }
+    const Quat result = Quat::sRotation(inRotationVector / angle, angle);
+    return result;
+}
+
+/*
+ * Determine the translation of the specified constraint's 2nd body frame
+ * relative to its 1st body frame, in the constraint space of the 1st body.
+ */
+static Vec3 GetTranslationCs(const TwoBodyConstraint& inConstraint) {
+    const RMat44 frame1 = inConstraint.GetBody1()->GetCenterOfMassTransform()
+            * inConstraint.GetConstraintToBody1Matrix();
+    const RMat44 frame2 = inConstraint.GetBody2()->GetCenterOfMassTransform()
+            * inConstraint.GetConstraintToBody2Matrix();
+    const Vec3 result = Vec3(frame1.InversedRotationTranslation()
+            * frame2.GetTranslation());
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_ConstraintGroup
+ * Method:    getCurrentPositions
+ * Signature: ([J[I[IILjava/nio/FloatBuffer;)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_ConstraintGroup_getCurrentPositions
+  (JNIEnv *pEnv, jclass, jlongArray constraintVas, jintArray subTypes,
+  jintArray firstDofs, jint numConstraints, jobject storeValues) {
+    ForEachConstraint(pEnv, constraintVas, subTypes, firstDofs,
+            numConstraints, storeValues,
+            [](TwoBodyConstraint& constraint, EConstraintSubType subType,
+            jfloat *pStore) {
+        switch (subType) {
+            case EConstraintSubType::Hinge:
+                *pStore = static_cast<HingeConstraint&> (constraint)
+                        .GetCurrentAngle();
+                break;
+
+            case EConstraintSubType::Slider:
+                *pStore = static_cast<SliderConstraint&> (constraint)
+                        .GetCurrentPosition();
+                break;
+
+            case EConstraintSubType::SixDOF: {
+                const SixDOFConstraint& sixDof
+                        = static_cast<SixDOFConstraint&> (constraint);
+                const Vec3 translation = GetTranslationCs(sixDof);
+                const Vec3 rotation = ToRotationVector(
+                        sixDof.GetRotationInConstraintSpace());
+                translation.StoreFloat3((Float3 *) pStore);
+                rotation.StoreFloat3((Float3 *) (pStore + 3));
+                break;
+            }
+
+            default:
+                JPH_ASSERT(false);
+        }
+    });
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_ConstraintGroup
+ * Method:    setTargetPositions
+ * Signature: ([J[I[IILjava/nio/FloatBuffer;)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_ConstraintGroup_setTargetPositions
+  (JNIEnv *pEnv, jclass, jlongArray constraintVas, jintArray subTypes,
+  jintArray firstDofs, jint numConstraints, jobject targets) {
+    ForEachConstraint(pEnv, constraintVas, subTypes, firstDofs,
+            numConstraints, targets,
+            [](TwoBodyConstraint& constraint, EConstraintSubType subType,
+            jfloat *pTarget) {
+        switch (subType) {
+            case EConstraintSubType::Hinge:
+                static_cast<HingeConstraint&> (constraint)
+                        .SetTargetAngle(*pTarget);
+                break;
+
+            case EConstraintSubType::Slider:
+                static_cast<SliderConstraint&> (constraint)
+                        .SetTargetPosition(*pTarget);
+                break;
+
+            case EConstraintSubType::SixDOF: {
+                SixDOFConstraint& sixDof
+                        = static_cast<SixDOFConstraint&> (constraint);
+                const Vec3 translation(pTarget[0], pTarget[1], pTarget[2]);
+                const Vec3 rotation(pTarget[3], pTarget[4], pTarget[5]);
+                sixDof.SetTargetPositionCS(translation);
+                sixDof.SetTargetOrientationCS(ToQuaternion(rotation));
+                break;
+            }
+
+            default:
+                JPH_ASSERT(false);
+        }
+    });
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_ConstraintGroup
+ * Method:    setTargetVelocities
+ * Signature: ([J[I[IILjava/nio/FloatBuffer;)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_ConstraintGroup_setTargetVelocities
+  (JNIEnv *pEnv, jclass, jlongArray constraintVas, jintArray subTypes,
+  jintArray firstDofs, jint numConstraints, jobject targets) {
+    ForEachConstraint(pEnv, constraintVas, subTypes, firstDofs,
+            numConstraints, targets,
+            [](TwoBodyConstraint& constraint, EConstraintSubType subType,
+            jfloat *pTarget) {
+        switch (subType) {
+            case EConstraintSubType::Hinge:
+                static_cast<HingeConstraint&> (constraint)
+                        .SetTargetAngularVelocity(*pTarget);
+                break;
+
+            case EConstraintSubType::Slider:
+                static_cast<SliderConstraint&> (constraint)
+                        .SetTargetVelocity(*pTarget);
+                break;
+
+            case EConstraintSubType::SixDOF: {
+                SixDOFConstraint& sixDof
+                        = static_cast<SixDOFConstraint&> (constraint);
+                const Vec3 linear(pTarget[0], pTarget[1], pTarget[2]);
+                const Vec3 angular(pTarget[3], pTarget[4], pTarget[5]);
+                sixDof.SetTargetVelocityCS(linear);
+                sixDof.SetTargetAngularVelocityCS(angular);
+                break;
+            }
+
+            default:
+                JPH_ASSERT(false);
+        }
+    });
+}
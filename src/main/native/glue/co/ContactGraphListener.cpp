@@ -0,0 +1,461 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+/*
+ * Author: Stephen Gold
+ */
+#include "Jolt/Jolt.h"
+#include "Jolt/Physics/Collision/ContactListener.h"
+#include "Jolt/Physics/Constraints/TwoBodyConstraint.h"
+#include "Jolt/Physics/PhysicsSystem.h"
+#include "auto/com_github_stephengold_joltjni_ContactGraphListener.h"
+#include "glue/glue.h"
+
+#include <algorithm>
+#include <mutex>
+#include <unordered_map>
+
+using namespace JPH;
+
+/*
+ * A contact listener that counts the contact manifolds between each pair of
+ * bodies and partitions active dynamic bodies into islands.
+ */
+class ContactGraphListener : public ContactListener {
+public:
+    ContactListener *mpNext = nullptr;
+    // the most recently built islands:
+    Array<jint> mBodyStarts;
+    Array<jint> mBodyIds;
+    Array<jint> mConstraintStarts;
+    Array<jint> mConstraintIndices;
+
+    /*
+     * Pack the IDs of 2 bodies into a key that's independent of their order.
+     */
+    static uint64 PairKey(const BodyID& inId1, const BodyID& inId2) {
+        const uint64 id1 = inId1.GetIndexAndSequenceNumber();
+        const uint64 id2 = inId2.GetIndexAndSequenceNumber();
+        const uint64 result = (id1 < id2) ? (id1 << 32 | id2)
+                : (id2 << 32 | id1);
+        return result;
+    }
+
+    /*
+     * Copy the keys of all pairs currently in contact.
+     */
+    void GetPairs(Array<uint64>& outPairs) {
+        std::lock_guard<Mutex> guard(mMutex);
+        outPairs.clear();
+        outPairs.reserve(mManifoldCounts.size());
+        for (const auto& entry : mManifoldCounts) {
+            outPairs.push_back(entry.first);
+        }
+    }
+
+    /*
+     * Partition the active dynamic bodies of the specified system into
+     * islands.
+     */
+    jint BuildIslands(const PhysicsSystem& system) {
+        mBodyStarts.clear();
+        mBodyIds.clear();
+        mConstraintStarts.clear();
+        mConstraintIndices.clear();
+
+        BodyIDVector activeIds;
+        system.GetActiveBodies(EBodyType::RigidBody, activeIds);
+        const BodyLockInterface& lockInterface
+                = system.GetBodyLockInterfaceNoLock();
+        std::unordered_map<uint32, int> idToNode;
+        Array<BodyID> nodeIds;
+        for (const BodyID& id : activeIds) {
+            const BodyLockRead lock(lockInterface, id);
+            if (lock.Succeeded() && lock.GetBody().IsDynamic()) {
+                idToNode[id.GetIndexAndSequenceNumber()] = (int) nodeIds.size();
+                nodeIds.push_back(id);
+            }
+        }
+        const int numNodes = (int) nodeIds.size();
+        Array<int> parents(numNodes);
+        for (int i = 0; i < numNodes; ++i) {
+            parents[i] = i;
+        }
+        const auto findNode = [&idToNode](uint32 id) {
+            const auto iter = idToNode.find(id);
+            return (iter == idToNode.end()) ? -1 : iter->second;
+        };
+
+        Array<uint64> pairs;
+        GetPairs(pairs);
+        for (uint64 key : pairs) {
+            const int node1 = findNode(uint32(key >> 32));
+            const int node2 = findNode(uint32(key));
+            Union(parents, node1, node2);
+        }
+
+        const Constraints constraints = system.GetConstraints();
+        const int numConstraints = (int) constraints.size();
+        Array<int> constraintNodes(numConstraints, -1);
+        for (int i = 0; i < numConstraints; ++i) {
+            const Constraint& constraint = *constraints[i];
+            const EConstraintType type = constraint.GetType();
+            if (!constraint.GetEnabled()
+                    || type != EConstraintType::TwoBodyConstraint) {
+                continue;
+            }
+            const TwoBodyConstraint& twoBody
+                    = static_cast<const TwoBodyConstraint&> (constraint);
+            const int node1 = findNode(
+                    twoBody.GetBody1()->GetID().GetIndexAndSequenceNumber());
+            const int node2 = findNode(
+                    twoBody.GetBody2()->GetID().GetIndexAndSequenceNumber());
+            Union(parents, node1, node2);
+            constraintNodes[i] = (node1 >= 0) ? node1 : node2;
+        }
+
+        // Number the islands in order of their first body:
+        Array<int> rootToIsland(numNodes, -1);
+        Array<int> nodeIslands(numNodes);
+        int numIslands = 0;
+        for (int i = 0; i < numNodes; ++i) {
+            const int root = Find(parents, i);
+            if (rootToIsland[root] < 0) {
+                rootToIsland[root] = numIslands++;
+            }
+            nodeIslands[i] = rootToIsland[root];
+        }
+
+        // Group the bodies and constraints by island:
+        Array<int> constraintIslands(numConstraints, -1);
+        for (int i = 0; i < numConstraints; ++i) {
+            if (constraintNodes[i] >= 0) {
+                constraintIslands[i] = nodeIslands[constraintNodes[i]];
+            }
+        }
+        Array<int> nodeIndices(numNodes);
+        for (int i = 0; i < numNodes; ++i) {
+            nodeIndices[i] = i;
+        }
+        Group(nodeIslands, numIslands, mBodyStarts, nodeIndices);
+        for (int node : nodeIndices) {
+            mBodyIds.push_back(nodeIds[node].GetIndexAndSequenceNumber());
+        }
+        Array<int> constraintIndices(numConstraints);
+        for (int i = 0; i < numConstraints; ++i) {
+            constraintIndices[i] = i;
+        }
+        Group(constraintIslands, numIslands, mConstraintStarts,
+                constraintIndices);
+        for (int index : constraintIndices) {
+            mConstraintIndices.push_back(index);
+        }
+
+        return numIslands;
+    }
+
+    virtual ValidateResult OnContactValidate(const Body& inBody1,
+            const Body& inBody2, RVec3Arg inBaseOffset,
+            const CollideShapeResult& inCollisionResult) override {
+        if (mpNext == nullptr) {
+            return ValidateResult::AcceptAllContactsForThisBodyPair;
+        }
+        const ValidateResult result = mpNext->OnContactValidate(
+                inBody1, inBody2, inBaseOffset, inCollisionResult);
+        return result;
+    }
+
+    virtual void OnContactAdded(const Body& inBody1, const Body& inBody2,
+            const ContactManifold& inManifold,
+            ContactSettings& ioSettings) override {
+        if (!inBody1.IsSensor() && !inBody2.IsSensor()) {
+            const uint64 key = PairKey(inBody1.GetID(), inBody2.GetID());
+            std::lock_guard<Mutex> guard(mMutex);
+            ++mManifoldCounts[key];
+        }
+        if (mpNext != nullptr) {
+            mpNext->OnContactAdded(inBody1, inBody2, inManifold, ioSettings);
+        }
+    }
+
+    virtual void OnContactPersisted(const Body& inBody1, const Body& inBody2,
+            const ContactManifold& inManifold,
+            ContactSettings& ioSettings) override {
+        if (mpNext != nullptr) {
+            mpNext->OnContactPersisted(
+                    inBody1, inBody2, inManifold, ioSettings);
+        }
+    }
+
+    virtual void OnContactRemoved(const SubShapeIDPair& inPair) override {
+        const uint64 key = PairKey(inPair.GetBody1ID(), inPair.GetBody2ID());
+        {
+            std::lock_guard<Mutex> guard(mMutex);
+            const auto iter = mManifoldCounts.find(key);
+            if (iter != mManifoldCounts.end() && --iter->second <= 0) {
+                mManifoldCounts.erase(iter);
+            }
+        }
+        if (mpNext != nullptr) {
+            mpNext->OnContactRemoved(inPair);
+        }
+    }
+
+    int CountPairs() {
+        std::lock_guard<Mutex> guard(mMutex);
+        const int result = (int) mManifoldCounts.size();
+        return result;
+    }
+
+private:
+    Mutex mMutex;
+    // the number of contact manifolds between each pair of bodies:
+    std::unordered_map<uint64, int> mManifoldCounts;
+
+    /*
+     * Find the root of the specified node, compressing the path.
+     */
+    static int Find(Array<int>& ioParents, int inNode) {
+        while (ioParents[inNode] != inNode) {
+            ioParents[inNode] = ioParents[ioParents[inNode]];
+            inNode = ioParents[inNode];
+        }
+        return inNode;
+    }
+
+    /*
+     * Arrange the specified items by group (stable within each group),
+     * omitting those not in any group, and record the start of each group.
+     */
+    static void Group(const Array<int>& inGroups, int inNumGroups,
+            Array<jint>& outStarts, Array<int>& ioItems) {
+        outStarts.clear();
+        outStarts.resize(inNumGroups + 1, 0);
+        for (int group : inGroups) {
+            if (group >= 0) {
+                ++outStarts[group + 1];
+            }
+        }
+        for (int i = 0; i < inNumGroups; ++i) {
+            outStarts[i + 1] += outStarts[i];
+        }
+        Array<jint> next(inNumGroups);
+        for (int i = 0; i < inNumGroups; ++i) {
+            next[i] = outStarts[i];
+        }
+        Array<int> sorted(outStarts[inNumGroups]);
+        for (int item : ioItems) {
+            const int group = inGroups[item];
+            if (group >= 0) {
+                sorted[next[group]++] = item;
+            }
+        }
+        ioItems.swap(sorted);
+    }
+
+    /*
+     * Merge the sets containing the specified nodes, ignoring negative nodes.
+     */
+    static void Union(Array<int>& ioParents, int inNode1, int inNode2) {
+        if (inNode1 < 0 || inNode2 < 0) {
+            return;
+        }
+        const int root1 = Find(ioParents, inNode1);
+        const int root2 = Find(ioParents, inNode2);
+        if (root1 != root2) {
+            ioParents[std::max(root1, root2)] = std::min(root1, root2);
+        }
+    }
+};
+
+/*
+ * Class:     com_github_stephengold_joltjni_ContactGraphListener
+ * Method:    buildIslands
+ * Signature: (JJ)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_stephengold_joltjni_ContactGraphListener_buildIslands
+  (JNIEnv *, jclass, jlong listenerVa, jlong systemVa) {
+    ContactGraphListener * const pListener
+            = reinterpret_cast<ContactGraphListener *> (listenerVa);
+    const PhysicsSystem * const pSystem
+            = reinterpret_cast<PhysicsSystem *> (systemVa);
+    const jint result = pListener->BuildIslands(*pSystem);
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_ContactGraphListener
+ * Method:    countContactPairs
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_stephengold_joltjni_ContactGraphListener_countContactPairs
+  (JNIEnv *, jclass, jlong listenerVa) {
+    ContactGraphListener * const pListener
+            = reinterpret_cast<ContactGraphListener *> (listenerVa);
+    const jint result = pListener->CountPairs();
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_ContactGraphListener
+ * Method:    countIslandBodies
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_stephengold_joltjni_ContactGraphListener_countIslandBodies
+  (JNIEnv *, jclass, jlong listenerVa) {
+    ContactGraphListener * const pListener
+            = reinterpret_cast<ContactGraphListener *> (listenerVa);
+    const jint result = (jint) pListener->mBodyIds.size();
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_ContactGraphListener
+ * Method:    countIslandConstraints
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_stephengold_joltjni_ContactGraphListener_countIslandConstraints
+  (JNIEnv *, jclass, jlong listenerVa) {
+    ContactGraphListener * const pListener
+            = reinterpret_cast<ContactGraphListener *> (listenerVa);
+    const jint result = (jint) pListener->mConstraintIndices.size();
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_ContactGraphListener
+ * Method:    countIslands
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_stephengold_joltjni_ContactGraphListener_countIslands
+  (JNIEnv *, jclass, jlong listenerVa) {
+    ContactGraphListener * const pListener
+            = reinterpret_cast<ContactGraphListener *> (listenerVa);
+    const size_t numStarts = pListener->mBodyStarts.size();
+    const jint result = (numStarts == 0) ? 0 : jint(numStarts - 1);
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_ContactGraphListener
+ * Method:    createDefault
+ * Signature: ()J
+ */
+JNIEXPORT jlong JNICALL Java_com_github_stephengold_joltjni_ContactGraphListener_createDefault
+  (JNIEnv *, jclass) {
+    ContactGraphListener * const pResult = new ContactGraphListener();
+    TRACE_NEW("ContactGraphListener", pResult)
+    return reinterpret_cast<jlong> (pResult);
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_ContactGraphListener
+ * Method:    exportAdjacency
+ * Signature: (JLjava/nio/IntBuffer;ILjava/nio/IntBuffer;ILjava/nio/IntBuffer;I)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_stephengold_joltjni_ContactGraphListener_exportAdjacency
+  (JNIEnv *pEnv, jclass, jlong listenerVa, jobject storeBodyIds,
+  jint bodyPosition, jobject storeStarts, jint startPosition,
+  jobject storeNeighbors, jint neighborPosition) {
+    ContactGraphListener * const pListener
+            = reinterpret_cast<ContactGraphListener *> (listenerVa);
+    jint * const pBodyIds = (jint *) pEnv->GetDirectBufferAddress(
+            storeBodyIds) + bodyPosition;
+    JPH_ASSERT(!pEnv->ExceptionCheck());
+    jint * const pStarts = (jint *) pEnv->GetDirectBufferAddress(
+            storeStarts) + startPosition;
+    JPH_ASSERT(!pEnv->ExceptionCheck());
+    jint * const pNeighbors = (jint *) pEnv->GetDirectBufferAddress(
+            storeNeighbors) + neighborPosition;
+    JPH_ASSERT(!pEnv->ExceptionCheck());
+
+    // List both directions of each pair, sorted by body, then neighbor:
+    Array<uint64> pairs;
+    pListener->GetPairs(pairs);
+    Array<uint64> directed;
+    directed.reserve(2 * pairs.size());
+    for (uint64 key : pairs) {
+        directed.push_back(key);
+        directed.push_back(key << 32 | key >> 32);
+    }
+    std::sort(directed.begin(), directed.end());
+
+    jint result = 0;
+    jint numNeighbors = 0;
+    for (uint64 entry : directed) {
+        const jint bodyId = jint(entry >> 32);
+        if (result == 0 || pBodyIds[result - 1] != bodyId) {
+            pBodyIds[result] = bodyId;
+            pStarts[result] = numNeighbors;
+            ++result;
+        }
+        pNeighbors[numNeighbors] = jint(entry);
+        ++numNeighbors;
+    }
+    pStarts[result] = numNeighbors;
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_ContactGraphListener
+ * Method:    exportIslands
+ * Signature: (JLjava/nio/IntBuffer;ILjava/nio/IntBuffer;ILjava/nio/IntBuffer;ILjava/nio/IntBuffer;I)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_ContactGraphListener_exportIslands
+  (JNIEnv *pEnv, jclass, jlong listenerVa, jobject storeBodyStarts,
+  jint bodyStartPosition, jobject storeBodyIds, jint bodyPosition,
+  jobject storeConstraintStarts, jint constraintStartPosition,
+  jobject storeConstraintIndices, jint constraintPosition) {
+    ContactGraphListener * const pListener
+            = reinterpret_cast<ContactGraphListener *> (listenerVa);
+    const Array<jint> * const pArrays[] = {
+        &pListener->mBodyStarts, &pListener->mBodyIds,
+        &pListener->mConstraintStarts, &pListener->mConstraintIndices
+    };
+    const jobject buffers[] = {
+        storeBodyStarts, storeBodyIds, storeConstraintStarts,
+        storeConstraintIndices
+    };
+    const jint positions[] = {
+        bodyStartPosition, bodyPosition, constraintStartPosition,
+        constraintPosition
+    };
+    for (int i = 0; i < 4; ++i) {
+        jint * const pStore = (jint *) pEnv->GetDirectBufferAddress(buffers[i])
+                + positions[i];
+        JPH_ASSERT(!pEnv->ExceptionCheck());
+        const Array<jint>& array = *pArrays[i];
+        std::copy(array.begin(), array.end(), pStore);
+    }
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_ContactGraphListener
+ * Method:    setNext
+ * Signature: (JJ)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_ContactGraphListener_setNext
+  (JNIEnv *, jclass, jlong listenerVa, jlong nextVa) {
+    ContactGraphListener * const pListener
+            = reinterpret_cast<ContactGraphListener *> (listenerVa);
+    pListener->mpNext = reinterpret_cast<ContactListener *> (nextVa);
+}
@@ -0,0 +1,62 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+/*
+ * Author: Stephen Gold
+ */
+#include "Jolt/Jolt.h"
+#include "Jolt/Geometry/ConvexHullBuilder.h"
+#include "auto/com_github_stephengold_joltjni_ConvexDecomposition.h"
+#include "glue/glue.h"
+
+using namespace JPH;
+
+/*
+ * Class:     com_github_stephengold_joltjni_ConvexDecomposition
+ * Method:    hullVolume
+ * Signature: (Ljava/nio/FloatBuffer;IF)F
+ */
+JNIEXPORT jfloat JNICALL Java_com_github_stephengold_joltjni_ConvexDecomposition_hullVolume
+  (JNIEnv *pEnv, jclass, jobject pointBuffer, jint maxVertices,
+  jfloat tolerance) {
+    const jfloat * const pPoints
+            = (jfloat *) pEnv->GetDirectBufferAddress(pointBuffer);
+    const jlong numFloats = pEnv->GetDirectBufferCapacity(pointBuffer);
+    const int numPoints = numFloats / 3;
+    Array<Vec3> points;
+    points.reserve(numPoints);
+    for (int i = 0; i < numPoints; ++i) {
+        const Vec3 point(pPoints[3 * i], pPoints[3 * i + 1], pPoints[3 * i + 2]);
+        points.push_back(point);
+    }
+    ConvexHullBuilder builder(points);
+    const char *pMessage;
+    const ConvexHullBuilder::EResult outcome
+            = builder.Initialize(maxVertices, tolerance, pMessage);
+    if (outcome != ConvexHullBuilder::EResult::Success
+            && outcome != ConvexHullBuilder::EResult::MaxVerticesReached) {
+        return 0;
+    }
+    Vec3 com;
+    float result;
+    builder.GetCenterOfMassAndVolume(com, result);
+    return result;
+}
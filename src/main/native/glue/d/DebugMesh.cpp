@@ -0,0 +1,300 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+/*
+ * Author: Stephen Gold
+ */
+#include "Jolt/Jolt.h"
+#include "Jolt/Geometry/Indexify.h"
+#include "Jolt/Physics/Collision/CollisionCollectorImpl.h"
+#include "Jolt/Physics/Collision/Shape/CapsuleShape.h"
+#include "Jolt/Physics/Collision/Shape/CylinderShape.h"
+#include "Jolt/Physics/Collision/Shape/SphereShape.h"
+#include "Jolt/Physics/Collision/TransformedShape.h"
+
+#include "auto/com_github_stephengold_joltjni_DebugMesh.h"
+#include "glue/glue.h"
+
+using namespace JPH;
+
+/*
+ * Faces that meet at a sharper angle than this get separate vertex normals.
+ */
+static const float cCosCreaseAngle = 0.5f; // cos(60 degrees)
+
+struct DebugMeshData {
+    VertexList mVertices;
+    Array<Float3> mNormals;
+    IndexedTriangleList mTriangles;
+};
+
+/*
+ * Append triangles for a surface of revolution around the local Y axis.
+ * The profile is a list of (radius, y) pairs from bottom to top.
+ */
+static void AddLathe(const Array<Float2>& profile, int numSegments,
+        Mat44Arg transform, TriangleList& ioTriangles) {
+    const float step = JPH_PI * 2.0f / numSegments;
+    for (size_t i = 0; i + 1 < profile.size(); ++i) {
+        const Float2 lower = profile[i];
+        const Float2 upper = profile[i + 1];
+        for (int j = 0; j < numSegments; ++j) {
+            const float c0 = Cos(j * step);
+            const float s0 = Sin(j * step);
+            const float c1 = Cos((j + 1) * step);
+            const float s1 = Sin((j + 1) * step);
+            Float3 a, b, c, d;
+            const Vec3 va(lower.x * c0, lower.y, lower.x * s0);
+            const Vec3 vb(lower.x * c1, lower.y, lower.x * s1);
+            const Vec3 vc(upper.x * c1, upper.y, upper.x * s1);
+            const Vec3 vd(upper.x * c0, upper.y, upper.x * s0);
+            (transform * va).StoreFloat3(&a);
+            (transform * vb).StoreFloat3(&b);
+            (transform * vc).StoreFloat3(&c);
+            (transform * vd).StoreFloat3(&d);
+            if (lower.x > 0.0f) {
+                ioTriangles.push_back(Triangle(a, c, b));
+            }
+            if (upper.x > 0.0f) {
+                ioTriangles.push_back(Triangle(a, d, c));
+            }
+        }
+    }
+}
+
+/*
+ * Append a hemisphere profile from its pole to its equator (or the reverse).
+ */
+static void AddHemisphere(float radius, float centerY, bool top,
+        int numRings, Array<Float2>& ioProfile) {
+    for (int i = 0; i <= numRings; ++i) {
+        const float angle = 0.5f * JPH_PI * i / numRings;
+        if (top) {
+            ioProfile.push_back(Float2(radius * Cos(angle),
+                    centerY + radius * Sin(angle)));
+        } else {
+            ioProfile.push_back(Float2(radius * Sin(angle),
+                    centerY - radius * Cos(angle)));
+        }
+    }
+}
+
+/*
+ * Append triangles for a round shape using the specified number of segments.
+ * Returns false if the shape isn't a sphere, capsule, or cylinder.
+ */
+static bool AddRoundShape(const Shape *pShape, int numSegments,
+        Mat44Arg transform, TriangleList& ioTriangles) {
+    const int numRings = std::max(numSegments / 4, 1);
+    Array<Float2> profile;
+    switch (pShape->GetSubType()) {
+        case EShapeSubType::Sphere: {
+            const float radius
+                    = static_cast<const SphereShape *> (pShape)->GetRadius();
+            AddHemisphere(radius, 0.0f, false, numRings, profile);
+            profile.pop_back();
+            AddHemisphere(radius, 0.0f, true, numRings, profile);
+            break;
+        }
+        case EShapeSubType::Capsule: {
+            const CapsuleShape * const pCapsule
+                    = static_cast<const CapsuleShape *> (pShape);
+            const float radius = pCapsule->GetRadius();
+            const float halfHeight = pCapsule->GetHalfHeightOfCylinder();
+            AddHemisphere(radius, -halfHeight, false, numRings, profile);
+            AddHemisphere(radius, halfHeight, true, numRings, profile);
+            break;
+        }
+        case EShapeSubType::Cylinder: {
+            const CylinderShape * const pCylinder
+                    = static_cast<const CylinderShape *> (pShape);
+            const float radius = pCylinder->GetRadius();
+            const float halfHeight = pCylinder->GetHalfHeight();
+            profile.push_back(Float2(0.0f, -halfHeight));
+            profile.push_back(Float2(radius, -halfHeight));
+            profile.push_back(Float2(radius, halfHeight));
+            profile.push_back(Float2(0.0f, halfHeight));
+            break;
+        }
+        default:
+            return false;
+    }
+    AddLathe(profile, numSegments, transform, ioTriangles);
+    return true;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_DebugMesh
+ * Method:    copyAndFree
+ * Signature: (JLjava/nio/FloatBuffer;Ljava/nio/FloatBuffer;Ljava/nio/IntBuffer;)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_DebugMesh_copyAndFree
+  (JNIEnv *pEnv, jclass, jlong meshVa, jobject storePositions,
+  jobject storeNormals, jobject storeIndices) {
+    DebugMeshData * const pMesh = reinterpret_cast<DebugMeshData *> (meshVa);
+    jfloat * const pPositions
+            = (jfloat *) pEnv->GetDirectBufferAddress(storePositions);
+    jfloat * const pNormals
+            = (jfloat *) pEnv->GetDirectBufferAddress(storeNormals);
+    jint * const pIndices
+            = (jint *) pEnv->GetDirectBufferAddress(storeIndices);
+    const size_t numVertices = pMesh->mVertices.size();
+    for (size_t i = 0; i < numVertices; ++i) {
+        const Float3& position = pMesh->mVertices[i];
+        pPositions[3 * i] = position.x;
+        pPositions[3 * i + 1] = position.y;
+        pPositions[3 * i + 2] = position.z;
+        const Float3& normal = pMesh->mNormals[i];
+        pNormals[3 * i] = normal.x;
+        pNormals[3 * i + 1] = normal.y;
+        pNormals[3 * i + 2] = normal.z;
+    }
+    const size_t numTriangles = pMesh->mTriangles.size();
+    for (size_t i = 0; i < numTriangles; ++i) {
+        const IndexedTriangle& triangle = pMesh->mTriangles[i];
+        pIndices[3 * i] = triangle.mIdx[0];
+        pIndices[3 * i + 1] = triangle.mIdx[1];
+        pIndices[3 * i + 2] = triangle.mIdx[2];
+    }
+    TRACE_DELETE("DebugMeshData", pMesh)
+    delete pMesh;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_DebugMesh
+ * Method:    countIndices
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_stephengold_joltjni_DebugMesh_countIndices
+  (JNIEnv *, jclass, jlong meshVa) {
+    const DebugMeshData * const pMesh
+            = reinterpret_cast<DebugMeshData *> (meshVa);
+    const size_t result = 3 * pMesh->mTriangles.size();
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_DebugMesh
+ * Method:    countVertices
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_stephengold_joltjni_DebugMesh_countVertices
+  (JNIEnv *, jclass, jlong meshVa) {
+    const DebugMeshData * const pMesh
+            = reinterpret_cast<DebugMeshData *> (meshVa);
+    const size_t result = pMesh->mVertices.size();
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_DebugMesh
+ * Method:    create
+ * Signature: (JI)J
+ */
+JNIEXPORT jlong JNICALL Java_com_github_stephengold_joltjni_DebugMesh_create
+  (JNIEnv *, jclass, jlong shapeVa, jint numSegments) {
+    const Shape * const pShape = reinterpret_cast<Shape *> (shapeVa);
+    AllHitCollisionCollector<TransformedShapeCollector> collector;
+    pShape->CollectTransformedShapes(AABox::sBiggest(),
+            Vec3::sZero(), Quat::sIdentity(), Vec3::sReplicate(1.0f),
+            SubShapeIDCreator(), collector, ShapeFilter());
+    TriangleList triangles;
+    for (const TransformedShape& transformedShape : collector.mHits) {
+        const Shape * const pSh = transformedShape.mShape;
+        const Vec3 position(transformedShape.mShapePositionCOM);
+        const Quat rotation = transformedShape.mShapeRotation;
+        const Vec3 scale = transformedShape.GetShapeScale();
+        if (numSegments >= 3) {
+            const Mat44 transform = Mat44::sRotationTranslation(
+                    rotation, position) * Mat44::sScale(scale);
+            if (AddRoundShape(pSh, numSegments, transform, triangles)) {
+                continue;
+            }
+        }
+        Shape::GetTrianglesContext context;
+        pSh->GetTrianglesStart(
+                context, AABox::sBiggest(), position, rotation, scale);
+        for (;;) {
+            constexpr int cMaxTriangles = 1000;
+            Float3 vertices[3 * cMaxTriangles];
+            const int numTrianglesCopied
+                    = pSh->GetTrianglesNext(context, cMaxTriangles, vertices);
+            if (numTrianglesCopied == 0) {
+                break;
+            }
+            for (int i = 0; i < numTrianglesCopied; ++i) {
+                triangles.push_back(Triangle(vertices[3 * i],
+                        vertices[3 * i + 1], vertices[3 * i + 2]));
+            }
+        }
+    }
+
+    VertexList welded;
+    IndexedTriangleList weldedTriangles;
+    Indexify(triangles, welded, weldedTriangles);
+    /*
+     * Split each welded vertex into one vertex per group of faces whose
+     * normals lie within the crease angle, then accumulate area-weighted
+     * face normals in each group:
+     */
+    DebugMeshData * const pResult = new DebugMeshData();
+    TRACE_NEW("DebugMeshData", pResult)
+    Array<Array<uint32>> splits(welded.size());
+    Array<Vec3> sums;
+    pResult->mTriangles.reserve(weldedTriangles.size());
+    for (const IndexedTriangle& triangle : weldedTriangles) {
+        const Vec3 v0(welded[triangle.mIdx[0]]);
+        const Vec3 v1(welded[triangle.mIdx[1]]);
+        const Vec3 v2(welded[triangle.mIdx[2]]);
+        const Vec3 faceNormal = (v1 - v0).Cross(v2 - v0);
+        const Vec3 faceDirection = faceNormal.NormalizedOr(Vec3::sZero());
+        IndexedTriangle split = triangle;
+        for (int j = 0; j < 3; ++j) {
+            Array<uint32>& candidates = splits[triangle.mIdx[j]];
+            uint32 index = ~uint32(0);
+            for (uint32 candidate : candidates) {
+                const Vec3 direction
+                        = sums[candidate].NormalizedOr(faceDirection);
+                if (faceDirection.IsNearZero()
+                        || direction.Dot(faceDirection) >= cCosCreaseAngle) {
+                    index = candidate;
+                    break;
+                }
+            }
+            if (index == ~uint32(0)) {
+                index = (uint32) pResult->mVertices.size();
+                pResult->mVertices.push_back(welded[triangle.mIdx[j]]);
+                sums.push_back(Vec3::sZero());
+                candidates.push_back(index);
+            }
+            sums[index] += faceNormal;
+            split.mIdx[j] = index;
+        }
+        pResult->mTriangles.push_back(split);
+    }
+    pResult->mNormals.reserve(sums.size());
+    for (const Vec3& sum : sums) {
+        Float3 normal;
+        sum.NormalizedOr(Vec3::sAxisY()).StoreFloat3(&normal);
+        pResult->mNormals.push_back(normal);
+    }
+    return reinterpret_cast<jlong> (pResult);
+}
@@ -0,0 +1,325 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+/*
+ * Author: Stephen Gold
+ */
+#include "Jolt/Jolt.h"
+#include "Jolt/Core/Mutex.h"
+#include "Jolt/Physics/Collision/CollisionCollectorImpl.h"
+#include "Jolt/Physics/PhysicsStepListener.h"
+#include "Jolt/Physics/PhysicsSystem.h"
+#include "auto/com_github_stephengold_joltjni_FluidVolumeListener.h"
+#include "glue/glue.h"
+
+#include <algorithm>
+#include <mutex>
+
+using namespace JPH;
+
+/*
+ * A step listener that applies buoyancy and drag to the active dynamic bodies
+ * overlapping its fluid volumes. The volumes are guarded by a mutex, so
+ * they can be added or modified while the system is being updated.
+ */
+class FluidVolumeListener : public PhysicsStepListener {
+public:
+    /*
+     * a region of fluid with a planar or height-field surface
+     */
+    struct Volume {
+        AABox mBounds;
+        Array<float> mHeights; // empty for a planar surface
+        bool mEnabled = true;
+        float mAngularDrag;
+        float mCellSize = 0.0f;
+        float mDensity;
+        float mLinearDrag;
+        int mNumX = 0;
+        int mNumZ = 0;
+        RVec3 mOrigin; // a surface point, or sample (0,0) at height 0
+        Vec3 mFlowVelocity = Vec3::sZero();
+        Vec3 mNormal = Vec3::sAxisY();
+
+        /*
+         * Determine the fluid's surface above or below the specified location.
+         * Height fields assume +Y is up: heights are measured along the Y
+         * axis and sampled in the X-Z plane.
+         */
+        void GetSurface(RVec3Arg inLocation, RVec3& outPoint,
+                Vec3& outNormal) const {
+            if (mHeights.empty()) {
+                outPoint = mOrigin;
+                outNormal = mNormal;
+                return;
+            }
+
+            const float maxX = float(mNumX - 1);
+            const float maxZ = float(mNumZ - 1);
+            const float fx = Clamp(float(inLocation.GetX() - mOrigin.GetX())
+                    / mCellSize, 0.0f, maxX);
+            const float fz = Clamp(float(inLocation.GetZ() - mOrigin.GetZ())
+                    / mCellSize, 0.0f, maxZ);
+            const int ix = std::min(int(fx), mNumX - 2);
+            const int iz = std::min(int(fz), mNumZ - 2);
+            const float tx = fx - float(ix);
+            const float tz = fz - float(iz);
+
+            const size_t i00 = ix + size_t(mNumX) * iz;
+            const float h00 = mHeights[i00];
+            const float h10 = mHeights[i00 + 1];
+            const float h01 = mHeights[i00 + mNumX];
+            const float h11 = mHeights[i00 + mNumX + 1];
+            const float h0 = h00 + tx * (h10 - h00);
+            const float h1 = h01 + tx * (h11 - h01);
+            const float height = h0 + tz * (h1 - h0);
+            const float dhdx = ((h10 - h00) * (1.0f - tz)
+                    + (h11 - h01) * tz) / mCellSize;
+            const float dhdz = ((h01 - h00) * (1.0f - tx)
+                    + (h11 - h10) * tx) / mCellSize;
+
+            outPoint = RVec3(inLocation.GetX(), mOrigin.GetY() + height,
+                    inLocation.GetZ());
+            outNormal = Vec3(-dhdx, 1.0f, -dhdz).Normalized();
+        }
+    };
+
+    std::atomic<int> mNumSubmerged{0};
+    Array<Volume> mVolumes;
+    Mutex mMutex;
+
+    /*
+     * Apply buoyancy and drag to all active dynamic bodies in the volumes.
+     */
+    virtual void OnStep(const PhysicsStepListenerContext& inContext) override {
+        PhysicsSystem& system = *inContext.mPhysicsSystem;
+        const BroadPhaseQuery& query = system.GetBroadPhaseQuery();
+        const BodyLockInterface& lockInterface
+                = system.GetBodyLockInterfaceNoLock();
+        const Vec3 gravity = system.GetGravity();
+        const float deltaTime = inContext.mDeltaTime;
+
+        std::lock_guard<Mutex> guard(mMutex);
+        // A body in several volumes is submerged only once:
+        Array<BodyID> submerged;
+        for (const Volume& volume : mVolumes) {
+            if (!volume.mEnabled) {
+                continue;
+            }
+            AllHitCollisionCollector<CollideShapeBodyCollector> collector;
+            query.CollideAABox(volume.mBounds, collector);
+            for (const BodyID& id : collector.mHits) {
+                BodyLockWrite lock(lockInterface, id);
+                if (!lock.Succeeded()) {
+                    continue;
+                }
+                Body& body = lock.GetBody();
+                if (!body.IsActive() || !body.IsDynamic()
+                        || !body.IsRigidBody()) {
+                    continue;
+                }
+                const float invMass
+                        = body.GetMotionProperties()->GetInverseMass();
+                if (invMass == 0.0f) {
+                    continue;
+                }
+                const float bodyVolume = body.GetShape()->GetVolume();
+                const float buoyancy = volume.mDensity * bodyVolume * invMass;
+                RVec3 surfacePoint;
+                Vec3 surfaceNormal;
+                volume.GetSurface(body.GetCenterOfMassPosition(),
+                        surfacePoint, surfaceNormal);
+                if (body.ApplyBuoyancyImpulse(surfacePoint, surfaceNormal,
+                        buoyancy, volume.mLinearDrag, volume.mAngularDrag,
+                        volume.mFlowVelocity, gravity, deltaTime)) {
+                    submerged.push_back(id);
+                }
+            }
+        }
+        std::sort(submerged.begin(), submerged.end());
+        const auto end = std::unique(submerged.begin(), submerged.end());
+        mNumSubmerged = int(end - submerged.begin());
+    }
+};
+
+/*
+ * Class:     com_github_stephengold_joltjni_FluidVolumeListener
+ * Method:    addHeightField
+ * Signature: (JDDDFII[FFFFF)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_stephengold_joltjni_FluidVolumeListener_addHeightField
+  (JNIEnv *pEnv, jclass, jlong listenerVa, jdouble xx, jdouble yy,
+  jdouble zz, jfloat cellSize, jint numX, jint numZ, jfloatArray heights,
+  jfloat depth, jfloat density, jfloat linearDrag, jfloat angularDrag) {
+    FluidVolumeListener * const pListener
+            = reinterpret_cast<FluidVolumeListener *> (listenerVa);
+    FluidVolumeListener::Volume volume;
+    volume.mAngularDrag = angularDrag;
+    volume.mCellSize = cellSize;
+    volume.mDensity = density;
+    volume.mLinearDrag = linearDrag;
+    volume.mNumX = numX;
+    volume.mNumZ = numZ;
+    volume.mOrigin = RVec3(xx, yy, zz);
+
+    const size_t numSamples = size_t(numX) * numZ;
+    volume.mHeights.resize(numSamples);
+    jboolean isCopy;
+    jfloat * const pHeights = pEnv->GetFloatArrayElements(heights, &isCopy);
+    float minHeight = pHeights[0];
+    float maxHeight = pHeights[0];
+    for (size_t i = 0; i < numSamples; ++i) {
+        volume.mHeights[i] = pHeights[i];
+        minHeight = std::min(minHeight, pHeights[i]);
+        maxHeight = std::max(maxHeight, pHeights[i]);
+    }
+    pEnv->ReleaseFloatArrayElements(heights, pHeights, JNI_ABORT);
+
+    const Vec3 min(float(xx), float(yy) + minHeight - depth, float(zz));
+    const Vec3 max(float(xx) + cellSize * (numX - 1), float(yy) + maxHeight,
+            float(zz) + cellSize * (numZ - 1));
+    volume.mBounds = AABox(min, max);
+
+    std::lock_guard<Mutex> guard(pListener->mMutex);
+    const jint result = pListener->mVolumes.size();
+    pListener->mVolumes.push_back(volume);
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_FluidVolumeListener
+ * Method:    addPlane
+ * Signature: (JJDDDFFFFFF)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_stephengold_joltjni_FluidVolumeListener_addPlane
+  (JNIEnv *, jclass, jlong listenerVa, jlong boundsVa, jdouble xx,
+  jdouble yy, jdouble zz, jfloat nx, jfloat ny, jfloat nz, jfloat density,
+  jfloat linearDrag, jfloat angularDrag) {
+    FluidVolumeListener * const pListener
+            = reinterpret_cast<FluidVolumeListener *> (listenerVa);
+    const AABox * const pBounds = reinterpret_cast<AABox *> (boundsVa);
+    FluidVolumeListener::Volume volume;
+    volume.mAngularDrag = angularDrag;
+    volume.mBounds = *pBounds;
+    volume.mDensity = density;
+    volume.mLinearDrag = linearDrag;
+    volume.mNormal = Vec3(nx, ny, nz);
+    volume.mOrigin = RVec3(xx, yy, zz);
+
+    std::lock_guard<Mutex> guard(pListener->mMutex);
+    const jint result = pListener->mVolumes.size();
+    pListener->mVolumes.push_back(volume);
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_FluidVolumeListener
+ * Method:    countSubmergedBodies
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_stephengold_joltjni_FluidVolumeListener_countSubmergedBodies
+  (JNIEnv *, jclass, jlong listenerVa) {
+    const FluidVolumeListener * const pListener
+            = reinterpret_cast<FluidVolumeListener *> (listenerVa);
+    const jint result = pListener->mNumSubmerged;
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_FluidVolumeListener
+ * Method:    countVolumes
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_stephengold_joltjni_FluidVolumeListener_countVolumes
+  (JNIEnv *, jclass, jlong listenerVa) {
+    FluidVolumeListener * const pListener
+            = reinterpret_cast<FluidVolumeListener *> (listenerVa);
+    std::lock_guard<Mutex> guard(pListener->mMutex);
+    const jint result = pListener->mVolumes.size();
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_FluidVolumeListener
+ * Method:    createDefault
+ * Signature: ()J
+ */
+JNIEXPORT jlong JNICALL Java_com_github_stephengold_joltjni_FluidVolumeListener_createDefault
+  (JNIEnv *, jclass) {
+    FluidVolumeListener * const pResult = new FluidVolumeListener();
+    TRACE_NEW("FluidVolumeListener", pResult)
+    return reinterpret_cast<jlong> (pResult);
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_FluidVolumeListener
+ * Method:    free
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_FluidVolumeListener_free
+  (JNIEnv *, jclass, jlong listenerVa) {
+    FluidVolumeListener * const pListener
+            = reinterpret_cast<FluidVolumeListener *> (listenerVa);
+    TRACE_DELETE("FluidVolumeListener", pListener)
+    delete pListener;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_FluidVolumeListener
+ * Method:    onStep
+ * Signature: (JJ)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_FluidVolumeListener_onStep
+  (JNIEnv *, jclass, jlong listenerVa, jlong contextVa) {
+    FluidVolumeListener * const pListener
+            = reinterpret_cast<FluidVolumeListener *> (listenerVa);
+    const PhysicsStepListenerContext * const pContext
+            = reinterpret_cast<PhysicsStepListenerContext *> (contextVa);
+    pListener->OnStep(*pContext);
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_FluidVolumeListener
+ * Method:    setEnabled
+ * Signature: (JIZ)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_FluidVolumeListener_setEnabled
+  (JNIEnv *, jclass, jlong listenerVa, jint volumeIndex, jboolean enable) {
+    FluidVolumeListener * const pListener
+            = reinterpret_cast<FluidVolumeListener *> (listenerVa);
+    std::lock_guard<Mutex> guard(pListener->mMutex);
+    pListener->mVolumes[volumeIndex].mEnabled = enable;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_FluidVolumeListener
+ * Method:    setFlowVelocity
+ * Signature: (JIFFF)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_FluidVolumeListener_setFlowVelocity
+  (JNIEnv *, jclass, jlong listenerVa, jint volumeIndex, jfloat vx,
+  jfloat vy, jfloat vz) {
+    FluidVolumeListener * const pListener
+            = reinterpret_cast<FluidVolumeListener *> (listenerVa);
+    std::lock_guard<Mutex> guard(pListener->mMutex);
+    pListener->mVolumes[volumeIndex].mFlowVelocity = Vec3(vx, vy, vz);
+}
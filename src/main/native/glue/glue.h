@@ -43,6 +43,11 @@ extern bool gTraceAllocations;
 #define TRACE_DELETE(className, pointer)
 #endif
 
+// set by Jolt.registerTrackingAllocator():
+extern bool gTrackingAllocatorRegistered;
+// net bytes allocated on the current thread by the tracking allocator:
+extern thread_local JPH::int64 gThreadTrackedBytes;
+
 #define IMPLEMENT_REF(className, copyName, createName, freeName, getPtrName) \
   JNIEXPORT jlong JNICALL copyName(JNIEnv *, jclass, jlong refVa) { \
     Ref<className> * const pRef = reinterpret_cast<Ref<className> *> (refVa); \
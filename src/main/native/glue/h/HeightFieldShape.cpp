@@ -42,6 +42,36 @@ JNIEXPORT jint JNICALL Java_com_github_stephengold_joltjni_HeightFieldShape_getB
     return result;
 }
 
+/*
+ * Class:     com_github_stephengold_joltjni_HeightFieldShape
+ * Method:    getHeights
+ * Signature: (JIIIILjava/nio/FloatBuffer;I)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_HeightFieldShape_getHeights
+  (JNIEnv *pEnv, jclass, jlong shapeVa, jint startX, jint startY, jint sizeX,
+  jint sizeY, jobject floatBuffer, jint stride) {
+    const HeightFieldShape * const pShape
+            = reinterpret_cast<HeightFieldShape *> (shapeVa);
+    float * const pHeightArray
+            = (jfloat *) pEnv->GetDirectBufferAddress(floatBuffer);
+    pShape->GetHeights(startX, startY, sizeX, sizeY, pHeightArray, stride);
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_HeightFieldShape
+ * Method:    getMaterials
+ * Signature: (JIIIILjava/nio/ByteBuffer;I)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_HeightFieldShape_getMaterials
+  (JNIEnv *pEnv, jclass, jlong shapeVa, jint startX, jint startY, jint sizeX,
+  jint sizeY, jobject byteBuffer, jint stride) {
+    const HeightFieldShape * const pShape
+            = reinterpret_cast<HeightFieldShape *> (shapeVa);
+    uint8 * const pMaterialArray
+            = (uint8 *) pEnv->GetDirectBufferAddress(byteBuffer);
+    pShape->GetMaterials(startX, startY, sizeX, sizeY, pMaterialArray, stride);
+}
+
 /*
  * Class:     com_github_stephengold_joltjni_HeightFieldShape
  * Method:    getPositionX
@@ -81,6 +111,19 @@ JNIEXPORT jfloat JNICALL Java_com_github_stephengold_joltjni_HeightFieldShape_ge
     return result;
 }
 
+/*
+ * Class:     com_github_stephengold_joltjni_HeightFieldShape
+ * Method:    getSampleCount
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_stephengold_joltjni_HeightFieldShape_getSampleCount
+  (JNIEnv *, jclass, jlong shapeVa) {
+    const HeightFieldShape * const pShape
+            = reinterpret_cast<HeightFieldShape *> (shapeVa);
+    const uint result = pShape->GetSampleCount();
+    return result;
+}
+
 /*
  * Class:     com_github_stephengold_joltjni_HeightFieldShape
  * Method:    isNoCollision
@@ -35,6 +35,9 @@ SOFTWARE.
 
 #include "auto/com_github_stephengold_joltjni_Jolt.h"
 #include "glue/glue.h"
+#include <atomic>
+#include <cstdlib>
+#include <cstring>
 #include <iostream>
 
 using namespace JPH;
@@ -208,6 +211,109 @@ JNIEXPORT jboolean JNICALL Java_com_github_stephengold_joltjni_Jolt_isDoublePrec
 #endif
 }
 
+// counters maintained by the tracking allocator:
+static std::atomic<int64> gTrackedBlocks(0);
+static std::atomic<int64> gTrackedBytes(0);
+static std::atomic<int64> gPeakTrackedBytes(0);
+bool gTrackingAllocatorRegistered = false;
+thread_local int64 gThreadTrackedBytes = 0;
+
+/*
+ * Header that precedes each block issued by the tracking allocator:
+ */
+struct alignas(16) TrackedBlockHeader {
+    void *mpBase; // the address returned by malloc()
+    size_t mSize; // the number of bytes requested
+};
+
+static void *TrackedAlignedAllocate(size_t inSize, size_t inAlignment) {
+    if (inAlignment < alignof(TrackedBlockHeader)) {
+        inAlignment = alignof(TrackedBlockHeader);
+    }
+    void * const pBase
+            = malloc(inSize + inAlignment + sizeof(TrackedBlockHeader));
+    if (pBase == nullptr) {
+        return nullptr;
+    }
+    uintptr_t address = reinterpret_cast<uintptr_t> (pBase)
+            + sizeof(TrackedBlockHeader);
+    address = (address + inAlignment - 1) & ~uintptr_t(inAlignment - 1);
+    TrackedBlockHeader * const pHeader
+            = reinterpret_cast<TrackedBlockHeader *> (address) - 1;
+    pHeader->mpBase = pBase;
+    pHeader->mSize = inSize;
+
+    ++gTrackedBlocks;
+    const int64 bytes = gTrackedBytes.fetch_add(inSize) + int64(inSize);
+    int64 peak = gPeakTrackedBytes.load();
+    while (bytes > peak
+            && !gPeakTrackedBytes.compare_exchange_weak(peak, bytes)) {
+    }
+    gThreadTrackedBytes += inSize;
+
+    return reinterpret_cast<void *> (address);
+}
+
+static void *TrackedAllocate(size_t inSize) {
+    return TrackedAlignedAllocate(inSize, alignof(TrackedBlockHeader));
+}
+
+static void TrackedFree(void *inBlock) {
+    if (inBlock == nullptr) {
+        return;
+    }
+    const TrackedBlockHeader * const pHeader
+            = reinterpret_cast<TrackedBlockHeader *> (inBlock) - 1;
+    const size_t size = pHeader->mSize;
+    --gTrackedBlocks;
+    gTrackedBytes -= size;
+    gThreadTrackedBytes -= size;
+    free(pHeader->mpBase);
+}
+
+static void *TrackedReallocate(
+        void *inBlock, size_t inOldSize, size_t inNewSize) {
+    void * const pResult = TrackedAllocate(inNewSize);
+    if (inBlock != nullptr && pResult != nullptr) {
+        memcpy(pResult, inBlock, std::min(inOldSize, inNewSize));
+        TrackedFree(inBlock);
+    }
+    return pResult;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_Jolt
+ * Method:    nativeBlocksInUse
+ * Signature: ()J
+ */
+JNIEXPORT jlong JNICALL Java_com_github_stephengold_joltjni_Jolt_nativeBlocksInUse
+  (JNIEnv *, jclass) {
+    const int64 result = gTrackedBlocks.load();
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_Jolt
+ * Method:    nativeBytesInUse
+ * Signature: ()J
+ */
+JNIEXPORT jlong JNICALL Java_com_github_stephengold_joltjni_Jolt_nativeBytesInUse
+  (JNIEnv *, jclass) {
+    const int64 result = gTrackedBytes.load();
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_Jolt
+ * Method:    peakNativeBytes
+ * Signature: ()J
+ */
+JNIEXPORT jlong JNICALL Java_com_github_stephengold_joltjni_Jolt_peakNativeBytes
+  (JNIEnv *, jclass) {
+    const int64 result = gPeakTrackedBytes.load();
+    return result;
+}
+
 /*
  * Class:     com_github_stephengold_joltjni_Jolt
  * Method:    perlinNoise3
@@ -286,6 +392,21 @@ JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_Jolt_registerDefaultA
     RegisterDefaultAllocator();
 }
 
+/*
+ * Class:     com_github_stephengold_joltjni_Jolt
+ * Method:    registerTrackingAllocator
+ * Signature: ()V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_Jolt_registerTrackingAllocator
+  (JNIEnv *, jclass) {
+    Allocate = TrackedAllocate;
+    Reallocate = TrackedReallocate;
+    Free = TrackedFree;
+    AlignedAllocate = TrackedAlignedAllocate;
+    AlignedFree = TrackedFree;
+    gTrackingAllocatorRegistered = true;
+}
+
 /*
  * Class:     com_github_stephengold_joltjni_Jolt
  * Method:    registerTypes
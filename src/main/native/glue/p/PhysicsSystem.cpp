@@ -26,12 +26,86 @@ SOFTWARE.
 #include "Jolt/Jolt.h"
 #include "Jolt/Core/JobSystemThreadPool.h"
 #include "Jolt/Physics/PhysicsSystem.h"
+#include "Jolt/Physics/Body/BodyLock.h"
+#include "Jolt/Physics/Collision/BroadPhase/BroadPhaseQuadTree.h"
+#include "Jolt/Physics/Constraints/ConeConstraint.h"
+#include "Jolt/Physics/Constraints/DistanceConstraint.h"
+#include "Jolt/Physics/Constraints/FixedConstraint.h"
+#include "Jolt/Physics/Constraints/GearConstraint.h"
+#include "Jolt/Physics/Constraints/HingeConstraint.h"
+#include "Jolt/Physics/Constraints/PathConstraint.h"
+#include "Jolt/Physics/Constraints/PointConstraint.h"
+#include "Jolt/Physics/Constraints/PulleyConstraint.h"
+#include "Jolt/Physics/Constraints/RackAndPinionConstraint.h"
+#include "Jolt/Physics/Constraints/SixDOFConstraint.h"
+#include "Jolt/Physics/Constraints/SliderConstraint.h"
+#include "Jolt/Physics/Constraints/SwingTwistConstraint.h"
+#include "Jolt/Physics/SoftBody/SoftBodyMotionProperties.h"
+#include "Jolt/Physics/Vehicle/VehicleConstraint.h"
 
 #include "auto/com_github_stephengold_joltjni_PhysicsSystem.h"
 #include "glue/glue.h"
 
+#include <thread>
+
 using namespace JPH;
 
+static size_t ConstraintSize(const Constraint& constraint) {
+    switch (constraint.GetSubType()) {
+        case EConstraintSubType::Cone: return sizeof(ConeConstraint);
+        case EConstraintSubType::Distance: return sizeof(DistanceConstraint);
+        case EConstraintSubType::Fixed: return sizeof(FixedConstraint);
+        case EConstraintSubType::Gear: return sizeof(GearConstraint);
+        case EConstraintSubType::Hinge: return sizeof(HingeConstraint);
+        case EConstraintSubType::Path: return sizeof(PathConstraint);
+        case EConstraintSubType::Point: return sizeof(PointConstraint);
+        case EConstraintSubType::Pulley: return sizeof(PulleyConstraint);
+        case EConstraintSubType::RackAndPinion:
+            return sizeof(RackAndPinionConstraint);
+        case EConstraintSubType::SixDOF: return sizeof(SixDOFConstraint);
+        case EConstraintSubType::Slider: return sizeof(SliderConstraint);
+        case EConstraintSubType::SwingTwist:
+            return sizeof(SwingTwistConstraint);
+        case EConstraintSubType::Vehicle: return sizeof(VehicleConstraint);
+        default: return sizeof(Constraint);
+    }
+}
+
+/*
+ * Estimate the bytes reserved by BodyManager::Init(): the body table, the
+ * active-body lists, and the cache-aligned body mutexes.
+ */
+static jlong EstimateBodyTableBytes(jint maxBodies, jint numBodyMutexes) {
+    uint numMutexes = numBodyMutexes;
+    if (numMutexes == 0) {
+        numMutexes = 2 * std::thread::hardware_concurrency();
+    }
+    numMutexes = Clamp<uint>(GetNextPowerOf2(numMutexes), 1, 64);
+    const size_t perBody = sizeof(Body *) + cBodyTypeCount * sizeof(BodyID);
+    const jlong result
+            = jlong(maxBodies * perBody + numMutexes * JPH_CACHE_LINE_SIZE);
+    return result;
+}
+
+/*
+ * Estimate the bytes reserved by BroadPhaseQuadTree::Init(): the per-body
+ * tracking data, the node free list with its first page, and the trees.
+ */
+static jlong EstimateBroadPhaseBytes(
+        jint maxBodies, const BroadPhaseLayerInterface& map) {
+    const size_t trackingBytes = 8; // location + broadphase + object layer
+    const uint numLeaves = uint(maxBodies + 1) / 2;
+    const uint maxNodes = 2 * (numLeaves + (numLeaves + 2) / 3);
+    const uint pageSize = 256;
+    const uint numPages = (maxNodes + pageSize - 1) / pageSize;
+    const size_t nodeBytes = QuadTree::Allocator::ObjectStorageSize;
+    const uint numLayers = map.GetNumBroadPhaseLayers();
+    const jlong result = jlong(maxBodies * trackingBytes
+            + numPages * sizeof(void *) + pageSize * nodeBytes
+            + numLayers * sizeof(QuadTree));
+    return result;
+}
+
 /*
  * Class:     com_github_stephengold_joltjni_PhysicsSystem
  * Method:    addConstraint
@@ -352,6 +426,57 @@ JNIEXPORT jint JNICALL Java_com_github_stephengold_joltjni_PhysicsSystem_getMaxB
     return result;
 }
 
+/*
+ * Class:     com_github_stephengold_joltjni_PhysicsSystem
+ * Method:    getMemoryStats
+ * Signature: (J[J)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_PhysicsSystem_getMemoryStats
+  (JNIEnv *pEnv, jclass, jlong systemVa, jlongArray storeBytes) {
+    const PhysicsSystem * const pSystem
+            = reinterpret_cast<PhysicsSystem *> (systemVa);
+    jlong bodyBytes = 0;
+    jlong shapeBytes = 0;
+    Shape::VisitedShapes visitedShapes;
+    BodyIDVector bodyIds;
+    pSystem->GetBodies(bodyIds);
+    const BodyLockInterfaceNoLock& lockInterface
+            = pSystem->GetBodyLockInterfaceNoLock();
+    for (const BodyID& id : bodyIds) {
+        BodyLockRead lock(lockInterface, id);
+        if (!lock.Succeeded()) {
+            continue;
+        }
+        const Body& body = lock.GetBody();
+        bodyBytes += sizeof(Body);
+        if (body.IsSoftBody()) {
+            const SoftBodyMotionProperties * const pProperties
+                    = static_cast<const SoftBodyMotionProperties *> (
+                            body.GetMotionProperties());
+            bodyBytes += sizeof(SoftBodyMotionProperties);
+            bodyBytes += pProperties->GetVertices().size()
+                    * sizeof(SoftBodyVertex);
+        } else if (!body.IsStatic()) {
+            bodyBytes += sizeof(MotionProperties);
+        }
+        const Shape * const pShape = body.GetShape();
+        shapeBytes += pShape->GetStatsRecursive(visitedShapes).mSizeBytes;
+    }
+
+    jlong constraintBytes = 0;
+    const Constraints constraints = pSystem->GetConstraints();
+    for (const Ref<Constraint>& ref : constraints) {
+        constraintBytes += ConstraintSize(*ref);
+    }
+
+    jboolean isCopy;
+    jlong * const pBytes = pEnv->GetLongArrayElements(storeBytes, &isCopy);
+    pBytes[0] = bodyBytes;
+    pBytes[1] = constraintBytes;
+    pBytes[2] = shapeBytes;
+    pEnv->ReleaseLongArrayElements(storeBytes, pBytes, 0);
+}
+
 /*
  * Class:     com_github_stephengold_joltjni_PhysicsSystem
  * Method:    getNumActiveBodies
@@ -397,12 +522,12 @@ JNIEXPORT jlong JNICALL Java_com_github_stephengold_joltjni_PhysicsSystem_getPhy
 /*
  * Class:     com_github_stephengold_joltjni_PhysicsSystem
  * Method:    init
- * Signature: (JIIIIJJJ)V
+ * Signature: (JIIIIJJJ[J)V
  */
 JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_PhysicsSystem_init
-  (JNIEnv *, jclass, jlong systemVa, jint maxBodies, jint numBodyMutexes,
+  (JNIEnv *pEnv, jclass, jlong systemVa, jint maxBodies, jint numBodyMutexes,
   jint maxBodyPairs, jint maxContactConstraints, jlong mapVa, jlong ovbFilterVa,
-  jlong ovoFilterVa) {
+  jlong ovoFilterVa, jlongArray storeReservedBytes) {
     PhysicsSystem * const pSystem
             = reinterpret_cast<PhysicsSystem *> (systemVa);
     const BroadPhaseLayerInterface * const pMap
@@ -411,8 +536,35 @@ JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_PhysicsSystem_init
             = reinterpret_cast<ObjectVsBroadPhaseLayerFilter *> (ovbFilterVa);
     const ObjectLayerPairFilter * const pOlpf
             = reinterpret_cast<ObjectLayerPairFilter *> (ovoFilterVa);
-    pSystem->Init(maxBodies, numBodyMutexes, maxBodyPairs,
-            maxContactConstraints, *pMap, *pOvbplf, *pOlpf);
+    jlong bodyTableBytes = 0;
+    jlong broadPhaseBytes = 0;
+    jlong initBytes = 0;
+    if (gTrackingAllocatorRegistered) {
+        /*
+         * Measure the total reserved by the real Init(), then apportion it
+         * using estimates that don't allocate anything:
+         */
+        const int64 beforeInit = gThreadTrackedBytes;
+        pSystem->Init(maxBodies, numBodyMutexes, maxBodyPairs,
+                maxContactConstraints, *pMap, *pOvbplf, *pOlpf);
+        initBytes = gThreadTrackedBytes - beforeInit;
+        bodyTableBytes = std::min<jlong>(initBytes,
+                EstimateBodyTableBytes(maxBodies, numBodyMutexes));
+        broadPhaseBytes = std::min<jlong>(initBytes - bodyTableBytes,
+                EstimateBroadPhaseBytes(maxBodies, *pMap));
+    } else {
+        pSystem->Init(maxBodies, numBodyMutexes, maxBodyPairs,
+                maxContactConstraints, *pMap, *pOvbplf, *pOlpf);
+    }
+    const jlong otherBytes = initBytes - bodyTableBytes - broadPhaseBytes;
+
+    jboolean isCopy;
+    jlong * const pBytes
+            = pEnv->GetLongArrayElements(storeReservedBytes, &isCopy);
+    pBytes[0] = bodyTableBytes;
+    pBytes[1] = broadPhaseBytes;
+    pBytes[2] = otherBytes > 0 ? otherBytes : 0;
+    pEnv->ReleaseLongArrayElements(storeReservedBytes, pBytes, 0);
 }
 
 /*
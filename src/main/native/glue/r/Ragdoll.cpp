@@ -50,6 +50,57 @@ JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_Ragdoll_addToPhysicsS
     pRagdoll->AddToPhysicsSystem(activate);
 }
 
+/*
+ * Class:     com_github_stephengold_joltjni_Ragdoll
+ * Method:    countBodies
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_stephengold_joltjni_Ragdoll_countBodies
+  (JNIEnv *, jclass, jlong ragdollVa) {
+    const Ragdoll * const pRagdoll = reinterpret_cast<Ragdoll *> (ragdollVa);
+    const size_t result = pRagdoll->GetBodyCount();
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_Ragdoll
+ * Method:    driveMatricesUsingKinematics
+ * Signature: (JDDDLjava/nio/FloatBuffer;IFZ)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_Ragdoll_driveMatricesUsingKinematics
+  (JNIEnv * pEnv, jclass, jlong ragdollVa, jdouble xx, jdouble yy,
+  jdouble zz, jobject jointMatrices, jint position, jfloat deltaTime,
+  jboolean lockBodies) {
+    Ragdoll * const pRagdoll = reinterpret_cast<Ragdoll *> (ragdollVa);
+    const jfloat * const pFloats
+            = (jfloat *) pEnv->GetDirectBufferAddress(jointMatrices);
+    JPH_ASSERT(!pEnv->ExceptionCheck());
+    const Float4 * const pLoad
+            = reinterpret_cast<const Float4 *> (pFloats + position);
+    const size_t numBodies = pRagdoll->GetBodyCount();
+    Array<Mat44> matrices(numBodies);
+    for (size_t i = 0; i < numBodies; ++i) {
+        matrices[i] = Mat44::sLoadFloat4x4(pLoad + 4 * i);
+    }
+    const RVec3 rootOffset(xx, yy, zz);
+    pRagdoll->DriveToPoseUsingKinematics(
+            rootOffset, matrices.data(), deltaTime, lockBodies);
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_Ragdoll
+ * Method:    driveToPoseUsingKinematics
+ * Signature: (JJFZ)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_Ragdoll_driveToPoseUsingKinematics
+  (JNIEnv *, jclass, jlong ragdollVa, jlong poseVa, jfloat deltaTime,
+  jboolean lockBodies) {
+    Ragdoll * const pRagdoll = reinterpret_cast<Ragdoll *> (ragdollVa);
+    const SkeletonPose * const pPose
+            = reinterpret_cast<SkeletonPose *> (poseVa);
+    pRagdoll->DriveToPoseUsingKinematics(*pPose, deltaTime, lockBodies);
+}
+
 /*
  * Class:     com_github_stephengold_joltjni_Ragdoll
  * Method:    driveToPoseUsingMotors
@@ -63,6 +114,47 @@ JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_Ragdoll_driveToPoseUs
     pRagdoll->DriveToPoseUsingMotors(*pPose);
 }
 
+/*
+ * Class:     com_github_stephengold_joltjni_Ragdoll
+ * Method:    getPose
+ * Signature: (JJZ)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_Ragdoll_getPose
+  (JNIEnv *, jclass, jlong ragdollVa, jlong poseVa, jboolean lockBodies) {
+    Ragdoll * const pRagdoll = reinterpret_cast<Ragdoll *> (ragdollVa);
+    SkeletonPose * const pPose = reinterpret_cast<SkeletonPose *> (poseVa);
+    pRagdoll->GetPose(*pPose, lockBodies);
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_Ragdoll
+ * Method:    getPoseMatrices
+ * Signature: (J[DLjava/nio/FloatBuffer;IZ)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_Ragdoll_getPoseMatrices
+  (JNIEnv * pEnv, jclass, jlong ragdollVa, jdoubleArray storeDoubles,
+  jobject storeMatrices, jint position, jboolean lockBodies) {
+    Ragdoll * const pRagdoll = reinterpret_cast<Ragdoll *> (ragdollVa);
+    jfloat * const pFloats
+            = (jfloat *) pEnv->GetDirectBufferAddress(storeMatrices);
+    JPH_ASSERT(!pEnv->ExceptionCheck());
+    Float4 * const pStore = reinterpret_cast<Float4 *> (pFloats + position);
+    const size_t numBodies = pRagdoll->GetBodyCount();
+    Array<Mat44> matrices(numBodies);
+    RVec3 rootOffset;
+    pRagdoll->GetPose(rootOffset, matrices.data(), lockBodies);
+    for (size_t i = 0; i < numBodies; ++i) {
+        matrices[i].StoreFloat4x4(pStore + 4 * i);
+    }
+    jboolean isCopy;
+    jdouble * const pDoubles
+            = pEnv->GetDoubleArrayElements(storeDoubles, &isCopy);
+    pDoubles[0] = rootOffset.GetX();
+    pDoubles[1] = rootOffset.GetY();
+    pDoubles[2] = rootOffset.GetZ();
+    pEnv->ReleaseDoubleArrayElements(storeDoubles, pDoubles, 0);
+}
+
 /*
  * Class:     com_github_stephengold_joltjni_Ragdoll
  * Method:    getRefCount
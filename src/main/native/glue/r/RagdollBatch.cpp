@@ -0,0 +1,217 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+/*
+ * Author: Stephen Gold
+ */
+#include "Jolt/Jolt.h"
+#include "Jolt/Core/JobSystem.h"
+#include "Jolt/Physics/Ragdoll/Ragdoll.h"
+#include "Jolt/Skeleton/SkeletalAnimation.h"
+#include "Jolt/Skeleton/SkeletonPose.h"
+
+#include "auto/com_github_stephengold_joltjni_RagdollBatch.h"
+#include "glue/glue.h"
+
+using namespace JPH;
+
+/*
+ * Invoke the specified function on consecutive ranges of ragdolls, either
+ * on the current thread (if jobSystemVa is zero) or in parallel jobs.
+ */
+template <typename Function>
+static void ForEachRange(jint numRagdolls, jint batchSize,
+        jlong jobSystemVa, const Function& processRange) {
+    if (jobSystemVa == 0) {
+        processRange(0, numRagdolls);
+        return;
+    }
+
+    JobSystem * const pJobSystem = reinterpret_cast<JobSystem *> (jobSystemVa);
+    JobSystem::Barrier * const pBarrier = pJobSystem->CreateBarrier();
+    for (jint start = 0; start < numRagdolls; start += batchSize) {
+        const jint end = std::min(start + batchSize, numRagdolls);
+        const JobSystem::JobHandle handle = pJobSystem->CreateJob(
+                "RagdollBatch", Color::sGreen, [&processRange, start, end]() {
+            processRange(start, end);
+        });
+        pBarrier->AddJob(handle);
+    }
+    pJobSystem->WaitForJobs(pBarrier);
+    pJobSystem->DestroyBarrier(pBarrier);
+}
+
+/*
+ * Copy the joint transforms of the specified pose to the specified location.
+ */
+static void StoreJointStates(const SkeletonPose& pose, jfloat *pStore) {
+    for (const SkeletonPose::JointState& joint : pose.GetJoints()) {
+        const Vec3& translation = joint.mTranslation;
+        *pStore++ = translation.GetX();
+        *pStore++ = translation.GetY();
+        *pStore++ = translation.GetZ();
+        const Quat& rotation = joint.mRotation;
+        *pStore++ = rotation.GetX();
+        *pStore++ = rotation.GetY();
+        *pStore++ = rotation.GetZ();
+        *pStore++ = rotation.GetW();
+    }
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_RagdollBatch
+ * Method:    animate
+ * Signature: ([J[J[J[II[FLjava/nio/FloatBuffer;IJ)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_RagdollBatch_animate
+  (JNIEnv *pEnv, jclass, jlongArray ragdollVas, jlongArray poseVas,
+  jlongArray animationVas, jintArray firstJoints, jint numRagdolls,
+  jfloatArray times, jobject storeStates, jint batchSize, jlong jobSystemVa) {
+    jfloat * const pStates = (storeStates == nullptr) ? nullptr
+            : (jfloat *) pEnv->GetDirectBufferAddress(storeStates);
+    jboolean isCopy;
+    jlong * const pRagdollVas
+            = pEnv->GetLongArrayElements(ragdollVas, &isCopy);
+    jlong * const pPoseVas = pEnv->GetLongArrayElements(poseVas, &isCopy);
+    jlong * const pAnimationVas
+            = pEnv->GetLongArrayElements(animationVas, &isCopy);
+    jint * const pFirstJoints = pEnv->GetIntArrayElements(firstJoints, &isCopy);
+    jfloat * const pTimes = pEnv->GetFloatArrayElements(times, &isCopy);
+
+    ForEachRange(numRagdolls, batchSize, jobSystemVa,
+            [=](jint start, jint end) {
+        for (jint i = start; i < end; ++i) {
+            const SkeletalAnimation * const pAnimation
+                    = reinterpret_cast<SkeletalAnimation *> (pAnimationVas[i]);
+            if (pAnimation == nullptr) {
+                continue;
+            }
+            Ragdoll * const pRagdoll
+                    = reinterpret_cast<Ragdoll *> (pRagdollVas[i]);
+            SkeletonPose * const pPose
+                    = reinterpret_cast<SkeletonPose *> (pPoseVas[i]);
+            pAnimation->Sample(pTimes[i], *pPose);
+            pPose->CalculateJointMatrices();
+            pRagdoll->DriveToPoseUsingMotors(*pPose);
+            if (pStates != nullptr) {
+                StoreJointStates(*pPose, pStates + 7 * pFirstJoints[i]);
+            }
+        }
+    });
+
+    pEnv->ReleaseFloatArrayElements(times, pTimes, JNI_ABORT);
+    pEnv->ReleaseIntArrayElements(firstJoints, pFirstJoints, JNI_ABORT);
+    pEnv->ReleaseLongArrayElements(animationVas, pAnimationVas, JNI_ABORT);
+    pEnv->ReleaseLongArrayElements(poseVas, pPoseVas, JNI_ABORT);
+    pEnv->ReleaseLongArrayElements(ragdollVas, pRagdollVas, JNI_ABORT);
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_RagdollBatch
+ * Method:    driveToPoses
+ * Signature: ([J[J[IILjava/nio/FloatBuffer;IJ)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_RagdollBatch_driveToPoses
+  (JNIEnv *pEnv, jclass, jlongArray ragdollVas, jlongArray poseVas,
+  jintArray firstJoints, jint numRagdolls, jobject jointStates,
+  jint batchSize, jlong jobSystemVa) {
+    const jfloat * const pStates
+            = (jfloat *) pEnv->GetDirectBufferAddress(jointStates);
+    JPH_ASSERT(!pEnv->ExceptionCheck());
+    jboolean isCopy;
+    jlong * const pRagdollVas
+            = pEnv->GetLongArrayElements(ragdollVas, &isCopy);
+    jlong * const pPoseVas = pEnv->GetLongArrayElements(poseVas, &isCopy);
+    jint * const pFirstJoints = pEnv->GetIntArrayElements(firstJoints, &isCopy);
+
+    ForEachRange(numRagdolls, batchSize, jobSystemVa,
+            [=](jint start, jint end) {
+        for (jint i = start; i < end; ++i) {
+            Ragdoll * const pRagdoll
+                    = reinterpret_cast<Ragdoll *> (pRagdollVas[i]);
+            SkeletonPose * const pPose
+                    = reinterpret_cast<SkeletonPose *> (pPoseVas[i]);
+            const jfloat *pLoad = pStates + 7 * pFirstJoints[i];
+            for (SkeletonPose::JointState& joint : pPose->GetJoints()) {
+                joint.mTranslation = Vec3(pLoad[0], pLoad[1], pLoad[2]);
+                joint.mRotation
+                        = Quat(pLoad[3], pLoad[4], pLoad[5], pLoad[6]);
+                pLoad += 7;
+            }
+            pPose->CalculateJointMatrices();
+            pRagdoll->DriveToPoseUsingMotors(*pPose);
+        }
+    });
+
+    pEnv->ReleaseIntArrayElements(firstJoints, pFirstJoints, JNI_ABORT);
+    pEnv->ReleaseLongArrayElements(poseVas, pPoseVas, JNI_ABORT);
+    pEnv->ReleaseLongArrayElements(ragdollVas, pRagdollVas, JNI_ABORT);
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_RagdollBatch
+ * Method:    exportPoses
+ * Signature: ([J[J[II[DLjava/nio/FloatBuffer;ZIJ)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_RagdollBatch_exportPoses
+  (JNIEnv *pEnv, jclass, jlongArray ragdollVas, jlongArray poseVas,
+  jintArray firstJoints, jint numRagdolls, jdoubleArray storeRootOffsets,
+  jobject storeMatrices, jboolean lockBodies, jint batchSize,
+  jlong jobSystemVa) {
+    jfloat * const pMatrices
+            = (jfloat *) pEnv->GetDirectBufferAddress(storeMatrices);
+    JPH_ASSERT(!pEnv->ExceptionCheck());
+    jboolean isCopy;
+    jlong * const pRagdollVas
+            = pEnv->GetLongArrayElements(ragdollVas, &isCopy);
+    jlong * const pPoseVas = pEnv->GetLongArrayElements(poseVas, &isCopy);
+    jint * const pFirstJoints = pEnv->GetIntArrayElements(firstJoints, &isCopy);
+    jdouble * const pOffsets
+            = pEnv->GetDoubleArrayElements(storeRootOffsets, &isCopy);
+
+    ForEachRange(numRagdolls, batchSize, jobSystemVa,
+            [=](jint start, jint end) {
+        for (jint i = start; i < end; ++i) {
+            Ragdoll * const pRagdoll
+                    = reinterpret_cast<Ragdoll *> (pRagdollVas[i]);
+            SkeletonPose * const pPose
+                    = reinterpret_cast<SkeletonPose *> (pPoseVas[i]);
+            pRagdoll->GetPose(*pPose, lockBodies);
+
+            const RVec3 offset = pPose->GetRootOffset();
+            pOffsets[3 * i] = offset.GetX();
+            pOffsets[3 * i + 1] = offset.GetY();
+            pOffsets[3 * i + 2] = offset.GetZ();
+
+            Float4 *pStore = reinterpret_cast<Float4 *> (
+                    pMatrices + 16 * pFirstJoints[i]);
+            for (const Mat44& matrix : pPose->GetJointMatrices()) {
+                matrix.StoreFloat4x4(pStore);
+                pStore += 4;
+            }
+        }
+    });
+
+    pEnv->ReleaseDoubleArrayElements(storeRootOffsets, pOffsets, 0);
+    pEnv->ReleaseIntArrayElements(firstJoints, pFirstJoints, JNI_ABORT);
+    pEnv->ReleaseLongArrayElements(poseVas, pPoseVas, JNI_ABORT);
+    pEnv->ReleaseLongArrayElements(ragdollVas, pRagdollVas, JNI_ABORT);
+}
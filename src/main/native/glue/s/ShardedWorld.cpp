@@ -0,0 +1,251 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+/*
+ * Author: Stephen Gold
+ */
+#include "Jolt/Jolt.h"
+#include "Jolt/Physics/Constraints/TwoBodyConstraint.h"
+#include "Jolt/Physics/PhysicsSystem.h"
+#include "Jolt/Physics/Vehicle/VehicleConstraint.h"
+#include "auto/com_github_stephengold_joltjni_ShardedWorld.h"
+#include "glue/glue.h"
+
+using namespace JPH;
+
+/*
+ * Class:     com_github_stephengold_joltjni_ShardedWorld
+ * Method:    copyBody
+ * Signature: (JIJZ)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_stephengold_joltjni_ShardedWorld_copyBody
+  (JNIEnv *, jclass, jlong srcSystemVa, jint srcId, jlong dstSystemVa,
+  jboolean asGhost) {
+    const PhysicsSystem * const pSrcSystem
+            = reinterpret_cast<PhysicsSystem *> (srcSystemVa);
+    PhysicsSystem * const pDstSystem
+            = reinterpret_cast<PhysicsSystem *> (dstSystemVa);
+    BodyCreationSettings settings;
+    bool isActive;
+    {
+        const BodyLockRead lock(
+                pSrcSystem->GetBodyLockInterface(), BodyID(srcId));
+        if (!lock.Succeeded()) {
+            return BodyID::cInvalidBodyID;
+        }
+        const Body& body = lock.GetBody();
+        settings = body.GetBodyCreationSettings();
+        settings.mLinearVelocity = body.GetLinearVelocity();
+        settings.mAngularVelocity = body.GetAngularVelocity();
+        isActive = body.IsActive();
+    }
+    if (asGhost) {
+        settings.mMotionType = EMotionType::Kinematic;
+    }
+    const EActivation activation
+            = isActive ? EActivation::Activate : EActivation::DontActivate;
+    BodyInterface& bodyInterface = pDstSystem->GetBodyInterface();
+    const BodyID result = bodyInterface.CreateAndAddBody(settings, activation);
+    return result.GetIndexAndSequenceNumber();
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_ShardedWorld
+ * Method:    createBody
+ * Signature: (JJI)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_stephengold_joltjni_ShardedWorld_createBody
+  (JNIEnv *, jclass, jlong systemVa, jlong settingsVa,
+  jint activationOrdinal) {
+    PhysicsSystem * const pSystem
+            = reinterpret_cast<PhysicsSystem *> (systemVa);
+    const BodyCreationSettings * const pSettings
+            = reinterpret_cast<BodyCreationSettings *> (settingsVa);
+    const EActivation activation = (EActivation) activationOrdinal;
+    BodyInterface& bodyInterface = pSystem->GetBodyInterface();
+    const BodyID result
+            = bodyInterface.CreateAndAddBody(*pSettings, activation);
+    return result.GetIndexAndSequenceNumber();
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_ShardedWorld
+ * Method:    destroyBody
+ * Signature: (JI)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_ShardedWorld_destroyBody
+  (JNIEnv *, jclass, jlong systemVa, jint bodyId) {
+    PhysicsSystem * const pSystem
+            = reinterpret_cast<PhysicsSystem *> (systemVa);
+    BodyInterface& bodyInterface = pSystem->GetBodyInterface();
+    const BodyID id(bodyId);
+    bodyInterface.RemoveBody(id);
+    bodyInterface.DestroyBody(id);
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_ShardedWorld
+ * Method:    getBoundsXz
+ * Signature: (JI[D)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_ShardedWorld_getBoundsXz
+  (JNIEnv *pEnv, jclass, jlong systemVa, jint bodyId,
+  jdoubleArray storeBounds) {
+    const PhysicsSystem * const pSystem
+            = reinterpret_cast<PhysicsSystem *> (systemVa);
+    AABox bounds;
+    {
+        const BodyLockRead lock(
+                pSystem->GetBodyLockInterface(), BodyID(bodyId));
+        if (lock.Succeeded()) {
+            bounds = lock.GetBody().GetWorldSpaceBounds();
+        }
+    }
+    jboolean isCopy;
+    jdouble * const pBounds
+            = pEnv->GetDoubleArrayElements(storeBounds, &isCopy);
+    pBounds[0] = bounds.mMin.GetX();
+    pBounds[1] = bounds.mMin.GetZ();
+    pBounds[2] = bounds.mMax.GetX();
+    pBounds[3] = bounds.mMax.GetZ();
+    pEnv->ReleaseDoubleArrayElements(storeBounds, pBounds, 0);
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_ShardedWorld
+ * Method:    getLocationsXz
+ * Signature: (J[II[D)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_ShardedWorld_getLocationsXz
+  (JNIEnv *pEnv, jclass, jlong systemVa, jintArray bodyIds, jint numBodies,
+  jdoubleArray storeLocations) {
+    const PhysicsSystem * const pSystem
+            = reinterpret_cast<PhysicsSystem *> (systemVa);
+    const BodyInterface& bodyInterface = pSystem->GetBodyInterface();
+    jboolean isCopy;
+    jint * const pIds = pEnv->GetIntArrayElements(bodyIds, &isCopy);
+    jdouble * const pLocations
+            = pEnv->GetDoubleArrayElements(storeLocations, &isCopy);
+    for (jint i = 0; i < numBodies; ++i) {
+        // Use the body's origin, as addBody() does with the settings:
+        const RVec3 location = bodyInterface.GetPosition(BodyID(pIds[i]));
+        pLocations[2 * i] = location.GetX();
+        pLocations[2 * i + 1] = location.GetZ();
+    }
+    pEnv->ReleaseDoubleArrayElements(storeLocations, pLocations, 0);
+    pEnv->ReleaseIntArrayElements(bodyIds, pIds, JNI_ABORT);
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_ShardedWorld
+ * Method:    isConstrained
+ * Signature: (JI)Z
+ */
+JNIEXPORT jboolean JNICALL Java_com_github_stephengold_joltjni_ShardedWorld_isConstrained
+  (JNIEnv *, jclass, jlong systemVa, jint bodyId) {
+    const PhysicsSystem * const pSystem
+            = reinterpret_cast<PhysicsSystem *> (systemVa);
+    const BodyID id(bodyId);
+    const Constraints constraints = pSystem->GetConstraints();
+    for (const Ref<Constraint>& constraint : constraints) {
+        if (constraint->GetType() == EConstraintType::TwoBodyConstraint) {
+            const TwoBodyConstraint * const pTwo
+                    = static_cast<TwoBodyConstraint *> (constraint.GetPtr());
+            if (pTwo->GetBody1()->GetID() == id
+                    || pTwo->GetBody2()->GetID() == id) {
+                return JNI_TRUE;
+            }
+        } else if (constraint->GetSubType() == EConstraintSubType::Vehicle) {
+            const VehicleConstraint * const pVehicle
+                    = static_cast<VehicleConstraint *> (constraint.GetPtr());
+            if (pVehicle->GetVehicleBody()->GetID() == id) {
+                return JNI_TRUE;
+            }
+        }
+    }
+    return JNI_FALSE;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_ShardedWorld
+ * Method:    isStatic
+ * Signature: (JI)Z
+ */
+JNIEXPORT jboolean JNICALL Java_com_github_stephengold_joltjni_ShardedWorld_isStatic
+  (JNIEnv *, jclass, jlong systemVa, jint bodyId) {
+    const PhysicsSystem * const pSystem
+            = reinterpret_cast<PhysicsSystem *> (systemVa);
+    const BodyInterface& bodyInterface = pSystem->GetBodyInterface();
+    const EMotionType motionType = bodyInterface.GetMotionType(BodyID(bodyId));
+    const bool result = (motionType == EMotionType::Static);
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_ShardedWorld
+ * Method:    syncGhosts
+ * Signature: ([J[I[J[II)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_ShardedWorld_syncGhosts
+  (JNIEnv *pEnv, jclass, jlongArray srcSystemVas, jintArray srcIds,
+  jlongArray dstSystemVas, jintArray dstIds, jint numGhosts) {
+    jboolean isCopy;
+    jlong * const pSrcVas = pEnv->GetLongArrayElements(srcSystemVas, &isCopy);
+    jint * const pSrcIds = pEnv->GetIntArrayElements(srcIds, &isCopy);
+    jlong * const pDstVas = pEnv->GetLongArrayElements(dstSystemVas, &isCopy);
+    jint * const pDstIds = pEnv->GetIntArrayElements(dstIds, &isCopy);
+    for (jint i = 0; i < numGhosts; ++i) {
+        const PhysicsSystem * const pSrcSystem
+                = reinterpret_cast<PhysicsSystem *> (pSrcVas[i]);
+        PhysicsSystem * const pDstSystem
+                = reinterpret_cast<PhysicsSystem *> (pDstVas[i]);
+        RVec3 location;
+        Quat orientation;
+        Vec3 linearVelocity;
+        Vec3 angularVelocity;
+        bool isActive;
+        {
+            const BodyLockRead lock(
+                    pSrcSystem->GetBodyLockInterface(), BodyID(pSrcIds[i]));
+            if (!lock.Succeeded()) {
+                continue;
+            }
+            const Body& body = lock.GetBody();
+            location = body.GetPosition();
+            orientation = body.GetRotation();
+            linearVelocity = body.GetLinearVelocity();
+            angularVelocity = body.GetAngularVelocity();
+            isActive = body.IsActive();
+        }
+        BodyInterface& bodyInterface = pDstSystem->GetBodyInterface();
+        const BodyID ghostId(pDstIds[i]);
+        bodyInterface.SetPositionRotationAndVelocity(ghostId, location,
+                orientation, linearVelocity, angularVelocity);
+        if (isActive) {
+            bodyInterface.ActivateBody(ghostId);
+        }
+    }
+    pEnv->ReleaseIntArrayElements(dstIds, pDstIds, JNI_ABORT);
+    pEnv->ReleaseLongArrayElements(dstSystemVas, pDstVas, JNI_ABORT);
+    pEnv->ReleaseIntArrayElements(srcIds, pSrcIds, JNI_ABORT);
+    pEnv->ReleaseLongArrayElements(srcSystemVas, pSrcVas, JNI_ABORT);
+}
@@ -41,6 +41,30 @@ JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_SkeletonPose_calculat
     pPose->CalculateJointMatrices();
 }
 
+/*
+ * Class:     com_github_stephengold_joltjni_SkeletonPose
+ * Method:    calculateJointStates
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_SkeletonPose_calculateJointStates
+  (JNIEnv *, jclass, jlong poseVa) {
+    SkeletonPose * const pPose = reinterpret_cast<SkeletonPose *> (poseVa);
+    pPose->CalculateJointStates();
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_SkeletonPose
+ * Method:    countJoints
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_stephengold_joltjni_SkeletonPose_countJoints
+  (JNIEnv *, jclass, jlong poseVa) {
+    const SkeletonPose * const pPose
+            = reinterpret_cast<SkeletonPose *> (poseVa);
+    const int result = pPose->GetJointCount();
+    return result;
+}
+
 /*
  * Class:     com_github_stephengold_joltjni_SkeletonPose
  * Method:    createCopy
@@ -91,6 +115,96 @@ JNIEXPORT jlong JNICALL Java_com_github_stephengold_joltjni_SkeletonPose_getJoin
     return reinterpret_cast<jlong> (pJoint);
 }
 
+/*
+ * Class:     com_github_stephengold_joltjni_SkeletonPose
+ * Method:    getJointMatrices
+ * Signature: (JLjava/nio/FloatBuffer;I)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_SkeletonPose_getJointMatrices
+  (JNIEnv * pEnv, jclass, jlong poseVa, jobject storeMatrices,
+  jint position) {
+    const SkeletonPose * const pPose
+            = reinterpret_cast<SkeletonPose *> (poseVa);
+    jfloat * const pFloats
+            = (jfloat *) pEnv->GetDirectBufferAddress(storeMatrices);
+    JPH_ASSERT(!pEnv->ExceptionCheck());
+    Float4 *pStore = reinterpret_cast<Float4 *> (pFloats + position);
+    const SkeletonPose::Mat44Vector& matrices = pPose->GetJointMatrices();
+    for (const Mat44& matrix : matrices) {
+        matrix.StoreFloat4x4(pStore);
+        pStore += 4;
+    }
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_SkeletonPose
+ * Method:    getJointStates
+ * Signature: (JLjava/nio/FloatBuffer;I)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_SkeletonPose_getJointStates
+  (JNIEnv * pEnv, jclass, jlong poseVa, jobject storeStates,
+  jint position) {
+    const SkeletonPose * const pPose
+            = reinterpret_cast<SkeletonPose *> (poseVa);
+    jfloat * const pFloats
+            = (jfloat *) pEnv->GetDirectBufferAddress(storeStates);
+    JPH_ASSERT(!pEnv->ExceptionCheck());
+    jfloat *pStore = pFloats + position;
+    const SkeletonPose::JointStateVector& joints = pPose->GetJoints();
+    for (const SkeletonPose::JointState& joint : joints) {
+        const Vec3& translation = joint.mTranslation;
+        *pStore++ = translation.GetX();
+        *pStore++ = translation.GetY();
+        *pStore++ = translation.GetZ();
+        const Quat& rotation = joint.mRotation;
+        *pStore++ = rotation.GetX();
+        *pStore++ = rotation.GetY();
+        *pStore++ = rotation.GetZ();
+        *pStore++ = rotation.GetW();
+    }
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_SkeletonPose
+ * Method:    setJointMatrices
+ * Signature: (JLjava/nio/FloatBuffer;I)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_SkeletonPose_setJointMatrices
+  (JNIEnv * pEnv, jclass, jlong poseVa, jobject matrices,
+  jint position) {
+    SkeletonPose * const pPose = reinterpret_cast<SkeletonPose *> (poseVa);
+    const jfloat * const pFloats
+            = (jfloat *) pEnv->GetDirectBufferAddress(matrices);
+    JPH_ASSERT(!pEnv->ExceptionCheck());
+    const Float4 *pLoad = reinterpret_cast<const Float4 *> (pFloats + position);
+    SkeletonPose::Mat44Vector& poseMatrices = pPose->GetJointMatrices();
+    for (Mat44& matrix : poseMatrices) {
+        matrix = Mat44::sLoadFloat4x4(pLoad);
+        pLoad += 4;
+    }
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_SkeletonPose
+ * Method:    setJointStates
+ * Signature: (JLjava/nio/FloatBuffer;I)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_SkeletonPose_setJointStates
+  (JNIEnv * pEnv, jclass, jlong poseVa, jobject states,
+  jint position) {
+    SkeletonPose * const pPose = reinterpret_cast<SkeletonPose *> (poseVa);
+    const jfloat * const pFloats
+            = (jfloat *) pEnv->GetDirectBufferAddress(states);
+    JPH_ASSERT(!pEnv->ExceptionCheck());
+    const jfloat *pLoad = pFloats + position;
+    SkeletonPose::JointStateVector& joints = pPose->GetJoints();
+    for (SkeletonPose::JointState& joint : joints) {
+        joint.mTranslation = Vec3(pLoad[0], pLoad[1], pLoad[2]);
+        joint.mRotation = Quat(pLoad[3], pLoad[4], pLoad[5], pLoad[6]);
+        pLoad += 7;
+    }
+}
+
 /*
  * Class:     com_github_stephengold_joltjni_SkeletonPose
  * Method:    setRootOffset
@@ -0,0 +1,83 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+/*
+ * Author: Stephen Gold
+ */
+#include "Jolt/Jolt.h"
+#include "Jolt/Physics/SoftBody/SoftBodyMotionProperties.h"
+#include "auto/com_github_stephengold_joltjni_SoftBodyMotionProperties.h"
+#include "glue/glue.h"
+
+using namespace JPH;
+
+/*
+ * Class:     com_github_stephengold_joltjni_SoftBodyMotionProperties
+ * Method:    countVertices
+ * Signature: (J)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_stephengold_joltjni_SoftBodyMotionProperties_countVertices
+  (JNIEnv *, jclass, jlong propertiesVa) {
+    const SoftBodyMotionProperties * const pProperties
+            = reinterpret_cast<SoftBodyMotionProperties *> (propertiesVa);
+    const size_t result = pProperties->GetVertices().size();
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_SoftBodyMotionProperties
+ * Method:    getVertices
+ * Signature: (JLjava/nio/FloatBuffer;I)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_SoftBodyMotionProperties_getVertices
+  (JNIEnv *pEnv, jclass, jlong propertiesVa, jobject storeVertices,
+  jint position) {
+    const SoftBodyMotionProperties * const pProperties
+            = reinterpret_cast<SoftBodyMotionProperties *> (propertiesVa);
+    jfloat * const pFloats
+            = (jfloat *) pEnv->GetDirectBufferAddress(storeVertices);
+    JPH_ASSERT(!pEnv->ExceptionCheck());
+    jfloat *pStore = pFloats + position;
+    const Array<SoftBodyMotionProperties::Vertex>& vertices
+            = pProperties->GetVertices();
+    for (const SoftBodyMotionProperties::Vertex& vertex : vertices) {
+        *pStore++ = vertex.mPosition.GetX();
+        *pStore++ = vertex.mPosition.GetY();
+        *pStore++ = vertex.mPosition.GetZ();
+        *pStore++ = vertex.mVelocity.GetX();
+        *pStore++ = vertex.mVelocity.GetY();
+        *pStore++ = vertex.mVelocity.GetZ();
+        *pStore++ = vertex.mInvMass;
+    }
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_SoftBodyMotionProperties
+ * Method:    setVertexInvMass
+ * Signature: (JIF)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_SoftBodyMotionProperties_setVertexInvMass
+  (JNIEnv *, jclass, jlong propertiesVa, jint vertexIndex, jfloat invMass) {
+    SoftBodyMotionProperties * const pProperties
+            = reinterpret_cast<SoftBodyMotionProperties *> (propertiesVa);
+    pProperties->GetVertex(vertexIndex).mInvMass = invMass;
+}
@@ -0,0 +1,126 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+/*
+ * Author: Stephen Gold
+ */
+#include "Jolt/Jolt.h"
+#include "Jolt/Physics/PhysicsSystem.h"
+#include "Jolt/Physics/SoftBody/SoftBodyMotionProperties.h"
+#include "auto/com_github_stephengold_joltjni_SoftBodyVertexStream.h"
+#include "glue/glue.h"
+
+using namespace JPH;
+
+/*
+ * Class:     com_github_stephengold_joltjni_SoftBodyVertexStream
+ * Method:    countVertices
+ * Signature: (JI)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_stephengold_joltjni_SoftBodyVertexStream_countVertices
+  (JNIEnv *, jclass, jlong systemVa, jint bodyId) {
+    const PhysicsSystem * const pSystem
+            = reinterpret_cast<PhysicsSystem *> (systemVa);
+    const BodyLockInterface& lockInterface = pSystem->GetBodyLockInterface();
+    jint result = -1;
+    const BodyLockRead lock(lockInterface, BodyID(bodyId));
+    if (lock.Succeeded() && lock.GetBody().IsSoftBody()) {
+        const SoftBodyMotionProperties * const pProperties
+                = static_cast<const SoftBodyMotionProperties *> (
+                        lock.GetBody().GetMotionProperties());
+        result = pProperties->GetVertices().size();
+    }
+    return result;
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_SoftBodyVertexStream
+ * Method:    update
+ * Signature: (J[I[II[Z[ZLjava/nio/FloatBuffer;[I)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_stephengold_joltjni_SoftBodyVertexStream_update
+  (JNIEnv *pEnv, jclass, jlong systemVa, jintArray bodyIds,
+  jintArray firstVertices, jint numBodies, jbooleanArray wasActive,
+  jbooleanArray dirty, jobject storeVertices, jintArray storeIndices) {
+    const PhysicsSystem * const pSystem
+            = reinterpret_cast<PhysicsSystem *> (systemVa);
+    const BodyLockInterface& lockInterface = pSystem->GetBodyLockInterface();
+    jfloat * const pVertices
+            = (jfloat *) pEnv->GetDirectBufferAddress(storeVertices);
+    JPH_ASSERT(!pEnv->ExceptionCheck());
+    jboolean isCopy;
+    jint * const pIds = pEnv->GetIntArrayElements(bodyIds, &isCopy);
+    jint * const pFirsts = pEnv->GetIntArrayElements(firstVertices, &isCopy);
+    jboolean * const pWasActive
+            = pEnv->GetBooleanArrayElements(wasActive, &isCopy);
+    jboolean * const pDirty = pEnv->GetBooleanArrayElements(dirty, &isCopy);
+    jint * const pIndices = (storeIndices == nullptr) ? nullptr
+            : pEnv->GetIntArrayElements(storeIndices, &isCopy);
+
+    jint result = 0;
+    for (jint i = 0; i < numBodies; ++i) {
+        const BodyLockRead lock(lockInterface, BodyID(pIds[i]));
+        if (!lock.Succeeded() || !lock.GetBody().IsInBroadPhase()) {
+            continue;
+        }
+        const Body& body = lock.GetBody();
+        const bool isActive = body.IsActive();
+        if (!isActive && !pWasActive[i] && !pDirty[i]) {
+            continue;
+        }
+        pWasActive[i] = isActive;
+        pDirty[i] = JNI_FALSE;
+
+        const SoftBodyMotionProperties * const pProperties
+                = static_cast<const SoftBodyMotionProperties *> (
+                        body.GetMotionProperties());
+        const RMat44 transform = body.GetCenterOfMassTransform();
+        const Mat44 rotation = transform.GetRotation();
+        jfloat *pStore = pVertices + 7 * pFirsts[i];
+        const Array<SoftBodyMotionProperties::Vertex>& vertices
+                = pProperties->GetVertices();
+        for (const SoftBodyMotionProperties::Vertex& vertex : vertices) {
+            const RVec3 location = transform * vertex.mPosition;
+            const Vec3 velocity = rotation.Multiply3x3(vertex.mVelocity);
+            *pStore++ = location.GetX();
+            *pStore++ = location.GetY();
+            *pStore++ = location.GetZ();
+            *pStore++ = velocity.GetX();
+            *pStore++ = velocity.GetY();
+            *pStore++ = velocity.GetZ();
+            *pStore++ = vertex.mInvMass;
+        }
+        if (pIndices != nullptr) {
+            pIndices[result] = i;
+        }
+        ++result;
+    }
+
+    if (pIndices != nullptr) {
+        pEnv->ReleaseIntArrayElements(storeIndices, pIndices, 0);
+    }
+    pEnv->ReleaseBooleanArrayElements(dirty, pDirty, 0);
+    pEnv->ReleaseBooleanArrayElements(wasActive, pWasActive, 0);
+    pEnv->ReleaseIntArrayElements(firstVertices, pFirsts, JNI_ABORT);
+    pEnv->ReleaseIntArrayElements(bodyIds, pIds, JNI_ABORT);
+    return result;
+}
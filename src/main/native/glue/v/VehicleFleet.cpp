@@ -0,0 +1,135 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+/*
+ * Author: Stephen Gold
+ */
+#include "Jolt/Jolt.h"
+#include "Jolt/Physics/PhysicsSystem.h"
+#include "Jolt/Physics/Vehicle/TrackedVehicleController.h"
+#include "Jolt/Physics/Vehicle/VehicleConstraint.h"
+#include "Jolt/Physics/Vehicle/WheeledVehicleController.h"
+#include "auto/com_github_stephengold_joltjni_VehicleFleet.h"
+#include "glue/glue.h"
+
+using namespace JPH;
+
+/*
+ * controller-type ordinals, matching those in VehicleController.java:
+ */
+static constexpr jint cMotorcycleType = 2;
+static constexpr jint cTrackedVehicleType = 3;
+static constexpr jint cWheeledVehicleType = 4;
+
+/*
+ * Class:     com_github_stephengold_joltjni_VehicleFleet
+ * Method:    applyDriverInputs
+ * Signature: (J[J[IILjava/nio/FloatBuffer;)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_VehicleFleet_applyDriverInputs
+  (JNIEnv *pEnv, jclass, jlong systemVa, jlongArray constraintVas,
+  jintArray controllerTypes, jint numVehicles, jobject inputs) {
+    PhysicsSystem * const pSystem
+            = reinterpret_cast<PhysicsSystem *> (systemVa);
+    BodyInterface& bodyInterface = pSystem->GetBodyInterface();
+    const jfloat * const pInputs
+            = (jfloat *) pEnv->GetDirectBufferAddress(inputs);
+    jboolean isCopy;
+    jlong * const pVas = pEnv->GetLongArrayElements(constraintVas, &isCopy);
+    jint * const pTypes = pEnv->GetIntArrayElements(controllerTypes, &isCopy);
+    for (jint i = 0; i < numVehicles; ++i) {
+        VehicleConstraint * const pConstraint
+                = reinterpret_cast<VehicleConstraint *> (pVas[i]);
+        const jfloat * const pInput = pInputs + 4 * i;
+        bool steering = false;
+        switch (pTypes[i]) {
+            case cMotorcycleType:
+            case cWheeledVehicleType: {
+                WheeledVehicleController * const pController
+                        = static_cast<WheeledVehicleController *> (
+                                pConstraint->GetController());
+                pController->SetDriverInput(
+                        pInput[0], pInput[1], pInput[2], pInput[3]);
+                steering = (pInput[1] != 0.0f);
+                break;
+            }
+            case cTrackedVehicleType: {
+                TrackedVehicleController * const pController
+                        = static_cast<TrackedVehicleController *> (
+                                pConstraint->GetController());
+                pController->SetDriverInput(
+                        pInput[0], pInput[1], pInput[2], pInput[3]);
+                break;
+            }
+            default:
+                continue;
+        }
+        const Body * const pBody = pConstraint->GetVehicleBody();
+        if ((pInput[0] != 0.0f || steering) && !pBody->IsActive()) {
+            bodyInterface.ActivateBody(pBody->GetID());
+        }
+    }
+    pEnv->ReleaseIntArrayElements(controllerTypes, pTypes, JNI_ABORT);
+    pEnv->ReleaseLongArrayElements(constraintVas, pVas, JNI_ABORT);
+}
+
+/*
+ * Class:     com_github_stephengold_joltjni_VehicleFleet
+ * Method:    exportWheels
+ * Signature: ([J[FILjava/nio/FloatBuffer;)V
+ */
+JNIEXPORT void JNICALL Java_com_github_stephengold_joltjni_VehicleFleet_exportWheels
+  (JNIEnv *pEnv, jclass, jlongArray constraintVas, jfloatArray wheelAxes,
+  jint numVehicles, jobject storeWheels) {
+    jfloat * pStore = (jfloat *) pEnv->GetDirectBufferAddress(storeWheels);
+    jboolean isCopy;
+    jlong * const pVas = pEnv->GetLongArrayElements(constraintVas, &isCopy);
+    jfloat * const pAxes = pEnv->GetFloatArrayElements(wheelAxes, &isCopy);
+    for (jint i = 0; i < numVehicles; ++i) {
+        const VehicleConstraint * const pConstraint
+                = reinterpret_cast<VehicleConstraint *> (pVas[i]);
+        const jfloat * const pAxis = pAxes + 6 * i;
+        const Vec3 right(pAxis[0], pAxis[1], pAxis[2]);
+        const Vec3 up(pAxis[3], pAxis[4], pAxis[5]);
+        const Wheels& wheels = pConstraint->GetWheels();
+        const uint numWheels = (uint) wheels.size();
+        for (uint j = 0; j < numWheels; ++j) {
+            const RMat44 transform
+                    = pConstraint->GetWheelWorldTransform(j, right, up);
+            const RVec3 location = transform.GetTranslation();
+            const Quat rotation = transform.GetRotation().GetQuaternion();
+            const Wheel * const pWheel = wheels[j];
+            pStore[0] = location.GetX();
+            pStore[1] = location.GetY();
+            pStore[2] = location.GetZ();
+            pStore[3] = rotation.GetX();
+            pStore[4] = rotation.GetY();
+            pStore[5] = rotation.GetZ();
+            pStore[6] = rotation.GetW();
+            pStore[7] = pWheel->GetSuspensionLength();
+            pStore[8] = pWheel->GetAngularVelocity();
+            pStore[9] = pWheel->HasContact() ? 1.0f : 0.0f;
+            pStore += 10;
+        }
+    }
+    pEnv->ReleaseFloatArrayElements(wheelAxes, pAxes, JNI_ABORT);
+    pEnv->ReleaseLongArrayElements(constraintVas, pVas, JNI_ABORT);
+}
@@ -67,6 +67,7 @@ import com.github.stephengold.joltjni.VertexList;
 import com.github.stephengold.joltjni.enumerate.EShapeSubType;
 import com.github.stephengold.joltjni.enumerate.EShapeType;
 import com.github.stephengold.joltjni.readonly.Vec3Arg;
+import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 import java.util.ArrayList;
 import java.util.List;
@@ -640,11 +641,38 @@ public class Test007 {
         Assert.assertEquals(0f, shape.getInnerRadius(), 0f);
         TestUtils.assertEquals(3f, 0f, 3f, shape.getPosition(3, 3), 0f);
         Assert.assertEquals(3, shape.getRefCount());
+        Assert.assertEquals(4, shape.getSampleCount());
         Assert.assertEquals(EShapeSubType.HeightField, shape.getSubType());
         Assert.assertEquals(EShapeType.HeightField, shape.getType());
         Assert.assertEquals(0L, shape.getUserData());
         Assert.assertFalse(shape.isNoCollision(3, 3));
         Assert.assertTrue(shape.mustBeStatic());
+
+        FloatBuffer heights = Jolt.newDirectFloatBuffer(16);
+        heights.put(0, 9f);
+        shape.getHeights(0, 0, 4, 4, heights, 4);
+        Assert.assertEquals(0f, heights.get(0), 0f);
+        Assert.assertEquals(0f, heights.get(15), 0f);
+
+        ByteBuffer materials = ByteBuffer.allocateDirect(4);
+        materials.put(0, (byte) 9);
+        shape.getMaterials(1, 1, 2, 2, materials, 2);
+        Assert.assertEquals(0, materials.get(0));
+        shape.getMaterials(1, 1, 1, 1, materials, 1);
+
+        // Heights must be accessed in whole blocks and direct buffers:
+        try {
+            shape.getHeights(1, 0, 2, 2, heights, 4);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+        try {
+            shape.getHeights(0, 0, 4, 4, FloatBuffer.allocate(16), 4);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
     }
 
     /**
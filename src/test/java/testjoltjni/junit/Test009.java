@@ -0,0 +1,235 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package testjoltjni.junit;
+
+import com.github.stephengold.joltjni.BodyCreationSettings;
+import com.github.stephengold.joltjni.BodyId;
+import com.github.stephengold.joltjni.BodyInterface;
+import com.github.stephengold.joltjni.HeightFieldTerrain;
+import com.github.stephengold.joltjni.Jolt;
+import com.github.stephengold.joltjni.PhysicsSystem;
+import com.github.stephengold.joltjni.Quat;
+import com.github.stephengold.joltjni.RVec3;
+import com.github.stephengold.joltjni.SphereShape;
+import com.github.stephengold.joltjni.Vec3;
+import com.github.stephengold.joltjni.enumerate.EActivation;
+import com.github.stephengold.joltjni.enumerate.EMotionType;
+import java.nio.FloatBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+import testjoltjni.TestUtils;
+
+/**
+ * Automated JUnit4 tests for streaming and editing a
+ * {@code HeightFieldTerrain}.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class Test009 {
+    // *************************************************************************
+    // constants
+
+    /**
+     * number of samples along each edge of the test height map
+     */
+    final private static int mapSamples = 17;
+    /**
+     * number of cells along each edge of a tile
+     */
+    final private static int tileCells = 8;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test streaming, editing, and unloading.
+     */
+    @Test
+    public void test009() throws InterruptedException {
+        TestUtils.loadNativeLibrary();
+        TestUtils.initializeNativeLibrary();
+
+        doEditWakesBodies();
+        doOddBlockSize();
+        doUnloadWhileCooking();
+
+        TestUtils.cleanup();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Verify that an edit wakes a sleeping body above the edited region, even
+     * when the terrain origin is far from the system origin.
+     */
+    private static void doEditWakesBodies() throws InterruptedException {
+        PhysicsSystem system = TestUtils.newPhysicsSystem(16);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        RVec3 origin = new RVec3(1000., 50., -1000.);
+        HeightFieldTerrain terrain = new HeightFieldTerrain(system,
+                Jolt.newDirectFloatBuffer(mapSamples * mapSamples),
+                mapSamples, tileCells, 4, origin, new Vec3(1f, 1f, 1f),
+                TestUtils.objLayerNonMoving, executor);
+        terrain.setHeightRange(-4f, 4f);
+
+        RVec3 observer = new RVec3(1004., 50., -996.);
+        for (int i = 0; i < 1_000 && terrain.countLoadedTiles() < 4; ++i) {
+            terrain.update(observer);
+            Thread.sleep(1L);
+        }
+        Assert.assertEquals(4, terrain.countLoadedTiles());
+        Assert.assertEquals(0, terrain.countPendingTiles());
+        Assert.assertNotNull(terrain.getBodyId(0, 0));
+
+        // Add a sleeping sphere above sample (4,4):
+        SphereShape sphere = new SphereShape(0.5f);
+        BodyCreationSettings bcs = new BodyCreationSettings(sphere,
+                new RVec3(1004., 50.6, -996.), new Quat(),
+                EMotionType.Dynamic, TestUtils.objLayerMoving);
+        BodyInterface bi = system.getBodyInterface();
+        BodyId sphereId = bi.createAndAddBody(bcs, EActivation.DontActivate);
+        Assert.assertFalse(bi.isActive(sphereId));
+
+        // Raise the samples below the sphere:
+        FloatBuffer heights = Jolt.newDirectFloatBuffer(4);
+        for (int i = 0; i < 4; ++i) {
+            heights.put(i, 0.2f);
+        }
+        terrain.setHeights(4, 4, 2, 2, heights, 2);
+        Assert.assertTrue(bi.isActive(sphereId));
+
+        bi.removeBody(sphereId);
+        bi.destroyBody(sphereId);
+        terrain.close();
+        Assert.assertEquals(0, system.getNumBodies());
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10L, TimeUnit.SECONDS));
+
+        TestUtils.testClose(bcs, sphere);
+        TestUtils.cleanupPhysicsSystem(system);
+        System.gc();
+    }
+
+    /**
+     * Verify that edits are rounded to whole blocks when the block size isn't
+     * a power of 2.
+     */
+    private static void doOddBlockSize() throws InterruptedException {
+        PhysicsSystem system = TestUtils.newPhysicsSystem(16);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        int numSamples = 13;
+        HeightFieldTerrain terrain = new HeightFieldTerrain(system,
+                Jolt.newDirectFloatBuffer(numSamples * numSamples),
+                numSamples, 6, 3, new RVec3(), new Vec3(1f, 1f, 1f),
+                TestUtils.objLayerNonMoving, executor);
+        terrain.setHeightRange(-4f, 4f);
+
+        RVec3 observer = new RVec3(4., 0., 4.);
+        for (int i = 0; i < 1_000 && terrain.countLoadedTiles() < 4; ++i) {
+            terrain.update(observer);
+            Thread.sleep(1L);
+        }
+        Assert.assertEquals(4, terrain.countLoadedTiles());
+
+        // Add a sleeping sphere above sample (4,4):
+        SphereShape sphere = new SphereShape(0.5f);
+        BodyCreationSettings bcs = new BodyCreationSettings(sphere,
+                new RVec3(4., 0.6, 4.), new Quat(), EMotionType.Dynamic,
+                TestUtils.objLayerMoving);
+        BodyInterface bi = system.getBodyInterface();
+        BodyId sphereId = bi.createAndAddBody(bcs, EActivation.DontActivate);
+
+        // An edit that straddles blocks [3,6) and [6,9) in both directions:
+        FloatBuffer heights = Jolt.newDirectFloatBuffer(9);
+        for (int i = 0; i < 9; ++i) {
+            heights.put(i, 0.2f);
+        }
+        terrain.setHeights(4, 4, 3, 3, heights, 3);
+        Assert.assertTrue(bi.isActive(sphereId));
+
+        bi.removeBody(sphereId);
+        bi.destroyBody(sphereId);
+        terrain.close();
+        Assert.assertEquals(0, system.getNumBodies());
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10L, TimeUnit.SECONDS));
+
+        TestUtils.testClose(bcs, sphere);
+        TestUtils.cleanupPhysicsSystem(system);
+        System.gc();
+    }
+
+    /**
+     * Verify that tiles unloaded while being cooked never reach the physics
+     * system.
+     */
+    private static void doUnloadWhileCooking() throws InterruptedException {
+        PhysicsSystem system = TestUtils.newPhysicsSystem(16);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        HeightFieldTerrain terrain = new HeightFieldTerrain(system,
+                Jolt.newDirectFloatBuffer(mapSamples * mapSamples),
+                mapSamples, tileCells, 4, new RVec3(), new Vec3(1f, 1f, 1f),
+                TestUtils.objLayerNonMoving, executor);
+
+        // Stall the executor so the cooks remain in flight:
+        CountDownLatch latch = new CountDownLatch(1);
+        executor.submit(() -> {
+            latch.await();
+            return null;
+        });
+        RVec3 near = new RVec3(4., 0., 4.);
+        terrain.update(near);
+        Assert.assertEquals(4, terrain.countPendingTiles());
+
+        // Unload everything, then let the cooks finish:
+        RVec3 far = new RVec3(1e4, 0., 1e4);
+        terrain.update(far);
+        Assert.assertEquals(0, terrain.countPendingTiles());
+        latch.countDown();
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10L, TimeUnit.SECONDS));
+
+        terrain.update(far);
+        Assert.assertEquals(0, terrain.countLoadedTiles());
+        Assert.assertEquals(0, system.getNumBodies());
+
+        // Unload tiles whose cooks finished but were never harvested:
+        ExecutorService executor2 = Executors.newSingleThreadExecutor();
+        HeightFieldTerrain terrain2 = new HeightFieldTerrain(system,
+                Jolt.newDirectFloatBuffer(mapSamples * mapSamples),
+                mapSamples, tileCells, 4, new RVec3(), new Vec3(1f, 1f, 1f),
+                TestUtils.objLayerNonMoving, executor2);
+        terrain2.update(near);
+        executor2.shutdown();
+        Assert.assertTrue(executor2.awaitTermination(10L, TimeUnit.SECONDS));
+        terrain2.close();
+        Assert.assertEquals(0, terrain2.countPendingTiles());
+        Assert.assertEquals(0, system.getNumBodies());
+
+        terrain.close();
+        TestUtils.cleanupPhysicsSystem(system);
+        System.gc();
+    }
+}
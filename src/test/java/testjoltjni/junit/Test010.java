@@ -0,0 +1,151 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package testjoltjni.junit;
+
+import com.github.stephengold.joltjni.BodyCreationSettings;
+import com.github.stephengold.joltjni.BodyId;
+import com.github.stephengold.joltjni.BodyInterface;
+import com.github.stephengold.joltjni.BoxShape;
+import com.github.stephengold.joltjni.JoltPhysicsObject;
+import com.github.stephengold.joltjni.MemoryStats;
+import com.github.stephengold.joltjni.PhysicsSystem;
+import com.github.stephengold.joltjni.Quat;
+import com.github.stephengold.joltjni.RVec3;
+import com.github.stephengold.joltjni.TempAllocatorImpl;
+import com.github.stephengold.joltjni.TempAllocatorMalloc;
+import com.github.stephengold.joltjni.Vec3;
+import com.github.stephengold.joltjni.enumerate.EActivation;
+import com.github.stephengold.joltjni.enumerate.EMotionType;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+import testjoltjni.TestUtils;
+
+/**
+ * Automated JUnit4 tests for native memory accounting.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class Test010 {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test memory snapshots, temp-allocator accounting, and live counting.
+     */
+    @Test
+    public void test010() {
+        TestUtils.loadNativeLibrary();
+        TestUtils.initializeNativeLibrary();
+
+        doLiveCounting();
+        doMemoryStats();
+        doTempAllocatorImpl();
+
+        TestUtils.cleanup();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Test the live counts of owned native objects.
+     */
+    private static void doLiveCounting() {
+        JoltPhysicsObject.setLiveCounting(true);
+        Assert.assertTrue(JoltPhysicsObject.countLive().isEmpty());
+
+        Vec3 halfExtents = new Vec3(1f, 1f, 1f);
+        BoxShape box = new BoxShape(halfExtents);
+        Map<String, Long> counts = JoltPhysicsObject.countLive();
+        Assert.assertEquals(Long.valueOf(1L), counts.get("BoxShape"));
+
+        JoltPhysicsObject.setLiveCounting(false);
+        Assert.assertTrue(JoltPhysicsObject.countLive().isEmpty());
+
+        TestUtils.testClose(box);
+        System.gc();
+    }
+
+    /**
+     * Test the {@code MemoryStats} class.
+     */
+    private static void doMemoryStats() {
+        PhysicsSystem system = TestUtils.newPhysicsSystem(16);
+        TempAllocatorImpl allocator = new TempAllocatorImpl(1 << 16);
+
+        MemoryStats empty = system.getMemoryStats(allocator);
+        Assert.assertEquals(0L, empty.getConstraintBytes());
+        Assert.assertEquals(0L, empty.getShapeBytes());
+        Assert.assertEquals(1 << 16, empty.getTempAllocatorBytes());
+
+        // Two bodies sharing a single shape:
+        BoxShape box = new BoxShape(new Vec3(1f, 1f, 1f));
+        BodyCreationSettings bcs = new BodyCreationSettings(box, new RVec3(),
+                new Quat(), EMotionType.Dynamic, TestUtils.objLayerMoving);
+        BodyInterface bi = system.getBodyInterface();
+        BodyId id1 = bi.createAndAddBody(bcs, EActivation.DontActivate);
+        MemoryStats one = system.getMemoryStats();
+        BodyId id2 = bi.createAndAddBody(bcs, EActivation.DontActivate);
+        MemoryStats two = system.getMemoryStats();
+
+        Assert.assertEquals(0L, one.getTempAllocatorBytes());
+        Assert.assertTrue(one.getShapeBytes() > 0L);
+        Assert.assertEquals(one.getShapeBytes(), two.getShapeBytes());
+        Assert.assertTrue(
+                two.getBodyStorageBytes() > one.getBodyStorageBytes());
+        Assert.assertEquals(two.totalBytes(), two.getBodyStorageBytes()
+                + two.getBroadPhaseBytes() + two.getContactCacheBytes()
+                + two.getConstraintBytes() + two.getShapeBytes()
+                + two.getTempAllocatorBytes());
+
+        // Only TempAllocatorImpl can be measured:
+        TempAllocatorMalloc malloc = new TempAllocatorMalloc();
+        try {
+            system.getMemoryStats(allocator, malloc);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+
+        bi.removeBody(id1);
+        bi.destroyBody(id1);
+        bi.removeBody(id2);
+        bi.destroyBody(id2);
+        TestUtils.testClose(malloc, bcs, box, allocator);
+        TestUtils.cleanupPhysicsSystem(system);
+        System.gc();
+    }
+
+    /**
+     * Test the accessors of the {@code TempAllocatorImpl} class.
+     */
+    private static void doTempAllocatorImpl() {
+        TempAllocatorImpl allocator = new TempAllocatorImpl(4_096);
+
+        Assert.assertEquals(4_096, allocator.getSize());
+        Assert.assertEquals(0, allocator.getUsage());
+        Assert.assertTrue(allocator.isEmpty());
+
+        TestUtils.testClose(allocator);
+        System.gc();
+    }
+}
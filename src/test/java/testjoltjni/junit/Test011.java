@@ -0,0 +1,151 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package testjoltjni.junit;
+
+import com.github.stephengold.joltjni.CompoundShape;
+import com.github.stephengold.joltjni.ConvexDecomposition;
+import com.github.stephengold.joltjni.Jolt;
+import com.github.stephengold.joltjni.ShapeRefC;
+import com.github.stephengold.joltjni.ShapeResult;
+import com.github.stephengold.joltjni.StaticCompoundShapeSettings;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+import testjoltjni.TestUtils;
+
+/**
+ * Automated JUnit4 tests for {@code ConvexDecomposition}.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class Test011 {
+    // *************************************************************************
+    // constants
+
+    /**
+     * vertex indices of a unit cube with outward faces
+     */
+    final private static int[] cubeIndices = {
+        0, 2, 1, 0, 3, 2, // -Z
+        4, 5, 6, 4, 6, 7, // +Z
+        0, 1, 5, 0, 5, 4, // -Y
+        3, 7, 6, 3, 6, 2, // +Y
+        0, 4, 7, 0, 7, 3, // -X
+        1, 2, 6, 1, 6, 5 // +X
+    };
+    /**
+     * vertex locations: a unit cube followed by a separate flat square
+     */
+    final private static float[] locations = {
+        0f, 0f, 0f, 1f, 0f, 0f, 1f, 1f, 0f, 0f, 1f, 0f,
+        0f, 0f, 1f, 1f, 0f, 1f, 1f, 1f, 1f, 0f, 1f, 1f,
+        10f, 0f, 0f, 11f, 0f, 0f, 11f, 0f, 1f, 10f, 0f, 1f
+    };
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test decomposition of convex and degenerate meshes.
+     */
+    @Test
+    public void test011() {
+        TestUtils.loadNativeLibrary();
+        TestUtils.initializeNativeLibrary();
+
+        doDefaults();
+        doConvexMesh();
+        doDegeneratePart();
+
+        TestUtils.cleanup();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Decompose the specified mesh and count the resulting hulls.
+     *
+     * @param decomposition the decomposition settings (not null)
+     * @param indices the vertex indices (not null, unaffected)
+     * @return the number of sub-shapes
+     */
+    private static int countHulls(
+            ConvexDecomposition decomposition, int[] indices) {
+        FloatBuffer vertices = Jolt.newDirectFloatBuffer(locations.length);
+        vertices.put(locations).flip();
+        IntBuffer indexBuffer = Jolt.newDirectIntBuffer(indices.length);
+        indexBuffer.put(indices).flip();
+
+        StaticCompoundShapeSettings settings
+                = decomposition.decompose(vertices, indexBuffer, null);
+        ShapeResult result = settings.create();
+        Assert.assertFalse(result.hasError());
+        ShapeRefC ref = result.get();
+        int numHulls = ((CompoundShape) ref.getPtr()).getNumSubShapes();
+
+        TestUtils.testClose(ref, result, settings);
+        return numHulls;
+    }
+
+    /**
+     * Decompose a cube, which should yield a single hull.
+     */
+    private static void doConvexMesh() {
+        ConvexDecomposition decomposition = new ConvexDecomposition();
+        Assert.assertEquals(1, countHulls(decomposition, cubeIndices));
+        Assert.assertEquals(0, decomposition.countDroppedParts());
+        System.gc();
+    }
+
+    /**
+     * Test the defaults of a new decomposition.
+     */
+    private static void doDefaults() {
+        ConvexDecomposition decomposition = new ConvexDecomposition();
+
+        Assert.assertEquals(0, decomposition.countDroppedParts());
+        Assert.assertEquals(1e-3f, decomposition.getHullTolerance(), 0f);
+        Assert.assertEquals(0.01f, decomposition.getMaxConcavity(), 0f);
+        Assert.assertEquals(32, decomposition.getMaxHulls());
+        Assert.assertEquals(8, decomposition.getPlanesPerAxis());
+    }
+
+    /**
+     * Decompose a cube plus a flat square, whose part has no volume and
+     * should be omitted and counted.
+     */
+    private static void doDegeneratePart() {
+        int[] indices = new int[cubeIndices.length + 6];
+        System.arraycopy(cubeIndices, 0, indices, 0, cubeIndices.length);
+        int[] square = {8, 9, 10, 8, 10, 11};
+        System.arraycopy(square, 0, indices, cubeIndices.length, 6);
+
+        ConvexDecomposition decomposition = new ConvexDecomposition();
+        Assert.assertEquals(1, countHulls(decomposition, indices));
+        Assert.assertEquals(1, decomposition.countDroppedParts());
+
+        // A subsequent decomposition resets the count:
+        Assert.assertEquals(1, countHulls(decomposition, cubeIndices));
+        Assert.assertEquals(0, decomposition.countDroppedParts());
+        System.gc();
+    }
+}
@@ -0,0 +1,208 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package testjoltjni.junit;
+
+import com.github.stephengold.joltjni.BoxShape;
+import com.github.stephengold.joltjni.BoxShapeSettings;
+import com.github.stephengold.joltjni.DebugMesh;
+import com.github.stephengold.joltjni.MutableCompoundShape;
+import com.github.stephengold.joltjni.MutableCompoundShapeSettings;
+import com.github.stephengold.joltjni.Quat;
+import com.github.stephengold.joltjni.ShapeRefC;
+import com.github.stephengold.joltjni.ShapeResult;
+import com.github.stephengold.joltjni.SphereShapeSettings;
+import com.github.stephengold.joltjni.Vec3;
+import java.nio.FloatBuffer;
+import java.nio.ReadOnlyBufferException;
+import org.junit.Assert;
+import org.junit.Test;
+import testjoltjni.TestUtils;
+
+/**
+ * Automated JUnit4 tests for {@code DebugMesh}.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class Test012 {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test mesh generation, crease splitting, and caching.
+     */
+    @Test
+    public void test012() {
+        TestUtils.loadNativeLibrary();
+        TestUtils.initializeNativeLibrary();
+
+        doCreases();
+        doCache();
+        doBareShape();
+        doReadOnlyViews();
+        doEviction();
+
+        DebugMesh.clearCache();
+        TestUtils.cleanup();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Verify that purging doesn't free a shape that had no counted references
+     * when its mesh was cached.
+     */
+    private static void doBareShape() {
+        DebugMesh.clearCache();
+        BoxShape box = new BoxShape(new Vec3(1f, 1f, 1f));
+        Assert.assertEquals(0, box.getRefCount());
+
+        DebugMesh mesh = box.getDebugMesh(0);
+        Assert.assertEquals(1, box.getRefCount());
+        Assert.assertEquals(0, DebugMesh.purge());
+
+        // The shape is still usable:
+        Assert.assertEquals(1, box.getRefCount());
+        TestUtils.assertEquals(1f, 1f, 1f, box.getHalfExtent(), 0f);
+        Assert.assertSame(mesh, box.getDebugMesh(0));
+
+        // Evicting releases the only counted reference, freeing the shape:
+        DebugMesh.evict(box);
+        System.gc();
+    }
+
+    /**
+     * Verify that meshes are shared and that unreferenced shapes get purged.
+     */
+    private static void doCache() {
+        DebugMesh.clearCache();
+        BoxShapeSettings settings = new BoxShapeSettings(new Vec3(1f, 1f, 1f));
+        ShapeResult result = settings.create();
+        ShapeRefC ref = result.get();
+
+        DebugMesh mesh = ref.getDebugMesh(0);
+        Assert.assertSame(mesh, ref.getDebugMesh(0));
+        Assert.assertSame(mesh, ref.getPtr().getDebugMesh(0));
+        Assert.assertNotSame(mesh, ref.getDebugMesh(8));
+
+        // The shape is still referenced by the test:
+        Assert.assertEquals(0, DebugMesh.purge());
+
+        // Once only the cache references the shape, a purge releases it:
+        ref.close();
+        result.close();
+        settings.close();
+        Assert.assertEquals(1, DebugMesh.purge());
+        Assert.assertEquals(0, DebugMesh.purge());
+        System.gc();
+    }
+
+    /**
+     * Verify that a box has sharp edges and a sphere is smooth.
+     */
+    private static void doCreases() {
+        BoxShapeSettings boxSettings
+                = new BoxShapeSettings(new Vec3(1f, 1f, 1f));
+        ShapeRefC box = boxSettings.create().get();
+        DebugMesh boxMesh = box.getDebugMesh(0);
+        Assert.assertEquals(12, boxMesh.countTriangles());
+        Assert.assertEquals(24, boxMesh.countVertices());
+
+        // Every normal of the box should be axis-aligned:
+        FloatBuffer normals = boxMesh.getNormals();
+        for (int i = 0; i < normals.capacity(); ++i) {
+            float component = Math.abs(normals.get(i));
+            Assert.assertTrue(component < 1e-6f || component > 1f - 1e-6f);
+        }
+
+        SphereShapeSettings sphereSettings = new SphereShapeSettings(1f);
+        ShapeRefC sphere = sphereSettings.create().get();
+        DebugMesh sphereMesh = sphere.getDebugMesh(16);
+        Assert.assertTrue(sphereMesh.countTriangles() > 0);
+        Assert.assertTrue(
+                sphereMesh.countVertices() < sphereMesh.countTriangles());
+
+        // Each normal of the sphere should point away from its center:
+        FloatBuffer positions = sphereMesh.getPositions();
+        normals = sphereMesh.getNormals();
+        for (int i = 0; i < sphereMesh.countVertices(); ++i) {
+            float dot = 0f;
+            for (int axis = 0; axis < 3; ++axis) {
+                dot += positions.get(3 * i + axis) * normals.get(3 * i + axis);
+            }
+            Assert.assertTrue(dot > 0.9f);
+        }
+
+        TestUtils.testClose(sphere, sphereSettings, box, boxSettings);
+        System.gc();
+    }
+
+    /**
+     * Verify that callers get independent, read-only views of a mesh.
+     */
+    private static void doReadOnlyViews() {
+        SphereShapeSettings settings = new SphereShapeSettings(1f);
+        ShapeRefC ref = settings.create().get();
+        DebugMesh mesh = ref.getDebugMesh(0);
+
+        FloatBuffer positions = mesh.getPositions();
+        Assert.assertTrue(positions.isDirect());
+        Assert.assertTrue(positions.isReadOnly());
+        positions.position(3);
+        Assert.assertEquals(0, mesh.getPositions().position());
+        try {
+            positions.put(0, 9f);
+            Assert.fail("Expected a ReadOnlyBufferException");
+        } catch (ReadOnlyBufferException exception) {
+            // expected
+        }
+        Assert.assertTrue(mesh.getNormals().isReadOnly());
+        Assert.assertTrue(mesh.getIndices().isReadOnly());
+
+        TestUtils.testClose(ref, settings);
+        System.gc();
+    }
+
+    /**
+     * Verify that modifying a mutable compound evicts its cached mesh.
+     */
+    private static void doEviction() {
+        BoxShapeSettings boxSettings
+                = new BoxShapeSettings(new Vec3(1f, 1f, 1f));
+        ShapeRefC box = boxSettings.create().get();
+        MutableCompoundShapeSettings settings
+                = new MutableCompoundShapeSettings();
+        settings.addShape(new Vec3(), new Quat(), boxSettings);
+        ShapeRefC ref = settings.create().get();
+        MutableCompoundShape compound = (MutableCompoundShape) ref.getPtr();
+
+        DebugMesh before = ref.getDebugMesh(0);
+        Assert.assertEquals(12, before.countTriangles());
+
+        compound.addShape(new Vec3(5f, 0f, 0f), new Quat(), box);
+        DebugMesh after = ref.getDebugMesh(0);
+        Assert.assertNotSame(before, after);
+        Assert.assertEquals(24, after.countTriangles());
+
+        TestUtils.testClose(ref, settings, box, boxSettings);
+        System.gc();
+    }
+}
@@ -0,0 +1,155 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package testjoltjni.junit;
+
+import com.github.stephengold.joltjni.CapsuleShape;
+import com.github.stephengold.joltjni.CharacterVirtual;
+import com.github.stephengold.joltjni.CharacterVirtualManager;
+import com.github.stephengold.joltjni.CharacterVirtualSettings;
+import com.github.stephengold.joltjni.CharacterVsCharacterCollisionSimple;
+import com.github.stephengold.joltjni.Jolt;
+import com.github.stephengold.joltjni.PhysicsSystem;
+import com.github.stephengold.joltjni.Quat;
+import com.github.stephengold.joltjni.RVec3;
+import com.github.stephengold.joltjni.TempAllocatorMalloc;
+import com.github.stephengold.joltjni.Vec3;
+import com.github.stephengold.joltjni.enumerate.EGroundState;
+import java.nio.FloatBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.Assert;
+import org.junit.Test;
+import testjoltjni.TestUtils;
+
+/**
+ * Automated JUnit4 tests for {@code CharacterVirtualManager}.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class Test013 {
+    // *************************************************************************
+    // constants
+
+    /**
+     * number of characters to manage
+     */
+    final private static int numCharacters = 20;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test serial and parallel updates.
+     */
+    @Test
+    public void test013() {
+        TestUtils.loadNativeLibrary();
+        TestUtils.initializeNativeLibrary();
+
+        doCharacterVirtualManager();
+
+        TestUtils.cleanup();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Test the {@code CharacterVirtualManager} class.
+     */
+    private static void doCharacterVirtualManager() {
+        PhysicsSystem system = TestUtils.newPhysicsSystem(16);
+        CapsuleShape shape = new CapsuleShape(0.5f, 0.3f);
+        CharacterVirtualSettings settings = new CharacterVirtualSettings();
+        settings.setShape(shape);
+
+        CharacterVirtualManager manager = new CharacterVirtualManager(system);
+        Assert.assertEquals(0, manager.countCharacters());
+        FloatBuffer velocities = Jolt.newDirectFloatBuffer(3 * numCharacters);
+        for (int i = 0; i < numCharacters; ++i) {
+            RVec3 location = new RVec3(10. * i, 100., 0.);
+            CharacterVirtual character = new CharacterVirtual(
+                    settings, location, new Quat(), 0L, system);
+            Assert.assertEquals(i, manager.add(
+                    character, TestUtils.objLayerMoving));
+            velocities.put(3 * i, 1f);
+        }
+        Assert.assertEquals(numCharacters, manager.countCharacters());
+        FloatBuffer states = Jolt.newDirectFloatBuffer(
+                CharacterVirtualManager.cStateStride * numCharacters);
+        Vec3 gravity = new Vec3(0f, -9.81f, 0f);
+
+        // Serial update:
+        TempAllocatorMalloc allocator = new TempAllocatorMalloc();
+        manager.update(0.1f, gravity, velocities, states, allocator);
+        assertStates(states, 0.1f);
+
+        // Parallel update on an executor:
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        manager.update(0.1f, gravity, velocities, states, executor, 2);
+        assertStates(states, 0.2f);
+
+        // Characters that collide with each other can't update in parallel:
+        CharacterVsCharacterCollisionSimple cvc
+                = new CharacterVsCharacterCollisionSimple();
+        CharacterVirtual first = manager.get(0);
+        cvc.add(first);
+        first.setCharacterVsCharacterCollision(cvc);
+        try {
+            manager.update(0.1f, gravity, velocities, states, executor, 2);
+            Assert.fail("Expected an IllegalStateException");
+        } catch (IllegalStateException exception) {
+            // expected
+        }
+        manager.update(0.1f, gravity, velocities, states, allocator);
+        assertStates(states, 0.3f);
+
+        // Removal shifts later characters down:
+        CharacterVirtual second = manager.get(1);
+        Assert.assertTrue(manager.remove(first));
+        Assert.assertFalse(manager.remove(first));
+        Assert.assertSame(second, manager.get(0));
+
+        executor.shutdown();
+        TestUtils.testClose(allocator, settings, shape);
+        TestUtils.cleanupPhysicsSystem(system);
+        System.gc();
+    }
+
+    /**
+     * Verify the states of all characters after moving along +X.
+     *
+     * @param states the states written by the manager (not null, unaffected)
+     * @param expectedX the expected X offset of each character
+     */
+    private static void assertStates(FloatBuffer states, float expectedX) {
+        int stride = CharacterVirtualManager.cStateStride;
+        for (int i = 0; i < numCharacters; ++i) {
+            int base = stride * i;
+            Assert.assertEquals(
+                    10f * i + expectedX, states.get(base), 1e-3f);
+            Assert.assertEquals(100f, states.get(base + 1), 1e-3f);
+            Assert.assertEquals(1f, states.get(base + 3), 1e-3f);
+            Assert.assertEquals(EGroundState.InAir.ordinal(),
+                    states.get(base + 6), 0f);
+            Assert.assertEquals(0f, states.get(base + 7), 0f);
+        }
+    }
+}
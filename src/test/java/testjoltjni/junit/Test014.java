@@ -0,0 +1,140 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package testjoltjni.junit;
+
+import com.github.stephengold.joltjni.CapsuleShape;
+import com.github.stephengold.joltjni.CharacterVirtual;
+import com.github.stephengold.joltjni.CharacterVirtualManager;
+import com.github.stephengold.joltjni.CharacterVirtualSettings;
+import com.github.stephengold.joltjni.CharacterVsCharacterCollisionGrid;
+import com.github.stephengold.joltjni.Jolt;
+import com.github.stephengold.joltjni.PhysicsSystem;
+import com.github.stephengold.joltjni.Quat;
+import com.github.stephengold.joltjni.RVec3;
+import com.github.stephengold.joltjni.TempAllocatorMalloc;
+import com.github.stephengold.joltjni.Vec3;
+import java.nio.FloatBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+import testjoltjni.TestUtils;
+
+/**
+ * Automated JUnit4 tests for {@code CharacterVsCharacterCollisionGrid}.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class Test014 {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test binning and blocking of characters by a grid.
+     */
+    @Test
+    public void test014() {
+        TestUtils.loadNativeLibrary();
+        TestUtils.initializeNativeLibrary();
+
+        doInvalidArguments();
+        doGrid();
+
+        TestUtils.cleanup();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Test a grid shared by 2 characters, one of which runs into the other.
+     */
+    private static void doGrid() {
+        PhysicsSystem system = TestUtils.newPhysicsSystem(16);
+        CapsuleShape shape = new CapsuleShape(0.5f, 0.3f);
+        CharacterVirtualSettings settings = new CharacterVirtualSettings();
+        settings.setShape(shape);
+
+        CharacterVsCharacterCollisionGrid grid
+                = new CharacterVsCharacterCollisionGrid(2f, 1f);
+        CharacterVirtualManager manager = new CharacterVirtualManager(system);
+        CharacterVirtual runner = new CharacterVirtual(
+                settings, new RVec3(0., 100., 0.), new Quat(), 0L, system);
+        CharacterVirtual blocker = new CharacterVirtual(
+                settings, new RVec3(1.5, 100., 0.), new Quat(), 0L, system);
+        for (CharacterVirtual character : new CharacterVirtual[]{
+            runner, blocker
+        }) {
+            manager.add(character, TestUtils.objLayerMoving);
+            grid.add(character);
+            character.setCharacterVsCharacterCollision(grid);
+        }
+        Assert.assertEquals(2, grid.countCharacters());
+        Assert.assertEquals(0, grid.update());
+
+        // The runner would travel 2 meters, but the blocker is in the way:
+        FloatBuffer velocities = Jolt.newDirectFloatBuffer(6);
+        velocities.put(0, 20f);
+        FloatBuffer states = Jolt.newDirectFloatBuffer(
+                2 * CharacterVirtualManager.cStateStride);
+        Vec3 gravity = new Vec3();
+        TempAllocatorMalloc allocator = new TempAllocatorMalloc();
+        manager.update(0.1f, gravity, velocities, states, allocator);
+        float blockedX = states.get(0);
+        Assert.assertTrue(blockedX > 0f);
+        Assert.assertTrue(blockedX < 0.95f);
+        Assert.assertEquals(
+                1.5f, states.get(CharacterVirtualManager.cStateStride), 1e-3f);
+
+        // Once the blocker leaves the grid, the runner passes through it:
+        grid.remove(blocker);
+        Assert.assertEquals(1, grid.countCharacters());
+        manager.update(0.1f, gravity, velocities, states, allocator);
+        Assert.assertEquals(blockedX + 2f, states.get(0), 1e-3f);
+
+        // Re-binning counts only characters that changed cells:
+        grid.add(blocker);
+        Assert.assertEquals(0, grid.update());
+        blocker.setPosition(new RVec3(50., 100., 0.));
+        Assert.assertEquals(1, grid.update());
+        Assert.assertEquals(0, grid.update());
+
+        TestUtils.testClose(allocator, grid, settings, shape);
+        TestUtils.cleanupPhysicsSystem(system);
+        System.gc();
+    }
+
+    /**
+     * Verify that invalid grid parameters are rejected.
+     */
+    private static void doInvalidArguments() {
+        try {
+            new CharacterVsCharacterCollisionGrid(0f, 1f);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+        try {
+            new CharacterVsCharacterCollisionGrid(1f, -1f);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package testjoltjni.junit;
+
+import com.github.stephengold.joltjni.BodyCreationSettings;
+import com.github.stephengold.joltjni.BodyId;
+import com.github.stephengold.joltjni.BodyInterface;
+import com.github.stephengold.joltjni.BoxShape;
+import com.github.stephengold.joltjni.CapsuleShape;
+import com.github.stephengold.joltjni.Character;
+import com.github.stephengold.joltjni.CharacterBase;
+import com.github.stephengold.joltjni.CharacterSettings;
+import com.github.stephengold.joltjni.CharacterStateBuffer;
+import com.github.stephengold.joltjni.CharacterVirtual;
+import com.github.stephengold.joltjni.CharacterVirtualManager;
+import com.github.stephengold.joltjni.CharacterVirtualSettings;
+import com.github.stephengold.joltjni.Jolt;
+import com.github.stephengold.joltjni.PhysicsSystem;
+import com.github.stephengold.joltjni.Quat;
+import com.github.stephengold.joltjni.RVec3;
+import com.github.stephengold.joltjni.TempAllocatorMalloc;
+import com.github.stephengold.joltjni.Vec3;
+import com.github.stephengold.joltjni.enumerate.EActivation;
+import com.github.stephengold.joltjni.enumerate.EGroundState;
+import com.github.stephengold.joltjni.enumerate.EMotionType;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import testjoltjni.TestUtils;
+
+/**
+ * Automated JUnit4 tests for {@code CharacterStateBuffer}.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class Test015 {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test capturing the states of virtual and body-backed characters.
+     */
+    @Test
+    public void test015() {
+        TestUtils.loadNativeLibrary();
+        TestUtils.initializeNativeLibrary();
+
+        doInvalidArguments();
+        doCapture();
+
+        TestUtils.cleanup();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Capture a virtual character standing on a floor and a body-backed
+     * character in the air.
+     */
+    private static void doCapture() {
+        PhysicsSystem system = TestUtils.newPhysicsSystem(16);
+        BodyInterface bi = system.getBodyInterface();
+        BoxShape floorShape = new BoxShape(new Vec3(10f, 1f, 10f));
+        BodyCreationSettings bcs = new BodyCreationSettings(floorShape,
+                new RVec3(0., -1., 0.), new Quat(), EMotionType.Static,
+                TestUtils.objLayerNonMoving);
+        BodyId floorId = bi.createAndAddBody(bcs, EActivation.DontActivate);
+        system.optimizeBroadPhase();
+
+        // A virtual character that settles onto the floor:
+        CapsuleShape shape = new CapsuleShape(0.5f, 0.3f);
+        CharacterVirtualSettings virtualSettings
+                = new CharacterVirtualSettings();
+        virtualSettings.setShape(shape);
+        CharacterVirtual walker = new CharacterVirtual(virtualSettings,
+                new RVec3(2., 0.85, 0.), new Quat(), 0L, system);
+        CharacterVirtualManager manager = new CharacterVirtualManager(system);
+        manager.add(walker, TestUtils.objLayerMoving);
+        FloatBuffer velocities = Jolt.newDirectFloatBuffer(3);
+        velocities.put(1, -1f);
+        FloatBuffer states = Jolt.newDirectFloatBuffer(
+                CharacterVirtualManager.cStateStride);
+        TempAllocatorMalloc allocator = new TempAllocatorMalloc();
+        manager.update(0.1f, new Vec3(0f, -9.81f, 0f), velocities, states,
+                allocator);
+
+        // A body-backed character in mid-air:
+        CharacterSettings settings = new CharacterSettings();
+        settings.setShape(shape);
+        settings.setLayer(TestUtils.objLayerMoving);
+        Character jumper = new Character(
+                settings, new RVec3(-2., 5., 0.), new Quat(), 0L, system);
+        jumper.addToPhysicsSystem();
+        jumper.setLinearVelocity(new Vec3(1f, 2f, 3f));
+
+        List<CharacterBase> characters = new ArrayList<>(2);
+        characters.add(walker);
+        characters.add(jumper);
+        CharacterStateBuffer buffer = new CharacterStateBuffer(2, 4);
+        Assert.assertEquals(2, buffer.capture(characters));
+        Assert.assertEquals(2 * buffer.recordBytes(),
+                buffer.getBuffer().limit());
+
+        // The virtual character stands on the floor:
+        Vec3 position = buffer.getPosition(0);
+        Assert.assertEquals(2f, position.getX(), 1e-3f);
+        Assert.assertEquals(0.8f, position.getY(), 0.05f);
+        Assert.assertEquals(EGroundState.OnGround, buffer.getGroundState(0));
+        int numContacts = buffer.countContacts(0);
+        Assert.assertTrue(numContacts >= 1);
+        Assert.assertEquals(floorId.getIndexAndSequenceNumber(),
+                buffer.getContactBodyId(0, 0));
+        Assert.assertEquals(
+                0, buffer.getContactFlags(0, 0)
+                & CharacterStateBuffer.cContactIsCharacter);
+        Assert.assertEquals(1f, buffer.getContactNormal(0, 0).getY(), 1e-3f);
+        try {
+            buffer.getContactFlags(0, numContacts);
+            Assert.fail("Expected an IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException exception) {
+            // expected
+        }
+
+        // The body-backed character has velocity but no contact records:
+        position = buffer.getPosition(1);
+        Assert.assertEquals(-2f, position.getX(), 1e-3f);
+        Assert.assertEquals(5f, position.getY(), 1e-3f);
+        Vec3 velocity = buffer.getLinearVelocity(1);
+        Assert.assertEquals(1f, velocity.getX(), 1e-3f);
+        Assert.assertEquals(2f, velocity.getY(), 1e-3f);
+        Assert.assertEquals(3f, velocity.getZ(), 1e-3f);
+        Assert.assertEquals(0, buffer.countContacts(1));
+
+        // Records beyond the most recent capture are inaccessible:
+        characters.remove(jumper);
+        Assert.assertEquals(1, buffer.capture(characters));
+        try {
+            buffer.getPosition(1);
+            Assert.fail("Expected an IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException exception) {
+            // expected
+        }
+
+        jumper.removeFromPhysicsSystem();
+        TestUtils.testClose(allocator, settings, virtualSettings, shape, bcs,
+                floorShape);
+        TestUtils.cleanupPhysicsSystem(system);
+        System.gc();
+    }
+
+    /**
+     * Verify that invalid capacities are rejected.
+     */
+    private static void doInvalidArguments() {
+        try {
+            new CharacterStateBuffer(-1, 0);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+        try {
+            new CharacterStateBuffer(1, -1);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+
+        // Capturing more characters than the buffer holds:
+        CharacterStateBuffer buffer = new CharacterStateBuffer(0, 0);
+        List<CharacterBase> characters = new ArrayList<>(1);
+        characters.add(null);
+        try {
+            buffer.capture(characters);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+    }
+}
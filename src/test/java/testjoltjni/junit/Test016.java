@@ -0,0 +1,207 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package testjoltjni.junit;
+
+import com.github.stephengold.joltjni.Body;
+import com.github.stephengold.joltjni.BodyCreationSettings;
+import com.github.stephengold.joltjni.BodyId;
+import com.github.stephengold.joltjni.BodyInterface;
+import com.github.stephengold.joltjni.BoxShape;
+import com.github.stephengold.joltjni.PhysicsSystem;
+import com.github.stephengold.joltjni.Quat;
+import com.github.stephengold.joltjni.RVec3;
+import com.github.stephengold.joltjni.Vec3;
+import com.github.stephengold.joltjni.VehicleCollisionTester;
+import com.github.stephengold.joltjni.VehicleCollisionTesterRay;
+import com.github.stephengold.joltjni.VehicleConstraint;
+import com.github.stephengold.joltjni.VehicleConstraintSettings;
+import com.github.stephengold.joltjni.VehicleLodManager;
+import com.github.stephengold.joltjni.WheelSettingsWv;
+import com.github.stephengold.joltjni.WheeledVehicleControllerSettings;
+import com.github.stephengold.joltjni.enumerate.EActivation;
+import com.github.stephengold.joltjni.enumerate.EMotionType;
+import org.junit.Assert;
+import org.junit.Test;
+import testjoltjni.TestUtils;
+
+/**
+ * Automated JUnit4 tests for {@code VehicleLodManager}.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class Test016 {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test level transitions, including a sleeping vehicle that gets woken.
+     */
+    @Test
+    public void test016() {
+        TestUtils.loadNativeLibrary();
+        TestUtils.initializeNativeLibrary();
+
+        doVehicleLodManager();
+
+        TestUtils.cleanup();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Test the {@code VehicleLodManager} class.
+     */
+    private static void doVehicleLodManager() {
+        PhysicsSystem system = TestUtils.newPhysicsSystem(16);
+        BodyInterface bi = system.getBodyInterface();
+        BoxShape carShape = new BoxShape(new Vec3(0.9f, 0.2f, 2f));
+        BodyCreationSettings bcs = new BodyCreationSettings(carShape,
+                new RVec3(0., 2., 0.), new Quat(), EMotionType.Dynamic,
+                TestUtils.objLayerMoving);
+        Body carBody = bi.createBody(bcs);
+        BodyId carId = carBody.getId();
+        bi.addBody(carId, EActivation.Activate);
+        VehicleConstraint vehicle
+                = new VehicleConstraint(carBody, newVehicleSettings());
+        VehicleCollisionTester near
+                = new VehicleCollisionTesterRay(TestUtils.objLayerMoving);
+        VehicleCollisionTester far
+                = new VehicleCollisionTesterRay(TestUtils.objLayerMoving);
+
+        VehicleLodManager manager = new VehicleLodManager(system);
+        manager.add(vehicle, near, far);
+        Assert.assertEquals(VehicleLodManager.cLodNear,
+                manager.getLod(vehicle));
+        Assert.assertSame(near, vehicle.getVehicleCollisionTester());
+
+        // With no observers, every vehicle is near:
+        manager.update();
+        Assert.assertEquals(1,
+                manager.countVehicles(VehicleLodManager.cLodNear));
+
+        // A distant observer puts the vehicle to sleep:
+        manager.addObserver(new RVec3(1000., 2., 0.));
+        manager.update();
+        Assert.assertEquals(
+                VehicleLodManager.cLodAsleep, manager.getLod(vehicle));
+        Assert.assertSame(far, vehicle.getVehicleCollisionTester());
+        Assert.assertFalse(bi.isActive(carId));
+
+        // If woken, it is held at the far level instead of sleeping again:
+        bi.activateBody(carId);
+        manager.update();
+        Assert.assertEquals(VehicleLodManager.cLodFar, manager.getLod(vehicle));
+        Assert.assertEquals(1,
+                manager.countVehicles(VehicleLodManager.cLodFar));
+        Assert.assertTrue(bi.isActive(carId));
+        manager.update();
+        Assert.assertEquals(VehicleLodManager.cLodFar, manager.getLod(vehicle));
+        Assert.assertTrue(bi.isActive(carId));
+
+        // Once it deactivates on its own, it may sleep again:
+        bi.deactivateBody(carId);
+        manager.update();
+        Assert.assertEquals(
+                VehicleLodManager.cLodAsleep, manager.getLod(vehicle));
+
+        // With sleep disabled, the farthest level is far:
+        manager.setSleepEnabled(false);
+        manager.update();
+        Assert.assertEquals(VehicleLodManager.cLodFar, manager.getLod(vehicle));
+        Assert.assertTrue(bi.isActive(carId));
+
+        // An observer close by brings the vehicle back to the near level:
+        manager.setObserver(0, new RVec3(10., 2., 0.));
+        manager.update();
+        Assert.assertEquals(VehicleLodManager.cLodNear,
+                manager.getLod(vehicle));
+        Assert.assertSame(near, vehicle.getVehicleCollisionTester());
+
+        doInvalidArguments(manager);
+
+        Assert.assertTrue(manager.remove(vehicle));
+        Assert.assertFalse(manager.remove(vehicle));
+        Assert.assertEquals(-1, manager.getLod(vehicle));
+
+        bi.removeBody(carId);
+        bi.destroyBody(carId);
+        TestUtils.testClose(far, near, vehicle, bcs, carShape);
+        TestUtils.cleanupPhysicsSystem(system);
+        System.gc();
+    }
+
+    /**
+     * Verify that invalid settings are rejected.
+     *
+     * @param manager the manager to test (not null)
+     */
+    private static void doInvalidArguments(VehicleLodManager manager) {
+        try {
+            manager.setStepsBetweenTests(VehicleLodManager.cNumLods, 1, 1);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+        try {
+            manager.setStepsBetweenTests(-1, 1, 1);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+        try {
+            manager.setStepsBetweenTests(VehicleLodManager.cLodFar, -1, 1);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+        try {
+            manager.setLodDistances(100f, 50f, 400f);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+        manager.setStepsBetweenTests(VehicleLodManager.cLodAsleep, 8, 8);
+    }
+
+    /**
+     * Generate settings for a 4-wheeled car.
+     *
+     * @return a new object
+     */
+    private static VehicleConstraintSettings newVehicleSettings() {
+        VehicleConstraintSettings result = new VehicleConstraintSettings();
+        for (int i = 0; i < 4; ++i) {
+            WheelSettingsWv wheel = new WheelSettingsWv();
+            float x = (i % 2 == 0) ? 0.9f : -0.9f;
+            float z = (i < 2) ? 1.4f : -1.4f;
+            wheel.setPosition(new Vec3(x, -0.18f, z));
+            wheel.setRadius(0.3f);
+            wheel.setWidth(0.1f);
+            result.addWheels(wheel);
+        }
+        WheeledVehicleControllerSettings controller
+                = new WheeledVehicleControllerSettings();
+        result.setController(controller);
+
+        return result;
+    }
+}
@@ -0,0 +1,182 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package testjoltjni.junit;
+
+import com.github.stephengold.joltjni.Body;
+import com.github.stephengold.joltjni.BodyCreationSettings;
+import com.github.stephengold.joltjni.BodyId;
+import com.github.stephengold.joltjni.BodyInterface;
+import com.github.stephengold.joltjni.BoxShape;
+import com.github.stephengold.joltjni.Jolt;
+import com.github.stephengold.joltjni.PhysicsSystem;
+import com.github.stephengold.joltjni.Quat;
+import com.github.stephengold.joltjni.RVec3;
+import com.github.stephengold.joltjni.Vec3;
+import com.github.stephengold.joltjni.VehicleConstraint;
+import com.github.stephengold.joltjni.VehicleConstraintSettings;
+import com.github.stephengold.joltjni.VehicleFleet;
+import com.github.stephengold.joltjni.WheelSettingsWv;
+import com.github.stephengold.joltjni.WheeledVehicleControllerSettings;
+import com.github.stephengold.joltjni.enumerate.EActivation;
+import com.github.stephengold.joltjni.enumerate.EMotionType;
+import java.nio.FloatBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+import testjoltjni.TestUtils;
+
+/**
+ * Automated JUnit4 tests for {@code VehicleFleet}.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class Test017 {
+    // *************************************************************************
+    // constants
+
+    /**
+     * number of vehicles in the fleet
+     */
+    final private static int numVehicles = 3;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test driver inputs and wheel export for a fleet of cars.
+     */
+    @Test
+    public void test017() {
+        TestUtils.loadNativeLibrary();
+        TestUtils.initializeNativeLibrary();
+
+        doVehicleFleet();
+
+        TestUtils.cleanup();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Test the {@code VehicleFleet} class.
+     */
+    private static void doVehicleFleet() {
+        PhysicsSystem system = TestUtils.newPhysicsSystem(16);
+        BodyInterface bi = system.getBodyInterface();
+        BoxShape carShape = new BoxShape(new Vec3(0.9f, 0.2f, 2f));
+        BodyCreationSettings bcs = new BodyCreationSettings(carShape,
+                new RVec3(), new Quat(), EMotionType.Dynamic,
+                TestUtils.objLayerMoving);
+        VehicleConstraintSettings vehicleSettings = newVehicleSettings();
+
+        VehicleFleet fleet = new VehicleFleet(system);
+        BodyId[] ids = new BodyId[numVehicles];
+        Vec3 right = new Vec3(0f, 1f, 0f);
+        Vec3 up = new Vec3(1f, 0f, 0f);
+        for (int i = 0; i < numVehicles; ++i) {
+            bcs.setPosition(new RVec3(10. * i, 2., 0.));
+            Body body = bi.createBody(bcs);
+            ids[i] = body.getId();
+            bi.addBody(ids[i], EActivation.DontActivate);
+            VehicleConstraint vehicle
+                    = new VehicleConstraint(body, vehicleSettings);
+            Assert.assertEquals(i, fleet.add(vehicle, right, up));
+        }
+        Assert.assertEquals(numVehicles, fleet.countVehicles());
+        Assert.assertEquals(4 * numVehicles, fleet.countWheels());
+        Assert.assertEquals(4, fleet.firstWheel(1));
+        try {
+            fleet.firstWheel(numVehicles);
+            Assert.fail("Expected an IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException exception) {
+            // expected
+        }
+
+        // Only vehicles given throttle or steering get activated:
+        FloatBuffer inputs = Jolt.newDirectFloatBuffer(
+                VehicleFleet.cInputStride * numVehicles);
+        inputs.put(0, 1f); // forward for vehicle 0
+        inputs.put(VehicleFleet.cInputStride + 1, -1f); // steer vehicle 1
+        inputs.put(2 * VehicleFleet.cInputStride + 2, 1f); // brake vehicle 2
+        fleet.applyDriverInputs(inputs);
+        Assert.assertTrue(bi.isActive(ids[0]));
+        Assert.assertTrue(bi.isActive(ids[1]));
+        Assert.assertFalse(bi.isActive(ids[2]));
+
+        // Each wheel is exported below its mounting point:
+        int stride = VehicleFleet.cWheelStride;
+        FloatBuffer wheels
+                = Jolt.newDirectFloatBuffer(stride * fleet.countWheels());
+        fleet.exportWheels(wheels);
+        for (int i = 0; i < numVehicles; ++i) {
+            int base = stride * fleet.firstWheel(i);
+            Assert.assertEquals(10f * i + 0.9f, wheels.get(base), 1e-3f);
+            Assert.assertTrue(wheels.get(base + 1) < 2f);
+            Assert.assertEquals(1.4f, wheels.get(base + 2), 1e-3f);
+            Assert.assertEquals(0f, wheels.get(base + 9), 0f);
+        }
+
+        // Buffers that are indirect or too small are rejected:
+        try {
+            fleet.applyDriverInputs(
+                    FloatBuffer.allocate(VehicleFleet.cInputStride * 3));
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+        try {
+            fleet.exportWheels(Jolt.newDirectFloatBuffer(stride));
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+
+        for (BodyId id : ids) {
+            bi.removeBody(id);
+            bi.destroyBody(id);
+        }
+        TestUtils.testClose(vehicleSettings, bcs, carShape);
+        TestUtils.cleanupPhysicsSystem(system);
+        System.gc();
+    }
+
+    /**
+     * Generate settings for a 4-wheeled car.
+     *
+     * @return a new object
+     */
+    private static VehicleConstraintSettings newVehicleSettings() {
+        VehicleConstraintSettings result = new VehicleConstraintSettings();
+        for (int i = 0; i < 4; ++i) {
+            WheelSettingsWv wheel = new WheelSettingsWv();
+            float x = (i % 2 == 0) ? 0.9f : -0.9f;
+            float z = (i < 2) ? 1.4f : -1.4f;
+            wheel.setPosition(new Vec3(x, -0.18f, z));
+            wheel.setRadius(0.3f);
+            wheel.setWidth(0.1f);
+            result.addWheels(wheel);
+        }
+        WheeledVehicleControllerSettings controller
+                = new WheeledVehicleControllerSettings();
+        result.setController(controller);
+
+        return result;
+    }
+}
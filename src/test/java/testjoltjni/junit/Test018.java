@@ -0,0 +1,153 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package testjoltjni.junit;
+
+import com.github.stephengold.joltjni.JobSystem;
+import com.github.stephengold.joltjni.JobSystemThreadPool;
+import com.github.stephengold.joltjni.Jolt;
+import com.github.stephengold.joltjni.RagdollBatch;
+import com.github.stephengold.joltjni.SkeletonPose;
+import java.nio.FloatBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+import testjoltjni.TestUtils;
+
+/**
+ * Automated JUnit4 tests for {@code RagdollBatch} and buffer-based pose I/O.
+ * <p>
+ * Skeletons and ragdoll settings can only be obtained by deserialization, so
+ * these tests exercise poses without skeletons and batches without ragdolls.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class Test018 {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test empty batches and argument validation.
+     */
+    @Test
+    public void test018() {
+        TestUtils.loadNativeLibrary();
+        TestUtils.initializeNativeLibrary();
+
+        doSkeletonPose();
+        doRagdollBatch();
+
+        TestUtils.cleanup();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Test an empty {@code RagdollBatch}, processed serially and in parallel.
+     */
+    private static void doRagdollBatch() {
+        RagdollBatch batch = new RagdollBatch();
+        Assert.assertEquals(0, batch.countRagdolls());
+        Assert.assertEquals(0, batch.countJoints());
+        try {
+            batch.firstJoint(0);
+            Assert.fail("Expected an IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException exception) {
+            // expected
+        }
+
+        JobSystem jobSystem = new JobSystemThreadPool(Jolt.cMaxPhysicsJobs,
+                Jolt.cMaxPhysicsBarriers, TestUtils.numThreads());
+        FloatBuffer states = Jolt.newDirectFloatBuffer(0);
+        FloatBuffer matrices = Jolt.newDirectFloatBuffer(0);
+        for (JobSystem js : new JobSystem[]{null, jobSystem}) {
+            batch.animate(new float[0], states, js);
+            batch.animate(new float[0], null, js);
+            batch.driveToPoses(states, js);
+            batch.exportPoses(new double[0], matrices, true, js);
+        }
+
+        // Indirect buffers are rejected even when no joints are involved:
+        try {
+            batch.driveToPoses(FloatBuffer.allocate(0), null);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+        try {
+            batch.exportPoses(
+                    new double[0], FloatBuffer.allocate(0), false, null);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+        try {
+            batch.animate(new float[0], FloatBuffer.allocate(0), null);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+
+        TestUtils.testClose(jobSystem);
+        System.gc();
+    }
+
+    /**
+     * Test buffer-based I/O of a {@code SkeletonPose} without a skeleton.
+     */
+    private static void doSkeletonPose() {
+        SkeletonPose pose = new SkeletonPose();
+        Assert.assertEquals(0, pose.countJoints());
+
+        // With no joints, nothing is read or written:
+        FloatBuffer states
+                = Jolt.newDirectFloatBuffer(SkeletonPose.cStateStride);
+        states.put(0, 42f);
+        pose.getJointStates(states);
+        Assert.assertEquals(42f, states.get(0), 0f);
+        pose.setJointStates(states);
+        pose.calculateJointMatrices();
+        FloatBuffer matrices
+                = Jolt.newDirectFloatBuffer(SkeletonPose.cMatrixStride);
+        pose.getJointMatrices(matrices);
+        pose.setJointMatrices(matrices);
+        pose.calculateJointStates();
+        Assert.assertEquals(42f, states.get(0), 0f);
+
+        // Indirect buffers are rejected:
+        try {
+            pose.getJointStates(
+                    FloatBuffer.allocate(SkeletonPose.cStateStride));
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+        try {
+            pose.setJointMatrices(
+                    FloatBuffer.allocate(SkeletonPose.cMatrixStride));
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+
+        TestUtils.testClose(pose);
+        System.gc();
+    }
+}
@@ -0,0 +1,214 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package testjoltjni.junit;
+
+import com.github.stephengold.joltjni.Body;
+import com.github.stephengold.joltjni.BodyCreationSettings;
+import com.github.stephengold.joltjni.BodyId;
+import com.github.stephengold.joltjni.BodyInterface;
+import com.github.stephengold.joltjni.BodyLockWrite;
+import com.github.stephengold.joltjni.Face;
+import com.github.stephengold.joltjni.JobSystem;
+import com.github.stephengold.joltjni.JobSystemThreadPool;
+import com.github.stephengold.joltjni.Jolt;
+import com.github.stephengold.joltjni.PhysicsSystem;
+import com.github.stephengold.joltjni.Quat;
+import com.github.stephengold.joltjni.RVec3;
+import com.github.stephengold.joltjni.SoftBodyCreationSettings;
+import com.github.stephengold.joltjni.SoftBodyMotionProperties;
+import com.github.stephengold.joltjni.SoftBodySharedSettings;
+import com.github.stephengold.joltjni.SoftBodyVertexStream;
+import com.github.stephengold.joltjni.SphereShape;
+import com.github.stephengold.joltjni.TempAllocator;
+import com.github.stephengold.joltjni.TempAllocatorMalloc;
+import com.github.stephengold.joltjni.Vec3;
+import com.github.stephengold.joltjni.Vertex;
+import com.github.stephengold.joltjni.enumerate.EActivation;
+import com.github.stephengold.joltjni.enumerate.EMotionType;
+import java.nio.FloatBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+import testjoltjni.TestUtils;
+
+/**
+ * Automated JUnit4 tests for {@code SoftBodyMotionProperties} and
+ * {@code SoftBodyVertexStream}.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class Test019 {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test copying the vertices of soft bodies.
+     */
+    @Test
+    public void test019() {
+        TestUtils.loadNativeLibrary();
+        TestUtils.initializeNativeLibrary();
+
+        doSoftBodyVertices();
+
+        TestUtils.cleanup();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Test vertex access via motion properties and via a vertex stream.
+     */
+    private static void doSoftBodyVertices() {
+        PhysicsSystem system = TestUtils.newPhysicsSystem(16);
+        BodyInterface bi = system.getBodyInterface();
+        SoftBodySharedSettings shared = newTriangle();
+        SoftBodyCreationSettings sbcs = new SoftBodyCreationSettings(shared,
+                new RVec3(0., 10., 0.), new Quat(), TestUtils.objLayerMoving);
+        BodyId awakeId = bi.createAndAddSoftBody(sbcs, EActivation.Activate);
+        sbcs.setPosition(new RVec3(5., 10., 0.));
+        BodyId asleepId
+                = bi.createAndAddSoftBody(sbcs, EActivation.DontActivate);
+        SphereShape sphere = new SphereShape(1f);
+        BodyCreationSettings bcs = new BodyCreationSettings(sphere,
+                new RVec3(-5., 0., 0.), new Quat(), EMotionType.Static,
+                TestUtils.objLayerNonMoving);
+        BodyId rigidId = bi.createAndAddBody(bcs, EActivation.DontActivate);
+
+        doMotionProperties(system, awakeId);
+
+        SoftBodyVertexStream stream = new SoftBodyVertexStream(system);
+        Assert.assertEquals(0, stream.add(awakeId));
+        Assert.assertEquals(1, stream.add(asleepId));
+        Assert.assertEquals(2, stream.countBodies());
+        Assert.assertEquals(6, stream.countVertices());
+        Assert.assertEquals(3, stream.firstVertex(1));
+        try {
+            stream.add(rigidId);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+
+        // Newly added bodies are dirty:
+        int[] indices = new int[2];
+        Assert.assertEquals(2, stream.update(indices));
+        Assert.assertEquals(0, indices[0]);
+        Assert.assertEquals(1, indices[1]);
+        FloatBuffer buffer = stream.getBuffer();
+        int stride = SoftBodyVertexStream.cVertexStride;
+        Assert.assertEquals(5f, buffer.get(3 * stride), 1e-4f);
+        Assert.assertEquals(10f, buffer.get(3 * stride + 1), 1e-4f);
+
+        // Only the active body is copied, unless another is marked dirty:
+        Assert.assertEquals(1, stream.update(indices));
+        Assert.assertEquals(0, indices[0]);
+        stream.markDirty(1);
+        Assert.assertEquals(2, stream.update(null));
+
+        // After a step, the unpinned vertices of the active body have fallen:
+        TempAllocator allocator = new TempAllocatorMalloc();
+        JobSystem jobSystem = new JobSystemThreadPool(Jolt.cMaxPhysicsJobs,
+                Jolt.cMaxPhysicsBarriers, TestUtils.numThreads());
+        system.update(0.1f, 1, allocator, jobSystem);
+        Assert.assertEquals(1, stream.update(indices));
+        Assert.assertEquals(10f, buffer.get(1), 1e-4f); // pinned
+        Assert.assertTrue(buffer.get(stride + 1) < 10f);
+        Assert.assertEquals(10f, buffer.get(4 * stride + 1), 1e-4f);
+
+        for (BodyId id : new BodyId[]{awakeId, asleepId, rigidId}) {
+            bi.removeBody(id);
+            bi.destroyBody(id);
+        }
+        TestUtils.testClose(jobSystem, allocator, bcs, sphere, sbcs, shared);
+        TestUtils.cleanupPhysicsSystem(system);
+        System.gc();
+    }
+
+    /**
+     * Test vertex access via the motion properties of the specified body,
+     * pinning its first vertex.
+     *
+     * @param system the system containing the body (not null)
+     * @param bodyId the ID of a triangular soft body (not null)
+     */
+    private static void doMotionProperties(
+            PhysicsSystem system, BodyId bodyId) {
+        BodyLockWrite lock
+                = new BodyLockWrite(system.getBodyLockInterface(), bodyId);
+        Assert.assertTrue(lock.succeeded());
+        Body body = lock.getBody();
+        Assert.assertTrue(body.isSoftBody());
+        SoftBodyMotionProperties properties
+                = (SoftBodyMotionProperties) body.getMotionProperties();
+        Assert.assertEquals(3, properties.countVertices());
+
+        int stride = SoftBodyMotionProperties.cVertexStride;
+        FloatBuffer vertices = Jolt.newDirectFloatBuffer(3 * stride);
+        properties.getVertices(vertices);
+        Assert.assertEquals(1f, vertices.get(stride), 1e-6f);
+        Assert.assertEquals(1f, vertices.get(6), 1e-6f);
+
+        properties.setVertexInvMass(0, 0f);
+        properties.getVertices(vertices);
+        Assert.assertEquals(0f, vertices.get(6), 0f);
+        Assert.assertEquals(1f, vertices.get(stride + 6), 1e-6f);
+
+        // Buffers that are indirect or too small are rejected:
+        try {
+            properties.getVertices(FloatBuffer.allocate(3 * stride));
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+        try {
+            properties.getVertices(Jolt.newDirectFloatBuffer(stride));
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+
+        lock.releaseLock();
+    }
+
+    /**
+     * Generate shared settings for a single triangle with unit legs.
+     *
+     * @return a new object
+     */
+    private static SoftBodySharedSettings newTriangle() {
+        SoftBodySharedSettings result = new SoftBodySharedSettings();
+        Vec3[] locations = {
+            new Vec3(0f, 0f, 0f), new Vec3(1f, 0f, 0f), new Vec3(0f, 0f, 1f)
+        };
+        Face face = new Face();
+        for (int i = 0; i < 3; ++i) {
+            Vertex vertex = new Vertex();
+            vertex.setPosition(locations[i]);
+            vertex.setInvMass(1f);
+            result.addVertex(vertex);
+            face.setVertex(i, i);
+        }
+        result.addFace(face);
+
+        return result;
+    }
+}
@@ -0,0 +1,179 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package testjoltjni.junit;
+
+import com.github.stephengold.joltjni.AaBox;
+import com.github.stephengold.joltjni.BodyCreationSettings;
+import com.github.stephengold.joltjni.BodyId;
+import com.github.stephengold.joltjni.BodyInterface;
+import com.github.stephengold.joltjni.FluidVolumeListener;
+import com.github.stephengold.joltjni.JobSystem;
+import com.github.stephengold.joltjni.JobSystemThreadPool;
+import com.github.stephengold.joltjni.Jolt;
+import com.github.stephengold.joltjni.PhysicsSystem;
+import com.github.stephengold.joltjni.Quat;
+import com.github.stephengold.joltjni.RVec3;
+import com.github.stephengold.joltjni.SphereShape;
+import com.github.stephengold.joltjni.TempAllocator;
+import com.github.stephengold.joltjni.TempAllocatorMalloc;
+import com.github.stephengold.joltjni.Vec3;
+import com.github.stephengold.joltjni.enumerate.EActivation;
+import com.github.stephengold.joltjni.enumerate.EMotionType;
+import org.junit.Assert;
+import org.junit.Test;
+import testjoltjni.TestUtils;
+
+/**
+ * Automated JUnit4 tests for {@code FluidVolumeListener}.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class Test020 {
+    // *************************************************************************
+    // constants
+
+    /**
+     * number of volumes added concurrently with updates
+     */
+    final private static int numConcurrentVolumes = 100;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test buoyancy in planar and height-field volumes.
+     */
+    @Test
+    public void test020() {
+        TestUtils.loadNativeLibrary();
+        TestUtils.initializeNativeLibrary();
+
+        doInvalidArguments();
+        doFluidVolumeListener();
+
+        TestUtils.cleanup();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Test a listener with a single submerged sphere.
+     */
+    private static void doFluidVolumeListener() {
+        PhysicsSystem system = TestUtils.newPhysicsSystem(16);
+        BodyInterface bi = system.getBodyInterface();
+        SphereShape sphere = new SphereShape(0.5f);
+        BodyCreationSettings bcs = new BodyCreationSettings(sphere,
+                new RVec3(), new Quat(), EMotionType.Dynamic,
+                TestUtils.objLayerMoving);
+        BodyId id = bi.createAndAddBody(bcs, EActivation.Activate);
+        TempAllocator allocator = new TempAllocatorMalloc();
+        JobSystem jobSystem = new JobSystemThreadPool(Jolt.cMaxPhysicsJobs,
+                Jolt.cMaxPhysicsBarriers, TestUtils.numThreads());
+
+        FluidVolumeListener listener = new FluidVolumeListener();
+        system.addStepListener(listener);
+        AaBox bounds = new AaBox(
+                new Vec3(-10f, -10f, -10f), new Vec3(10f, 10f, 10f));
+        Vec3 up = new Vec3(0f, 1f, 0f);
+        RVec3 surface = new RVec3(0., 10., 0.);
+        int dense = listener.addPlane(bounds, surface, up, 3000f, 0f, 0f);
+        int overlap = listener.addPlane(bounds, surface, up, 3000f, 0f, 0f);
+        Assert.assertEquals(2, listener.countVolumes());
+
+        // The sphere overlaps 2 volumes but is counted once, and it rises:
+        system.update(0.02f, 1, allocator, jobSystem);
+        Assert.assertEquals(1, listener.countSubmergedBodies());
+        Assert.assertTrue(bi.getLinearVelocity(id).getY() > 0f);
+
+        // Out of the fluid, the sphere falls:
+        listener.setEnabled(dense, false);
+        listener.setEnabled(overlap, false);
+        bi.setLinearVelocity(id, new Vec3());
+        system.update(0.02f, 1, allocator, jobSystem);
+        Assert.assertEquals(0, listener.countSubmergedBodies());
+        Assert.assertTrue(bi.getLinearVelocity(id).getY() < 0f);
+
+        // A flat height field 10 m above the sphere also lifts it:
+        float[] heights = {0f, 0f, 0f, 0f};
+        listener.addHeightField(new RVec3(-10., 10., -10.), 20f, 2, 2,
+                heights, 20f, 3000f, 0f, 0f);
+        bi.setLinearVelocity(id, new Vec3());
+        system.update(0.02f, 1, allocator, jobSystem);
+        Assert.assertEquals(1, listener.countSubmergedBodies());
+        Assert.assertTrue(bi.getLinearVelocity(id).getY() > 0f);
+
+        // Volumes can be added and modified while the system is updating:
+        Thread editor = new Thread(() -> {
+            for (int i = 0; i < numConcurrentVolumes; ++i) {
+                int index = listener.addPlane(bounds, surface, up, 0f, 0f, 0f);
+                listener.setFlowVelocity(index, new Vec3(1f, 0f, 0f));
+                listener.setEnabled(index, i % 2 == 0);
+            }
+        });
+        editor.start();
+        for (int i = 0; i < 20; ++i) {
+            system.update(0.02f, 1, allocator, jobSystem);
+        }
+        try {
+            editor.join();
+        } catch (InterruptedException exception) {
+            throw new RuntimeException(exception);
+        }
+        Assert.assertEquals(3 + numConcurrentVolumes, listener.countVolumes());
+
+        bi.removeBody(id);
+        bi.destroyBody(id);
+        TestUtils.testClose(jobSystem, allocator, bounds, bcs, sphere);
+        TestUtils.cleanupPhysicsSystem(system);
+        System.gc();
+    }
+
+    /**
+     * Verify that invalid arguments are rejected.
+     */
+    private static void doInvalidArguments() {
+        FluidVolumeListener listener = new FluidVolumeListener();
+        try {
+            listener.setEnabled(0, false);
+            Assert.fail("Expected an IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException exception) {
+            // expected
+        }
+        try {
+            listener.addHeightField(new RVec3(), 1f, 1, 2, new float[2], 1f,
+                    1000f, 0f, 0f);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+        try {
+            listener.addHeightField(new RVec3(), 1f, 2, 2, new float[3], 1f,
+                    1000f, 0f, 0f);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+        Assert.assertEquals(0, listener.countVolumes());
+
+        TestUtils.testClose(listener);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package testjoltjni.junit;
+
+import com.github.stephengold.joltjni.Body;
+import com.github.stephengold.joltjni.BodyCreationSettings;
+import com.github.stephengold.joltjni.BodyId;
+import com.github.stephengold.joltjni.BodyInterface;
+import com.github.stephengold.joltjni.BodyLockWrite;
+import com.github.stephengold.joltjni.BoxShape;
+import com.github.stephengold.joltjni.PhysicsSystem;
+import com.github.stephengold.joltjni.Quat;
+import com.github.stephengold.joltjni.RVec3;
+import com.github.stephengold.joltjni.Vec3;
+import com.github.stephengold.joltjni.enumerate.EActivation;
+import com.github.stephengold.joltjni.enumerate.EMotionType;
+import org.junit.Assert;
+import org.junit.Test;
+import testjoltjni.TestUtils;
+
+/**
+ * Automated JUnit4 regression tests for {@code Body.applyBuoyancyImpulse()},
+ * which once passed the fluid velocity in place of the gravity vector.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class Test021 {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test that buoyancy depends on gravity and not on the fluid velocity.
+     */
+    @Test
+    public void test021() {
+        TestUtils.loadNativeLibrary();
+        TestUtils.initializeNativeLibrary();
+
+        doApplyBuoyancyImpulse();
+
+        TestUtils.cleanup();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Apply buoyancy impulses to a fully submerged box.
+     */
+    private static void doApplyBuoyancyImpulse() {
+        PhysicsSystem system = TestUtils.newPhysicsSystem(16);
+        BodyInterface bi = system.getBodyInterface();
+        BoxShape box = new BoxShape(new Vec3(0.5f, 0.5f, 0.5f));
+        BodyCreationSettings bcs = new BodyCreationSettings(box,
+                new RVec3(), new Quat(), EMotionType.Dynamic,
+                TestUtils.objLayerMoving);
+        BodyId id = bi.createAndAddBody(bcs, EActivation.Activate);
+
+        BodyLockWrite lock
+                = new BodyLockWrite(system.getBodyLockInterface(), id);
+        Assert.assertTrue(lock.succeeded());
+        Body body = lock.getBody();
+        RVec3 surface = new RVec3(0., 10., 0.);
+        Vec3 up = new Vec3(0f, 1f, 0f);
+        Vec3 still = new Vec3();
+
+        // In still fluid, gravity alone determines the impulse:
+        Assert.assertTrue(body.applyBuoyancyImpulse(surface, up, 2f, 0f, 0f,
+                still, new Vec3(0f, -10f, 0f), 0.1f));
+        Vec3 velocity = body.getLinearVelocity();
+        Assert.assertEquals(0f, velocity.getX(), 1e-4f);
+        Assert.assertEquals(2f, velocity.getY(), 1e-3f);
+        Assert.assertEquals(0f, velocity.getZ(), 1e-4f);
+
+        // Without gravity or drag, a flowing fluid has no effect:
+        body.setLinearVelocity(still);
+        Assert.assertTrue(body.applyBuoyancyImpulse(surface, up, 2f, 0f, 0f,
+                new Vec3(0f, -10f, 0f), still, 0.1f));
+        velocity = body.getLinearVelocity();
+        Assert.assertEquals(0f, velocity.length(), 1e-4f);
+
+        lock.releaseLock();
+        bi.removeBody(id);
+        bi.destroyBody(id);
+        TestUtils.testClose(bcs, box);
+        TestUtils.cleanupPhysicsSystem(system);
+        System.gc();
+    }
+}
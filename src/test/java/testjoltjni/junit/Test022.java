@@ -0,0 +1,154 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package testjoltjni.junit;
+
+import com.github.stephengold.joltjni.BodyCreationSettings;
+import com.github.stephengold.joltjni.BodyId;
+import com.github.stephengold.joltjni.BodyInterface;
+import com.github.stephengold.joltjni.BufferedBodyActivationListener;
+import com.github.stephengold.joltjni.Jolt;
+import com.github.stephengold.joltjni.PhysicsSystem;
+import com.github.stephengold.joltjni.Quat;
+import com.github.stephengold.joltjni.RVec3;
+import com.github.stephengold.joltjni.SphereShape;
+import com.github.stephengold.joltjni.enumerate.EActivation;
+import com.github.stephengold.joltjni.enumerate.EMotionType;
+import java.nio.IntBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+import testjoltjni.TestUtils;
+
+/**
+ * Automated JUnit4 tests for {@code BufferedBodyActivationListener}.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class Test022 {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test buffering, coalescing, and draining of activation events.
+     */
+    @Test
+    public void test022() {
+        TestUtils.loadNativeLibrary();
+        TestUtils.initializeNativeLibrary();
+
+        doBufferedBodyActivationListener();
+
+        TestUtils.cleanup();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Test the {@code BufferedBodyActivationListener} class.
+     */
+    private static void doBufferedBodyActivationListener() {
+        PhysicsSystem system = TestUtils.newPhysicsSystem(16);
+        BufferedBodyActivationListener listener
+                = new BufferedBodyActivationListener();
+        system.setBodyActivationListener(listener);
+        Assert.assertEquals(0, listener.countEvents());
+
+        BodyInterface bi = system.getBodyInterface();
+        SphereShape sphere = new SphereShape(1f);
+        BodyCreationSettings bcs = new BodyCreationSettings(sphere,
+                new RVec3(), new Quat(), EMotionType.Dynamic,
+                TestUtils.objLayerMoving);
+        BodyId a = bi.createAndAddBody(bcs, EActivation.Activate);
+        bcs.setPosition(new RVec3(5., 0., 0.));
+        BodyId b = bi.createAndAddBody(bcs, EActivation.Activate);
+        bcs.setPosition(new RVec3(10., 0., 0.));
+        BodyId c = bi.createAndAddBody(bcs, EActivation.DontActivate);
+        Assert.assertEquals(2, listener.countEvents());
+
+        IntBuffer activated = Jolt.newDirectIntBuffer(8);
+        IntBuffer deactivated = Jolt.newDirectIntBuffer(8);
+        Assert.assertEquals(2, listener.drain(activated, deactivated));
+        Assert.assertEquals(2, activated.position());
+        Assert.assertEquals(0, deactivated.position());
+        assertContains(activated, a);
+        assertContains(activated, b);
+        Assert.assertEquals(0, listener.countEvents());
+
+        // Several events for one body are coalesced into the most recent:
+        bi.deactivateBody(a);
+        bi.activateBody(c);
+        bi.deactivateBody(c);
+        Assert.assertEquals(3, listener.countEvents());
+        activated.clear();
+        deactivated.clear();
+        Assert.assertEquals(2, listener.drain(activated, deactivated));
+        Assert.assertEquals(0, activated.position());
+        Assert.assertEquals(2, deactivated.position());
+        assertContains(deactivated, a);
+        assertContains(deactivated, c);
+
+        // Buffers that are indirect or too small are rejected:
+        bi.activateBody(a);
+        try {
+            listener.drain(IntBuffer.allocate(8), deactivated);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+        try {
+            listener.drain(Jolt.newDirectIntBuffer(0), deactivated);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+
+        // Clearing discards pending events:
+        bi.activateBody(c);
+        Assert.assertTrue(listener.countEvents() > 0);
+        listener.clear();
+        Assert.assertEquals(0, listener.countEvents());
+
+        for (BodyId id : new BodyId[]{a, b, c}) {
+            bi.removeBody(id);
+            bi.destroyBody(id);
+        }
+        TestUtils.testClose(bcs, sphere, listener);
+        TestUtils.cleanupPhysicsSystem(system);
+        System.gc();
+    }
+
+    /**
+     * Verify that the drained portion of the specified buffer contains the
+     * specified body ID.
+     *
+     * @param buffer the buffer to search (not null, unaffected)
+     * @param id the ID to find (not null, unaffected)
+     */
+    private static void assertContains(IntBuffer buffer, BodyId id) {
+        int expected = id.getIndexAndSequenceNumber();
+        for (int i = 0; i < buffer.position(); ++i) {
+            if (buffer.get(i) == expected) {
+                return;
+            }
+        }
+        Assert.fail("Missing body ID " + expected);
+    }
+}
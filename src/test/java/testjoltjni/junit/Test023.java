@@ -0,0 +1,272 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package testjoltjni.junit;
+
+import com.github.stephengold.joltjni.Body;
+import com.github.stephengold.joltjni.BodyCreationSettings;
+import com.github.stephengold.joltjni.BodyId;
+import com.github.stephengold.joltjni.BodyLockInterface;
+import com.github.stephengold.joltjni.BodyLockWrite;
+import com.github.stephengold.joltjni.BoxShape;
+import com.github.stephengold.joltjni.Constraint;
+import com.github.stephengold.joltjni.Jolt;
+import com.github.stephengold.joltjni.JobSystem;
+import com.github.stephengold.joltjni.JobSystemThreadPool;
+import com.github.stephengold.joltjni.OffsetCenterOfMassShape;
+import com.github.stephengold.joltjni.PhysicsSystem;
+import com.github.stephengold.joltjni.PointConstraintSettings;
+import com.github.stephengold.joltjni.Quat;
+import com.github.stephengold.joltjni.RVec3;
+import com.github.stephengold.joltjni.ShardedWorld;
+import com.github.stephengold.joltjni.Vec3;
+import com.github.stephengold.joltjni.enumerate.EActivation;
+import com.github.stephengold.joltjni.enumerate.EMotionType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.Assert;
+import org.junit.Test;
+import testjoltjni.TestUtils;
+
+/**
+ * Automated JUnit4 tests for {@code ShardedWorld}.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class Test023 {
+    // *************************************************************************
+    // constants
+
+    /**
+     * width of each region (in meters)
+     */
+    final private static float regionSize = 10f;
+    /**
+     * number of regions along each axis
+     */
+    final private static int numRegionsXz = 3;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test migration, ghosts, and constrained bodies in a world with more
+     * regions than the job system has barriers.
+     */
+    @Test
+    public void test023() {
+        TestUtils.loadNativeLibrary();
+        TestUtils.initializeNativeLibrary();
+
+        doMigration();
+        doConstrained();
+        doInvalidArguments();
+
+        TestUtils.cleanup();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Test that constrained bodies neither migrate nor get removed.
+     */
+    private static void doConstrained() {
+        ShardedWorld world = newWorld();
+        BoxShape box = new BoxShape(new Vec3(0.5f, 0.5f, 0.5f));
+        BodyCreationSettings bcs = new BodyCreationSettings(box,
+                new RVec3(9., 0., 5.), new Quat(), EMotionType.Dynamic,
+                TestUtils.objLayerMoving);
+        bcs.setLinearVelocity(new Vec3(10f, 0f, 0f));
+        int h1 = world.addBody(bcs, EActivation.Activate);
+        bcs.setPosition(new RVec3(9., 0., 3.));
+        int h2 = world.addBody(bcs, EActivation.Activate);
+        Assert.assertEquals(0, world.getRegion(h1));
+        Assert.assertEquals(0, world.getRegion(h2));
+
+        PhysicsSystem system = world.getSystem(0);
+        BodyLockInterface bli = system.getBodyLockInterfaceNoLock();
+        Body body1 = lockBody(bli, world.getBodyId(h1));
+        Body body2 = lockBody(bli, world.getBodyId(h2));
+        PointConstraintSettings pcs = new PointConstraintSettings();
+        pcs.setPoint1(new RVec3(9., 0., 4.));
+        pcs.setPoint2(new RVec3(9., 0., 4.));
+        Constraint constraint = pcs.create(body1, body2);
+        system.addConstraint(constraint);
+
+        // Both bodies cross into region 1 but stay with their constraint:
+        stepWorld(world, 1f, Jolt.cMaxPhysicsBarriers);
+        Assert.assertTrue(body1.getPosition().xx() > regionSize + 1f);
+        Assert.assertEquals(0, world.getRegion(h1));
+        Assert.assertEquals(0, world.getRegion(h2));
+        Assert.assertEquals(0, world.countMigrations());
+
+        try {
+            world.removeBody(h1);
+            Assert.fail("Expected an IllegalStateException");
+        } catch (IllegalStateException exception) {
+            // expected
+        }
+        Assert.assertEquals(2, world.countBodies());
+
+        // Once the constraint is gone, removal succeeds:
+        system.removeConstraint(constraint);
+        world.removeBody(h1);
+        world.removeBody(h2);
+        Assert.assertEquals(0, world.countBodies());
+        Assert.assertEquals(0, world.countGhosts());
+
+        cleanupWorld(world);
+    }
+
+    /**
+     * Test invalid arguments to the {@code ShardedWorld} class.
+     */
+    private static void doInvalidArguments() {
+        ShardedWorld world = newWorld();
+        try {
+            world.setMaxConcurrentUpdates(0);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+
+        cleanupWorld(world);
+    }
+
+    /**
+     * Test migration and ghosts in a 3x3 world, updated with the default
+     * concurrency and also with a job system that has only 2 barriers.
+     */
+    private static void doMigration() {
+        ShardedWorld world = newWorld();
+        Assert.assertEquals(9, world.countRegions());
+        Assert.assertTrue(world.countRegions() > Jolt.cMaxPhysicsBarriers);
+
+        BoxShape box = new BoxShape(new Vec3(0.5f, 0.5f, 0.5f));
+        BodyCreationSettings bcs = new BodyCreationSettings(box,
+                new RVec3(8.5, 0., 5.), new Quat(), EMotionType.Dynamic,
+                TestUtils.objLayerMoving);
+        bcs.setLinearVelocity(new Vec3(5f, 0f, 0f));
+        int mover = world.addBody(bcs, EActivation.Activate);
+        Assert.assertEquals(0, world.getRegion(mover));
+
+        /*
+         * The center of mass of this body lies in region 1, but its origin
+         * (which determines its region) lies in region 0:
+         */
+        OffsetCenterOfMassShape offset
+                = new OffsetCenterOfMassShape(box, new Vec3(3f, 0f, 0f));
+        BodyCreationSettings offsetBcs = new BodyCreationSettings(offset,
+                new RVec3(8.5, 0., 25.), new Quat(), EMotionType.Dynamic,
+                TestUtils.objLayerMoving);
+        int parked = world.addBody(offsetBcs, EActivation.Activate);
+        Assert.assertEquals(6, world.getRegion(parked));
+
+        // Near the border, the mover is ghosted into region 1:
+        stepWorld(world, 0.2f, Jolt.cMaxPhysicsBarriers);
+        Assert.assertEquals(0, world.getRegion(mover));
+        Assert.assertTrue(world.countGhosts() > 0);
+
+        // After crossing the border, the mover migrates:
+        stepWorld(world, 1f, 2);
+        Assert.assertEquals(1, world.getRegion(mover));
+        Assert.assertEquals(1, world.countMigrations());
+        Assert.assertEquals(2, world.countBodies());
+        Assert.assertEquals(6, world.getRegion(parked));
+
+        cleanupWorld(world);
+    }
+
+    /**
+     * Destroy the specified world and its physics systems.
+     *
+     * @param world the world to destroy (not null)
+     */
+    private static void cleanupWorld(ShardedWorld world) {
+        int numRegions = world.countRegions();
+        for (int i = 0; i < numRegions; ++i) {
+            TestUtils.cleanupPhysicsSystem(world.getSystem(i));
+        }
+        System.gc();
+    }
+
+    /**
+     * Access the specified body without locking it.
+     *
+     * @param bli the interface to use (not null)
+     * @param bodyId the body's ID, in the format of
+     * {@code BodyId.getIndexAndSequenceNumber()}
+     * @return the pre-existing instance (not null)
+     */
+    private static Body lockBody(BodyLockInterface bli, int bodyId) {
+        BodyId id = new BodyId();
+        id.setIndexAndSequenceNumber(bodyId);
+        BodyLockWrite lock = new BodyLockWrite(bli, id);
+        Assert.assertTrue(lock.succeeded());
+        Body result = lock.getBody();
+        lock.releaseLock();
+
+        return result;
+    }
+
+    /**
+     * Create a 3x3 world without gravity, with 1-meter margins.
+     *
+     * @return a new instance
+     */
+    private static ShardedWorld newWorld() {
+        int numRegions = numRegionsXz * numRegionsXz;
+        PhysicsSystem[] systems = new PhysicsSystem[numRegions];
+        for (int i = 0; i < numRegions; ++i) {
+            systems[i] = TestUtils.newPhysicsSystem(16);
+            systems[i].setGravity(new Vec3());
+        }
+        ShardedWorld result = new ShardedWorld(new RVec3(), regionSize,
+                numRegionsXz, numRegionsXz, 1f, systems, 1 << 20);
+
+        return result;
+    }
+
+    /**
+     * Advance the specified world in 50 steps per second, updating as many
+     * regions concurrently as the job system has barriers.
+     *
+     * @param world the world to advance (not null)
+     * @param seconds the total time to advance (in seconds, &gt;0)
+     * @param maxBarriers the number of barriers in the job system (&ge;1)
+     */
+    private static void stepWorld(
+            ShardedWorld world, float seconds, int maxBarriers) {
+        JobSystem jobSystem = new JobSystemThreadPool(
+                Jolt.cMaxPhysicsJobs, maxBarriers, TestUtils.numThreads());
+        ExecutorService executor
+                = Executors.newFixedThreadPool(world.countRegions());
+        world.setMaxConcurrentUpdates(maxBarriers);
+
+        int numSteps = Math.round(50f * seconds);
+        for (int i = 0; i < numSteps; ++i) {
+            int errors = world.update(0.02f, 1, jobSystem, executor);
+            Assert.assertEquals(0, errors);
+        }
+
+        executor.shutdown();
+        TestUtils.testClose(jobSystem);
+    }
+}
@@ -0,0 +1,123 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package testjoltjni.junit;
+
+import com.github.stephengold.joltjni.BodyCreationSettings;
+import com.github.stephengold.joltjni.BodyId;
+import com.github.stephengold.joltjni.BodyInterface;
+import com.github.stephengold.joltjni.BodyTemplate;
+import com.github.stephengold.joltjni.Jolt;
+import com.github.stephengold.joltjni.PhysicsSystem;
+import com.github.stephengold.joltjni.Quat;
+import com.github.stephengold.joltjni.RVec3;
+import com.github.stephengold.joltjni.SphereShape;
+import com.github.stephengold.joltjni.enumerate.EActivation;
+import com.github.stephengold.joltjni.enumerate.EMotionType;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+import testjoltjni.TestUtils;
+
+/**
+ * Automated JUnit4 tests for the bulk methods of {@code BodyInterface}.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class Test024 {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test bulk creation of bodies from a template.
+     */
+    @Test
+    public void test024() {
+        TestUtils.loadNativeLibrary();
+        TestUtils.initializeNativeLibrary();
+
+        doCreateFromTemplate();
+
+        TestUtils.cleanup();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Test the bulk {@code createFromTemplate()} method.
+     */
+    private static void doCreateFromTemplate() {
+        PhysicsSystem system = TestUtils.newPhysicsSystem(16);
+        BodyInterface bi = system.getBodyInterface();
+        SphereShape sphere = new SphereShape(0.5f);
+        BodyCreationSettings bcs = new BodyCreationSettings(sphere,
+                new RVec3(), new Quat(), EMotionType.Dynamic,
+                TestUtils.objLayerMoving);
+        BodyTemplate template = new BodyTemplate(bcs);
+
+        // 2 poses create 2 bodies at the specified locations:
+        DoubleBuffer poses = Jolt.newDirectDoubleBuffer(14);
+        poses.put(new double[]{1., 2., 3., 0., 0., 0., 1.});
+        poses.put(new double[]{-4., 5., -6., 0., 0., 0., 1.});
+        poses.flip();
+        IntBuffer ids = Jolt.newDirectIntBuffer(2);
+        int numCreated = bi.createFromTemplate(template, poses, null, ids);
+        Assert.assertEquals(2, numCreated);
+        Assert.assertEquals(2, ids.position());
+        Assert.assertEquals(0, poses.position());
+
+        ids.flip();
+        bi.addBodies(ids, EActivation.Activate);
+        Assert.assertEquals(2, system.getNumBodies());
+        BodyId id = new BodyId();
+        id.setIndexAndSequenceNumber(ids.get(1));
+        RVec3 location = bi.getPosition(id);
+        Assert.assertEquals(-4., location.xx(), 1e-6);
+        Assert.assertEquals(5., location.yy(), 1e-6);
+        Assert.assertEquals(-6., location.zz(), 1e-6);
+
+        // A partial pose is rejected, and no bodies are created:
+        DoubleBuffer partial = Jolt.newDirectDoubleBuffer(8);
+        IntBuffer moreIds = Jolt.newDirectIntBuffer(2);
+        try {
+            bi.createFromTemplate(template, partial, null, moreIds);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+        Assert.assertEquals(0, moreIds.position());
+
+        // So is an ID buffer that's too small:
+        IntBuffer fewIds = Jolt.newDirectIntBuffer(1);
+        try {
+            bi.createFromTemplate(template, poses, null, fewIds);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+        Assert.assertEquals(2, system.getNumBodies());
+
+        TestUtils.testClose(template, bcs, sphere);
+        TestUtils.cleanupPhysicsSystem(system);
+        System.gc();
+    }
+}
@@ -0,0 +1,141 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package testjoltjni.junit;
+
+import com.github.stephengold.joltjni.BodyCreationSettings;
+import com.github.stephengold.joltjni.BodyId;
+import com.github.stephengold.joltjni.BodyInterface;
+import com.github.stephengold.joltjni.Jolt;
+import com.github.stephengold.joltjni.PhysicsSystem;
+import com.github.stephengold.joltjni.Quat;
+import com.github.stephengold.joltjni.RVec3;
+import com.github.stephengold.joltjni.SphereShape;
+import com.github.stephengold.joltjni.Vec3;
+import com.github.stephengold.joltjni.enumerate.EActivation;
+import com.github.stephengold.joltjni.enumerate.EMotionType;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+import testjoltjni.TestUtils;
+
+/**
+ * Automated JUnit4 tests for the bulk force, impulse, velocity, and
+ * kinematic methods of {@code BodyInterface}.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class Test025 {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test bulk updates of forces, impulses, velocities, and kinematics.
+     */
+    @Test
+    public void test025() {
+        TestUtils.loadNativeLibrary();
+        TestUtils.initializeNativeLibrary();
+
+        doBulkUpdates();
+
+        TestUtils.cleanup();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Test the bulk update methods.
+     */
+    private static void doBulkUpdates() {
+        PhysicsSystem system = TestUtils.newPhysicsSystem(16);
+        BodyInterface bi = system.getBodyInterface();
+        SphereShape sphere = new SphereShape(0.5f);
+        BodyCreationSettings bcs = new BodyCreationSettings(sphere,
+                new RVec3(), new Quat(), EMotionType.Dynamic,
+                TestUtils.objLayerMoving);
+        BodyId dynamic = bi.createAndAddBody(bcs, EActivation.DontActivate);
+        bcs.setPosition(new RVec3(5., 0., 0.));
+        bcs.setMotionType(EMotionType.Kinematic);
+        BodyId kinematic
+                = bi.createAndAddBody(bcs, EActivation.DontActivate);
+        bcs.setPosition(new RVec3(-5., 0., 0.));
+        bcs.setMotionType(EMotionType.Static);
+        bcs.setObjectLayer(TestUtils.objLayerNonMoving);
+        BodyId fixed = bi.createAndAddBody(bcs, EActivation.DontActivate);
+
+        // Set the velocities of a dynamic body and a static one:
+        IntBuffer ids = Jolt.newDirectIntBuffer(2);
+        ids.put(dynamic.getIndexAndSequenceNumber());
+        ids.put(fixed.getIndexAndSequenceNumber());
+        ids.flip();
+        FloatBuffer velocities = Jolt.newDirectFloatBuffer(12);
+        velocities.put(new float[]{1f, 0f, 0f, 0f, 0f, 0f});
+        velocities.put(new float[]{1f, 0f, 0f, 0f, 0f, 0f});
+        velocities.flip();
+        bi.setLinearAndAngularVelocities(ids, velocities);
+        Assert.assertTrue(bi.isActive(dynamic));
+        Assert.assertEquals(1f, bi.getLinearVelocity(dynamic).getX(), 1e-6f);
+        Assert.assertEquals(0f, bi.getLinearVelocity(fixed).getX(), 0f);
+
+        // An impulse wakes the dynamic body and adds to its velocity:
+        bi.deactivateBody(dynamic);
+        IntBuffer one = Jolt.newDirectIntBuffer(1);
+        one.put(0, dynamic.getIndexAndSequenceNumber());
+        FloatBuffer impulse = Jolt.newDirectFloatBuffer(3);
+        impulse.put(0, 1000f);
+        bi.addImpulses(one, impulse);
+        Assert.assertTrue(bi.isActive(dynamic));
+        Assert.assertTrue(bi.getLinearVelocity(dynamic).getX() > 1f);
+
+        // Moving a kinematic body 2 meters in 0.5 seconds:
+        one.put(0, kinematic.getIndexAndSequenceNumber());
+        DoubleBuffer targets = Jolt.newDirectDoubleBuffer(7);
+        targets.put(new double[]{7., 0., 0., 0., 0., 0., 1.});
+        targets.flip();
+        bi.moveKinematics(one, targets, 0.5f);
+        Vec3 velocity = bi.getLinearVelocity(kinematic);
+        Assert.assertEquals(4f, velocity.getX(), 1e-4f);
+        Assert.assertEquals(0f, velocity.getY(), 1e-4f);
+
+        // Too few vectors for the IDs:
+        try {
+            bi.addForces(ids, Jolt.newDirectFloatBuffer(3));
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+
+        // Indirect buffers:
+        try {
+            bi.addTorques(IntBuffer.allocate(1), impulse);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+
+        TestUtils.testClose(bcs, sphere);
+        TestUtils.cleanupPhysicsSystem(system);
+        System.gc();
+    }
+}
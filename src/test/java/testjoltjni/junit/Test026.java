@@ -0,0 +1,222 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package testjoltjni.junit;
+
+import com.github.stephengold.joltjni.Body;
+import com.github.stephengold.joltjni.BodyCreationSettings;
+import com.github.stephengold.joltjni.BodyInterface;
+import com.github.stephengold.joltjni.BoxShape;
+import com.github.stephengold.joltjni.BreakableConstraintListener;
+import com.github.stephengold.joltjni.Jolt;
+import com.github.stephengold.joltjni.JobSystem;
+import com.github.stephengold.joltjni.JobSystemThreadPool;
+import com.github.stephengold.joltjni.PhysicsSystem;
+import com.github.stephengold.joltjni.PointConstraintSettings;
+import com.github.stephengold.joltjni.PulleyConstraintSettings;
+import com.github.stephengold.joltjni.Quat;
+import com.github.stephengold.joltjni.RVec3;
+import com.github.stephengold.joltjni.TempAllocator;
+import com.github.stephengold.joltjni.TempAllocatorMalloc;
+import com.github.stephengold.joltjni.TwoBodyConstraint;
+import com.github.stephengold.joltjni.Vec3;
+import com.github.stephengold.joltjni.enumerate.EActivation;
+import com.github.stephengold.joltjni.enumerate.EMotionType;
+import java.nio.IntBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+import testjoltjni.TestUtils;
+
+/**
+ * Automated JUnit4 tests for {@code BreakableConstraintListener}.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class Test026 {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test breaking, draining, and removal of overloaded constraints.
+     */
+    @Test
+    public void test026() {
+        TestUtils.loadNativeLibrary();
+        TestUtils.initializeNativeLibrary();
+
+        doBreakableConstraintListener();
+        doInvalidArguments();
+
+        TestUtils.cleanup();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Test 2 boxes hanging from static anchors: a weak constraint breaks
+     * under the load, while a strong one holds.
+     */
+    private static void doBreakableConstraintListener() {
+        PhysicsSystem system = TestUtils.newPhysicsSystem(16);
+        BreakableConstraintListener listener
+                = new BreakableConstraintListener();
+        system.addStepListener(listener);
+
+        // Each box weighs about 9810 Newtons:
+        TwoBodyConstraint weak = hangBox(system, -5.);
+        TwoBodyConstraint strong = hangBox(system, 5.);
+        int weakIndex = listener.add(weak, 1000f, 1000f);
+        int strongIndex = listener.add(strong, 1e6f, 1e6f);
+        Assert.assertEquals(2, listener.countConstraints());
+        Assert.assertEquals(0, listener.countBroken());
+        Assert.assertEquals(2, system.getConstraints().size());
+
+        TempAllocator allocator = new TempAllocatorMalloc();
+        JobSystem jobSystem = new JobSystemThreadPool(Jolt.cMaxPhysicsJobs,
+                Jolt.cMaxPhysicsBarriers, TestUtils.numThreads());
+        for (int i = 0; i < 10; ++i) {
+            system.update(0.02f, 1, allocator, jobSystem);
+        }
+        Assert.assertTrue(listener.isBroken(weakIndex));
+        Assert.assertFalse(listener.isBroken(strongIndex));
+        Assert.assertFalse(weak.getEnabled());
+        Assert.assertTrue(strong.getEnabled());
+        Assert.assertEquals(1, listener.countBroken());
+
+        // A full buffer leaves the broken constraint queued:
+        IntBuffer indices = Jolt.newDirectIntBuffer(1);
+        indices.position(1);
+        Assert.assertEquals(0, listener.drainBroken(indices, system));
+        Assert.assertEquals(1, listener.countBroken());
+
+        // Draining removes the broken constraint from the system:
+        indices.clear();
+        Assert.assertEquals(1, listener.drainBroken(indices, system));
+        Assert.assertEquals(weakIndex, indices.get(0));
+        Assert.assertEquals(1, indices.position());
+        Assert.assertEquals(0, listener.countBroken());
+        Assert.assertEquals(2, listener.countConstraints());
+        Assert.assertEquals(1, system.getConstraints().size());
+
+        TestUtils.testClose(jobSystem, allocator, listener);
+        TestUtils.cleanupPhysicsSystem(system);
+        System.gc();
+    }
+
+    /**
+     * Test invalid arguments to the {@code BreakableConstraintListener}
+     * class.
+     */
+    private static void doInvalidArguments() {
+        PhysicsSystem system = TestUtils.newPhysicsSystem(16);
+        BreakableConstraintListener listener
+                = new BreakableConstraintListener();
+        TwoBodyConstraint point = hangBox(system, 0.);
+
+        try {
+            listener.add(point, 0f, 1f);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+        try {
+            listener.add(point, 1f, Float.NaN);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+
+        // Pulley constraints aren't supported:
+        BodyInterface bi = system.getBodyInterface();
+        BoxShape box = new BoxShape(new Vec3(0.5f, 0.5f, 0.5f));
+        BodyCreationSettings bcs = new BodyCreationSettings(box,
+                new RVec3(0., 20., 0.), new Quat(), EMotionType.Dynamic,
+                TestUtils.objLayerMoving);
+        Body body1 = bi.createBody(bcs);
+        bcs.setPosition(new RVec3(3., 20., 0.));
+        Body body2 = bi.createBody(bcs);
+        PulleyConstraintSettings pcs = new PulleyConstraintSettings();
+        TwoBodyConstraint pulley = pcs.create(body1, body2);
+        try {
+            listener.add(pulley, 1f, 1f);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+        Assert.assertEquals(0, listener.countConstraints());
+
+        try {
+            listener.isBroken(0);
+            Assert.fail("Expected an IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException exception) {
+            // expected
+        }
+        try {
+            listener.setThresholds(-1, 1f, 1f);
+            Assert.fail("Expected an IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException exception) {
+            // expected
+        }
+        try {
+            listener.drainBroken(IntBuffer.allocate(1), null);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+
+        TestUtils.testClose(listener, pcs, bcs, box);
+        TestUtils.cleanupPhysicsSystem(system);
+        System.gc();
+    }
+
+    /**
+     * Hang a 1-cubic-meter dynamic box from a static anchor using a point
+     * constraint, and add the constraint to the specified system.
+     *
+     * @param system the system to use (not null)
+     * @param x the X coordinate of the anchor
+     * @return the new constraint
+     */
+    private static TwoBodyConstraint hangBox(PhysicsSystem system, double x) {
+        BodyInterface bi = system.getBodyInterface();
+        BoxShape box = new BoxShape(new Vec3(0.5f, 0.5f, 0.5f));
+        BodyCreationSettings bcs = new BodyCreationSettings(box,
+                new RVec3(x, 10., 0.), new Quat(), EMotionType.Static,
+                TestUtils.objLayerNonMoving);
+        Body anchor = bi.createBody(bcs);
+        bi.addBody(anchor.getId(), EActivation.DontActivate);
+
+        bcs.setPosition(new RVec3(x, 8., 0.));
+        bcs.setMotionType(EMotionType.Dynamic);
+        bcs.setObjectLayer(TestUtils.objLayerMoving);
+        Body hanging = bi.createBody(bcs);
+        bi.addBody(hanging.getId(), EActivation.Activate);
+
+        PointConstraintSettings pcs = new PointConstraintSettings();
+        pcs.setPoint1(new RVec3(x, 9., 0.));
+        pcs.setPoint2(new RVec3(x, 9., 0.));
+        TwoBodyConstraint result = pcs.create(anchor, hanging);
+        system.addConstraint(result);
+        TestUtils.testClose(pcs, bcs, box);
+
+        return result;
+    }
+}
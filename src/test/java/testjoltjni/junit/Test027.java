@@ -0,0 +1,169 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package testjoltjni.junit;
+
+import com.github.stephengold.joltjni.Body;
+import com.github.stephengold.joltjni.BodyCreationSettings;
+import com.github.stephengold.joltjni.BodyInterface;
+import com.github.stephengold.joltjni.BoxShape;
+import com.github.stephengold.joltjni.ConstraintGroup;
+import com.github.stephengold.joltjni.HingeConstraint;
+import com.github.stephengold.joltjni.HingeConstraintSettings;
+import com.github.stephengold.joltjni.Jolt;
+import com.github.stephengold.joltjni.PhysicsSystem;
+import com.github.stephengold.joltjni.Quat;
+import com.github.stephengold.joltjni.RVec3;
+import com.github.stephengold.joltjni.SixDofConstraint;
+import com.github.stephengold.joltjni.SixDofConstraintSettings;
+import com.github.stephengold.joltjni.SliderConstraint;
+import com.github.stephengold.joltjni.SliderConstraintSettings;
+import com.github.stephengold.joltjni.Vec3;
+import com.github.stephengold.joltjni.enumerate.EMotionType;
+import java.nio.FloatBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+import testjoltjni.TestUtils;
+
+/**
+ * Automated JUnit4 tests for {@code ConstraintGroup}.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class Test027 {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test batch access to the motors of hinge, slider, and six-DOF
+     * constraints.
+     */
+    @Test
+    public void test027() {
+        TestUtils.loadNativeLibrary();
+        TestUtils.initializeNativeLibrary();
+
+        doConstraintGroup();
+
+        TestUtils.cleanup();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Test the {@code ConstraintGroup} class.
+     */
+    private static void doConstraintGroup() {
+        PhysicsSystem system = TestUtils.newPhysicsSystem(16);
+        BodyInterface bi = system.getBodyInterface();
+        BoxShape box = new BoxShape(new Vec3(0.5f, 0.5f, 0.5f));
+        BodyCreationSettings bcs = new BodyCreationSettings(box,
+                new RVec3(), new Quat(), EMotionType.Static,
+                TestUtils.objLayerNonMoving);
+        Body body1 = bi.createBody(bcs);
+        bcs.setPosition(new RVec3(0., -2., 0.));
+        bcs.setMotionType(EMotionType.Dynamic);
+        bcs.setObjectLayer(TestUtils.objLayerMoving);
+        Body body2 = bi.createBody(bcs);
+
+        HingeConstraintSettings hcs = new HingeConstraintSettings();
+        HingeConstraint hinge
+                = (HingeConstraint) hcs.create(body1, body2);
+        SliderConstraintSettings scs = new SliderConstraintSettings();
+        SliderConstraint slider
+                = (SliderConstraint) scs.create(body1, body2);
+        SixDofConstraintSettings dcs = new SixDofConstraintSettings();
+        SixDofConstraint sixDof = (SixDofConstraint) dcs.create(body1, body2);
+
+        ConstraintGroup group = new ConstraintGroup();
+        Assert.assertEquals(0, group.countConstraints());
+        Assert.assertEquals(0, group.add(hinge));
+        Assert.assertEquals(1, group.add(slider));
+        Assert.assertEquals(2, group.add(sixDof));
+        Assert.assertEquals(3, group.countConstraints());
+        Assert.assertEquals(8, group.countDofs());
+        Assert.assertEquals(0, group.firstDof(0));
+        Assert.assertEquals(1, group.firstDof(1));
+        Assert.assertEquals(2, group.firstDof(2));
+        Assert.assertSame(slider, group.getConstraint(1));
+
+        // Freshly created constraints are at their initial positions:
+        FloatBuffer values = Jolt.newDirectFloatBuffer(8);
+        group.getCurrentPositions(values);
+        for (int i = 0; i < 8; ++i) {
+            Assert.assertEquals(0f, values.get(i), 1e-5f);
+        }
+
+        // Position targets:
+        values.put(new float[]{0.5f, 0.25f, 1f, 2f, 3f, 0f, 0f, 0.2f});
+        group.setTargetPositions(values);
+        Assert.assertEquals(0.5f, hinge.getTargetAngle(), 0f);
+        Assert.assertEquals(0.25f, slider.getTargetPosition(), 0f);
+        Vec3 translation = sixDof.getTargetPositionCs();
+        Assert.assertEquals(1f, translation.getX(), 0f);
+        Assert.assertEquals(3f, translation.getZ(), 0f);
+        Quat orientation = sixDof.getTargetOrientationCs();
+        Assert.assertEquals(0.0998f, orientation.getZ(), 1e-4f);
+        Assert.assertEquals(0.995f, orientation.getW(), 1e-3f);
+
+        // Velocity targets:
+        values.clear();
+        values.put(new float[]{-1f, 2f, 0f, 0f, 4f, 0f, 5f, 0f});
+        group.setTargetVelocities(values);
+        Assert.assertEquals(-1f, hinge.getTargetAngularVelocity(), 0f);
+        Assert.assertEquals(2f, slider.getTargetVelocity(), 0f);
+        Assert.assertEquals(4f, sixDof.getTargetVelocityCs().getZ(), 0f);
+        Assert.assertEquals(
+                5f, sixDof.getTargetAngularVelocityCs().getY(), 0f);
+
+        // Growth beyond the initial capacity:
+        for (int i = 0; i < 20; ++i) {
+            group.add(hinge);
+        }
+        Assert.assertEquals(23, group.countConstraints());
+        Assert.assertEquals(28, group.countDofs());
+        Assert.assertEquals(27, group.firstDof(22));
+
+        // Buffers that are too small or indirect:
+        try {
+            group.getCurrentPositions(values);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+        try {
+            group.setTargetPositions(FloatBuffer.allocate(28));
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+        try {
+            group.firstDof(23);
+            Assert.fail("Expected an IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException exception) {
+            // expected
+        }
+
+        TestUtils.testClose(dcs, scs, hcs, bcs, box);
+        TestUtils.cleanupPhysicsSystem(system);
+        System.gc();
+    }
+}
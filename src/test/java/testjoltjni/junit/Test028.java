@@ -0,0 +1,145 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package testjoltjni.junit;
+
+import com.github.stephengold.joltjni.Body;
+import com.github.stephengold.joltjni.BodyCreationSettings;
+import com.github.stephengold.joltjni.BodyInterface;
+import com.github.stephengold.joltjni.BodyTemplate;
+import com.github.stephengold.joltjni.BoxShape;
+import com.github.stephengold.joltjni.BoxShapeSettings;
+import com.github.stephengold.joltjni.ConvexHullShapeSettings;
+import com.github.stephengold.joltjni.PhysicsSystem;
+import com.github.stephengold.joltjni.Quat;
+import com.github.stephengold.joltjni.RVec3;
+import com.github.stephengold.joltjni.SphereShape;
+import com.github.stephengold.joltjni.Vec3;
+import com.github.stephengold.joltjni.enumerate.EMotionType;
+import com.github.stephengold.joltjni.enumerate.EShapeSubType;
+import org.junit.Assert;
+import org.junit.Test;
+import testjoltjni.TestUtils;
+
+/**
+ * Automated JUnit4 tests for {@code BodyTemplate}.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class Test028 {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test creation of bodies from templates.
+     */
+    @Test
+    public void test028() {
+        TestUtils.loadNativeLibrary();
+        TestUtils.initializeNativeLibrary();
+
+        doBodyTemplate();
+        doInvalidShapeSettings();
+
+        TestUtils.cleanup();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Test the {@code BodyTemplate} class with a shape, with shape settings,
+     * and with a shape override.
+     */
+    private static void doBodyTemplate() {
+        PhysicsSystem system = TestUtils.newPhysicsSystem(2);
+        BodyInterface bi = system.getBodyInterface();
+        BoxShape box = new BoxShape(new Vec3(0.5f, 0.5f, 0.5f));
+        BodyCreationSettings bcs = new BodyCreationSettings(box,
+                new RVec3(), new Quat(), EMotionType.Dynamic,
+                TestUtils.objLayerMoving);
+        bcs.setFriction(0.3f);
+        bcs.setRestitution(0.6f);
+        BodyTemplate template = new BodyTemplate(bcs);
+
+        // Later changes to the settings don't affect the template:
+        bcs.setFriction(0.9f);
+
+        Quat orientation = Quat.sRotation(new Vec3(0f, 1f, 0f), 1f);
+        Body body = bi.createFromTemplate(template, new RVec3(1., 2., 3.),
+                orientation, new Vec3(4f, 5f, 6f));
+        Assert.assertEquals(EMotionType.Dynamic, body.getMotionType());
+        Assert.assertEquals(EShapeSubType.Box, body.getShape().getSubType());
+        Assert.assertEquals(0.3f, body.getFriction(), 0f);
+        Assert.assertEquals(0.6f, body.getRestitution(), 0f);
+        Assert.assertEquals(2., body.getPosition().yy(), 1e-6);
+        Assert.assertEquals(orientation.getY(), body.getRotation().getY(),
+                1e-6f);
+        Assert.assertEquals(6f, body.getLinearVelocity().getZ(), 1e-6f);
+
+        // A template from shape settings, with a shape override:
+        BoxShapeSettings boxSettings
+                = new BoxShapeSettings(new Vec3(1f, 1f, 1f));
+        BodyCreationSettings bcs2 = new BodyCreationSettings(boxSettings,
+                new RVec3(), new Quat(), EMotionType.Dynamic,
+                TestUtils.objLayerMoving);
+        SphereShape sphere = new SphereShape(0.5f);
+        BodyTemplate override = new BodyTemplate(bcs2, sphere);
+        Body ball = bi.createFromTemplate(override, new RVec3(),
+                new Quat(), new Vec3());
+        Assert.assertEquals(
+                EShapeSubType.Sphere, ball.getShape().getSubType());
+
+        // The system has room for only 2 bodies:
+        try {
+            bi.createFromTemplate(template, new RVec3(), new Quat(),
+                    new Vec3());
+            Assert.fail("Expected an IllegalStateException");
+        } catch (IllegalStateException exception) {
+            // expected
+        }
+
+        TestUtils.testClose(override, sphere, bcs2, boxSettings, template,
+                bcs, box);
+        TestUtils.cleanupPhysicsSystem(system);
+        System.gc();
+    }
+
+    /**
+     * Test a template whose shape settings can't be converted.
+     */
+    private static void doInvalidShapeSettings() {
+        // A hull with only 2 points is degenerate:
+        ConvexHullShapeSettings hull = new ConvexHullShapeSettings(
+                new Vec3(), new Vec3(1f, 0f, 0f));
+        BodyCreationSettings bcs = new BodyCreationSettings(hull,
+                new RVec3(), new Quat(), EMotionType.Dynamic,
+                TestUtils.objLayerMoving);
+        try {
+            new BodyTemplate(bcs);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+
+        TestUtils.testClose(bcs, hull);
+        System.gc();
+    }
+}
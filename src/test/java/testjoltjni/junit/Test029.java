@@ -0,0 +1,238 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package testjoltjni.junit;
+
+import com.github.stephengold.joltjni.BodyCreationSettings;
+import com.github.stephengold.joltjni.BodyId;
+import com.github.stephengold.joltjni.BodyInterface;
+import com.github.stephengold.joltjni.BodyPool;
+import com.github.stephengold.joltjni.BodyTemplate;
+import com.github.stephengold.joltjni.Jolt;
+import com.github.stephengold.joltjni.PhysicsSystem;
+import com.github.stephengold.joltjni.Quat;
+import com.github.stephengold.joltjni.RVec3;
+import com.github.stephengold.joltjni.SphereShape;
+import com.github.stephengold.joltjni.Vec3;
+import com.github.stephengold.joltjni.enumerate.EActivation;
+import com.github.stephengold.joltjni.enumerate.EMotionQuality;
+import com.github.stephengold.joltjni.enumerate.EMotionType;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+import testjoltjni.TestUtils;
+
+/**
+ * Automated JUnit4 tests for {@code BodyPool}.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class Test029 {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test acquiring, releasing, and recycling pooled bodies.
+     */
+    @Test
+    public void test029() {
+        TestUtils.loadNativeLibrary();
+        TestUtils.initializeNativeLibrary();
+
+        doBodyPool();
+        doDestroyedBodies();
+        doSystemFreedFirst();
+
+        TestUtils.cleanup();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Test the {@code BodyPool} class.
+     */
+    private static void doBodyPool() {
+        PhysicsSystem system = TestUtils.newPhysicsSystem(16);
+        BodyInterface bi = system.getBodyInterface();
+        SphereShape sphere = new SphereShape(0.5f);
+        BodyCreationSettings bcs = new BodyCreationSettings(sphere,
+                new RVec3(), new Quat(), EMotionType.Dynamic,
+                TestUtils.objLayerMoving);
+        bcs.setFriction(0.2f);
+        bcs.setRestitution(0.1f);
+        BodyTemplate template = new BodyTemplate(bcs);
+        BodyPool pool = new BodyPool(system, template, 2);
+        Assert.assertSame(system, pool.getSystem());
+        Assert.assertEquals(2, pool.countFree());
+        Assert.assertEquals(0, pool.countInUse());
+        Assert.assertEquals(2, system.getNumBodies());
+
+        // Acquire a free body and alter its properties:
+        BodyId id = pool.acquire(new RVec3(1., 2., 3.), new Quat(),
+                new Vec3(0f, 5f, 0f), new Vec3(), EActivation.Activate);
+        Assert.assertFalse(id.isInvalid());
+        Assert.assertTrue(bi.isAdded(id));
+        Assert.assertEquals(1, pool.countFree());
+        Assert.assertEquals(1, pool.countInUse());
+        Assert.assertEquals(1L, pool.countHits());
+        Assert.assertEquals(5f, bi.getLinearVelocity(id).getY(), 1e-6f);
+        bi.setFriction(id, 0.9f);
+        bi.setRestitution(id, 0.8f);
+        bi.setUserData(id, 42L);
+        bi.setObjectLayer(id, TestUtils.objLayerNonMoving);
+        bi.setMotionQuality(id, EMotionQuality.LinearCast);
+
+        // Release it:
+        Assert.assertTrue(pool.release(id));
+        Assert.assertFalse(bi.isAdded(id));
+        Assert.assertFalse(pool.release(id));
+        Assert.assertEquals(2, pool.countFree());
+        Assert.assertEquals(0, pool.countInUse());
+
+        // Reacquire it, restored from the template:
+        BodyId again = pool.acquire(new RVec3(), new Quat(), new Vec3(),
+                new Vec3(), EActivation.DontActivate);
+        Assert.assertEquals(id.getIndexAndSequenceNumber(),
+                again.getIndexAndSequenceNumber());
+        Assert.assertEquals(0.2f, bi.getFriction(again), 0f);
+        Assert.assertEquals(0.1f, bi.getRestitution(again), 0f);
+        Assert.assertEquals(0L, bi.getUserData(again));
+        Assert.assertEquals(
+                TestUtils.objLayerMoving, bi.getObjectLayer(again));
+        Assert.assertEquals(
+                EMotionQuality.Discrete, bi.getMotionQuality(again));
+        Assert.assertEquals(0f, bi.getLinearVelocity(again).getY(), 0f);
+        Assert.assertFalse(bi.isActive(again));
+
+        // Acquire 3 more in a batch: 1 hit and 2 misses:
+        pool.resetMetrics();
+        DoubleBuffer poses = Jolt.newDirectDoubleBuffer(21);
+        for (int i = 0; i < 3; ++i) {
+            poses.put(new double[]{i, 0., 0., 0., 0., 0., 1.});
+        }
+        poses.flip();
+        IntBuffer ids = Jolt.newDirectIntBuffer(3);
+        Assert.assertEquals(3, pool.acquire(poses, null, ids,
+                EActivation.Activate));
+        Assert.assertEquals(3, ids.position());
+        Assert.assertEquals(1L, pool.countHits());
+        Assert.assertEquals(2L, pool.countMisses());
+        Assert.assertEquals(4, pool.countInUse());
+        Assert.assertEquals(0, pool.countFree());
+
+        // Release them in a batch, then trim the pool:
+        ids.flip();
+        Assert.assertEquals(3, pool.release(ids));
+        Assert.assertEquals(3, pool.countFree());
+        Assert.assertEquals(4, system.getNumBodies());
+        Assert.assertEquals(2, pool.trim(1));
+        Assert.assertEquals(1, pool.countFree());
+        Assert.assertEquals(2, system.getNumBodies());
+
+        // Invalid arguments:
+        try {
+            pool.acquire(Jolt.newDirectDoubleBuffer(6), null,
+                    Jolt.newDirectIntBuffer(1), EActivation.Activate);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+        try {
+            pool.reserve(-1);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+
+        TestUtils.testClose(pool, template, bcs, sphere);
+        TestUtils.cleanupPhysicsSystem(system);
+        System.gc();
+    }
+
+    /**
+     * Test bodies destroyed by other code, both free and in use.
+     */
+    private static void doDestroyedBodies() {
+        PhysicsSystem system = TestUtils.newPhysicsSystem(16);
+        BodyInterface bi = system.getBodyInterface();
+        SphereShape sphere = new SphereShape(0.5f);
+        BodyCreationSettings bcs = new BodyCreationSettings(sphere,
+                new RVec3(), new Quat(), EMotionType.Dynamic,
+                TestUtils.objLayerMoving);
+        BodyTemplate template = new BodyTemplate(bcs);
+        BodyPool pool = new BodyPool(system, template, 0);
+
+        // Destroy a free body, then acquire: the stale body counts as a miss:
+        BodyId freed = pool.acquire(new RVec3(), new Quat(), new Vec3(),
+                new Vec3(), EActivation.Activate);
+        Assert.assertTrue(pool.release(freed));
+        bi.destroyBody(freed);
+        pool.resetMetrics();
+        BodyId fresh = pool.acquire(new RVec3(), new Quat(), new Vec3(),
+                new Vec3(), EActivation.Activate);
+        Assert.assertFalse(fresh.isInvalid());
+        Assert.assertTrue(bi.isAdded(fresh));
+        Assert.assertEquals(0L, pool.countHits());
+        Assert.assertEquals(1L, pool.countMisses());
+        Assert.assertEquals(0, pool.countFree());
+
+        // Destroy a body in use, then release it: the pool forgets it:
+        bi.removeBody(fresh);
+        bi.destroyBody(fresh);
+        Assert.assertFalse(pool.release(fresh));
+        Assert.assertEquals(0, pool.countInUse());
+        Assert.assertEquals(0, pool.countFree());
+
+        // Stale free bodies are also skipped when trimming:
+        Assert.assertEquals(2, pool.reserve(2));
+        BodyId first = pool.acquire(new RVec3(), new Quat(), new Vec3(),
+                new Vec3(), EActivation.Activate);
+        Assert.assertTrue(pool.release(first));
+        bi.destroyBody(first);
+        Assert.assertEquals(0, pool.trim(1));
+        Assert.assertEquals(1, pool.countFree());
+        Assert.assertEquals(1, system.getNumBodies());
+
+        TestUtils.testClose(pool, template, bcs, sphere);
+        TestUtils.cleanupPhysicsSystem(system);
+        System.gc();
+    }
+
+    /**
+     * Test freeing a pool after its system.
+     */
+    private static void doSystemFreedFirst() {
+        PhysicsSystem system = TestUtils.newPhysicsSystem(4);
+        SphereShape sphere = new SphereShape(0.5f);
+        BodyCreationSettings bcs = new BodyCreationSettings(sphere,
+                new RVec3(), new Quat(), EMotionType.Dynamic,
+                TestUtils.objLayerMoving);
+        BodyTemplate template = new BodyTemplate(bcs);
+        BodyPool pool = new BodyPool(system, template, 2);
+        Assert.assertEquals(2, system.getNumBodies());
+
+        // The pool mustn't touch the system's (already destroyed) bodies:
+        TestUtils.cleanupPhysicsSystem(system);
+        TestUtils.testClose(pool, template, bcs, sphere);
+        System.gc();
+    }
+}
@@ -0,0 +1,192 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package testjoltjni.junit;
+
+import com.github.stephengold.joltjni.BodyCreationSettings;
+import com.github.stephengold.joltjni.BodyInterface;
+import com.github.stephengold.joltjni.BroadPhaseOptimizer;
+import com.github.stephengold.joltjni.Jolt;
+import com.github.stephengold.joltjni.JobSystem;
+import com.github.stephengold.joltjni.JobSystemThreadPool;
+import com.github.stephengold.joltjni.PhysicsSystem;
+import com.github.stephengold.joltjni.Quat;
+import com.github.stephengold.joltjni.RVec3;
+import com.github.stephengold.joltjni.SphereShape;
+import com.github.stephengold.joltjni.TempAllocator;
+import com.github.stephengold.joltjni.TempAllocatorMalloc;
+import com.github.stephengold.joltjni.enumerate.EActivation;
+import com.github.stephengold.joltjni.enumerate.EMotionType;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Assert;
+import org.junit.Test;
+import testjoltjni.TestUtils;
+
+/**
+ * Automated JUnit4 tests for {@code BroadPhaseOptimizer}.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class Test030 {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test churn tracking and the scheduling of broad-phase rebuilds.
+     */
+    @Test
+    public void test030() {
+        TestUtils.loadNativeLibrary();
+        TestUtils.initializeNativeLibrary();
+
+        doBroadPhaseOptimizer();
+
+        TestUtils.cleanup();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Test the {@code BroadPhaseOptimizer} class.
+     */
+    private static void doBroadPhaseOptimizer() {
+        PhysicsSystem system = TestUtils.newPhysicsSystem(200);
+        BroadPhaseOptimizer optimizer = new BroadPhaseOptimizer(system);
+        Assert.assertSame(system, optimizer.getSystem());
+        Assert.assertEquals(64, optimizer.getMinChurn());
+        Assert.assertEquals(0.25f, optimizer.getThreshold(), 0f);
+        Assert.assertEquals(0L, optimizer.getChurn());
+        Assert.assertFalse(optimizer.optimizeIfNeeded());
+
+        // Adding 100 bodies is detected as churn and triggers a rebuild:
+        BodyInterface bi = system.getBodyInterface();
+        SphereShape sphere = new SphereShape(0.5f);
+        BodyCreationSettings bcs = new BodyCreationSettings(sphere,
+                new RVec3(), new Quat(), EMotionType.Dynamic,
+                TestUtils.objLayerMoving);
+        for (int i = 0; i < 100; ++i) {
+            bcs.setPosition(new RVec3(2. * i, 0., 0.));
+            bi.createAndAddBody(bcs, EActivation.DontActivate);
+        }
+        Assert.assertEquals(100L, optimizer.getChurn());
+        Assert.assertEquals(1f, optimizer.degradation(), 1e-6f);
+        Assert.assertTrue(optimizer.optimizeIfNeeded());
+        Assert.assertEquals(1, optimizer.countRebuilds());
+        Assert.assertEquals(0L, optimizer.getChurn());
+        Assert.assertEquals(0f, optimizer.degradation(), 0f);
+        Assert.assertTrue(optimizer.getTotalRebuildNanos()
+                >= optimizer.getLastRebuildNanos());
+
+        // Reported churn below both thresholds doesn't trigger a rebuild:
+        optimizer.recordChurn(10);
+        Assert.assertEquals(10L, optimizer.getChurn());
+        Assert.assertFalse(optimizer.optimizeIfNeeded());
+        optimizer.setMinChurn(0);
+        Assert.assertFalse(optimizer.optimizeIfNeeded());
+
+        // A lower threshold does, during update():
+        optimizer.setThreshold(0.05f);
+        TempAllocator allocator = new TempAllocatorMalloc();
+        JobSystem jobSystem = new JobSystemThreadPool(Jolt.cMaxPhysicsJobs,
+                Jolt.cMaxPhysicsBarriers, TestUtils.numThreads());
+        int errors = optimizer.update(0.02f, 1, allocator, jobSystem);
+        Assert.assertEquals(0, errors);
+        Assert.assertEquals(2, optimizer.countRebuilds());
+
+        optimizer.resetMetrics();
+        Assert.assertEquals(0, optimizer.countRebuilds());
+        Assert.assertEquals(0L, optimizer.getTotalRebuildNanos());
+
+        // With an executor, each update is followed by a background update:
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        optimizer.setExecutor(executor);
+        Assert.assertSame(executor, optimizer.getExecutor());
+        Assert.assertFalse(optimizer.isUpdating());
+        Assert.assertFalse(optimizer.finishBackgroundUpdate());
+        errors = optimizer.update(0.02f, 1, allocator, jobSystem);
+        Assert.assertEquals(0, errors);
+        Assert.assertTrue(optimizer.isUpdating());
+        Assert.assertFalse(optimizer.startBackgroundUpdate());
+
+        // Only the starting thread may finish it:
+        Future<Boolean> future
+                = executor.submit(optimizer::finishBackgroundUpdate);
+        try {
+            future.get();
+            Assert.fail("Expected an IllegalStateException");
+        } catch (ExecutionException exception) {
+            Assert.assertTrue(
+                    exception.getCause() instanceof IllegalStateException);
+        } catch (InterruptedException exception) {
+            Assert.fail("Interrupted");
+        }
+        Assert.assertTrue(optimizer.isUpdating());
+
+        Assert.assertTrue(optimizer.finishBackgroundUpdate());
+        Assert.assertFalse(optimizer.isUpdating());
+        Assert.assertEquals(1, optimizer.countBackgroundUpdates());
+        Assert.assertEquals(0, optimizer.countRebuilds());
+
+        // Once finished, the broad phase may be modified again:
+        bi.createAndAddBody(bcs, EActivation.DontActivate);
+        Assert.assertEquals(101, system.getNumBodies());
+
+        // The next update finishes the previous background update:
+        optimizer.startBackgroundUpdate();
+        optimizer.update(0.02f, 1, allocator, jobSystem);
+        Assert.assertEquals(2, optimizer.countBackgroundUpdates());
+        optimizer.setExecutor(null);
+        Assert.assertFalse(optimizer.isUpdating());
+        Assert.assertEquals(3, optimizer.countBackgroundUpdates());
+        executor.shutdown();
+
+        optimizer.resetMetrics();
+        Assert.assertEquals(0, optimizer.countBackgroundUpdates());
+        Assert.assertEquals(0L, optimizer.getLastFinalizeNanos());
+
+        // Invalid arguments:
+        try {
+            optimizer.recordChurn(-1);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+        try {
+            optimizer.setMinChurn(-1);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+        try {
+            optimizer.setThreshold(0f);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+
+        TestUtils.testClose(jobSystem, allocator, bcs, sphere);
+        TestUtils.cleanupPhysicsSystem(system);
+        System.gc();
+    }
+}
@@ -0,0 +1,234 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package testjoltjni.junit;
+
+import com.github.stephengold.joltjni.BodyCreationSettings;
+import com.github.stephengold.joltjni.BodyId;
+import com.github.stephengold.joltjni.BodyInterface;
+import com.github.stephengold.joltjni.BroadPhaseLayerInterface;
+import com.github.stephengold.joltjni.CollisionMatrix;
+import com.github.stephengold.joltjni.CollisionMatrixBuilder;
+import com.github.stephengold.joltjni.Jolt;
+import com.github.stephengold.joltjni.JobSystem;
+import com.github.stephengold.joltjni.JobSystemThreadPool;
+import com.github.stephengold.joltjni.ObjectLayerPairFilter;
+import com.github.stephengold.joltjni.ObjectVsBroadPhaseLayerFilter;
+import com.github.stephengold.joltjni.PhysicsSystem;
+import com.github.stephengold.joltjni.Quat;
+import com.github.stephengold.joltjni.RVec3;
+import com.github.stephengold.joltjni.SphereShape;
+import com.github.stephengold.joltjni.TempAllocator;
+import com.github.stephengold.joltjni.TempAllocatorMalloc;
+import com.github.stephengold.joltjni.enumerate.EActivation;
+import com.github.stephengold.joltjni.enumerate.EMotionType;
+import org.junit.Assert;
+import org.junit.Test;
+import testjoltjni.TestUtils;
+
+/**
+ * Automated JUnit4 tests for {@code CollisionMatrixBuilder} and
+ * {@code CollisionMatrix}.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class Test031 {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test compiling collision rules into layer filters.
+     */
+    @Test
+    public void test031() {
+        TestUtils.loadNativeLibrary();
+        TestUtils.initializeNativeLibrary();
+
+        doCollisionMatrix();
+        doInvalidArguments();
+
+        TestUtils.cleanup();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Verify that the broad-phase filter never rejects a pair of object
+     * layers that should collide.
+     *
+     * @param matrix the matrix to verify (not null, unaffected)
+     */
+    private static void assertConservative(CollisionMatrix matrix) {
+        BroadPhaseLayerInterface map = matrix.getBroadPhaseLayerInterface();
+        ObjectVsBroadPhaseLayerFilter ovb = matrix.getObjVsBpFilter();
+        ObjectLayerPairFilter ovo = matrix.getObjVsObjFilter();
+        int numLayers = matrix.countObjectLayers();
+        for (int i = 0; i < numLayers; ++i) {
+            for (int j = 0; j < numLayers; ++j) {
+                if (ovo.shouldCollide(i, j)) {
+                    int bpLayer = map.getBroadPhaseLayer(j);
+                    Assert.assertTrue(ovb.shouldCollide(i, bpLayer));
+                }
+            }
+        }
+    }
+
+    /**
+     * Test a matrix with 4 object layers.
+     */
+    private static void doCollisionMatrix() {
+        CollisionMatrixBuilder builder = newBuilder();
+        Assert.assertEquals(4, builder.countLayers());
+        Assert.assertEquals(2, builder.findLayer("debris"));
+        Assert.assertEquals("sensor", builder.layerName(3));
+
+        // Groups and masks:
+        Assert.assertFalse(builder.shouldCollide(0, 0));
+        Assert.assertTrue(builder.shouldCollide(0, 1));
+        Assert.assertTrue(builder.shouldCollide(0, 2));
+        Assert.assertTrue(builder.shouldCollide(1, 1));
+        Assert.assertFalse(builder.shouldCollide(1, 2));
+        Assert.assertFalse(builder.shouldCollide(2, 2));
+
+        // Explicit pair rules override groups and masks:
+        Assert.assertTrue(builder.shouldCollide(3, 0));
+        builder.disablePair("sensor", "static");
+        Assert.assertFalse(builder.shouldCollide(0, 3));
+        Assert.assertTrue(builder.shouldCollide(3, 1));
+
+        CollisionMatrix matrix = builder.build();
+        Assert.assertEquals(4, matrix.countObjectLayers());
+        int numBpLayers = matrix.countBroadPhaseLayers();
+        Assert.assertTrue(numBpLayers >= 2 && numBpLayers <= 4);
+        BroadPhaseLayerInterface map = matrix.getBroadPhaseLayerInterface();
+        Assert.assertEquals(numBpLayers, map.getNumBroadPhaseLayers());
+        ObjectLayerPairFilter ovo = matrix.getObjVsObjFilter();
+        for (int i = 0; i < 4; ++i) {
+            for (int j = 0; j < 4; ++j) {
+                Assert.assertEquals(
+                        builder.shouldCollide(i, j), ovo.shouldCollide(i, j));
+            }
+        }
+        assertConservative(matrix);
+
+        // The only non-moving layer gets a broad-phase layer of its own:
+        int staticBp = map.getBroadPhaseLayer(0);
+        for (int i = 1; i < 4; ++i) {
+            Assert.assertNotEquals(staticBp, map.getBroadPhaseLayer(i));
+        }
+
+        // Rules can be changed after the matrix is built:
+        builder.enablePair("debris", "debris");
+        matrix.update(builder);
+        Assert.assertTrue(ovo.shouldCollide(2, 2));
+        assertConservative(matrix);
+
+        // With only 2 broad-phase layers, the filters remain conservative:
+        CollisionMatrix small = newBuilder().setMaxBroadPhaseLayers(2).build();
+        Assert.assertEquals(2, small.countBroadPhaseLayers());
+        assertConservative(small);
+
+        // Overlapping bodies in the "moving" layer push each other apart:
+        PhysicsSystem system = new PhysicsSystem();
+        system.init(16, 0, 1024, 1024, matrix.getBroadPhaseLayerInterface(),
+                matrix.getObjVsBpFilter(), matrix.getObjVsObjFilter());
+        BodyInterface bi = system.getBodyInterface();
+        SphereShape sphere = new SphereShape(0.5f);
+        BodyCreationSettings bcs = new BodyCreationSettings(sphere,
+                new RVec3(), new Quat(), EMotionType.Dynamic, 1);
+        BodyId left = bi.createAndAddBody(bcs, EActivation.Activate);
+        bcs.setPosition(new RVec3(0.5, 0., 0.));
+        BodyId right = bi.createAndAddBody(bcs, EActivation.Activate);
+        TempAllocator allocator = new TempAllocatorMalloc();
+        JobSystem jobSystem = new JobSystemThreadPool(Jolt.cMaxPhysicsJobs,
+                Jolt.cMaxPhysicsBarriers, TestUtils.numThreads());
+        int errors = system.update(0.02f, 1, allocator, jobSystem);
+        Assert.assertEquals(0, errors);
+        Assert.assertTrue(bi.getLinearVelocity(left).getX() < 0f);
+        Assert.assertTrue(bi.getLinearVelocity(right).getX() > 0f);
+
+        TestUtils.testClose(jobSystem, allocator, bcs, sphere, system, small,
+                matrix);
+        System.gc();
+    }
+
+    /**
+     * Test invalid arguments to the builder and the matrix.
+     */
+    private static void doInvalidArguments() {
+        CollisionMatrixBuilder empty = new CollisionMatrixBuilder();
+        try {
+            empty.build();
+            Assert.fail("Expected an IllegalStateException");
+        } catch (IllegalStateException exception) {
+            // expected
+        }
+
+        CollisionMatrixBuilder builder = newBuilder();
+        try {
+            builder.addLayer("moving");
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+        try {
+            builder.findLayer("missing");
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+        try {
+            builder.setMaxBroadPhaseLayers(0);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+
+        CollisionMatrix matrix = builder.build();
+        builder.addLayer("extra");
+        try {
+            matrix.update(builder);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+
+        TestUtils.testClose(matrix);
+        System.gc();
+    }
+
+    /**
+     * Create a builder with 4 layers: static (non-moving), moving, debris
+     * (which collides only with static), and sensor (which collides with
+     * everything).
+     *
+     * @return a new instance
+     */
+    private static CollisionMatrixBuilder newBuilder() {
+        CollisionMatrixBuilder result = new CollisionMatrixBuilder();
+        result.addLayer("static", 0b001, 0b110, true);
+        result.addLayer("moving", 0b010, 0b011, false);
+        result.addLayer("debris", 0b100, 0b001, false);
+        result.addLayer("sensor");
+
+        return result;
+    }
+}
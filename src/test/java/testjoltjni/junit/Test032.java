@@ -0,0 +1,223 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package testjoltjni.junit;
+
+import com.github.stephengold.joltjni.Body;
+import com.github.stephengold.joltjni.BodyCreationSettings;
+import com.github.stephengold.joltjni.BodyInterface;
+import com.github.stephengold.joltjni.BoxShape;
+import com.github.stephengold.joltjni.ContactGraphListener;
+import com.github.stephengold.joltjni.CustomContactListener;
+import com.github.stephengold.joltjni.Jolt;
+import com.github.stephengold.joltjni.JobSystem;
+import com.github.stephengold.joltjni.JobSystemThreadPool;
+import com.github.stephengold.joltjni.PhysicsSystem;
+import com.github.stephengold.joltjni.PointConstraintSettings;
+import com.github.stephengold.joltjni.Quat;
+import com.github.stephengold.joltjni.RVec3;
+import com.github.stephengold.joltjni.TempAllocator;
+import com.github.stephengold.joltjni.TempAllocatorMalloc;
+import com.github.stephengold.joltjni.TwoBodyConstraint;
+import com.github.stephengold.joltjni.Vec3;
+import com.github.stephengold.joltjni.enumerate.EActivation;
+import com.github.stephengold.joltjni.enumerate.EMotionType;
+import com.github.stephengold.joltjni.enumerate.ValidateResult;
+import java.nio.IntBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+import testjoltjni.TestUtils;
+
+/**
+ * Automated JUnit4 tests for {@code ContactGraphListener}.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class Test032 {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test the contact graph and island partitioning of a small scene.
+     */
+    @Test
+    public void test032() {
+        TestUtils.loadNativeLibrary();
+        TestUtils.initializeNativeLibrary();
+
+        doContactGraphListener();
+
+        TestUtils.cleanup();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Add a dynamic 1-meter cube resting at the specified location.
+     *
+     * @param bi the interface to use (not null)
+     * @param bcs the settings for a dynamic cube (not null, modified)
+     * @param x the X coordinate of the cube's center
+     * @param y the Y coordinate of the cube's center
+     * @return the new body
+     */
+    private static Body addCube(
+            BodyInterface bi, BodyCreationSettings bcs, double x, double y) {
+        bcs.setPosition(new RVec3(x, y, 0.));
+        Body result = bi.createBody(bcs);
+        bi.addBody(result.getId(), EActivation.Activate);
+
+        return result;
+    }
+
+    /**
+     * Test the {@code ContactGraphListener} class with a 2-cube stack, a lone
+     * cube, and a pair of constrained cubes, all on a static floor.
+     */
+    private static void doContactGraphListener() {
+        PhysicsSystem system = TestUtils.newPhysicsSystem(16);
+        ContactGraphListener listener = new ContactGraphListener();
+        AtomicInteger numForwarded = new AtomicInteger();
+        CustomContactListener next = new CustomContactListener() {
+            @Override
+            public void onContactAdded(long body1Va, long body2Va,
+                    long manifoldVa, long settingsVa) {
+                numForwarded.incrementAndGet();
+            }
+
+            @Override
+            public void onContactPersisted(long body1Va, long body2Va,
+                    long manifoldVa, long settingsVa) {
+                // do nothing
+            }
+
+            @Override
+            public void onContactRemoved(long pairVa) {
+                // do nothing
+            }
+
+            @Override
+            public int onContactValidate(long body1Va, long body2Va,
+                    double baseOffsetX, double baseOffsetY,
+                    double baseOffsetZ, long collisionResultVa) {
+                return ValidateResult.AcceptAllContactsForThisBodyPair
+                        .ordinal();
+            }
+        };
+        listener.setNext(next);
+        Assert.assertSame(next, listener.getNext());
+        system.setContactListener(listener);
+
+        BodyInterface bi = system.getBodyInterface();
+        BoxShape floorShape = new BoxShape(new Vec3(50f, 0.5f, 50f));
+        BodyCreationSettings floorBcs = new BodyCreationSettings(floorShape,
+                new RVec3(0., -0.5, 0.), new Quat(), EMotionType.Static,
+                TestUtils.objLayerNonMoving);
+        bi.createAndAddBody(floorBcs, EActivation.DontActivate);
+
+        BoxShape cube = new BoxShape(new Vec3(0.5f, 0.5f, 0.5f));
+        BodyCreationSettings bcs = new BodyCreationSettings(cube,
+                new RVec3(), new Quat(), EMotionType.Dynamic,
+                TestUtils.objLayerMoving);
+        addCube(bi, bcs, 0., 0.5);
+        addCube(bi, bcs, 0., 1.5);
+        addCube(bi, bcs, 10., 0.5);
+        Body left = addCube(bi, bcs, 20., 0.5);
+        Body right = addCube(bi, bcs, 23., 0.5);
+        PointConstraintSettings pcs = new PointConstraintSettings();
+        pcs.setPoint1(new RVec3(21.5, 0.5, 0.));
+        pcs.setPoint2(new RVec3(21.5, 0.5, 0.));
+        TwoBodyConstraint constraint = pcs.create(left, right);
+        system.addConstraint(constraint);
+
+        TempAllocator allocator = new TempAllocatorMalloc();
+        JobSystem jobSystem = new JobSystemThreadPool(Jolt.cMaxPhysicsJobs,
+                Jolt.cMaxPhysicsBarriers, TestUtils.numThreads());
+        for (int i = 0; i < 5; ++i) {
+            system.update(0.02f, 1, allocator, jobSystem);
+        }
+
+        // 4 cubes on the floor, plus 1 on another cube:
+        int numPairs = listener.countContactPairs();
+        Assert.assertEquals(5, numPairs);
+        Assert.assertTrue(numForwarded.get() >= numPairs);
+
+        IntBuffer bodyIds = Jolt.newDirectIntBuffer(2 * numPairs);
+        IntBuffer starts = Jolt.newDirectIntBuffer(2 * numPairs + 1);
+        IntBuffer neighbors = Jolt.newDirectIntBuffer(2 * numPairs);
+        int numBodies = listener.exportAdjacency(bodyIds, starts, neighbors);
+        Assert.assertEquals(6, numBodies);
+        Assert.assertEquals(0, starts.get(0));
+        Assert.assertEquals(2 * numPairs, starts.get(numBodies));
+        Assert.assertEquals(0, bodyIds.position());
+        int maxDegree = 0;
+        for (int i = 0; i < numBodies; ++i) {
+            int degree = starts.get(i + 1) - starts.get(i);
+            maxDegree = Math.max(maxDegree, degree);
+        }
+        Assert.assertEquals(4, maxDegree); // the floor
+
+        // The static floor joins no island, but the constraint does:
+        Assert.assertEquals(3, listener.buildIslands(system));
+        Assert.assertEquals(3, listener.countIslands());
+        Assert.assertEquals(5, listener.countIslandBodies());
+        Assert.assertEquals(1, listener.countIslandConstraints());
+        IntBuffer bodyStarts = Jolt.newDirectIntBuffer(4);
+        IntBuffer islandBodies = Jolt.newDirectIntBuffer(5);
+        IntBuffer constraintStarts = Jolt.newDirectIntBuffer(4);
+        IntBuffer constraintIndices = Jolt.newDirectIntBuffer(1);
+        listener.exportIslands(bodyStarts, islandBodies, constraintStarts,
+                constraintIndices);
+        Assert.assertEquals(5, bodyStarts.get(3));
+        Assert.assertEquals(1, constraintStarts.get(3));
+        Assert.assertEquals(0, constraintIndices.get(0));
+        int island = -1;
+        for (int i = 0; i < 3; ++i) {
+            if (constraintStarts.get(i + 1) > constraintStarts.get(i)) {
+                island = i;
+            }
+        }
+        Assert.assertEquals(2, bodyStarts.get(island + 1)
+                - bodyStarts.get(island));
+
+        // Buffers that are too small or indirect:
+        try {
+            listener.exportAdjacency(bodyIds, Jolt.newDirectIntBuffer(1),
+                    neighbors);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+        try {
+            listener.exportIslands(IntBuffer.allocate(4), islandBodies,
+                    constraintStarts, constraintIndices);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+
+        TestUtils.testClose(jobSystem, allocator, pcs, bcs, cube, floorBcs,
+                floorShape);
+        TestUtils.cleanupPhysicsSystem(system);
+        System.gc();
+    }
+}
@@ -0,0 +1,256 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package testjoltjni.junit;
+
+import com.github.stephengold.joltjni.ActivationBudget;
+import com.github.stephengold.joltjni.BodyCreationSettings;
+import com.github.stephengold.joltjni.BodyId;
+import com.github.stephengold.joltjni.BodyInterface;
+import com.github.stephengold.joltjni.Jolt;
+import com.github.stephengold.joltjni.JobSystem;
+import com.github.stephengold.joltjni.JobSystemThreadPool;
+import com.github.stephengold.joltjni.PhysicsSystem;
+import com.github.stephengold.joltjni.Quat;
+import com.github.stephengold.joltjni.RVec3;
+import com.github.stephengold.joltjni.SphereShape;
+import com.github.stephengold.joltjni.TempAllocator;
+import com.github.stephengold.joltjni.TempAllocatorMalloc;
+import com.github.stephengold.joltjni.Vec3;
+import com.github.stephengold.joltjni.enumerate.EActivation;
+import com.github.stephengold.joltjni.enumerate.EMotionType;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+import testjoltjni.TestUtils;
+
+/**
+ * Automated JUnit4 tests for {@code ActivationBudget}.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class Test033 {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test capping, re-activation, re-enforcement, and priority pruning.
+     */
+    @Test
+    public void test033() {
+        TestUtils.loadNativeLibrary();
+        TestUtils.initializeNativeLibrary();
+
+        doBudget();
+        doContactWake();
+        doPruning();
+
+        TestUtils.cleanup();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Add 10 active spheres without gravity, 10 meters apart along the X
+     * axis.
+     *
+     * @param system the system to add to (not null)
+     * @return the IDs of the new bodies (length 10)
+     */
+    private static BodyId[] addSpheres(PhysicsSystem system) {
+        BodyInterface bi = system.getBodyInterface();
+        SphereShape sphere = new SphereShape(0.5f);
+        BodyCreationSettings bcs = new BodyCreationSettings(sphere,
+                new RVec3(), new Quat(), EMotionType.Dynamic,
+                TestUtils.objLayerMoving);
+        bcs.setLinearVelocity(new Vec3(0f, 1f, 0f));
+        BodyId[] result = new BodyId[10];
+        for (int i = 0; i < 10; ++i) {
+            bcs.setPosition(new RVec3(10. * i, 0., 0.));
+            result[i] = bi.createAndAddBody(bcs, EActivation.Activate);
+        }
+        TestUtils.testClose(bcs, sphere);
+
+        return result;
+    }
+
+    /**
+     * Test deactivation by priority and re-activation near an observer.
+     */
+    private static void doBudget() {
+        PhysicsSystem system = TestUtils.newPhysicsSystem(16);
+        system.setGravity(new Vec3());
+        BodyId[] ids = addSpheres(system);
+        BodyInterface bi = system.getBodyInterface();
+        ActivationBudget budget = new ActivationBudget(system, 4);
+        Assert.assertSame(system, budget.getSystem());
+        Assert.assertEquals(4, budget.getMaxActive());
+
+        IntBuffer idBuffer = Jolt.newDirectIntBuffer(4);
+        FloatBuffer priorities = Jolt.newDirectFloatBuffer(4);
+        for (int i = 0; i < 4; ++i) {
+            idBuffer.put(ids[i].getIndexAndSequenceNumber());
+            priorities.put(10f);
+        }
+        idBuffer.flip();
+        priorities.flip();
+        budget.setPriorities(idBuffer, priorities);
+        Assert.assertEquals(4, budget.countPriorities());
+
+        // The 6 least important bodies are deactivated and queued:
+        Assert.assertEquals(6, budget.enforce());
+        Assert.assertEquals(10, budget.countActive());
+        Assert.assertEquals(10, budget.getPeakActive());
+        Assert.assertEquals(6L, budget.countDeactivated());
+        Assert.assertEquals(6, budget.countQueued());
+        for (int i = 0; i < 10; ++i) {
+            Assert.assertEquals(i < 4, bi.isActive(ids[i]));
+        }
+
+        // With room for 1 more, the queued body nearest an observer wakes:
+        budget.setMaxActive(5);
+        budget.setWakeRadius(5f);
+        int observer = budget.addObserver(new RVec3(72., 0., 0.));
+        Assert.assertEquals(0, observer);
+        Assert.assertEquals(1, budget.countObservers());
+        Assert.assertEquals(0, budget.enforce());
+        Assert.assertTrue(bi.isActive(ids[7]));
+        Assert.assertFalse(bi.isActive(ids[6]));
+        Assert.assertEquals(1L, budget.countReactivated());
+        Assert.assertEquals(5, budget.countQueued());
+
+        // Moving the observer wakes nothing while the budget is full:
+        budget.setObserver(0, new RVec3(50., 0., 0.));
+        Assert.assertEquals(0, budget.enforce());
+        Assert.assertFalse(bi.isActive(ids[5]));
+
+        budget.resetMetrics();
+        Assert.assertEquals(0L, budget.countDeactivated());
+        Assert.assertEquals(0L, budget.countReactivated());
+        budget.clearObservers();
+        Assert.assertEquals(0, budget.countObservers());
+
+        // Invalid arguments:
+        try {
+            budget.setMaxActive(-1);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+        try {
+            budget.setObserver(0, new RVec3());
+            Assert.fail("Expected an IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException exception) {
+            // expected
+        }
+        try {
+            budget.setPriorities(IntBuffer.allocate(1), priorities);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+
+        TestUtils.testClose(budget);
+        TestUtils.cleanupPhysicsSystem(system);
+        System.gc();
+    }
+
+    /**
+     * Test that a body woken by a contact is deactivated again by the next
+     * enforcement.
+     */
+    private static void doContactWake() {
+        PhysicsSystem system = TestUtils.newPhysicsSystem(16);
+        system.setGravity(new Vec3());
+        BodyInterface bi = system.getBodyInterface();
+        SphereShape sphere = new SphereShape(0.5f);
+        BodyCreationSettings bcs = new BodyCreationSettings(sphere,
+                new RVec3(), new Quat(), EMotionType.Dynamic,
+                TestUtils.objLayerMoving);
+        bcs.setLinearVelocity(new Vec3(10f, 0f, 0f));
+        BodyId striker = bi.createAndAddBody(bcs, EActivation.Activate);
+        bcs.setPosition(new RVec3(2., 0., 0.));
+        bcs.setLinearVelocity(new Vec3());
+        BodyId target = bi.createAndAddBody(bcs, EActivation.Activate);
+
+        ActivationBudget budget = new ActivationBudget(system, 1);
+        budget.setPriority(striker, 10f);
+        Assert.assertEquals(1, budget.enforce());
+        Assert.assertFalse(bi.isActive(target));
+
+        // Plain updates let the collision wake the target, exceeding the cap:
+        TempAllocator allocator = new TempAllocatorMalloc();
+        JobSystem jobSystem = new JobSystemThreadPool(Jolt.cMaxPhysicsJobs,
+                Jolt.cMaxPhysicsBarriers, TestUtils.numThreads());
+        for (int i = 0; i < 20; ++i) {
+            system.update(0.02f, 1, allocator, jobSystem);
+        }
+        Assert.assertTrue(bi.isActive(striker));
+        Assert.assertTrue(bi.isActive(target));
+
+        // Updating through the budget re-enforces the cap first:
+        int errors = budget.update(0.02f, 1, allocator, jobSystem);
+        Assert.assertEquals(0, errors);
+        Assert.assertEquals(2, budget.countActive());
+        Assert.assertEquals(2L, budget.countDeactivated());
+        budget.enforce();
+        Assert.assertTrue(bi.isActive(striker));
+        Assert.assertFalse(bi.isActive(target));
+
+        TestUtils.testClose(jobSystem, allocator, budget, bcs, sphere);
+        TestUtils.cleanupPhysicsSystem(system);
+        System.gc();
+    }
+
+    /**
+     * Test that the priorities of destroyed bodies are discarded.
+     */
+    private static void doPruning() {
+        PhysicsSystem system = TestUtils.newPhysicsSystem(128);
+        system.setGravity(new Vec3());
+        BodyInterface bi = system.getBodyInterface();
+        SphereShape sphere = new SphereShape(0.5f);
+        BodyCreationSettings bcs = new BodyCreationSettings(sphere,
+                new RVec3(), new Quat(), EMotionType.Dynamic,
+                TestUtils.objLayerMoving);
+        ActivationBudget budget = new ActivationBudget(system, 100);
+        BodyId[] ids = new BodyId[100];
+        for (int i = 0; i < 100; ++i) {
+            bcs.setPosition(new RVec3(2. * i, 0., 0.));
+            ids[i] = bi.createAndAddBody(bcs, EActivation.DontActivate);
+            budget.setPriority(ids[i], i);
+        }
+        Assert.assertEquals(100, budget.countPriorities());
+
+        for (int i = 10; i < 100; ++i) {
+            bi.removeBody(ids[i]);
+            bi.destroyBody(ids[i]);
+        }
+        Assert.assertEquals(100, budget.countPriorities());
+        budget.enforce();
+        Assert.assertEquals(10, budget.countPriorities());
+
+        TestUtils.testClose(budget, bcs, sphere);
+        TestUtils.cleanupPhysicsSystem(system);
+        System.gc();
+    }
+}
@@ -0,0 +1,129 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package testjoltjni.junit;
+
+import com.github.stephengold.joltjni.HeightFieldShape;
+import com.github.stephengold.joltjni.HeightFieldShapeSettings;
+import com.github.stephengold.joltjni.Jolt;
+import com.github.stephengold.joltjni.PhysicsMaterialList;
+import com.github.stephengold.joltjni.PhysicsMaterialSimple;
+import com.github.stephengold.joltjni.ShapeRefC;
+import com.github.stephengold.joltjni.ShapeResult;
+import com.github.stephengold.joltjni.Vec3;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+import testjoltjni.TestUtils;
+
+/**
+ * Automated JUnit4 tests for copying the materials of a
+ * {@code HeightFieldShape}.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class Test034 {
+    // *************************************************************************
+    // constants
+
+    /**
+     * number of samples along each edge of the test height field
+     */
+    final private static int sampleCount = 4;
+    /**
+     * number of cells along each edge of the test height field
+     */
+    final private static int numCells = sampleCount - 1;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test getMaterials() on a height field that has materials.
+     */
+    @Test
+    public void test034() {
+        TestUtils.loadNativeLibrary();
+        TestUtils.initializeNativeLibrary();
+
+        doGetMaterials();
+
+        TestUtils.cleanup();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Verify that materials are copied per cell, up to the last cell.
+     */
+    private static void doGetMaterials() {
+        PhysicsMaterialList materialList = new PhysicsMaterialList();
+        materialList.resize(3);
+        for (int i = 0; i < 3; ++i) {
+            materialList.set(i, new PhysicsMaterialSimple().toRef());
+        }
+        byte[] indices = new byte[numCells * numCells];
+        for (int y = 0; y < numCells; ++y) {
+            for (int x = 0; x < numCells; ++x) {
+                indices[x + numCells * y] = (byte) ((x + 2 * y) % 3);
+            }
+        }
+        FloatBuffer samples
+                = Jolt.newDirectFloatBuffer(sampleCount * sampleCount);
+        HeightFieldShapeSettings settings = new HeightFieldShapeSettings(
+                samples, new Vec3(), new Vec3(1f, 1f, 1f), sampleCount,
+                indices, materialList);
+        ShapeResult result = settings.create();
+        Assert.assertFalse(result.hasError());
+        ShapeRefC ref = result.get();
+        HeightFieldShape shape = (HeightFieldShape) ref.getPtr();
+
+        // Copy every cell:
+        ByteBuffer materials = ByteBuffer.allocateDirect(numCells * numCells);
+        shape.getMaterials(0, 0, numCells, numCells, materials, numCells);
+        for (int i = 0; i < indices.length; ++i) {
+            Assert.assertEquals(indices[i], materials.get(i));
+        }
+
+        // Copy a region that ends at the last cell:
+        shape.getMaterials(1, 2, 2, 1, materials, 2);
+        Assert.assertEquals(2, materials.get(0)); // (1,2)
+        Assert.assertEquals(0, materials.get(1)); // (2,2)
+
+        // A region that ends at the last sample is out of range:
+        try {
+            shape.getMaterials(2, 2, 2, 1, materials, 2);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+        try {
+            shape.getMaterials(0, 1, numCells, numCells, materials,
+                    numCells);
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+
+        TestUtils.testClose(shape, ref, result, settings, materialList);
+        System.gc();
+    }
+}
@@ -0,0 +1,227 @@
+/*
+Copyright (c) 2024 Stephen Gold
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package testjoltjni.junit;
+
+import com.github.stephengold.joltjni.BodyCreationSettings;
+import com.github.stephengold.joltjni.BodyId;
+import com.github.stephengold.joltjni.BodyInterface;
+import com.github.stephengold.joltjni.Jolt;
+import com.github.stephengold.joltjni.PhysicsSystem;
+import com.github.stephengold.joltjni.Quat;
+import com.github.stephengold.joltjni.RVec3;
+import com.github.stephengold.joltjni.SphereShape;
+import com.github.stephengold.joltjni.enumerate.EActivation;
+import com.github.stephengold.joltjni.enumerate.EBodyType;
+import com.github.stephengold.joltjni.enumerate.EMotionType;
+import com.github.stephengold.joltjni.readonly.ConstBodyCreationSettings;
+import java.nio.IntBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+import testjoltjni.TestUtils;
+
+/**
+ * Automated JUnit4 tests for bulk creation, insertion, removal, and
+ * destruction of bodies.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class Test035 {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test the bulk life-cycle methods of {@code BodyInterface}.
+     */
+    @Test
+    public void test035() {
+        TestUtils.loadNativeLibrary();
+        TestUtils.initializeNativeLibrary();
+
+        doLifeCycle();
+        doPrepareFinalizeAbort();
+        doOutOfBodies();
+
+        TestUtils.cleanup();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Test create/add/remove/destroy for a batch of bodies.
+     */
+    private static void doLifeCycle() {
+        PhysicsSystem system = TestUtils.newPhysicsSystem(8);
+        BodyInterface bi = system.getBodyInterface();
+        SphereShape sphere = new SphereShape(0.5f);
+        ConstBodyCreationSettings[] settings = newSettings(sphere, 3);
+
+        IntBuffer ids = Jolt.newDirectIntBuffer(3);
+        Assert.assertEquals(3, bi.createBodies(settings, ids));
+        Assert.assertEquals(3, ids.position());
+        Assert.assertEquals(3, system.getNumBodies());
+        ids.flip();
+        assertAdded(false, bi, ids);
+
+        bi.addBodies(ids, EActivation.Activate);
+        assertAdded(true, bi, ids);
+        Assert.assertEquals(
+                3, system.getNumActiveBodies(EBodyType.RigidBody));
+
+        bi.removeBodies(ids);
+        assertAdded(false, bi, ids);
+        Assert.assertEquals(3, system.getNumBodies());
+
+        bi.destroyBodies(ids);
+        Assert.assertEquals(0, system.getNumBodies());
+
+        // The ID buffer must be large enough and direct:
+        try {
+            bi.createBodies(settings, Jolt.newDirectIntBuffer(2));
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+        try {
+            bi.createBodies(settings, IntBuffer.allocate(3));
+            Assert.fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+        Assert.assertEquals(0, system.getNumBodies());
+
+        TestUtils.testClose(sphere);
+        TestUtils.cleanupPhysicsSystem(system);
+        System.gc();
+    }
+
+    /**
+     * Test the out-of-bodies case, which fills the rest of the ID buffer with
+     * {@code cInvalidBodyId}.
+     */
+    private static void doOutOfBodies() {
+        PhysicsSystem system = TestUtils.newPhysicsSystem(4);
+        BodyInterface bi = system.getBodyInterface();
+        SphereShape sphere = new SphereShape(0.5f);
+        ConstBodyCreationSettings[] settings = newSettings(sphere, 6);
+
+        IntBuffer ids = Jolt.newDirectIntBuffer(6);
+        Assert.assertEquals(4, bi.createBodies(settings, ids));
+        Assert.assertEquals(6, ids.position());
+        Assert.assertEquals(4, system.getNumBodies());
+        for (int i = 0; i < 4; ++i) {
+            Assert.assertNotEquals(BodyId.cInvalidBodyId, ids.get(i));
+        }
+        Assert.assertEquals(BodyId.cInvalidBodyId, ids.get(4));
+        Assert.assertEquals(BodyId.cInvalidBodyId, ids.get(5));
+
+        ids.flip();
+        ids.limit(4);
+        bi.destroyBodies(ids);
+        Assert.assertEquals(0, system.getNumBodies());
+
+        TestUtils.testClose(sphere);
+        TestUtils.cleanupPhysicsSystem(system);
+        System.gc();
+    }
+
+    /**
+     * Test adding a batch in 2 phases, both aborted and finalized.
+     */
+    private static void doPrepareFinalizeAbort() {
+        PhysicsSystem system = TestUtils.newPhysicsSystem(8);
+        BodyInterface bi = system.getBodyInterface();
+        SphereShape sphere = new SphereShape(0.5f);
+        ConstBodyCreationSettings[] settings = newSettings(sphere, 4);
+
+        IntBuffer ids = Jolt.newDirectIntBuffer(4);
+        bi.createBodies(settings, ids);
+        ids.flip();
+
+        // An aborted batch isn't added:
+        long addState = bi.addBodiesPrepare(ids);
+        bi.addBodiesAbort(ids, addState);
+        assertAdded(false, bi, ids);
+
+        // A finalized batch is added, with the specified activation:
+        addState = bi.addBodiesPrepare(ids);
+        bi.addBodiesFinalize(ids, addState, EActivation.DontActivate);
+        assertAdded(true, bi, ids);
+        for (int i = 0; i < 4; ++i) {
+            Assert.assertFalse(bi.isActive(toBodyId(ids.get(i))));
+        }
+
+        bi.removeBodies(ids);
+        bi.destroyBodies(ids);
+        Assert.assertEquals(0, system.getNumBodies());
+
+        TestUtils.testClose(sphere);
+        TestUtils.cleanupPhysicsSystem(system);
+        System.gc();
+    }
+
+    /**
+     * Verify whether each of the specified bodies is added to its system.
+     *
+     * @param expected true if they should be added, false if not
+     * @param bi the interface to use (not null)
+     * @param ids the body IDs to check (not null, unaffected)
+     */
+    private static void assertAdded(
+            boolean expected, BodyInterface bi, IntBuffer ids) {
+        for (int i = ids.position(); i < ids.limit(); ++i) {
+            Assert.assertEquals(expected, bi.isAdded(toBodyId(ids.get(i))));
+        }
+    }
+
+    /**
+     * Generate settings for a batch of dynamic spheres, spaced apart.
+     *
+     * @param shape the shape to use (not null)
+     * @param numBodies the number of settings to generate (&ge;0)
+     * @return a new array of new settings
+     */
+    private static ConstBodyCreationSettings[] newSettings(
+            SphereShape shape, int numBodies) {
+        ConstBodyCreationSettings[] result
+                = new ConstBodyCreationSettings[numBodies];
+        for (int i = 0; i < numBodies; ++i) {
+            result[i] = new BodyCreationSettings(shape,
+                    new RVec3(2. * i, 0., 0.), new Quat(),
+                    EMotionType.Dynamic, TestUtils.objLayerMoving);
+        }
+
+        return result;
+    }
+
+    /**
+     * Convert the specified integer to a body ID.
+     *
+     * @param indexAndSequence the index and sequence number to use
+     * @return a new ID
+     */
+    private static BodyId toBodyId(int indexAndSequence) {
+        BodyId result = new BodyId();
+        result.setIndexAndSequenceNumber(indexAndSequence);
+
+        return result;
+    }
+}